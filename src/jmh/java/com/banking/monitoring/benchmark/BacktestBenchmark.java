@@ -0,0 +1,74 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.ingest.Backtester;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replay throughput of one backtest configuration over a generated, labelled recording of 1M samples from 20
+ * endpoints. Each invocation loads the file and replays it on one thread; the samples per second of the last replay
+ * are printed on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BacktestBenchmark {
+    private static final int ROWS = 1_000_000;
+    private static final int ENDPOINTS = 20;
+
+    private Path directory;
+    private Path file;
+    private Backtester backtester;
+    private final List<Backtester.DetectorConfig> configs = List.of(new Backtester.DetectorConfig(null, 0, 0, 0, 0));
+    private Backtester.BacktestResult last;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("backtest");
+        file = directory.resolve("recording.csv");
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("timestamp,endpoint,responseTime,errorRate,cpuUsage,memoryUsage,networkLatency,label\n");
+            for (int i = 0; i < ROWS; i++) {
+                int tick = i / ENDPOINTS;
+                // a labelled latency incident over the last 2% of every 5000 ticks
+                boolean incident = tick % 5000 >= 4900;
+                out.write(String.format(Locale.ROOT, "%d,/api/endpoint-%d,%.2f,%.3f,%.1f,%.1f,%.2f,%d%n",
+                        1_700_000_000_000L + tick * 1000L, i % ENDPOINTS,
+                        (incident ? 400 : 120) + random.nextGaussian() * 15, 0.01,
+                        35 + random.nextGaussian() * 3, 60 + random.nextDouble(), 8 + random.nextDouble() * 2,
+                        incident ? 1 : 0));
+            }
+        }
+        backtester = new Backtester(directory, 1, ROWS, 1, Duration.ofSeconds(1));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (last != null) {
+            System.out.printf(Locale.ROOT, "%n%d samples replayed at %.0f samples/s%n", last.samples(),
+                    last.configs().get(0).samplesPerSecond());
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        last = backtester.backtest(file, null, configs);
+        return last.configs().get(0).detectedEvents();
+    }
+}
@@ -0,0 +1,92 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.AnomalyScorer;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.ScoringBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring one sample per endpoint, as a collection tick produces them: per-sample {@code evaluate} against the
+ * batch path with the scalar and the vectorized scorer, and the scoring kernels alone on prepared columns. Scores
+ * are per batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchAnomalyScoringBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int endpoints;
+
+    private AnomalyDetectionService scalarService;
+    private AnomalyDetectionService vectorService;
+    private List<ApiMetrics> samples;
+    private ScoringBatch batch;
+    private AnomalyScorer scalar;
+    private AnomalyScorer vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] names = Endpoints.names(endpoints);
+        scalarService = new AnomalyDetectionService(PipelineMetrics.noop(), 100, false);
+        vectorService = new AnomalyDetectionService(PipelineMetrics.noop(), 100, true);
+        samples = new ArrayList<>(endpoints);
+        for (String name : names) {
+            for (int j = 0; j < 100; j++) {
+                ApiMetrics warm = Endpoints.normal(name, random);
+                scalarService.evaluate(warm);
+                vectorService.evaluate(warm);
+            }
+            samples.add(random.nextInt(50) == 0 ? Endpoints.anomalous(name) : Endpoints.normal(name, random));
+        }
+
+        batch = new ScoringBatch(endpoints);
+        for (ApiMetrics sample : samples) {
+            batch.add(sample.getResponseTime(), 100, 10, sample.getErrorRate(), 0.01, 0.005,
+                    sample.getCpuUsage(), sample.getMemoryUsage(), sample.getNetworkLatency());
+        }
+        scalar = AnomalyScorer.scalar(AnomalyScorer.Thresholds.DEFAULT);
+        vector = AnomalyScorer.create(true, AnomalyScorer.Thresholds.DEFAULT);
+    }
+
+    @Benchmark
+    public double evaluateEach() {
+        double total = 0;
+        for (ApiMetrics sample : samples) {
+            total += scalarService.evaluate(sample).getAnomalyScore();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public List<ApiMetrics> evaluateAllScalar() {
+        return scalarService.evaluateAll(samples);
+    }
+
+    @Benchmark
+    public List<ApiMetrics> evaluateAllVector() {
+        return vectorService.evaluateAll(samples);
+    }
+
+    @Benchmark
+    public double scoreScalar() {
+        scalar.score(batch);
+        return batch.getAnomalyScore(0);
+    }
+
+    @Benchmark
+    public double scoreVector() {
+        vector.score(batch);
+        return batch.getAnomalyScore(0);
+    }
+}
@@ -0,0 +1,77 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.ingest.BulkImporter;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse throughput of the bulk importer on a generated CSV export (baselines are updated, models are not trained).
+ * Each invocation imports the whole file; the per-thread throughput of the last import is printed on teardown.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkImportBenchmark {
+    private static final int ROWS = 2_000_000;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private Path directory;
+    private Path file;
+    private BulkImporter importer;
+    private BulkImporter.ImportResult last;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("bulk-import");
+        file = directory.resolve("requests.csv");
+        String[] names = Endpoints.names(100);
+        Random random = new Random(42);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("timestamp,endpoint,responseTime,statusCode,cpuUsage,memoryUsage,networkLatency\n");
+            for (int i = 0; i < ROWS; i++) {
+                out.write(String.format(Locale.ROOT, "%d,%s,%.2f,%d,%.1f,%.1f,%.2f%n",
+                        1_700_000_000_000L + i, names[random.nextInt(names.length)],
+                        120 + random.nextGaussian() * 15, random.nextInt(50) == 0 ? 500 : 200,
+                        35 + random.nextGaussian() * 3, 60 + random.nextDouble(), 8 + random.nextDouble() * 2));
+            }
+        }
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        importer = new BulkImporter(new AnomalyDetectionService(pipelineMetrics),
+                new PredictiveAnalyticsService(pipelineMetrics), directory, threads, DataSize.ofMegabytes(32),
+                5000, 10000);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (last != null) {
+            System.out.printf(Locale.ROOT, "%n%.1f MB in %d ms on %d threads: %.1f MB/s per thread%n",
+                    last.bytes() / 1e6, last.parseMillis(), last.threads(),
+                    last.getParseMegabytesPerSecondPerThread());
+        }
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public long importFile() throws IOException {
+        last = importer.importFile(file, null, false);
+        return last.rows();
+    }
+}
@@ -0,0 +1,47 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollectMetricsBenchmark {
+    @Param({"100", "1000"})
+    int endpoints;
+
+    private MetricsCollectionService service;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        PredictiveAnalyticsService predictiveAnalyticsService = new PredictiveAnalyticsService(pipelineMetrics);
+        service = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(predictiveAnalyticsService)
+                .build();
+        names = Endpoints.names(endpoints);
+        for (int i = 0; i < names.length; i++) {
+            predictiveAnalyticsService.trainModel(names[i], Endpoints.trainingSet(names[i], 20, i));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void fillCounters() {
+        for (int i = 0; i < names.length; i++) {
+            service.recordRequests(names[i], 10, 1000 + i, i & 1);
+        }
+    }
+
+    @Benchmark
+    public void collectMetrics() {
+        service.collectMetrics();
+    }
+}
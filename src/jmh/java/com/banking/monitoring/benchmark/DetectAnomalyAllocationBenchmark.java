@@ -0,0 +1,51 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Garbage produced by the synchronous detection step for a sample that stays anomalous. Run with {@code -prof gc};
+ * {@code gc.alloc.rate.norm} should be ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectAnomalyAllocationBenchmark {
+    @Param({"100"})
+    int windowSize;
+
+    @Param({"1000"})
+    int endpoints;
+
+    private AnomalyDetectionService service;
+    private ApiMetrics[] samples;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        service = new AnomalyDetectionService(PipelineMetrics.noop(), windowSize);
+        Random random = new Random(42);
+        String[] names = Endpoints.names(endpoints);
+        samples = new ApiMetrics[names.length];
+        for (int i = 0; i < names.length; i++) {
+            for (int j = 0; j < windowSize; j++) {
+                service.evaluate(Endpoints.normal(names[i], random));
+            }
+            samples[i] = Endpoints.anomalous(names[i]);
+        }
+    }
+
+    @Benchmark
+    public boolean evaluateAnomalous() {
+        ApiMetrics sample = samples[next++ % samples.length];
+        return service.evaluate(sample).isAnomaly();
+    }
+}
@@ -0,0 +1,62 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DetectAnomalyBenchmark {
+    @Param({"1", "1000"})
+    int endpoints;
+
+    @Param({"100", "1000"})
+    int windowSize;
+
+    @Param({"normal", "anomalous"})
+    String sample;
+
+    private AnomalyDetectionService service;
+    private ApiMetrics[] samples;
+
+    @Setup
+    public void setUp() {
+        service = new AnomalyDetectionService(PipelineMetrics.noop(), windowSize);
+        Random random = new Random(42);
+        String[] names = Endpoints.names(endpoints);
+        for (String name : names) {
+            for (int i = 0; i < windowSize; i++) {
+                service.detectAnomaly(Endpoints.normal(name, random)).block();
+            }
+        }
+        samples = new ApiMetrics[names.length];
+        for (int i = 0; i < names.length; i++) {
+            samples[i] = "normal".equals(sample) ? Endpoints.normal(names[i], random) : Endpoints.anomalous(names[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ApiMetrics detectAnomaly(Cursor cursor) {
+        return service.detectAnomaly(samples[cursor.next++ % samples.length]).block();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ApiMetrics detectAnomalyContended(Cursor cursor) {
+        return service.detectAnomaly(samples[cursor.next++ % samples.length]).block();
+    }
+}
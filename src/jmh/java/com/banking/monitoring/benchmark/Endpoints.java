@@ -0,0 +1,69 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+final class Endpoints {
+    private Endpoints() {
+    }
+
+    static String[] names(int count) {
+        String[] names = new String[count];
+        for (int i = 0; i < count; i++) {
+            names[i] = "/api/service-" + (i % 50) + "/resource-" + i;
+        }
+        return names;
+    }
+
+    static ApiMetrics normal(String endpoint, Random random) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .responseTime(100 + random.nextGaussian() * 10)
+                .errorRate(Math.max(0, 0.01 + random.nextGaussian() * 0.005))
+                .throughput(10 + random.nextGaussian())
+                .cpuUsage(40 + random.nextGaussian() * 5)
+                .memoryUsage(55 + random.nextGaussian() * 5)
+                .networkLatency(50 + random.nextGaussian() * 5)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    static ApiMetrics borderline(String endpoint, Random random) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .responseTime(100 + random.nextGaussian() * 10)
+                .errorRate(Math.max(0, 0.01 + random.nextGaussian() * 0.005))
+                .throughput(10 + random.nextGaussian())
+                .cpuUsage(80 + random.nextGaussian() * 5)
+                .memoryUsage(55 + random.nextGaussian() * 5)
+                .networkLatency(50 + random.nextGaussian() * 5)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    static ApiMetrics anomalous(String endpoint) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .responseTime(5000)
+                .errorRate(0.6)
+                .throughput(2)
+                .cpuUsage(95)
+                .memoryUsage(90)
+                .networkLatency(450)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    static List<ApiMetrics> trainingSet(String endpoint, int size, long seed) {
+        Random random = new Random(seed);
+        List<ApiMetrics> data = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            data.add(i % 5 == 0 ? anomalous(endpoint) : normal(endpoint, random));
+        }
+        return data;
+    }
+}
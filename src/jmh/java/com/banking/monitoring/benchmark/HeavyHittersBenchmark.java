@@ -0,0 +1,54 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.service.HeavyHitters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heavy-hitter updates and top-10 queries. With 10k endpoints over 256 counters most updates of the round-robin
+ * stream evict a counter, the worst case for Space-Saving.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeavyHittersBenchmark {
+
+    @Param({"100", "10000"})
+    int endpoints;
+
+    private HeavyHitters heavyHitters;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        heavyHitters = new HeavyHitters(new SimpleMeterRegistry(), true, 256, Duration.ofMinutes(5), 10,
+                Duration.ofSeconds(1), System::currentTimeMillis);
+        names = Endpoints.names(endpoints);
+        for (int i = 0; i < 1_000_000; i++) {
+            heavyHitters.record(names[i % names.length], 1, 0, 0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public void record(Cursor cursor) {
+        int i = cursor.next++;
+        heavyHitters.record(names[i % names.length], 1, (i & 31) == 0 ? 1 : 0, 0);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public HeavyHitters.Top top() {
+        return heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 10, null);
+    }
+}
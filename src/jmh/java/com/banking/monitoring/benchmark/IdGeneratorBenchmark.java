@@ -0,0 +1,78 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.cluster.ClusterMembership;
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.id.IdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of stamping a record with an ID and a timestamp, the snowflake generator on the coarse clock against the
+ * previous {@code UUID.randomUUID()} plus {@code LocalDateTime.now()}, at 1, 4 and 16 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IdGeneratorBenchmark {
+    private CoarseClock clock;
+    private IdGenerator generator;
+
+    @Setup
+    public void setUp() {
+        clock = new CoarseClock();
+        clock.start();
+        generator = new IdGenerator(clock, ClusterMembership.standalone(), -1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        clock.stop();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long snowflake() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long snowflake4() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long snowflake16() {
+        return generator.next();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object uuidAndNow() {
+        return stampLegacy();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object uuidAndNow4() {
+        return stampLegacy();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public Object uuidAndNow16() {
+        return stampLegacy();
+    }
+
+    private static Object stampLegacy() {
+        String id = UUID.randomUUID().toString();
+        return LocalDateTime.now().getNano() ^ id.hashCode();
+    }
+}
@@ -0,0 +1,71 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.ingest.IngestRing;
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code recordRequest} through the ingestion ring per wait strategy; {@code inline} applies samples on the calling
+ * thread as with the ring disabled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestRingBenchmark {
+
+    @Param({"inline", "blocking", "sleeping", "yielding"})
+    String waitStrategy;
+
+    @Param({"100", "10000"})
+    int endpoints;
+
+    private IngestRing ring;
+    private String[] names;
+
+    @Setup
+    public void setUp() {
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        MetricsCollectionService service = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(new PredictiveAnalyticsService(pipelineMetrics))
+                .build();
+        boolean inline = waitStrategy.equals("inline");
+        ring = new IngestRing(service, null, !inline, 65536, 4096,
+                inline ? IngestRing.WaitStrategy.BLOCKING : IngestRing.WaitStrategy.fromKey(waitStrategy));
+        ring.start();
+        names = Endpoints.names(endpoints);
+    }
+
+    @TearDown
+    public void tearDown() {
+        ring.stop();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordRequest(Cursor cursor) {
+        record(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordRequestContended(Cursor cursor) {
+        record(cursor);
+    }
+
+    private void record(Cursor cursor) {
+        int i = cursor.next++;
+        ring.recordRequest(names[i % names.length], 100 + (i & 63), (i & 31) == 0);
+    }
+}
@@ -0,0 +1,45 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.service.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineMetricsBenchmark {
+    @Param({"noop", "simple", "prometheus"})
+    String registry;
+
+    private PipelineMetrics pipelineMetrics;
+
+    @Setup
+    public void setUp() {
+        pipelineMetrics = switch (registry) {
+            case "simple" -> new PipelineMetrics(new SimpleMeterRegistry());
+            case "prometheus" -> new PipelineMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+            default -> PipelineMetrics.noop();
+        };
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long timedStage() {
+        long start = pipelineMetrics.start(PipelineMetrics.Stage.DETECT);
+        pipelineMetrics.stop(PipelineMetrics.Stage.DETECT, start);
+        return start;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long timedStageContended() {
+        return timedStage();
+    }
+}
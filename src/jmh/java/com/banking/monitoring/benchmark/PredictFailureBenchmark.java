@@ -0,0 +1,64 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredictFailureBenchmark {
+    @Param({"1", "100"})
+    int endpoints;
+
+    /**
+     * 0 leaves every endpoint untrained.
+     */
+    @Param({"50"})
+    int trainingSamples;
+
+    @Param({"true", "false"})
+    boolean tiered;
+
+    private PredictiveAnalyticsService service;
+    private ApiMetrics[] samples;
+
+    @Setup
+    public void setUp() {
+        service = new PredictiveAnalyticsService(PipelineMetrics.noop(), tiered, 0.8, 1.25, false, 16, 0.5, 2000);
+        Random random = new Random(42);
+        String[] names = Endpoints.names(endpoints);
+        samples = new ApiMetrics[names.length];
+        for (int i = 0; i < names.length; i++) {
+            if (trainingSamples > 0) {
+                service.trainModel(names[i], Endpoints.trainingSet(names[i], trainingSamples, i));
+            }
+            samples[i] = i % 10 == 0 ? Endpoints.anomalous(names[i])
+                    : i % 10 == 5 ? Endpoints.borderline(names[i], random) : Endpoints.normal(names[i], random);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ApiMetrics predictFailure(Cursor cursor) {
+        return service.predictFailure(samples[cursor.next++ % samples.length]).block();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public ApiMetrics predictFailureContended(Cursor cursor) {
+        return service.predictFailure(samples[cursor.next++ % samples.length]).block();
+    }
+}
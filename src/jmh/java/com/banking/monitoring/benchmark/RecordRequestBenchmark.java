@@ -0,0 +1,59 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordRequestBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Collector {
+        @Param({"1", "100", "10000"})
+        int endpoints;
+
+        MetricsCollectionService service;
+        String[] names;
+
+        @Setup
+        public void setUp() {
+            PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+            service = MetricsCollectionService.builder(pipelineMetrics)
+                    .predictiveAnalyticsService(new PredictiveAnalyticsService(pipelineMetrics))
+                    .build();
+            names = Endpoints.names(endpoints);
+            for (String name : names) {
+                service.recordRequest(name, 1, false);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordRequest(Collector collector, Cursor cursor) {
+        record(collector, cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordRequestContended(Collector collector, Cursor cursor) {
+        record(collector, cursor);
+    }
+
+    private static void record(Collector collector, Cursor cursor) {
+        int i = cursor.next++;
+        collector.service.recordRequest(collector.names[i % collector.names.length], 100 + (i & 63), (i & 31) == 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.ingest.StatsdLineParser;
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StatsdParseBenchmark {
+    private static final int LINES_PER_PACKET = 20;
+
+    @Param({"100", "10000"})
+    int endpoints;
+
+    private StatsdLineParser parser;
+    private ByteBuffer[] packets;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        MetricsCollectionService service = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(new PredictiveAnalyticsService(pipelineMetrics))
+                .build();
+        parser = new StatsdLineParser(service, endpoints);
+        String[] names = Endpoints.names(endpoints);
+        packets = new ByteBuffer[Math.max(1, endpoints / LINES_PER_PACKET)];
+        for (int p = 0; p < packets.length; p++) {
+            StringBuilder packet = new StringBuilder();
+            for (int l = 0; l < LINES_PER_PACKET; l++) {
+                String name = names[(p * LINES_PER_PACKET + l) % names.length];
+                switch (l % 4) {
+                    case 0 -> packet.append(name).append(":").append(100 + l).append(".5|ms\n");
+                    case 1 -> packet.append(name).append(":").append(80 + l).append("|ms|@0.1\n");
+                    case 2 -> packet.append(name).append(".errors:1|c\n");
+                    default -> packet.append(name).append(".cpu:").append(40 + l).append("|g\n");
+                }
+            }
+            byte[] bytes = packet.toString().getBytes(StandardCharsets.UTF_8);
+            packets[p] = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_PACKET)
+    public void parseLines() {
+        ByteBuffer packet = packets[next++ % packets.length];
+        packet.position(0);
+        parser.parse(packet);
+    }
+}
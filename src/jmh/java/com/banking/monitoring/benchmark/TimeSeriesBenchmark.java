@@ -0,0 +1,119 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.storage.BlockDecoder;
+import com.banking.monitoring.storage.BlockEncoder;
+import com.banking.monitoring.storage.MetricField;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and scan cost of the time-series block codec on per-minute endpoint samples. Scores are per point, so the
+ * throughput of the decode benchmarks is points per second per core. The encoded size is printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimeSeriesBenchmark {
+    private static final int BLOCKS = 256;
+    private static final int POINTS = 240;
+    private static final int FIELDS = MetricField.values().length;
+
+    private long[][] timestamps;
+    private double[][][] values;
+    private byte[][] blocks;
+    private final Sum sum = new Sum();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        timestamps = new long[BLOCKS][POINTS];
+        values = new double[BLOCKS][POINTS][FIELDS];
+        long ts = 1_700_000_000_000L;
+        for (int b = 0; b < BLOCKS; b++) {
+            for (int p = 0; p < POINTS; p++) {
+                ts += 60_000 + (random.nextInt(10) == 0 ? random.nextInt(40) - 20 : 0);
+                timestamps[b][p] = ts;
+                double requests = 1_000 + random.nextInt(50);
+                double errors = random.nextInt(20) == 0 ? random.nextInt(5) : 0;
+                double[] point = values[b][p];
+                point[MetricField.RESPONSE_TIME.ordinal()] = 120 + random.nextGaussian() * 8;
+                point[MetricField.REQUEST_COUNT.ordinal()] = requests;
+                point[MetricField.ERROR_COUNT.ordinal()] = errors;
+                point[MetricField.ERROR_RATE.ordinal()] = errors / requests;
+                point[MetricField.THROUGHPUT.ordinal()] = requests / 60.0;
+                point[MetricField.CPU_USAGE.ordinal()] = 35 + random.nextGaussian() * 3;
+                point[MetricField.MEMORY_USAGE.ordinal()] = 60 + random.nextDouble();
+                point[MetricField.NETWORK_LATENCY.ordinal()] = 8 + random.nextDouble() * 2;
+                for (MetricField field : MetricField.values()) {
+                    point[field.ordinal()] = field.quantize(point[field.ordinal()]);
+                }
+            }
+        }
+        blocks = new byte[BLOCKS][];
+        long bytes = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            blocks[b] = encode(b);
+            bytes += blocks[b].length;
+        }
+        System.out.printf(Locale.ROOT, "%n%.2f bytes/point (%d fields), %.3f bytes/value%n",
+                (double) bytes / (BLOCKS * POINTS), FIELDS, (double) bytes / (BLOCKS * POINTS * (FIELDS + 1)));
+    }
+
+    private byte[] encode(int b) {
+        BlockEncoder encoder = new BlockEncoder(FIELDS, POINTS);
+        for (int p = 0; p < POINTS; p++) {
+            encoder.append(timestamps[b][p], values[b][p]);
+        }
+        return encoder.toBytes();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS * POINTS)
+    public int encodeBlocks() {
+        int length = 0;
+        for (int b = 0; b < BLOCKS; b++) {
+            length += encode(b).length;
+        }
+        return length;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS * POINTS)
+    public double scanField() {
+        sum.total = 0;
+        for (byte[] block : blocks) {
+            BlockDecoder.decodeField(block, MetricField.RESPONSE_TIME.ordinal(), sum);
+        }
+        return sum.total;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCKS * POINTS)
+    public double scanAllFields() {
+        sum.total = 0;
+        for (byte[] block : blocks) {
+            BlockDecoder.decode(block, sum);
+        }
+        return sum.total;
+    }
+
+    private static final class Sum implements BlockDecoder.ValueConsumer, BlockDecoder.PointConsumer {
+        private double total;
+
+        @Override
+        public void accept(long timestamp, double value) {
+            total += value;
+        }
+
+        @Override
+        public void accept(long timestamp, double[] values) {
+            total += values[0] + values[FIELDS - 1];
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trains every endpoint once, the way a history replay does, with one model per endpoint or one per cluster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrainModelsBenchmark {
+    @Param({"100", "1000"})
+    int endpoints;
+
+    @Param({"false", "true"})
+    boolean clustered;
+
+    private String[] names;
+    private List<List<ApiMetrics>> trainingSets;
+    private PredictiveAnalyticsService service;
+
+    @Setup(Level.Trial)
+    public void setUpData() {
+        names = Endpoints.names(endpoints);
+        trainingSets = new ArrayList<>(endpoints);
+        for (int i = 0; i < endpoints; i++) {
+            trainingSets.add(Endpoints.trainingSet(names[i], 50, i));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpService() {
+        service = new PredictiveAnalyticsService(PipelineMetrics.noop(), true, 0.8, 1.25, clustered, 16, 0.5, 2000);
+    }
+
+    @Benchmark
+    public int trainAll() {
+        for (int i = 0; i < endpoints; i++) {
+            service.trainModel(names[i], trainingSets.get(i));
+        }
+        return service.getModelCount();
+    }
+}
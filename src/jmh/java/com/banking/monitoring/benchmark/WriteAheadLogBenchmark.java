@@ -0,0 +1,86 @@
+package com.banking.monitoring.benchmark;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import com.banking.monitoring.service.StateRecovery;
+import com.banking.monitoring.storage.WriteAheadLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion cost with the write-ahead log off and on; the difference is the overhead of enabling it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteAheadLogBenchmark {
+
+    @Param({"false", "true"})
+    boolean wal;
+
+    @Param({"100", "10000"})
+    int endpoints;
+
+    private Path directory;
+    private WriteAheadLog writeAheadLog;
+    private StateRecovery recovery;
+    private MetricsCollectionService collector;
+    private AnomalyDetectionService detector;
+    private String[] names;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("wal-benchmark");
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        writeAheadLog = new WriteAheadLog(new SimpleMeterRegistry(), wal, directory, Duration.ofMillis(50),
+                WriteAheadLog.Fsync.INTERVAL, Duration.ofSeconds(1));
+        collector = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(new PredictiveAnalyticsService(pipelineMetrics))
+                .build();
+        detector = new AnomalyDetectionService(pipelineMetrics);
+        recovery = new StateRecovery(writeAheadLog, collector, detector, Duration.ofMinutes(5));
+        recovery.start();
+        names = Endpoints.names(endpoints);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        recovery.stop();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        final ApiMetrics sample = ApiMetrics.builder().responseTime(100).errorRate(0.01).build();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordRequest(Cursor cursor) {
+        int i = cursor.next++;
+        collector.recordRequest(names[i % names.length], 100 + (i & 63), (i & 31) == 0);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public ApiMetrics evaluate(Cursor cursor) {
+        int i = cursor.next++;
+        cursor.sample.setEndpoint(names[i % names.length]);
+        cursor.sample.setResponseTime(100 + (i & 63));
+        return detector.evaluate(cursor.sample);
+    }
+}
@@ -0,0 +1,117 @@
+package com.banking.monitoring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+public class LoadTestReport {
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final Map<String, Object> settings;
+    private final List<OpenLoadGenerator.StepResult> steps = new ArrayList<>();
+    private Map<String, Double> serverMetrics = Map.of();
+
+    public LoadTestReport(Map<String, Object> settings) {
+        this.settings = settings;
+    }
+
+    public void add(OpenLoadGenerator.StepResult step) {
+        steps.add(step);
+    }
+
+    public void setServerMetrics(Map<String, Double> serverMetrics) {
+        this.serverMetrics = serverMetrics;
+    }
+
+    public void print(PrintStream out) {
+        out.println();
+        out.printf(Locale.ROOT, "%-14s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "type", "rate/s", "done/s", "err%", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (OpenLoadGenerator.StepResult step : steps) {
+            for (Map.Entry<RequestType, Histogram> entry : step.latencies().entrySet()) {
+                Histogram histogram = entry.getValue();
+                if (histogram.getTotalCount() > 0) {
+                    printRow(out, entry.getKey().getKey(), step, histogram, step.errors().get(entry.getKey()));
+                }
+            }
+            printRow(out, "all", step, step.combinedLatency(), step.totalErrors());
+            out.printf(Locale.ROOT, "  statuses=%s timedOut=%d schedulerLag=%.1fms%n%n",
+                    step.statuses(), step.timedOut(), step.maxSchedulerLagMicros() / 1000.0);
+        }
+        serverMetrics.forEach((name, value) -> out.printf(Locale.ROOT, "%-60s %14.2f%n", name, value));
+    }
+
+    private static void printRow(PrintStream out, String type, OpenLoadGenerator.StepResult step,
+                                 Histogram histogram, long errors) {
+        long count = histogram.getTotalCount();
+        out.printf(Locale.ROOT, "%-14s %10.0f %10.1f %8.2f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                type,
+                step.targetRate(),
+                count / (step.elapsedNanos() / 1e9),
+                count == 0 ? 0 : 100.0 * errors / count,
+                millis(histogram, 50),
+                millis(histogram, 90),
+                millis(histogram, 99),
+                millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    public void write(Path path) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+        ObjectNode root = mapper.createObjectNode();
+        root.set("settings", mapper.valueToTree(settings));
+        ArrayNode stepNodes = root.putArray("steps");
+        for (OpenLoadGenerator.StepResult step : steps) {
+            ObjectNode node = stepNodes.addObject();
+            node.put("targetRate", step.targetRate());
+            node.put("achievedThroughput", step.achievedThroughput());
+            node.put("scheduled", step.scheduled());
+            node.put("completed", step.completed());
+            node.put("timedOut", step.timedOut());
+            node.put("errors", step.totalErrors());
+            node.put("maxSchedulerLagMicros", step.maxSchedulerLagMicros());
+            node.set("statuses", mapper.valueToTree(step.statuses()));
+            ObjectNode latencies = node.putObject("latencyMillis");
+            step.latencies().forEach((type, histogram) -> {
+                if (histogram.getTotalCount() > 0) {
+                    latencies.set(type.getKey(), latencyNode(mapper, histogram, step.errors().get(type)));
+                }
+            });
+            latencies.set("all", latencyNode(mapper, step.combinedLatency(), step.totalErrors()));
+        }
+        root.set("serverMetrics", mapper.valueToTree(serverMetrics));
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        mapper.writeValue(path.toFile(), root);
+    }
+
+    private static ObjectNode latencyNode(ObjectMapper mapper, Histogram histogram, long errors) {
+        ObjectNode node = mapper.createObjectNode();
+        node.put("count", histogram.getTotalCount());
+        node.put("errors", errors);
+        node.put("mean", histogram.getMean() / 1000.0);
+        for (double percentile : PERCENTILES) {
+            node.put("p" + String.valueOf(percentile).replace(".0", ""), millis(histogram, percentile));
+        }
+        node.put("max", histogram.getMaxValue() / 1000.0);
+        return node;
+    }
+
+    public List<OpenLoadGenerator.StepResult> getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,172 @@
+package com.banking.monitoring.loadtest;
+
+import com.banking.monitoring.ApiMonitoringApplication;
+import com.banking.monitoring.stub.OpenAiStubServer;
+import io.netty.channel.ChannelOption;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Drives the monitoring API at a stepped constant arrival rate and reports latency percentiles per request type.
+ * Unless {@code --target} points at a running instance, the application is started in-process against a local
+ * {@link OpenAiStubServer}, so the AI stage has a realistic, controllable latency without calling the real API.
+ * <p>
+ * Options: {@code --rates=50,100,200 --duration=30s --warmup=10s
+ * --mix=process=0.2,process-error=0.05,record=0.75 --endpoints=100 --stub-latency=300ms --stub-jitter=200ms
+ * --stub-failure-rate=0.01 --stub-concurrency=0 --timeout=30s --target=http://host:port
+ * --output=target/loadtest.json}; any other {@code --key=value} is passed to the in-process application as a property.
+ */
+@Slf4j
+public class LoadTestRunner {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        Map<String, Object> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got '" + arg + "'");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+
+        List<Double> rates = Arrays.stream(option(options, "rates", "25,50,100").split(","))
+                .map(String::trim).map(Double::parseDouble).toList();
+        Duration duration = duration(option(options, "duration", "30s"));
+        Duration warmup = duration(option(options, "warmup", "10s"));
+        Duration timeout = duration(option(options, "timeout", "30s"));
+        TrafficMix mix = TrafficMix.parse(option(options, "mix", "process=0.2,process-error=0.05,record=0.75"));
+        int endpoints = Integer.parseInt(option(options, "endpoints", "100"));
+        Duration stubLatency = duration(option(options, "stub-latency", "300ms"));
+        Duration stubJitter = duration(option(options, "stub-jitter", "200ms"));
+        double stubFailureRate = Double.parseDouble(option(options, "stub-failure-rate", "0.01"));
+        int stubConcurrency = Integer.parseInt(option(options, "stub-concurrency", "0"));
+        String target = options.remove("target");
+        Path output = Path.of(option(options, "output", "target/loadtest-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+        appProperties.putAll(options);
+
+        OpenAiStubServer stub = null;
+        ConfigurableApplicationContext context = null;
+        try {
+            if (target == null) {
+                stub = OpenAiStubServer.start(0, stubLatency, stubJitter, stubFailureRate);
+                stub.setConcurrency(stubConcurrency);
+                Map<String, Object> properties = new LinkedHashMap<>();
+                properties.put("server.port", 0);
+                properties.put("openai.api-key", "loadtest");
+                properties.put("openai.base-url", stub.getBaseUrl());
+                properties.put("logging.level.com.banking.monitoring", "ERROR");
+                properties.putAll(appProperties);
+                context = new SpringApplicationBuilder(ApiMonitoringApplication.class)
+                        .web(WebApplicationType.REACTIVE)
+                        .run(properties.entrySet().stream()
+                                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                                .toArray(String[]::new));
+                target = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+
+            ConnectionProvider connections = ConnectionProvider.builder("loadtest")
+                    .maxConnections(4096)
+                    .pendingAcquireMaxCount(-1)
+                    .pendingAcquireTimeout(timeout)
+                    .build();
+            LoopResources clientLoops = LoopResources.create("loadtest-client", 2, true);
+            HttpClient httpClient = HttpClient.create(connections)
+                    .runOn(clientLoops)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, 5000);
+            WebClient client = WebClient.builder()
+                    .baseUrl(target)
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .build();
+            OpenLoadGenerator generator = new OpenLoadGenerator(client, mix, endpoints, timeout);
+
+            Map<String, Object> settings = new LinkedHashMap<>();
+            settings.put("target", target);
+            settings.put("rates", rates);
+            settings.put("duration", duration.toString());
+            settings.put("warmup", warmup.toString());
+            settings.put("mix", mix.toString());
+            settings.put("endpoints", endpoints);
+            if (stub != null) {
+                settings.put("stubLatency", stubLatency.toString());
+                settings.put("stubJitter", stubJitter.toString());
+                settings.put("stubFailureRate", stubFailureRate);
+                settings.put("stubConcurrency", stubConcurrency);
+            }
+            settings.put("appProperties", appProperties);
+            LoadTestReport report = new LoadTestReport(settings);
+
+            if (!warmup.isZero()) {
+                log.info("Warming up at {} req/s for {}", rates.get(0), warmup);
+                generator.run(rates.get(0), warmup);
+            }
+            for (double rate : rates) {
+                log.info("Running {} req/s for {}", rate, duration);
+                report.add(generator.run(rate, duration));
+            }
+
+            if (context != null) {
+                report.setServerMetrics(serverMetrics(context.getBean(MeterRegistry.class)));
+            }
+            report.print(System.out);
+            report.write(output);
+            log.info("Report written to {}", output.toAbsolutePath());
+            connections.dispose();
+            clientLoops.dispose();
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            if (stub != null) {
+                stub.close();
+            }
+        }
+    }
+
+    private static Map<String, Double> serverMetrics(MeterRegistry registry) {
+        Map<String, Double> values = new TreeMap<>();
+        for (Meter meter : registry.getMeters()) {
+            Meter.Id id = meter.getId();
+            if (!id.getName().startsWith("monitoring.") || id.getType() == Meter.Type.TIMER) {
+                continue;
+            }
+            boolean tagged = !id.getTags().isEmpty();
+            String name = id.getName() + id.getTags().stream()
+                    .map(tag -> tag.getKey() + "=" + tag.getValue())
+                    .collect(Collectors.joining(",", tagged ? "{" : "", tagged ? "}" : ""));
+            meter.measure().forEach(measurement -> values.put(name, measurement.getValue()));
+        }
+        return values;
+    }
+
+    private static String option(Map<String, String> options, String key, String defaultValue) {
+        String value = options.remove(key);
+        return value != null ? value : defaultValue;
+    }
+
+    private static Duration duration(String value) {
+        return DurationStyle.detectAndParse(value);
+    }
+}
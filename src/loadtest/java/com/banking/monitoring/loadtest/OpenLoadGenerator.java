@@ -0,0 +1,160 @@
+package com.banking.monitoring.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are issued on a fixed arrival schedule regardless of how many are still
+ * outstanding, and every latency is measured from the request's intended start time rather than from when it was
+ * actually sent. A stalled server therefore shows up as queueing delay in the percentiles instead of silently
+ * lowering the offered load (coordinated omission).
+ */
+@Slf4j
+public class OpenLoadGenerator {
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final WebClient client;
+    private final TrafficMix mix;
+    private final int endpoints;
+    private final Duration requestTimeout;
+
+    public OpenLoadGenerator(WebClient client, TrafficMix mix, int endpoints, Duration requestTimeout) {
+        this.client = client;
+        this.mix = mix;
+        this.endpoints = endpoints;
+        this.requestTimeout = requestTimeout;
+    }
+
+    public StepResult run(double ratePerSecond, Duration duration) {
+        Map<RequestType, Recorder> recorders = new EnumMap<>(RequestType.class);
+        Map<RequestType, LongAdder> errors = new EnumMap<>(RequestType.class);
+        for (RequestType type : RequestType.values()) {
+            recorders.put(type, new Recorder(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(type, new LongAdder());
+        }
+        Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        AtomicLong outstanding = new AtomicLong();
+        LongAdder completed = new LongAdder();
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long total = (long) (ratePerSecond * duration.toNanos() / TimeUnit.SECONDS.toNanos(1));
+        long maxLagNanos = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long now;
+            while ((now = System.nanoTime()) < intended) {
+                LockSupport.parkNanos(intended - now);
+            }
+            maxLagNanos = Math.max(maxLagNanos, now - intended);
+            RequestType type = mix.next();
+            outstanding.incrementAndGet();
+            send(type)
+                    .timeout(requestTimeout)
+                    .subscribe(status -> {
+                        statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+                        if (status >= 400) {
+                            errors.get(type).increment();
+                        }
+                    }, error -> {
+                        statuses.computeIfAbsent(-1, k -> new LongAdder()).increment();
+                        errors.get(type).increment();
+                        finish(recorders.get(type), intended, outstanding, completed);
+                    }, () -> finish(recorders.get(type), intended, outstanding, completed));
+        }
+        long sendEnd = System.nanoTime();
+
+        long drainDeadline = sendEnd + requestTimeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Map<RequestType, Histogram> histograms = new EnumMap<>(RequestType.class);
+        Map<RequestType, Long> errorCounts = new EnumMap<>(RequestType.class);
+        recorders.forEach((type, recorder) -> histograms.put(type, recorder.getIntervalHistogram()));
+        errors.forEach((type, count) -> errorCounts.put(type, count.sum()));
+        Map<Integer, Long> statusCounts = new ConcurrentHashMap<>();
+        statuses.forEach((status, count) -> statusCounts.put(status, count.sum()));
+        return new StepResult(ratePerSecond, total, completed.sum(), outstanding.get(), elapsed,
+                TimeUnit.NANOSECONDS.toMicros(maxLagNanos), histograms, errorCounts, statusCounts);
+    }
+
+    private static void finish(Recorder recorder, long intended, AtomicLong outstanding, LongAdder completed) {
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+        recorder.recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+        outstanding.decrementAndGet();
+        completed.increment();
+    }
+
+    private Mono<Integer> send(RequestType type) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String endpoint = "/api/loadtest/resource-" + random.nextInt(endpoints);
+        return switch (type) {
+            case PROCESS, PROCESS_ERROR -> {
+                boolean error = type == RequestType.PROCESS_ERROR;
+                String body = "{\"endpoint\":\"" + endpoint + "\",\"method\":\"GET\",\"statusCode\":"
+                        + (error ? 500 : 200) + ",\"responseTime\":"
+                        + (error ? 800 + random.nextInt(1200) : 50 + random.nextInt(100)) + "}";
+                yield exchange(client.post().uri("/api/monitoring/process")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .bodyValue(body));
+            }
+            case RECORD -> exchange(client.post().uri(uri -> uri.path("/api/metrics/record")
+                    .queryParam("endpoint", endpoint)
+                    .queryParam("responseTime", 50 + random.nextInt(200))
+                    .queryParam("isError", random.nextInt(50) == 0)
+                    .build()));
+            case SYSTEM -> exchange(client.post().uri(uri -> uri.path("/api/metrics/system")
+                    .queryParam("endpoint", endpoint)
+                    .queryParam("cpu", 30 + random.nextInt(60))
+                    .queryParam("memory", 40 + random.nextInt(50))
+                    .queryParam("latency", 20 + random.nextInt(200))
+                    .build()));
+        };
+    }
+
+    private static Mono<Integer> exchange(WebClient.RequestHeadersSpec<?> request) {
+        return request.exchangeToMono(response -> response.releaseBody()
+                .thenReturn(response.statusCode().value()));
+    }
+
+    public record StepResult(double targetRate,
+                             long scheduled,
+                             long completed,
+                             long timedOut,
+                             long elapsedNanos,
+                             long maxSchedulerLagMicros,
+                             Map<RequestType, Histogram> latencies,
+                             Map<RequestType, Long> errors,
+                             Map<Integer, Long> statuses) {
+
+        public Histogram combinedLatency() {
+            Histogram combined = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+            latencies.values().forEach(combined::add);
+            return combined;
+        }
+
+        public long totalErrors() {
+            return errors.values().stream().mapToLong(Long::longValue).sum();
+        }
+
+        public double achievedThroughput() {
+            return completed / (elapsedNanos / 1e9);
+        }
+    }
+}
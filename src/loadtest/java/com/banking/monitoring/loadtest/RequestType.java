@@ -0,0 +1,27 @@
+package com.banking.monitoring.loadtest;
+
+public enum RequestType {
+    PROCESS("process"),
+    PROCESS_ERROR("process-error"),
+    RECORD("record"),
+    SYSTEM("system");
+
+    private final String key;
+
+    RequestType(String key) {
+        this.key = key;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public static RequestType fromKey(String key) {
+        for (RequestType type : values()) {
+            if (type.key.equals(key)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Unknown request type '" + key + "'");
+    }
+}
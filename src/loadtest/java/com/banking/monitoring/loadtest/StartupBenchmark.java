@@ -0,0 +1,261 @@
+package com.banking.monitoring.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures how long a freshly launched application takes to accept its first {@code POST /api/monitoring/process},
+ * and its resident set size at that point. Each mode is started {@code --runs} times as a separate JVM on the thin
+ * classpath built by the {@code startup} profile, and the median is reported:
+ * <ul>
+ *   <li>{@code fat-jar}: {@code java -jar} on the repackaged Spring Boot jar, heavy components built eagerly</li>
+ *   <li>{@code eager}: thin classpath, heavy components built eagerly ({@code monitoring.startup.lazy=false})</li>
+ *   <li>{@code lazy}: thin classpath, OpenAI client and Weka schema built on first use</li>
+ *   <li>{@code lazy-cds}: as {@code lazy}, with the AppCDS archive recorded by a training run</li>
+ * </ul>
+ * Options: {@code --classpath=target/startup/app.jar:target/startup/lib/* --fat-jar=target/app.jar
+ * --archive=target/startup/app.jsa --modes=fat-jar,eager,lazy,lazy-cds --runs=5 --timeout=60s
+ * --jvm-args="--add-modules jdk.incubator.vector" --output=target/startup.json}.
+ */
+@Slf4j
+public class StartupBenchmark {
+    private static final String MAIN_CLASS = "com.banking.monitoring.ApiMonitoringApplication";
+    private static final String READY_BODY = "{\"endpoint\":\"/startup\",\"statusCode\":200,\"responseTime\":5}";
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+    private final String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    private final String classpath;
+    private final String fatJar;
+    private final Path archive;
+    private final List<String> jvmArgs;
+    private final Duration timeout;
+    private final Path logDir;
+
+    StartupBenchmark(String classpath, String fatJar, Path archive, List<String> jvmArgs, Duration timeout,
+                     Path logDir) {
+        this.classpath = classpath;
+        this.fatJar = fatJar;
+        this.archive = archive;
+        this.jvmArgs = jvmArgs;
+        this.timeout = timeout;
+        this.logDir = logDir;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value but got '" + arg + "'");
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        String classpath = options.getOrDefault("classpath", "target/startup/app.jar:target/startup/lib/*");
+        String fatJar = options.get("fat-jar");
+        Path archive = Path.of(options.getOrDefault("archive", "target/startup/app.jsa"));
+        List<String> modes = Arrays.stream(options.getOrDefault("modes", "fat-jar,eager,lazy,lazy-cds").split(","))
+                .map(String::trim).filter(mode -> !mode.isEmpty()).toList();
+        int runs = Integer.parseInt(options.getOrDefault("runs", "5"));
+        Duration timeout = DurationStyle.detectAndParse(options.getOrDefault("timeout", "60s"));
+        List<String> jvmArgs = Arrays.stream(options.getOrDefault("jvm-args", "").trim().split("\\s+"))
+                .filter(arg -> !arg.isEmpty()).toList();
+        Path output = Path.of(options.getOrDefault("output", "target/startup-"
+                + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json"));
+
+        Path logDir = archive.toAbsolutePath().getParent();
+        Files.createDirectories(logDir);
+        StartupBenchmark benchmark = new StartupBenchmark(classpath, fatJar, archive, jvmArgs, timeout, logDir);
+
+        if (modes.contains("lazy-cds")) {
+            benchmark.train();
+        }
+        Map<String, List<Sample>> results = new LinkedHashMap<>();
+        for (String mode : modes) {
+            if (mode.equals("fat-jar") && fatJar == null) {
+                log.warn("Skipping fat-jar mode: no --fat-jar given");
+                continue;
+            }
+            List<Sample> samples = new ArrayList<>();
+            for (int run = 0; run < runs; run++) {
+                Sample sample = benchmark.launch(mode, command(benchmark, mode), mode + "-" + run);
+                log.info("{} run {}: ready in {} ms, RSS {} MB", mode, run + 1, sample.readyMillis(),
+                        sample.rssKb() / 1024);
+                samples.add(sample);
+            }
+            results.put(mode, samples);
+        }
+        print(results, System.out);
+        write(results, runs, output);
+        log.info("Report written to {}", output.toAbsolutePath());
+    }
+
+    private static List<String> command(StartupBenchmark benchmark, String mode) {
+        return switch (mode) {
+            case "fat-jar" -> benchmark.fatJarCommand();
+            case "eager" -> benchmark.thinCommand(List.of(), false);
+            case "lazy" -> benchmark.thinCommand(List.of(), true);
+            case "lazy-cds" -> benchmark.thinCommand(List.of("-XX:SharedArchiveFile=" + benchmark.archive,
+                    "-Xshare:auto"), true);
+            default -> throw new IllegalArgumentException("Unknown mode '" + mode + "'");
+        };
+    }
+
+    /**
+     * Runs the application once with {@code -XX:ArchiveClassesAtExit} until it has served a request, so the request
+     * path is loaded too, and stops it with SIGTERM so the JVM writes the dynamic archive on exit.
+     */
+    void train() throws Exception {
+        Files.deleteIfExists(archive);
+        List<String> command = thinCommand(List.of("-XX:ArchiveClassesAtExit=" + archive), true);
+        Sample sample = launch("training", command, "training");
+        log.info("Training run ready in {} ms; archive {} ({} MB)", sample.readyMillis(), archive,
+                Files.exists(archive) ? Files.size(archive) / (1024 * 1024) : 0);
+        if (!Files.exists(archive)) {
+            throw new IllegalStateException("Training run did not write " + archive);
+        }
+    }
+
+    private List<String> thinCommand(List<String> extraJvmArgs, boolean lazy) {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.addAll(extraJvmArgs);
+        command.add("-cp");
+        command.add(classpath);
+        command.add(MAIN_CLASS);
+        command.add("--monitoring.startup.lazy=" + lazy);
+        return command;
+    }
+
+    private List<String> fatJarCommand() {
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(jvmArgs);
+        command.add("-jar");
+        command.add(fatJar);
+        command.add("--monitoring.startup.lazy=false");
+        return command;
+    }
+
+    private Sample launch(String mode, List<String> command, String logName) throws Exception {
+        int port = freePort();
+        List<String> full = new ArrayList<>(command);
+        full.add("--server.port=" + port);
+        full.add("--openai.api-key=startup");
+        Path logFile = logDir.resolve(logName + ".log");
+        ProcessBuilder builder = new ProcessBuilder(full)
+                .redirectErrorStream(true)
+                .redirectOutput(logFile.toFile());
+
+        long start = System.nanoTime();
+        Process process = builder.start();
+        try {
+            HttpRequest ready = HttpRequest
+                    .newBuilder(URI.create("http://localhost:" + port + "/api/monitoring/process"))
+                    .header("Content-Type", "application/json")
+                    .timeout(Duration.ofSeconds(5))
+                    .POST(HttpRequest.BodyPublishers.ofString(READY_BODY))
+                    .build();
+            long deadline = start + timeout.toNanos();
+            while (true) {
+                if (!process.isAlive()) {
+                    throw new IllegalStateException(mode + " exited with " + process.exitValue() + ", see " + logFile);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IllegalStateException(mode + " not ready after " + timeout + ", see " + logFile);
+                }
+                try {
+                    if (client.send(ready, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        break;
+                    }
+                } catch (ConnectException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            long readyMillis = (System.nanoTime() - start) / 1_000_000;
+            return new Sample(readyMillis, rssKb(process.pid()));
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    private static long rssKb(long pid) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return -1;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static long median(List<Sample> samples, ToLongFunction<Sample> field) {
+        long[] values = samples.stream().mapToLong(field).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    private static void print(Map<String, List<Sample>> results, PrintStream out) {
+        out.println();
+        out.printf("%-10s %6s %16s %14s %12s%n", "mode", "runs", "ready p50 (ms)", "ready min (ms)", "RSS p50 (MB)");
+        results.forEach((mode, samples) -> out.printf("%-10s %6d %16d %14d %12d%n", mode, samples.size(),
+                median(samples, Sample::readyMillis),
+                samples.stream().mapToLong(Sample::readyMillis).min().orElse(0),
+                median(samples, Sample::rssKb) / 1024));
+        out.println();
+    }
+
+    private static void write(Map<String, List<Sample>> results, int runs, Path output) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("runs", runs);
+        report.put("javaVersion", System.getProperty("java.version"));
+        report.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        Map<String, Object> modes = new LinkedHashMap<>();
+        results.forEach((mode, samples) -> {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("readyMillisMedian", median(samples, Sample::readyMillis));
+            summary.put("rssKbMedian", median(samples, Sample::rssKb));
+            summary.put("samples", samples);
+            modes.put(mode, summary);
+        });
+        report.put("modes", modes);
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), report);
+    }
+
+    record Sample(long readyMillis, long rssKb) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.banking.monitoring.loadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Weighted mix of request types, parsed from {@code process=0.2,process-error=0.05,record=0.75}.
+ */
+public class TrafficMix {
+    private final RequestType[] types;
+    private final double[] cumulative;
+    private final Map<RequestType, Double> weights;
+
+    private TrafficMix(Map<RequestType, Double> weights) {
+        double total = weights.values().stream().mapToDouble(Double::doubleValue).sum();
+        if (total <= 0) {
+            throw new IllegalArgumentException("Traffic mix needs at least one positive weight");
+        }
+        this.weights = weights;
+        this.types = weights.keySet().toArray(new RequestType[0]);
+        this.cumulative = new double[types.length];
+        double running = 0;
+        for (int i = 0; i < types.length; i++) {
+            running += weights.get(types[i]) / total;
+            cumulative[i] = running;
+        }
+    }
+
+    public static TrafficMix parse(String spec) {
+        Map<RequestType, Double> weights = new EnumMap<>(RequestType.class);
+        for (String part : spec.split(",")) {
+            String[] keyValue = part.trim().split("=");
+            if (keyValue.length != 2) {
+                throw new IllegalArgumentException("Invalid traffic mix entry '" + part + "'");
+            }
+            weights.put(RequestType.fromKey(keyValue[0].trim()), Double.parseDouble(keyValue[1].trim()));
+        }
+        return new TrafficMix(weights);
+    }
+
+    public RequestType next() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return types[i];
+            }
+        }
+        return types[types.length - 1];
+    }
+
+    public Map<RequestType, Double> getWeights() {
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return weights.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.banking.monitoring.admission;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Admission control for the ingestion endpoints. {@code /api/monitoring/process} and {@code /api/metrics/record}
+ * each get their own {@link ConcurrencyLimiter}, since their latencies differ by orders of magnitude. Work over the
+ * limit is rejected immediately with 429 and {@code Retry-After} rather than queued.
+ */
+@Slf4j
+@Component
+public class AdmissionControl {
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final ConcurrencyLimiter processLimiter;
+    private final ConcurrencyLimiter recordLimiter;
+
+    @Autowired
+    public AdmissionControl(MeterRegistry meterRegistry,
+                            @Value("${monitoring.admission.enabled:true}") boolean enabled,
+                            @Value("${monitoring.admission.initial-limit:50}") int initialLimit,
+                            @Value("${monitoring.admission.min-limit:8}") int minLimit,
+                            @Value("${monitoring.admission.max-limit:2000}") int maxLimit,
+                            @Value("${monitoring.admission.tolerance:1.5}") double tolerance,
+                            @Value("${monitoring.admission.normal-share:0.8}") double normalShare,
+                            @Value("${monitoring.admission.window:100ms}") Duration window,
+                            @Value("${monitoring.admission.retry-after:1s}") Duration retryAfter) {
+        this(meterRegistry, enabled, initialLimit, minLimit, maxLimit, tolerance, normalShare, window, retryAfter,
+                System::nanoTime);
+    }
+
+    public AdmissionControl(MeterRegistry meterRegistry,
+                            boolean enabled,
+                            int initialLimit,
+                            int minLimit,
+                            int maxLimit,
+                            double tolerance,
+                            double normalShare,
+                            Duration window,
+                            Duration retryAfter,
+                            LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.retryAfterSeconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        this.processLimiter = new ConcurrencyLimiter("process", initialLimit, minLimit, maxLimit, tolerance,
+                normalShare, window.toNanos(), 10, nanoClock);
+        this.recordLimiter = new ConcurrencyLimiter("record", initialLimit, minLimit, maxLimit, tolerance,
+                normalShare, window.toNanos(), 10, nanoClock);
+        registerMeters(meterRegistry, processLimiter);
+        registerMeters(meterRegistry, recordLimiter);
+        if (enabled) {
+            log.info("Admission control enabled (initial limit {}, range {}-{}, normal share {})",
+                    initialLimit, minLimit, maxLimit, normalShare);
+        }
+    }
+
+    private static void registerMeters(MeterRegistry registry, ConcurrencyLimiter limiter) {
+        Gauge.builder("monitoring.admission.limit", limiter, ConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit")
+                .tag("limiter", limiter.getName())
+                .register(registry);
+        Gauge.builder("monitoring.admission.in-flight", limiter, ConcurrencyLimiter::getInFlight)
+                .tag("limiter", limiter.getName())
+                .register(registry);
+        for (ConcurrencyLimiter.Priority priority : ConcurrencyLimiter.Priority.values()) {
+            FunctionCounter.builder("monitoring.admission.requests", limiter, l -> l.getAcceptedCount(priority))
+                    .tags("limiter", limiter.getName(), "priority", priority.getTag(), "result", "accepted")
+                    .register(registry);
+            FunctionCounter.builder("monitoring.admission.requests", limiter, l -> l.getRejectedCount(priority))
+                    .tags("limiter", limiter.getName(), "priority", priority.getTag(), "result", "rejected")
+                    .register(registry);
+        }
+        FunctionCounter.builder("monitoring.admission.requests", limiter, ConcurrencyLimiter::getShedCount)
+                .tags("limiter", limiter.getName(), "priority", "unclassified", "result", "rejected")
+                .register(registry);
+    }
+
+    /**
+     * Runs {@code work} inside a slot of {@code limiter}, or fails with {@link AdmissionRejectedException} if the
+     * priority's share of the limit is in use.
+     */
+    public <T> Mono<T> admit(ConcurrencyLimiter limiter, ConcurrencyLimiter.Priority priority,
+                             Supplier<Mono<T>> work) {
+        return admitUntil(limiter, priority, release -> work.get());
+    }
+
+    /**
+     * Like {@link #admit}, but {@code work} is handed a callback that gives the slot back early, once the part of
+     * the work the limit should adapt to is done; slow follow-up work then neither holds a slot nor inflates the
+     * latency the limit is tuned on. The slot is released when the work terminates at the latest.
+     */
+    public <T> Mono<T> admitUntil(ConcurrencyLimiter limiter, ConcurrencyLimiter.Priority priority,
+                                  Function<Runnable, Mono<T>> work) {
+        if (!enabled) {
+            return Mono.defer(() -> work.apply(() -> {
+            }));
+        }
+        if (!limiter.tryAcquire(priority)) {
+            return Mono.error(rejection(limiter));
+        }
+        long start = limiter.start();
+        AtomicBoolean released = new AtomicBoolean();
+        return Mono.defer(() -> work.apply(() -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release(start, true);
+                    }
+                }))
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) {
+                        limiter.release(start, signal != SignalType.CANCEL);
+                    }
+                });
+    }
+
+    public AdmissionRejectedException rejection(ConcurrencyLimiter limiter) {
+        return new AdmissionRejectedException(limiter.getName(), retryAfterSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public ConcurrencyLimiter getProcessLimiter() {
+        return processLimiter;
+    }
+
+    public ConcurrencyLimiter getRecordLimiter() {
+        return recordLimiter;
+    }
+}
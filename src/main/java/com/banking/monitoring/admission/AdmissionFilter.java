@@ -0,0 +1,62 @@
+package com.banking.monitoring.admission;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+/**
+ * Rejects ingestion requests before any body is read. {@code /api/metrics/record} is admitted here, with
+ * {@code isError=true} as critical. {@code /api/monitoring/process} only learns its priority from the body, so it is
+ * admitted by the controller; requests are turned away here only when even critical work would be rejected.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class AdmissionFilter implements WebFilter {
+    static final String PROCESS_PATH = "/api/monitoring/process";
+    static final String RECORD_PATH = "/api/metrics/record";
+
+    private final AdmissionControl admissionControl;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        if (!admissionControl.isEnabled() || exchange.getRequest().getMethod() != HttpMethod.POST) {
+            return chain.filter(exchange);
+        }
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (RECORD_PATH.equals(path)) {
+            ConcurrencyLimiter limiter = admissionControl.getRecordLimiter();
+            ConcurrencyLimiter.Priority priority =
+                    "true".equalsIgnoreCase(exchange.getRequest().getQueryParams().getFirst("isError"))
+                            ? ConcurrencyLimiter.Priority.CRITICAL : ConcurrencyLimiter.Priority.NORMAL;
+            if (!limiter.tryAcquire(priority)) {
+                return reject(exchange.getResponse());
+            }
+            long start = limiter.start();
+            return chain.filter(exchange)
+                    .doFinally(signal -> limiter.release(start, signal != SignalType.CANCEL));
+        }
+        if (PROCESS_PATH.equals(path)
+                && !admissionControl.getProcessLimiter().hasCapacity(ConcurrencyLimiter.Priority.CRITICAL)) {
+            admissionControl.getProcessLimiter().shed();
+            return reject(exchange.getResponse());
+        }
+        return chain.filter(exchange);
+    }
+
+    private Mono<Void> reject(ServerHttpResponse response) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, Long.toString(admissionControl.getRetryAfterSeconds()));
+        return response.setComplete();
+    }
+}
@@ -0,0 +1,192 @@
+package com.banking.monitoring.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Gradient concurrency limit driven by observed latency. Completed requests are averaged over windows of at least
+ * {@code window} and {@code minWindowSamples}; each window is compared with a slow moving average of past windows,
+ * and the limit is scaled by {@code tolerance * longRtt / shortRtt}, clamped to [0.5, 1], plus a small queue
+ * allowance of {@code sqrt(limit)}. The limit therefore grows, smoothed, while latency stays near its long-run
+ * level and backs off in full as soon as requests start queueing. It is left alone while in-flight work stays below
+ * half the limit.
+ * <p>
+ * {@link Priority#NORMAL} requests may only use {@code normalShare} of the limit, so the rest is held back for
+ * {@link Priority#CRITICAL} ones.
+ */
+public class ConcurrencyLimiter {
+    public enum Priority {
+        CRITICAL("critical"),
+        NORMAL("normal");
+
+        private final String tag;
+
+        Priority(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
+    private static final double LONG_RTT_ALPHA = 0.05;
+    private static final double SMOOTHING = 0.2;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double normalShare;
+    private final long windowNanos;
+    private final int minWindowSamples;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+    private final AtomicLong windowStart;
+    private final LongAdder windowRttNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAdder[] accepted = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] rejected = {new LongAdder(), new LongAdder()};
+    private final LongAdder shed = new LongAdder();
+    private volatile double limit;
+    private double longRttNanos;
+
+    public ConcurrencyLimiter(String name,
+                              int initialLimit,
+                              int minLimit,
+                              int maxLimit,
+                              double tolerance,
+                              double normalShare,
+                              long windowNanos,
+                              int minWindowSamples,
+                              LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+        if (normalShare <= 0 || normalShare > 1) {
+            throw new IllegalArgumentException("normalShare must be in (0, 1]");
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.normalShare = normalShare;
+        this.windowNanos = windowNanos;
+        this.minWindowSamples = minWindowSamples;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    /**
+     * Takes a slot if the priority's share of the limit is not exhausted; never blocks.
+     */
+    public boolean tryAcquire(Priority priority) {
+        int max = capacity(priority);
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= max) {
+                rejected[priority.ordinal()].increment();
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        peakInFlight.accumulateAndGet(current + 1, Math::max);
+        accepted[priority.ordinal()].increment();
+        return true;
+    }
+
+    /**
+     * Whether {@link #tryAcquire(Priority)} would currently succeed, without taking a slot.
+     */
+    public boolean hasCapacity(Priority priority) {
+        return inFlight.get() < capacity(priority);
+    }
+
+    private int capacity(Priority priority) {
+        double current = limit;
+        return priority == Priority.CRITICAL ? (int) current : Math.max(1, (int) (current * normalShare));
+    }
+
+    /**
+     * Counts a request turned away before its priority was known.
+     */
+    public void shed() {
+        shed.increment();
+    }
+
+    public long start() {
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Frees the slot taken for a request started at {@link #start()}. Cancelled requests free their slot without
+     * contributing a latency sample.
+     */
+    public void release(long startNanos, boolean sample) {
+        inFlight.decrementAndGet();
+        if (!sample) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        windowRttNanos.add(now - startNanos);
+        windowSamples.increment();
+        long start = windowStart.get();
+        if (now - start < windowNanos || windowSamples.sum() < minWindowSamples
+                || !windowStart.compareAndSet(start, now)) {
+            return;
+        }
+        long samples = windowSamples.sumThenReset();
+        long total = windowRttNanos.sumThenReset();
+        if (samples > 0) {
+            update((double) total / samples, peakInFlight.getAndSet(inFlight.get()));
+        }
+    }
+
+    private synchronized void update(double shortRttNanos, int peak) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRttNanos;
+        } else {
+            longRttNanos += LONG_RTT_ALPHA * (shortRttNanos - longRttNanos);
+        }
+        // latency is back to normal after a long overload: let the long-run average catch up faster
+        if (longRttNanos > 2 * shortRttNanos) {
+            longRttNanos *= 0.9;
+        }
+        double current = limit;
+        if (peak < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRttNanos / Math.max(1.0, shortRttNanos)));
+        double target = current * gradient + Math.sqrt(current);
+        double next = gradient < 1.0 ? target : current * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getAcceptedCount(Priority priority) {
+        return accepted[priority.ordinal()].sum();
+    }
+
+    public long getRejectedCount(Priority priority) {
+        return rejected[priority.ordinal()].sum();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+}
@@ -0,0 +1,50 @@
+package com.banking.monitoring.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * The shared secret ({@code monitoring.cluster.secret}) that cluster nodes present to each other. Peer clients send
+ * it on every call and {@link ClusterAuthFilter} requires it on {@code /api/cluster/**}; clustering refuses to start
+ * without one.
+ */
+@Component
+public class ClusterAuth {
+    public static final String SECRET_HEADER = "X-Monitoring-Cluster-Secret";
+
+    private final String secret;
+
+    @Autowired
+    public ClusterAuth(@Value("${monitoring.cluster.enabled:false}") boolean enabled,
+                       @Value("${monitoring.cluster.secret:}") String secret) {
+        if (enabled && (secret == null || secret.isBlank())) {
+            throw new IllegalArgumentException("monitoring.cluster.secret must be set when clustering is enabled");
+        }
+        this.secret = enabled ? secret : null;
+    }
+
+    public static ClusterAuth disabled() {
+        return new ClusterAuth(false, null);
+    }
+
+    /**
+     * Builds a client for calls to peers, sending the secret with every request.
+     */
+    public WebClient peerClient(WebClient.Builder builder) {
+        WebClient.Builder peer = builder.clone();
+        if (secret != null) {
+            peer.defaultHeader(SECRET_HEADER, secret);
+        }
+        return peer.build();
+    }
+
+    public boolean accepts(String presented) {
+        return secret != null && presented != null && MessageDigest.isEqual(
+                secret.getBytes(StandardCharsets.UTF_8), presented.getBytes(StandardCharsets.UTF_8));
+    }
+}
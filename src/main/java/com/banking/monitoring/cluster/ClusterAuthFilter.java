@@ -0,0 +1,38 @@
+package com.banking.monitoring.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rejects {@code /api/cluster/**} calls that do not carry the cluster secret, before any body is read. Handoffs
+ * carry serialized models and membership updates reassign endpoints, so only peers and operators holding the
+ * secret may call them.
+ */
+@Component
+@ConditionalOnProperty(prefix = "monitoring.cluster", name = "enabled", havingValue = "true")
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class ClusterAuthFilter implements WebFilter {
+    static final String CLUSTER_PATH = "/api/cluster/";
+
+    private final ClusterAuth clusterAuth;
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        String path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!path.startsWith(CLUSTER_PATH)
+                || clusterAuth.accepts(exchange.getRequest().getHeaders().getFirst(ClusterAuth.SECRET_HEADER))) {
+            return chain.filter(exchange);
+        }
+        exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+        return exchange.getResponse().setComplete();
+    }
+}
@@ -0,0 +1,118 @@
+package com.banking.monitoring.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Static cluster membership from {@code monitoring.cluster.members} ({@code id=url,...}) and the endpoint-to-owner
+ * mapping derived from it. The view is replaced atomically on {@link #update(Map)}; when clustering is disabled every
+ * endpoint is local.
+ */
+@Slf4j
+@Component
+public class ClusterMembership {
+    public record View(long version, Map<String, String> members, HashRing ring) {
+    }
+
+    private final boolean enabled;
+    private final String nodeId;
+    private final int virtualNodes;
+    private volatile View view;
+
+    @Autowired
+    public ClusterMembership(@Value("${monitoring.cluster.enabled:false}") boolean enabled,
+                             @Value("${monitoring.cluster.node-id:local}") String nodeId,
+                             @Value("${monitoring.cluster.members:}") String members,
+                             @Value("${monitoring.cluster.virtual-nodes:128}") int virtualNodes) {
+        this(enabled, nodeId, parseMembers(members), virtualNodes);
+    }
+
+    public ClusterMembership(boolean enabled, String nodeId, Map<String, String> members, int virtualNodes) {
+        this.enabled = enabled;
+        this.nodeId = nodeId;
+        this.virtualNodes = virtualNodes;
+        this.view = enabled ? createView(0, members) : null;
+        if (enabled) {
+            log.info("Cluster node {} with members {}", nodeId, view.members().keySet());
+        }
+    }
+
+    public static ClusterMembership standalone() {
+        return new ClusterMembership(false, "local", Map.of(), 0);
+    }
+
+    static Map<String, String> parseMembers(String members) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        if (members == null || members.isBlank()) {
+            return parsed;
+        }
+        for (String member : members.split(",")) {
+            String[] parts = member.trim().split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("Invalid cluster member '" + member + "', expected id=url");
+            }
+            parsed.put(parts[0].trim(), parts[1].trim());
+        }
+        return parsed;
+    }
+
+    private View createView(long version, Map<String, String> members) {
+        if (!members.containsKey(nodeId)) {
+            throw new IllegalArgumentException("Cluster members " + members.keySet()
+                    + " do not include this node '" + nodeId + "'");
+        }
+        Map<String, String> copy = new LinkedHashMap<>();
+        members.forEach((id, url) -> copy.put(id, url.endsWith("/") ? url.substring(0, url.length() - 1) : url));
+        return new View(version, Collections.unmodifiableMap(copy), new HashRing(copy.keySet(), virtualNodes));
+    }
+
+    /**
+     * Replaces the membership and returns the previous view.
+     */
+    public synchronized View update(Map<String, String> members) {
+        if (!enabled) {
+            throw new IllegalStateException("Clustering is disabled");
+        }
+        View previous = view;
+        view = createView(previous.version() + 1, members);
+        log.info("Cluster membership changed from {} to {}", previous.members().keySet(), view.members().keySet());
+        return previous;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public View getView() {
+        return view;
+    }
+
+    public Map<String, String> getMembers() {
+        View current = view;
+        return current != null ? current.members() : Map.of(nodeId, "");
+    }
+
+    public String owner(String endpoint) {
+        View current = view;
+        return current != null ? current.ring().owner(endpoint) : nodeId;
+    }
+
+    public boolean isLocal(String endpoint) {
+        View current = view;
+        return current == null || nodeId.equals(current.ring().owner(endpoint));
+    }
+
+    public String url(String member) {
+        return getMembers().get(member);
+    }
+}
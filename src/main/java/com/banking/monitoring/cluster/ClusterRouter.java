@@ -0,0 +1,286 @@
+package com.banking.monitoring.cluster;
+
+import com.banking.monitoring.model.ForwardedSample;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Routes samples for endpoints owned by other nodes. Samples are pre-aggregated per endpoint (request count,
+ * response-time sum, errors, latest system metrics) and flushed to the current owner every
+ * {@code monitoring.cluster.forward-interval} in batches of at most {@code forward-batch-size} endpoints. The owner
+ * is resolved at flush time, so samples buffered across a membership change follow the endpoint to its new owner.
+ * A failed batch is merged back and retried on the next flush.
+ */
+@Slf4j
+@Component
+public class ClusterRouter implements SampleRouter, SmartLifecycle {
+    static final String SAMPLES_PATH = "/api/cluster/samples";
+
+    private final ClusterMembership membership;
+    private final WebClient webClient;
+    private final Duration forwardInterval;
+    private final int batchSize;
+    private final int maxPendingEndpoints;
+    private final Duration timeout;
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    private final ConcurrentHashMap<String, Pending> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+
+    public ClusterRouter(ClusterMembership membership,
+                         WebClient.Builder webClientBuilder,
+                         ClusterAuth clusterAuth,
+                         MeterRegistry meterRegistry,
+                         @Value("${monitoring.cluster.forward-interval:500ms}") Duration forwardInterval,
+                         @Value("${monitoring.cluster.forward-batch-size:1000}") int batchSize,
+                         @Value("${monitoring.cluster.max-pending-endpoints:65536}") int maxPendingEndpoints,
+                         @Value("${monitoring.cluster.timeout:5s}") Duration timeout) {
+        this.membership = membership;
+        this.webClient = clusterAuth.peerClient(webClientBuilder);
+        this.forwardInterval = forwardInterval;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPendingEndpoints = maxPendingEndpoints;
+        this.timeout = timeout;
+        FunctionCounter.builder("monitoring.cluster.forwarded", forwarded, LongAdder::sum)
+                .tag("result", "sent").register(meterRegistry);
+        FunctionCounter.builder("monitoring.cluster.forwarded", failed, LongAdder::sum)
+                .tag("result", "failed").register(meterRegistry);
+        FunctionCounter.builder("monitoring.cluster.forwarded", dropped, LongAdder::sum)
+                .tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("monitoring.cluster.pending", this, router -> router.pending.size())
+                .description("Endpoints with samples waiting to be forwarded to their owner")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean isLocal(String endpoint) {
+        return membership.isLocal(endpoint);
+    }
+
+    @Override
+    public void forwardRequests(String endpoint, int count, long responseTimeSum, int errors) {
+        while (true) {
+            Pending entry = pendingFor(endpoint);
+            if (entry == null) {
+                dropped.add(count);
+                return;
+            }
+            synchronized (entry) {
+                if (!entry.sealed) {
+                    entry.requests += count;
+                    entry.responseTimeSum += responseTimeSum;
+                    entry.errors += errors;
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void forwardSystemMetrics(String endpoint, double cpu, double memory, double latency) {
+        while (true) {
+            Pending entry = pendingFor(endpoint);
+            if (entry == null) {
+                dropped.increment();
+                return;
+            }
+            synchronized (entry) {
+                if (!entry.sealed) {
+                    if (!Double.isNaN(cpu)) {
+                        entry.cpuUsage = cpu;
+                    }
+                    if (!Double.isNaN(memory)) {
+                        entry.memoryUsage = memory;
+                    }
+                    if (!Double.isNaN(latency)) {
+                        entry.networkLatency = latency;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private Pending pendingFor(String endpoint) {
+        Pending entry = pending.get(endpoint);
+        if (entry != null) {
+            return entry;
+        }
+        if (pending.size() >= maxPendingEndpoints) {
+            return null;
+        }
+        return pending.computeIfAbsent(endpoint, k -> new Pending());
+    }
+
+    /**
+     * Sends everything buffered so far. Each entry is sealed and removed under its lock, so a concurrent writer
+     * either lands in this batch or starts a new entry for the next one. Completes when every owner has acknowledged
+     * or failed its batches.
+     */
+    public Mono<Void> flush() {
+        Map<String, List<ForwardedSample>> byOwner = new HashMap<>();
+        pending.forEach((endpoint, entry) -> {
+            ForwardedSample sample;
+            synchronized (entry) {
+                if (entry.sealed) {
+                    return;
+                }
+                entry.sealed = true;
+                sample = entry.toSample(endpoint);
+            }
+            pending.remove(endpoint, entry);
+            byOwner.computeIfAbsent(membership.owner(endpoint), k -> new ArrayList<>()).add(sample);
+        });
+        return Flux.fromIterable(byOwner.entrySet())
+                .flatMap(owner -> Flux.fromIterable(partition(owner.getValue()))
+                        .concatMap(samples -> send(owner.getKey(), samples)))
+                .then();
+    }
+
+    private List<List<ForwardedSample>> partition(List<ForwardedSample> samples) {
+        List<List<ForwardedSample>> batches = new ArrayList<>();
+        for (int i = 0; i < samples.size(); i += batchSize) {
+            batches.add(samples.subList(i, Math.min(samples.size(), i + batchSize)));
+        }
+        return batches;
+    }
+
+    private Mono<Void> send(String owner, List<ForwardedSample> samples) {
+        String url = membership.url(owner);
+        if (url == null) {
+            requeue(samples);
+            return Mono.empty();
+        }
+        return webClient.post()
+                .uri(url + SAMPLES_PATH)
+                .bodyValue(samples)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .doOnSuccess(response -> forwarded.add(samples.size()))
+                .onErrorResume(e -> {
+                    failed.add(samples.size());
+                    log.warn("Forwarding {} endpoints to {} failed: {}", samples.size(), owner, e.getMessage());
+                    requeue(samples);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private void requeue(List<ForwardedSample> samples) {
+        for (ForwardedSample sample : samples) {
+            if (sample.getRequests() > 0 || sample.getErrors() > 0) {
+                forwardRequests(sample.getEndpoint(), sample.getRequests(), sample.getResponseTimeSum(),
+                        sample.getErrors());
+            }
+            if (sample.getCpuUsage() != null || sample.getMemoryUsage() != null
+                    || sample.getNetworkLatency() != null) {
+                forwardSystemMetrics(sample.getEndpoint(), orNaN(sample.getCpuUsage()),
+                        orNaN(sample.getMemoryUsage()), orNaN(sample.getNetworkLatency()));
+            }
+        }
+    }
+
+    private static double orNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !membership.isEnabled()) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "cluster-forward");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = forwardInterval.toNanos();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        running = true;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush().block(timeout.multipliedBy(2));
+        } catch (RuntimeException e) {
+            log.warn("Cluster forward flush failed: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public long getForwardedCount() {
+        return forwarded.sum();
+    }
+
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private static final class Pending {
+        private boolean sealed;
+        private int requests;
+        private long responseTimeSum;
+        private int errors;
+        private Double cpuUsage;
+        private Double memoryUsage;
+        private Double networkLatency;
+
+        private ForwardedSample toSample(String endpoint) {
+            return ForwardedSample.builder()
+                    .endpoint(endpoint)
+                    .requests(requests)
+                    .responseTimeSum(responseTimeSum)
+                    .errors(errors)
+                    .cpuUsage(cpuUsage)
+                    .memoryUsage(memoryUsage)
+                    .networkLatency(networkLatency)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package com.banking.monitoring.cluster;
+
+import com.banking.monitoring.model.ApiRequest;
+import com.banking.monitoring.model.EndpointSnapshot;
+import com.banking.monitoring.model.ForwardedSample;
+import com.banking.monitoring.model.NodeSummary;
+import com.banking.monitoring.service.AlertEngine;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.ApiMonitoringService;
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cluster-side operations of a node: applying samples forwarded by peers, handing endpoint state to new owners when
+ * membership changes, proxying {@code /process} calls to the owner and gathering fleet-wide summaries.
+ */
+@Slf4j
+@Service
+public class ClusterService {
+    public static final String FORWARDED_HEADER = "X-Monitoring-Forwarded-By";
+    static final String HANDOFF_PATH = "/api/cluster/handoff";
+    static final String MEMBERS_PATH = "/api/cluster/members";
+    static final String SUMMARY_PATH = "/api/cluster/summary";
+    static final String PROCESS_PATH = "/api/monitoring/process";
+
+    private final ClusterMembership membership;
+    private final ClusterRouter router;
+    private final MetricsCollectionService metricsCollectionService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final AlertEngine alertEngine;
+    private final ApiMonitoringService monitoringService;
+    private final WebClient webClient;
+    private final Duration timeout;
+    private final int handoffBatchSize;
+    private final LongAdder received = new LongAdder();
+    private final LongAdder handedOff = new LongAdder();
+    private final LongAdder handedIn = new LongAdder();
+
+    public ClusterService(ClusterMembership membership,
+                          ClusterRouter router,
+                          MetricsCollectionService metricsCollectionService,
+                          AnomalyDetectionService anomalyDetectionService,
+                          PredictiveAnalyticsService predictiveAnalyticsService,
+                          AlertEngine alertEngine,
+                          ApiMonitoringService monitoringService,
+                          WebClient.Builder webClientBuilder,
+                          ClusterAuth clusterAuth,
+                          MeterRegistry meterRegistry,
+                          @Value("${monitoring.cluster.timeout:5s}") Duration timeout,
+                          @Value("${monitoring.cluster.handoff-batch-size:64}") int handoffBatchSize) {
+        this.membership = membership;
+        this.router = router;
+        this.metricsCollectionService = metricsCollectionService;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.predictiveAnalyticsService = predictiveAnalyticsService;
+        this.alertEngine = alertEngine;
+        this.monitoringService = monitoringService;
+        this.webClient = clusterAuth.peerClient(webClientBuilder);
+        this.timeout = timeout;
+        this.handoffBatchSize = Math.max(1, handoffBatchSize);
+        Gauge.builder("monitoring.cluster.members", membership, m -> m.getMembers().size())
+                .description("Nodes in this node's view of the cluster")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.cluster.received", received, LongAdder::sum)
+                .description("Forwarded endpoint samples applied on this node")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.cluster.handoff", handedOff, LongAdder::sum)
+                .tag("direction", "out").register(meterRegistry);
+        FunctionCounter.builder("monitoring.cluster.handoff", handedIn, LongAdder::sum)
+                .tag("direction", "in").register(meterRegistry);
+    }
+
+    public Mono<Void> accept(List<ForwardedSample> samples) {
+        return Mono.fromRunnable(() -> {
+            samples.forEach(metricsCollectionService::applyForwarded);
+            received.add(samples.size());
+        });
+    }
+
+    public Mono<ApiRequest> process(ApiRequest request, boolean forwarded) {
+        return process(request, forwarded, () -> {
+        });
+    }
+
+    /**
+     * Processes the request here or on its owner; {@code detected} is passed on to local processing only, a proxied
+     * call is over when the owner answers.
+     */
+    public Mono<ApiRequest> process(ApiRequest request, boolean forwarded, Runnable detected) {
+        if (forwarded || membership.isLocal(request.getEndpoint())) {
+            return monitoringService.processApiRequest(request, detected);
+        }
+        String owner = membership.owner(request.getEndpoint());
+        return webClient.post()
+                .uri(membership.url(owner) + PROCESS_PATH)
+                .header(FORWARDED_HEADER, membership.getNodeId())
+                .bodyValue(request)
+                .retrieve()
+                .bodyToMono(ApiRequest.class)
+                .timeout(timeout);
+    }
+
+    /**
+     * Applies a new membership, hands every endpoint this node no longer owns to its new owner and, when
+     * {@code propagate} is set, pushes the same membership to every node in the old and the new view. Returns the
+     * number of endpoints handed to each node.
+     */
+    public Mono<Map<String, Integer>> updateMembers(Map<String, String> members, boolean propagate) {
+        ClusterMembership.View previous = membership.update(members);
+        Mono<Void> peers = propagate ? propagate(previous.members(), members) : Mono.empty();
+        return peers.then(handoff()).flatMap(counts -> router.flush().thenReturn(counts));
+    }
+
+    private Mono<Void> propagate(Map<String, String> previous, Map<String, String> members) {
+        Map<String, String> peers = new LinkedHashMap<>(previous);
+        peers.putAll(members);
+        peers.remove(membership.getNodeId());
+        return Flux.fromIterable(peers.entrySet())
+                .flatMap(peer -> webClient.put()
+                        .uri(peer.getValue() + MEMBERS_PATH + "?propagate=false")
+                        .bodyValue(members)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .timeout(timeout)
+                        .onErrorResume(e -> {
+                            log.warn("Failed to propagate membership to {}: {}", peer.getKey(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private Mono<Map<String, Integer>> handoff() {
+        return Mono.fromCallable(this::exportForeignEndpoints)
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(byOwner -> Flux.fromIterable(byOwner.entrySet()))
+                .flatMap(owner -> Flux.fromIterable(partition(owner.getValue()))
+                        .concatMap(snapshots -> sendHandoff(owner.getKey(), snapshots))
+                        .reduce(0, Integer::sum)
+                        .map(count -> Map.entry(owner.getKey(), count)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue, TreeMap::new);
+    }
+
+    private Map<String, List<EndpointSnapshot>> exportForeignEndpoints() {
+        Set<String> endpoints = new HashSet<>(metricsCollectionService.getEndpoints());
+        endpoints.addAll(anomalyDetectionService.getBaselinedEndpoints());
+        endpoints.addAll(predictiveAnalyticsService.getModeledEndpoints());
+        Map<String, List<EndpointSnapshot>> byOwner = new HashMap<>();
+        for (String endpoint : endpoints) {
+            if (membership.isLocal(endpoint)) {
+                continue;
+            }
+            EndpointSnapshot snapshot = EndpointSnapshot.builder().endpoint(endpoint).build();
+            metricsCollectionService.export(endpoint, snapshot);
+            anomalyDetectionService.export(endpoint, snapshot);
+            predictiveAnalyticsService.export(endpoint, snapshot);
+            alertEngine.release(endpoint);
+            byOwner.computeIfAbsent(membership.owner(endpoint), k -> new ArrayList<>()).add(snapshot);
+        }
+        return byOwner;
+    }
+
+    private List<List<EndpointSnapshot>> partition(List<EndpointSnapshot> snapshots) {
+        List<List<EndpointSnapshot>> batches = new ArrayList<>();
+        for (int i = 0; i < snapshots.size(); i += handoffBatchSize) {
+            batches.add(snapshots.subList(i, Math.min(snapshots.size(), i + handoffBatchSize)));
+        }
+        return batches;
+    }
+
+    private Mono<Integer> sendHandoff(String owner, List<EndpointSnapshot> snapshots) {
+        String url = membership.url(owner);
+        if (url == null) {
+            return Mono.fromCallable(() -> restoreLocally(owner, snapshots, "owner has no URL"));
+        }
+        return webClient.post()
+                .uri(url + HANDOFF_PATH)
+                .bodyValue(snapshots)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(timeout)
+                .map(response -> {
+                    handedOff.add(snapshots.size());
+                    return snapshots.size();
+                })
+                .onErrorResume(e -> Mono.fromCallable(() -> restoreLocally(owner, snapshots, e.getMessage())));
+    }
+
+    private int restoreLocally(String owner, List<EndpointSnapshot> snapshots, String cause) {
+        log.warn("Handing {} endpoints to {} failed ({}), keeping them on this node", snapshots.size(), owner, cause);
+        snapshots.forEach(this::restoreSnapshot);
+        return 0;
+    }
+
+    public Mono<Void> restore(List<EndpointSnapshot> snapshots) {
+        return Mono.fromRunnable(() -> {
+            snapshots.forEach(this::restoreSnapshot);
+            handedIn.add(snapshots.size());
+            log.info("Took over {} endpoints", snapshots.size());
+        }).subscribeOn(Schedulers.boundedElastic()).then();
+    }
+
+    private void restoreSnapshot(EndpointSnapshot snapshot) {
+        metricsCollectionService.restore(snapshot);
+        anomalyDetectionService.restore(snapshot);
+        predictiveAnalyticsService.restore(snapshot);
+    }
+
+    public NodeSummary localSummary() {
+        return NodeSummary.builder()
+                .nodes(new ArrayList<>(List.of(membership.getNodeId())))
+                .collectingEndpoints(metricsCollectionService.getEndpoints().size())
+                .baselinedEndpoints(anomalyDetectionService.getBaselinedEndpoints().size())
+                .modeledEndpoints(predictiveAnalyticsService.getModeledEndpoints().size())
+                .anomalousSamples(alertEngine.getAnomalousSamples())
+                .alertsOpened(alertEngine.getOpenedCount())
+                .alertsResolved(alertEngine.getResolvedCount())
+                .alertsSuppressed(alertEngine.getSuppressedCount())
+                .samplesForwarded(router.getForwardedCount())
+                .samplesReceived(received.sum())
+                .openAlerts(new ArrayList<>(alertEngine.getOpenAlerts()))
+                .build();
+    }
+
+    /**
+     * Scatter/gather over every member; unreachable nodes are listed rather than failing the query.
+     */
+    public Mono<NodeSummary> fleetSummary() {
+        return Flux.fromIterable(membership.getMembers().entrySet())
+                .flatMap(member -> member.getKey().equals(membership.getNodeId())
+                        ? Mono.fromCallable(this::localSummary)
+                        : webClient.get()
+                                .uri(member.getValue() + SUMMARY_PATH + "?scope=local")
+                                .retrieve()
+                                .bodyToMono(NodeSummary.class)
+                                .timeout(timeout)
+                                .onErrorResume(e -> Mono.just(NodeSummary.unreachable(member.getKey()))))
+                .reduce(NodeSummary::merge);
+    }
+
+    public Map<String, String> owner(String endpoint) {
+        String owner = membership.owner(endpoint);
+        Map<String, String> result = new LinkedHashMap<>();
+        result.put("endpoint", endpoint);
+        result.put("owner", owner);
+        result.put("url", membership.url(owner));
+        return result;
+    }
+
+    public Map<String, String> getMembers() {
+        return membership.getMembers();
+    }
+}
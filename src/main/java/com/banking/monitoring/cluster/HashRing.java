@@ -0,0 +1,63 @@
+package com.banking.monitoring.cluster;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Consistent-hash ring with virtual nodes. Adding or removing a node only moves the keys that hash to that node's
+ * ranges, so a membership change hands off roughly {@code 1/n} of the endpoints instead of reshuffling all of them.
+ * Immutable; lookups are a binary search over the sorted ring.
+ */
+public final class HashRing {
+    private final long[] points;
+    private final String[] owners;
+
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        int replicas = Math.max(1, virtualNodes);
+        long[][] entries = new long[nodes.size() * replicas][];
+        String[] names = nodes.toArray(new String[0]);
+        int n = 0;
+        for (int node = 0; node < names.length; node++) {
+            for (int replica = 0; replica < replicas; replica++) {
+                entries[n++] = new long[]{hash(names[node] + "#" + replica), node};
+            }
+        }
+        Arrays.sort(entries, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0])
+                : names[(int) a[1]].compareTo(names[(int) b[1]]));
+        this.points = new long[entries.length];
+        this.owners = new String[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            points[i] = entries[i][0];
+            owners[i] = names[(int) entries[i][1]];
+        }
+    }
+
+    public String owner(String key) {
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-16 code units, finished with the MurmurHash3 mixer so that short, similar keys
+     * such as {@code /api/orders/1} and {@code /api/orders/2} still spread evenly around the ring.
+     */
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,32 @@
+package com.banking.monitoring.cluster;
+
+/**
+ * Decides whether samples for an endpoint are collected on this node or handed to the endpoint's owner.
+ */
+public interface SampleRouter {
+    SampleRouter LOCAL = new SampleRouter() {
+        @Override
+        public boolean isLocal(String endpoint) {
+            return true;
+        }
+
+        @Override
+        public void forwardRequests(String endpoint, int count, long responseTimeSum, int errors) {
+            throw new IllegalStateException("Endpoint " + endpoint + " is local");
+        }
+
+        @Override
+        public void forwardSystemMetrics(String endpoint, double cpu, double memory, double latency) {
+            throw new IllegalStateException("Endpoint " + endpoint + " is local");
+        }
+    };
+
+    boolean isLocal(String endpoint);
+
+    void forwardRequests(String endpoint, int count, long responseTimeSum, int errors);
+
+    /**
+     * Forwards the latest system metrics; {@code NaN} leaves a value unchanged on the owner.
+     */
+    void forwardSystemMetrics(String endpoint, double cpu, double memory, double latency);
+}
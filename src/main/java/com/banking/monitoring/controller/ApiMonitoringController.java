@@ -1,24 +1,46 @@
 package com.banking.monitoring.controller;
 
+import com.banking.monitoring.admission.AdmissionControl;
+import com.banking.monitoring.admission.ConcurrencyLimiter;
+import com.banking.monitoring.cluster.ClusterService;
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
 import com.banking.monitoring.model.ApiRequest;
+import com.banking.monitoring.model.Incident;
 import com.banking.monitoring.service.ApiMonitoringService;
+import com.banking.monitoring.service.HeavyHitters;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Map;
+
 @Slf4j
 @RestController
 @RequestMapping("/api/monitoring")
 @RequiredArgsConstructor
 public class ApiMonitoringController {
     private final ApiMonitoringService monitoringService;
+    private final ClusterService clusterService;
+    private final AdmissionControl admissionControl;
 
     @PostMapping("/process")
-    public Mono<ApiRequest> processApiRequest(@RequestBody ApiRequest request) {
-        return monitoringService.processApiRequest(request);
+    public Mono<ApiRequest> processApiRequest(
+            @RequestBody ApiRequest request,
+            @RequestHeader(value = ClusterService.FORWARDED_HEADER, required = false) String forwardedBy) {
+        ConcurrencyLimiter.Priority priority = request.getStatusCode() >= 400
+                ? ConcurrencyLimiter.Priority.CRITICAL : ConcurrencyLimiter.Priority.NORMAL;
+        return admissionControl.admitUntil(admissionControl.getProcessLimiter(), priority,
+                release -> clusterService.process(request, forwardedBy != null, release));
     }
 
     @GetMapping("/anomalies")
@@ -26,6 +48,44 @@ public class ApiMonitoringController {
         return monitoringService.getAnomalies();
     }
 
+    @GetMapping("/alerts")
+    public Flux<Alert> getOpenAlerts() {
+        return Flux.fromIterable(monitoringService.getOpenAlerts());
+    }
+
+    @GetMapping("/incidents")
+    public Flux<Incident> getIncidents(@RequestParam(defaultValue = "false") boolean resolved) {
+        return Flux.fromIterable(resolved ? monitoringService.getResolvedIncidents()
+                : monitoringService.getOpenIncidents());
+    }
+
+    @GetMapping("/incidents/{id}")
+    public Mono<ResponseEntity<Incident>> getIncident(@PathVariable String id) {
+        return Mono.just(monitoringService.getIncident(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build()));
+    }
+
+    @GetMapping("/sampling")
+    public Mono<Map<String, Double>> getSamplingRates() {
+        return Mono.fromCallable(monitoringService::getSamplingRates);
+    }
+
+    @GetMapping("/top")
+    public Mono<HeavyHitters.Top> getHeavyHitters(
+            @RequestParam(defaultValue = "requests") String by,
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String window) {
+        return Mono.fromCallable(() -> {
+            try {
+                return monitoringService.getHeavyHitters(HeavyHitters.Ranking.fromKey(by), limit,
+                        window != null ? DurationStyle.detectAndParse(window) : null);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+        });
+    }
+
     @PostMapping("/train")
     public Mono<ResponseEntity<Void>> trainModel(@RequestBody Flux<ApiRequest> trainingData) {
         return monitoringService.trainModelWithResponse(trainingData);
@@ -35,4 +95,25 @@ public class ApiMonitoringController {
     public Mono<String> generateRecommendations(@RequestBody Flux<ApiRequest> requests) {
         return monitoringService.generateRecommendations(requests);
     }
-} 
\ No newline at end of file
+
+    @PostMapping(value = "/recommendations", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamRecommendations(@RequestBody Flux<ApiRequest> requests) {
+        return monitoringService.streamRecommendations(requests).map(ApiMonitoringController::delta);
+    }
+
+    @PostMapping(value = "/analysis", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> streamAnalysis(@RequestBody ApiMetrics metrics) {
+        return monitoringService.streamAnalysis(metrics).map(ApiMonitoringController::delta);
+    }
+
+    /**
+     * Sends a content delta as a JSON string. Raw text would be written after {@code data:} unquoted, and SSE clients
+     * strip one leading space from each data line, so deltas starting with a space (most of them) would lose it;
+     * newlines inside a delta would be split into separate data lines as well.
+     */
+    static ServerSentEvent<String> delta(String content) {
+        return ServerSentEvent.builder("\"" + new String(JsonStringEncoder.getInstance().quoteAsString(content)) + "\"")
+                .event("delta")
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package com.banking.monitoring.controller;
+
+import com.banking.monitoring.cluster.ClusterService;
+import com.banking.monitoring.model.EndpointSnapshot;
+import com.banking.monitoring.model.ForwardedSample;
+import com.banking.monitoring.model.NodeSummary;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+
+@Slf4j
+@RestController
+@ConditionalOnProperty(prefix = "monitoring.cluster", name = "enabled", havingValue = "true")
+@RequestMapping("/api/cluster")
+@RequiredArgsConstructor
+public class ClusterController {
+    private final ClusterService clusterService;
+
+    @PostMapping("/samples")
+    public Mono<ResponseEntity<Void>> acceptSamples(@RequestBody List<ForwardedSample> samples) {
+        return clusterService.accept(samples)
+                .thenReturn(ResponseEntity.<Void>ok().build());
+    }
+
+    @PostMapping("/handoff")
+    public Mono<ResponseEntity<Void>> acceptHandoff(@RequestBody List<EndpointSnapshot> snapshots) {
+        return clusterService.restore(snapshots)
+                .thenReturn(ResponseEntity.<Void>ok().build());
+    }
+
+    @GetMapping("/members")
+    public Map<String, String> getMembers() {
+        return clusterService.getMembers();
+    }
+
+    @PutMapping("/members")
+    public Mono<Map<String, Integer>> updateMembers(
+            @RequestBody Map<String, String> members,
+            @RequestParam(defaultValue = "true") boolean propagate) {
+        return clusterService.updateMembers(members, propagate);
+    }
+
+    @GetMapping("/owner")
+    public Map<String, String> getOwner(@RequestParam String endpoint) {
+        return clusterService.owner(endpoint);
+    }
+
+    @GetMapping("/summary")
+    public Mono<NodeSummary> getSummary(@RequestParam(defaultValue = "fleet") String scope) {
+        return "local".equals(scope)
+                ? Mono.fromCallable(clusterService::localSummary)
+                : clusterService.fleetSummary();
+    }
+}
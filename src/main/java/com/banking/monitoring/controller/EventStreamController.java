@@ -0,0 +1,47 @@
+package com.banking.monitoring.controller;
+
+import com.banking.monitoring.model.MonitoringEvent;
+import com.banking.monitoring.service.MonitoringEventStream;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class EventStreamController {
+    private final MonitoringEventStream eventStream;
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MonitoringEvent>> streamEvents(
+            @RequestParam(required = false) Set<MonitoringEvent.Type> type,
+            @RequestParam(required = false) Set<String> endpoint,
+            @RequestParam(defaultValue = "INFO") MonitoringEvent.Severity severity) {
+        return eventStream.serverSentEvents(type, endpoint, severity);
+    }
+
+    @GetMapping(value = "/metrics", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MonitoringEvent>> streamMetrics(
+            @RequestParam(required = false) Set<String> endpoint,
+            @RequestParam(defaultValue = "INFO") MonitoringEvent.Severity severity) {
+        return eventStream.serverSentEvents(Set.of(MonitoringEvent.Type.METRICS), endpoint, severity);
+    }
+
+    @GetMapping(value = "/alerts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MonitoringEvent>> streamAlerts(
+            @RequestParam(required = false) Set<String> endpoint,
+            @RequestParam(defaultValue = "INFO") MonitoringEvent.Severity severity) {
+        return eventStream.serverSentEvents(Set.of(MonitoringEvent.Type.ALERT), endpoint, severity);
+    }
+
+    @GetMapping(value = "/incidents", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MonitoringEvent>> streamIncidents(
+            @RequestParam(required = false) Set<String> endpoint,
+            @RequestParam(defaultValue = "INFO") MonitoringEvent.Severity severity) {
+        return eventStream.serverSentEvents(Set.of(MonitoringEvent.Type.INCIDENT), endpoint, severity);
+    }
+}
@@ -0,0 +1,114 @@
+package com.banking.monitoring.controller;
+
+import com.banking.monitoring.ingest.Backtester;
+import com.banking.monitoring.ingest.BulkImporter;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import com.banking.monitoring.storage.Resolution;
+import com.banking.monitoring.storage.TimeSeriesStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.file.NoSuchFileException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/api/history")
+@RequiredArgsConstructor
+public class HistoryController {
+    private final TimeSeriesStore timeSeriesStore;
+    private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final BulkImporter bulkImporter;
+    private final Backtester backtester;
+
+    @GetMapping
+    public Flux<ApiMetrics> getHistory(
+            @RequestParam String endpoint,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "raw") String resolution) {
+        return Mono.fromCallable(() -> read(endpoint, from, to, resolution))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(Flux::fromIterable);
+    }
+
+    @PostMapping("/train/{endpoint}")
+    public Mono<ResponseEntity<Integer>> trainFromHistory(
+            @PathVariable String endpoint,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "5m") String resolution) {
+        return Mono.fromCallable(() -> {
+                    List<ApiMetrics> history = read(endpoint, from, to, resolution);
+                    if (!history.isEmpty()) {
+                        predictiveAnalyticsService.trainModel(endpoint, history);
+                    }
+                    return ResponseEntity.ok(history.size());
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/import")
+    public Mono<BulkImporter.ImportResult> importFile(
+            @RequestParam String file,
+            @RequestParam(required = false) String endpoint,
+            @RequestParam(defaultValue = "true") boolean train) {
+        return Mono.fromCallable(() -> {
+                    try {
+                        return bulkImporter.importFile(bulkImporter.resolve(file), endpoint, train);
+                    } catch (IllegalArgumentException e) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+                    } catch (NoSuchFileException e) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such import file: " + file);
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @PostMapping("/backtest")
+    public Mono<Backtester.BacktestResult> backtest(@RequestBody Backtester.Request request) {
+        return Mono.fromCallable(() -> {
+                    try {
+                        if (request.file() == null) {
+                            throw new IllegalArgumentException("A backtest needs a file");
+                        }
+                        return backtester.backtest(backtester.resolve(request.file()), request.endpoint(),
+                                request.expand());
+                    } catch (IllegalArgumentException e) {
+                        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+                    } catch (NoSuchFileException e) {
+                        throw new ResponseStatusException(HttpStatus.NOT_FOUND, "No such backtest file: "
+                                + request.file());
+                    }
+                })
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private List<ApiMetrics> read(String endpoint, LocalDateTime from, LocalDateTime to, String resolution) {
+        if (!timeSeriesStore.isEnabled()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Time-series storage is disabled");
+        }
+        Resolution level;
+        try {
+            level = Resolution.fromKey(resolution);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minusDays(1);
+        ZoneId zone = ZoneId.systemDefault();
+        return timeSeriesStore.read(endpoint, level,
+                start.atZone(zone).toInstant().toEpochMilli(), end.atZone(zone).toInstant().toEpochMilli());
+    }
+}
@@ -1,7 +1,7 @@
 package com.banking.monitoring.controller;
 
+import com.banking.monitoring.ingest.IngestRing;
 import com.banking.monitoring.model.ApiMetrics;
-import com.banking.monitoring.service.MetricsCollectionService;
 import com.banking.monitoring.service.PredictiveAnalyticsService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -15,7 +15,7 @@ import reactor.core.publisher.Mono;
 @RequestMapping("/api/metrics")
 @RequiredArgsConstructor
 public class MetricsController {
-    private final MetricsCollectionService metricsCollectionService;
+    private final IngestRing ingestRing;
     private final PredictiveAnalyticsService predictiveAnalyticsService;
 
     @PostMapping("/record")
@@ -24,7 +24,7 @@ public class MetricsController {
             @RequestParam long responseTime,
             @RequestParam boolean isError) {
         return Mono.fromRunnable(() -> 
-            metricsCollectionService.recordRequest(endpoint, responseTime, isError))
+            ingestRing.offerRequest(endpoint, responseTime, isError))
             .thenReturn(ResponseEntity.<Void>ok().build());
     }
 
@@ -35,7 +35,7 @@ public class MetricsController {
             @RequestParam double memory,
             @RequestParam double latency) {
         return Mono.fromRunnable(() -> 
-            metricsCollectionService.updateSystemMetrics(endpoint, cpu, memory, latency))
+            ingestRing.offerSystemMetrics(endpoint, cpu, memory, latency))
             .thenReturn(ResponseEntity.<Void>ok().build());
     }
 
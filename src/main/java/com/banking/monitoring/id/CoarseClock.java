@@ -0,0 +1,97 @@
+package com.banking.monitoring.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Epoch-millisecond wall clock read from a field that a daemon thread refreshes every
+ * {@code monitoring.clock.resolution}, so per-record timestamps cost a volatile read. Before {@link #start()} and
+ * after {@link #stop()} it reads {@link System#currentTimeMillis()} directly. Also converts between epoch
+ * milliseconds and the {@link LocalDateTime} view the models expose.
+ */
+@Slf4j
+@Component
+public class CoarseClock implements SmartLifecycle {
+    private final Duration resolution;
+    private volatile long millis;
+    private volatile boolean running;
+    private ScheduledExecutorService ticker;
+
+    public CoarseClock() {
+        this(Duration.ofMillis(1));
+    }
+
+    @Autowired
+    public CoarseClock(@Value("${monitoring.clock.resolution:1ms}") Duration resolution) {
+        if (resolution.isNegative() || resolution.isZero()) {
+            throw new IllegalArgumentException("monitoring.clock.resolution must be positive");
+        }
+        this.resolution = resolution;
+    }
+
+    public long millis() {
+        return running ? millis : System.currentTimeMillis();
+    }
+
+    public LocalDateTime now() {
+        return toLocalDateTime(millis());
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        return epochMillis == 0
+                ? null
+                : LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    public static long toEpochMillis(LocalDateTime timestamp) {
+        return timestamp == null ? 0 : timestamp.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        millis = System.currentTimeMillis();
+        ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "coarse-clock");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = resolution.toNanos();
+        ticker.scheduleAtFixedRate(() -> millis = System.currentTimeMillis(), period, period, TimeUnit.NANOSECONDS);
+        running = true;
+        log.debug("Coarse clock ticking every {}", resolution);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.shutdownNow();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // Start before, and stop after, every component that stamps records.
+        return Integer.MIN_VALUE;
+    }
+}
@@ -0,0 +1,40 @@
+package com.banking.monitoring.id;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads a record ID written as a JSON number or as the decimal string it is serialized to. Any other string, such as
+ * the UUID a client written against the former string IDs still sends, reads as 0 (unassigned) instead of failing
+ * the request; the server assigns record IDs itself.
+ */
+public class RecordIdDeserializer extends StdDeserializer<Long> {
+
+    public RecordIdDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (parser.currentToken() != JsonToken.VALUE_STRING) {
+            return (Long) context.handleUnexpectedToken(Long.class, parser);
+        }
+        try {
+            return Long.parseLong(parser.getText().trim());
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    @Override
+    public Long getNullValue(DeserializationContext context) {
+        return 0L;
+    }
+}
@@ -0,0 +1,355 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AlertEngine;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.AnomalyScorer;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline replay of recorded traffic through the detectors, to tune thresholds and window sizes against labelled
+ * history. The file is loaded once as a {@link RecordedTraffic}; every {@link DetectorConfig} then replays it on its
+ * own thread, up to {@code parallelism} at a time, through fresh {@link AnomalyDetectionService},
+ * {@link PredictiveAnalyticsService} and {@link AlertEngine} instances. Time is virtual: the alert engine's clock is
+ * the timestamp of the sample being replayed, so a day of traffic replays as fast as the detectors run.
+ * <p>
+ * Per configuration the result reports sample-level precision and recall of the anomaly flags and failure
+ * predictions, event-level recall and detection delay (a labelled event is a run of labelled samples of one
+ * endpoint; it is detected when an alert is open for the endpoint during it, and the delay runs from its first
+ * sample to the alert), alerts opened outside any event, and replay throughput. Failure models are not trained, so
+ * predictions come from the rule tier. Alerts open on anomaly flags alone, so the failure threshold is scored per
+ * sample only and does not change the event-level results.
+ */
+@Slf4j
+@Service
+public class Backtester {
+    private static final int ALERT_EXIT_SAMPLES = 5;
+    private static final Duration ALERT_EXIT_DURATION = Duration.ofSeconds(10);
+    private static final int DETECTION_BATCH = 1024;
+
+    /**
+     * One detector setup to replay. Zero or null components take the production defaults. {@code failureThreshold}
+     * only affects the sample-level failure predictions.
+     */
+    public record DetectorConfig(String name,
+                                 int windowSize,
+                                 double zScoreThreshold,
+                                 double failureThreshold,
+                                 int alertEnterSamples) {
+
+        public DetectorConfig {
+            windowSize = windowSize > 0 ? windowSize : 100;
+            zScoreThreshold = zScoreThreshold > 0 ? zScoreThreshold : AnomalyScorer.Thresholds.DEFAULT.zScore();
+            failureThreshold = failureThreshold > 0 ? failureThreshold : 0.7;
+            alertEnterSamples = alertEnterSamples > 0 ? alertEnterSamples : 3;
+            if (name == null || name.isBlank()) {
+                name = String.format(Locale.ROOT, "window=%d z=%s failure=%s enter=%d", windowSize,
+                        zScoreThreshold, failureThreshold, alertEnterSamples);
+            }
+        }
+    }
+
+    /**
+     * A backtest of {@code file}: the listed configurations plus every combination of the listed window sizes,
+     * z-score thresholds and failure thresholds.
+     */
+    public record Request(String file,
+                          String endpoint,
+                          List<DetectorConfig> configs,
+                          List<Integer> windowSizes,
+                          List<Double> zScoreThresholds,
+                          List<Double> failureThresholds) {
+
+        public List<DetectorConfig> expand() {
+            List<DetectorConfig> expanded = new ArrayList<>();
+            if (configs != null) {
+                expanded.addAll(configs);
+            }
+            if (windowSizes != null || zScoreThresholds != null || failureThresholds != null) {
+                for (int windowSize : orDefault(windowSizes, 0)) {
+                    for (double zScoreThreshold : orDefault(zScoreThresholds, 0.0)) {
+                        for (double failureThreshold : orDefault(failureThresholds, 0.0)) {
+                            expanded.add(new DetectorConfig(null, windowSize, zScoreThreshold, failureThreshold, 0));
+                        }
+                    }
+                }
+            }
+            if (expanded.isEmpty()) {
+                expanded.add(new DetectorConfig(null, 0, 0, 0, 0));
+            }
+            return expanded;
+        }
+
+        private static <T> List<T> orDefault(List<T> values, T fallback) {
+            return values == null || values.isEmpty() ? List.of(fallback) : values;
+        }
+    }
+
+    public record Detection(long truePositives, long falsePositives, long falseNegatives, long trueNegatives) {
+
+        /**
+         * Flagged samples that were labelled; 0 if nothing was flagged.
+         */
+        public double getPrecision() {
+            long flagged = truePositives + falsePositives;
+            return flagged == 0 ? 0 : (double) truePositives / flagged;
+        }
+
+        /**
+         * Labelled samples that were flagged; 0 if nothing was labelled.
+         */
+        public double getRecall() {
+            long labelled = truePositives + falseNegatives;
+            return labelled == 0 ? 0 : (double) truePositives / labelled;
+        }
+
+        public double getF1() {
+            double precision = getPrecision();
+            double recall = getRecall();
+            return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+        }
+    }
+
+    public record ConfigResult(DetectorConfig config,
+                               Detection anomalies,
+                               Detection failures,
+                               long events,
+                               long detectedEvents,
+                               long falseAlerts,
+                               double meanDelayMillis,
+                               long p95DelayMillis,
+                               long maxDelayMillis,
+                               long elapsedMillis,
+                               double samplesPerSecond,
+                               double speedup) {
+
+        public double getEventRecall() {
+            return events == 0 ? 0 : (double) detectedEvents / events;
+        }
+    }
+
+    public record BacktestResult(String file,
+                                 long samples,
+                                 long malformedRows,
+                                 boolean truncated,
+                                 int endpoints,
+                                 boolean labeled,
+                                 long spanMillis,
+                                 int threads,
+                                 long loadMillis,
+                                 long totalMillis,
+                                 List<ConfigResult> configs) {
+    }
+
+    private final Path directory;
+    private final int parallelism;
+    private final int maxRows;
+    private final int maxConfigs;
+    private final Duration sampleInterval;
+
+    @Autowired
+    public Backtester(@Value("${monitoring.backtest.directory:${monitoring.import.directory:data/import}}")
+                      Path directory,
+                      @Value("${monitoring.backtest.parallelism:0}") int parallelism,
+                      @Value("${monitoring.backtest.max-rows:2000000}") int maxRows,
+                      @Value("${monitoring.backtest.max-configs:64}") int maxConfigs,
+                      @Value("${monitoring.backtest.sample-interval:60s}") Duration sampleInterval) {
+        if (sampleInterval.isNegative() || sampleInterval.isZero()) {
+            throw new IllegalArgumentException("monitoring.backtest.sample-interval must be positive");
+        }
+        this.directory = directory.toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.maxRows = Math.max(1, maxRows);
+        this.maxConfigs = Math.max(1, maxConfigs);
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Resolves {@code file} against the backtest directory, rejecting paths outside it.
+     */
+    public Path resolve(String file) {
+        Path path = directory.resolve(file).toAbsolutePath().normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Backtest files must be inside " + directory);
+        }
+        return path;
+    }
+
+    public BacktestResult backtest(Path file, String defaultEndpoint, List<DetectorConfig> configs)
+            throws IOException {
+        if (configs.isEmpty() || configs.size() > maxConfigs) {
+            throw new IllegalArgumentException("A backtest needs between 1 and " + maxConfigs + " configurations");
+        }
+        long start = System.nanoTime();
+        RecordedTraffic traffic = RecordedTraffic.load(file, defaultEndpoint, sampleInterval, maxRows);
+        long loadNanos = System.nanoTime() - start;
+
+        int threads = Math.min(parallelism, configs.size());
+        ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "backtest");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<ConfigResult> results = new ArrayList<>(configs.size());
+        try {
+            List<Future<ConfigResult>> replays = new ArrayList<>(configs.size());
+            for (DetectorConfig config : configs) {
+                replays.add(workers.submit(() -> replay(traffic, config)));
+            }
+            for (Future<ConfigResult> replay : replays) {
+                results.add(replay.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backtest interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+
+        BacktestResult result = new BacktestResult(file.toString(), traffic.size(), traffic.getMalformedRows(),
+                traffic.isTruncated(), traffic.getEndpointCount(), traffic.isLabeled(), traffic.getSpanMillis(),
+                threads, TimeUnit.NANOSECONDS.toMillis(loadNanos),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), results);
+        log.info("Backtested {} configurations over {} samples of {} endpoints from {} in {} ms", configs.size(),
+                traffic.size(), traffic.getEndpointCount(), file, result.totalMillis());
+        return result;
+    }
+
+    /**
+     * Replays every sample of {@code traffic} in time order through detectors set up as {@code config}.
+     */
+    static ConfigResult replay(RecordedTraffic traffic, DetectorConfig config) {
+        long[] virtualNanos = {0};
+        PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+        AnomalyDetectionService detector = new AnomalyDetectionService(pipelineMetrics, config.windowSize(), true,
+                AnomalyScorer.Thresholds.DEFAULT.withZScore(config.zScoreThreshold()));
+        PredictiveAnalyticsService predictor = new PredictiveAnalyticsService(pipelineMetrics);
+        // no suppression window, so every alert that opens is reported
+        AlertEngine alerts = new AlertEngine(pipelineMetrics.getRegistry(), config.alertEnterSamples(), Duration.ZERO,
+                ALERT_EXIT_SAMPLES, ALERT_EXIT_DURATION, Duration.ZERO, () -> virtualNanos[0]);
+
+        int endpoints = traffic.getEndpointCount();
+        long[] eventStart = new long[endpoints];
+        boolean[] eventDetected = new boolean[endpoints];
+        boolean[] alertOpen = new boolean[endpoints];
+        Arrays.fill(eventStart, -1);
+        long[] anomalies = new long[4];
+        long[] failures = new long[4];
+        long events = 0;
+        long falseAlerts = 0;
+        long[] delays = new long[16];
+        int detected = 0;
+        long origin = traffic.size() == 0 ? 0 : traffic.timestamps[0];
+
+        List<ApiMetrics> batch = new ArrayList<>(DETECTION_BATCH);
+        long start = System.nanoTime();
+        for (int i = 0; i < traffic.size(); i++) {
+            if (i % DETECTION_BATCH == 0) {
+                detect(detector, traffic, i, batch);
+            }
+            long timestamp = traffic.timestamps[i];
+            virtualNanos[0] = TimeUnit.MILLISECONDS.toNanos(timestamp - origin);
+            int endpoint = traffic.endpoints[i];
+            boolean label = traffic.labels != null && traffic.labels[i];
+
+            ApiMetrics metrics = batch.get(i % DETECTION_BATCH);
+            predictor.predict(metrics);
+            metrics.setPredictedFailure(metrics.getPredictedFailureProbability() > config.failureThreshold());
+            count(anomalies, metrics.isAnomaly(), label);
+            count(failures, metrics.isPredictedFailure(), label);
+
+            if (label && eventStart[endpoint] < 0) {
+                events++;
+                eventStart[endpoint] = timestamp;
+                eventDetected[endpoint] = alertOpen[endpoint];
+                if (alertOpen[endpoint]) {
+                    delays = record(delays, detected++, 0);
+                }
+            } else if (!label) {
+                eventStart[endpoint] = -1;
+            }
+            Optional<Alert> alert = alerts.evaluate(metrics);
+            if (alert.isPresent()) {
+                alertOpen[endpoint] = alert.get().getStatus() == Alert.Status.OPEN;
+                if (alertOpen[endpoint]) {
+                    if (eventStart[endpoint] < 0) {
+                        falseAlerts++;
+                    } else if (!eventDetected[endpoint]) {
+                        eventDetected[endpoint] = true;
+                        delays = record(delays, detected++, timestamp - eventStart[endpoint]);
+                    }
+                }
+            }
+        }
+        long elapsed = Math.max(1, System.nanoTime() - start);
+
+        long[] sorted = Arrays.copyOf(delays, detected);
+        Arrays.sort(sorted);
+        double meanDelay = detected == 0 ? 0 : Arrays.stream(sorted).average().orElse(0);
+        long p95Delay = detected == 0 ? 0 : sorted[(int) Math.ceil(0.95 * detected) - 1];
+        long maxDelay = detected == 0 ? 0 : sorted[detected - 1];
+        boolean labeled = traffic.isLabeled();
+        return new ConfigResult(config,
+                labeled ? detection(anomalies) : null,
+                labeled ? detection(failures) : null,
+                events, detected, falseAlerts, meanDelay, p95Delay, maxDelay,
+                TimeUnit.NANOSECONDS.toMillis(elapsed),
+                traffic.size() / (elapsed / 1e9),
+                traffic.getSpanMillis() / (elapsed / 1e6));
+    }
+
+    /**
+     * Scores the next {@link #DETECTION_BATCH} samples from {@code from} into {@code batch} in one pass. Detection only
+     * depends on earlier samples, so it can run ahead of prediction and alerting.
+     */
+    private static void detect(AnomalyDetectionService detector, RecordedTraffic traffic, int from,
+                               List<ApiMetrics> batch) {
+        batch.clear();
+        for (int i = from; i < Math.min(traffic.size(), from + DETECTION_BATCH); i++) {
+            batch.add(traffic.toMetrics(i));
+        }
+        detector.evaluateAll(batch);
+    }
+
+    /**
+     * Confusion matrix cells in {@link Detection} order.
+     */
+    private static void count(long[] cells, boolean flagged, boolean label) {
+        cells[flagged ? (label ? 0 : 1) : (label ? 2 : 3)]++;
+    }
+
+    private static Detection detection(long[] cells) {
+        return new Detection(cells[0], cells[1], cells[2], cells[3]);
+    }
+
+    private static long[] record(long[] delays, int index, long delay) {
+        long[] grown = index < delays.length ? delays : Arrays.copyOf(delays, delays.length * 2);
+        grown[index] = delay;
+        return grown;
+    }
+}
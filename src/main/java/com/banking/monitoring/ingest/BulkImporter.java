@@ -0,0 +1,341 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline import of historical CSV or ARFF exports into the anomaly baselines and failure models. The data section
+ * is split into one contiguous segment per thread, and each segment is memory-mapped and parsed {@code chunk-size}
+ * bytes at a time; a chunk owns every line that starts inside it, so chunk edges need no coordination. Lines are
+ * parsed in place without decoding them to strings.
+ * <p>
+ * Memory does not grow with the file: per segment and endpoint only the last {@code window-size} samples (what the
+ * rolling baselines keep) and a uniform reservoir of {@code max-training-rows} samples for model training are held.
+ * The segment reservoirs are merged in proportion to how many samples each segment saw. At most
+ * {@code max-endpoints} endpoints are imported; rows for further endpoints are skipped.
+ * <p>
+ * Columns are matched by name ({@code endpoint}, {@code responseTime}, {@code errorRate}, {@code statusCode},
+ * {@code throughput}, {@code cpuUsage}, {@code memoryUsage}, {@code networkLatency}; case, {@code _} and {@code -}
+ * are ignored) and other columns are skipped. Files without an endpoint column are imported for the endpoint given
+ * by the caller. Relative paths are resolved against {@code monitoring.import.directory} and may not leave it.
+ */
+@Slf4j
+@Service
+public class BulkImporter {
+    static final int MAX_LINE = 64 * 1024;
+    private static final int HEADER_LIMIT = 1024 * 1024;
+
+    enum Column {
+        ENDPOINT, RESPONSE_TIME, ERROR_RATE, STATUS_CODE, THROUGHPUT, CPU, MEMORY, LATENCY, IGNORED;
+
+        static Column of(String name) {
+            String key = name.trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+            return switch (key) {
+                case "endpoint", "path" -> ENDPOINT;
+                case "responsetime", "latencyms" -> RESPONSE_TIME;
+                case "errorrate" -> ERROR_RATE;
+                case "statuscode", "status" -> STATUS_CODE;
+                case "throughput" -> THROUGHPUT;
+                case "cpuusage", "cpu" -> CPU;
+                case "memoryusage", "memory" -> MEMORY;
+                case "networklatency" -> LATENCY;
+                default -> IGNORED;
+            };
+        }
+    }
+
+    public record ImportResult(String file,
+                               long bytes,
+                               long rows,
+                               long malformedRows,
+                               long skippedRows,
+                               int endpoints,
+                               int trainedEndpoints,
+                               int threads,
+                               long parseMillis,
+                               long totalMillis) {
+
+        /**
+         * Parse throughput over all threads; baseline updates and model training are excluded.
+         */
+        public double getParseMegabytesPerSecond() {
+            return parseMillis == 0 ? 0 : bytes / 1e6 / (parseMillis / 1e3);
+        }
+
+        public double getParseMegabytesPerSecondPerThread() {
+            return getParseMegabytesPerSecond() / threads;
+        }
+    }
+
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final Path directory;
+    private final int parallelism;
+    private final long chunkBytes;
+    private final int maxTrainingRows;
+    private final int maxEndpoints;
+
+    @Autowired
+    public BulkImporter(AnomalyDetectionService anomalyDetectionService,
+                        PredictiveAnalyticsService predictiveAnalyticsService,
+                        @Value("${monitoring.import.directory:data/import}") Path directory,
+                        @Value("${monitoring.import.parallelism:0}") int parallelism,
+                        @Value("${monitoring.import.chunk-size:32MB}") DataSize chunkSize,
+                        @Value("${monitoring.import.max-training-rows:5000}") int maxTrainingRows,
+                        @Value("${monitoring.import.max-endpoints:10000}") int maxEndpoints) {
+        if (chunkSize.toBytes() < MAX_LINE || chunkSize.toBytes() > Integer.MAX_VALUE - MAX_LINE) {
+            throw new IllegalArgumentException("chunk-size must be between 64KB and 2GB");
+        }
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.predictiveAnalyticsService = predictiveAnalyticsService;
+        this.directory = directory.toAbsolutePath().normalize();
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.chunkBytes = chunkSize.toBytes();
+        this.maxTrainingRows = Math.max(1, maxTrainingRows);
+        this.maxEndpoints = Math.max(1, maxEndpoints);
+    }
+
+    /**
+     * Resolves {@code file} against the import directory, rejecting paths outside it.
+     */
+    public Path resolve(String file) {
+        Path path = directory.resolve(file).toAbsolutePath().normalize();
+        if (!path.startsWith(directory)) {
+            throw new IllegalArgumentException("Import files must be inside " + directory);
+        }
+        return path;
+    }
+
+    public ImportResult importFile(Path file, String defaultEndpoint, boolean train) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            Header header = readHeader(channel, size, file.getFileName().toString());
+            if (!header.hasColumn(Column.ENDPOINT) && (defaultEndpoint == null || defaultEndpoint.isBlank())) {
+                throw new IllegalArgumentException(file.getFileName() + " has no endpoint column; pass an endpoint");
+            }
+            if (!header.hasColumn(Column.RESPONSE_TIME)) {
+                throw new IllegalArgumentException(file.getFileName() + " has no response time column");
+            }
+
+            long dataBytes = size - header.dataStart();
+            int threads = (int) Math.max(1, Math.min(parallelism, dataBytes / MAX_LINE));
+            long segmentBytes = (dataBytes + threads - 1) / threads;
+            Set<String> admitted = ConcurrentHashMap.newKeySet();
+            List<ChunkParser> segments = new ArrayList<>();
+            for (int index = 0; index < threads; index++) {
+                long from = header.dataStart() + index * segmentBytes;
+                segments.add(new ChunkParser(header, defaultEndpoint, anomalyDetectionService.getWindowSize(),
+                        maxTrainingRows, admitted, maxEndpoints, index, Math.min(size, from),
+                        Math.min(size, from + segmentBytes), chunkBytes));
+            }
+            ExecutorService workers = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "bulk-import");
+                thread.setDaemon(true);
+                return thread;
+            });
+            try {
+                invokeAll(workers, segments.stream().map(segment -> (Callable<Void>) () -> {
+                    segment.parse(channel, size);
+                    return null;
+                }).toList());
+                long parseNanos = System.nanoTime() - start;
+
+                Map<String, List<ChunkParser.Rows>> byEndpoint = new LinkedHashMap<>();
+                long rows = 0;
+                long malformed = 0;
+                long skipped = 0;
+                for (ChunkParser segment : segments) {
+                    rows += segment.rows;
+                    malformed += segment.malformedRows;
+                    skipped += segment.skippedRows;
+                    segment.endpoints.forEach((endpoint, endpointRows) ->
+                            byEndpoint.computeIfAbsent(endpoint, k -> new ArrayList<>()).add(endpointRows));
+                }
+
+                List<ApiMetrics> baselineRows = new ArrayList<>();
+                byEndpoint.forEach((endpoint, parts) -> baselineRows.addAll(recent(endpoint, parts)));
+                anomalyDetectionService.updateBaselineStats(baselineRows);
+
+                int trained = 0;
+                if (train) {
+                    List<Callable<Void>> training = new ArrayList<>();
+                    byEndpoint.forEach((endpoint, parts) -> training.add(() -> {
+                        predictiveAnalyticsService.trainModel(endpoint, sample(parts, endpoint.hashCode()));
+                        return null;
+                    }));
+                    invokeAll(workers, training);
+                    trained = training.size();
+                }
+
+                ImportResult result = new ImportResult(file.toString(), size, rows, malformed, skipped,
+                        byEndpoint.size(), trained, threads, TimeUnit.NANOSECONDS.toMillis(parseNanos),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                log.info("Imported {} rows ({} malformed, {} skipped) for {} endpoints from {} in {} ms "
+                                + "({} MB/s per thread)", rows, malformed, skipped, byEndpoint.size(), file,
+                        result.totalMillis(),
+                        String.format(Locale.ROOT, "%.1f", result.getParseMegabytesPerSecondPerThread()));
+                return result;
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private static void invokeAll(ExecutorService workers, List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> future : workers.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * The endpoint's last {@code window-size} samples in file order.
+     */
+    private List<ApiMetrics> recent(String endpoint, List<ChunkParser.Rows> parts) {
+        int window = anomalyDetectionService.getWindowSize();
+        List<ApiMetrics> recent = new ArrayList<>(window);
+        for (int i = parts.size() - 1; i >= 0 && recent.size() < window; i--) {
+            parts.get(i).addRecent(endpoint, recent, window);
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    /**
+     * Draws up to {@code max-training-rows} samples from the segment reservoirs, from each in proportion to the
+     * number of samples its segment saw for the endpoint.
+     */
+    private List<ApiMetrics> sample(List<ChunkParser.Rows> parts, long seed) {
+        long seen = 0;
+        for (ChunkParser.Rows part : parts) {
+            seen += part.seen;
+        }
+        int target = (int) Math.min(maxTrainingRows, seen);
+        SplittableRandom random = new SplittableRandom(seed);
+        List<ApiMetrics> sample = new ArrayList<>(target);
+        long before = 0;
+        for (ChunkParser.Rows part : parts) {
+            List<ApiMetrics> reservoir = new ArrayList<>(part.reservoir);
+            // cumulative rounding so the shares add up to exactly target
+            long share = Math.round((double) target * (before + part.seen) / seen)
+                    - Math.round((double) target * before / seen);
+            before += part.seen;
+            int take = (int) Math.min(reservoir.size(), share);
+            for (int i = 0; i < take; i++) {
+                Collections.swap(reservoir, i, i + random.nextInt(reservoir.size() - i));
+                sample.add(reservoir.get(i));
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * The data section's columns, their names as written, and where the data starts.
+     */
+    record Header(Column[] columns, String[] names, long dataStart, boolean arff) {
+        boolean hasColumn(Column column) {
+            for (Column c : columns) {
+                if (c == column) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    static Header readHeader(FileChannel channel, long size, String name) throws IOException {
+        boolean arff = name.toLowerCase(Locale.ROOT).endsWith(".arff");
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, HEADER_LIMIT));
+        List<String> names = new ArrayList<>();
+        int lineStart = 0;
+        for (int i = 0; i <= buf.limit(); i++) {
+            if (i < buf.limit() && buf.get(i) != '\n') {
+                continue;
+            }
+            String line = decode(buf, lineStart, i).trim();
+            lineStart = i + 1;
+            if (line.isEmpty() || line.startsWith("%")) {
+                continue;
+            }
+            if (!arff) {
+                for (String column : line.split(",")) {
+                    names.add(unquote(column.trim()));
+                }
+                return header(names, Math.min(size, lineStart), false);
+            }
+            String lower = line.toLowerCase(Locale.ROOT);
+            if (lower.startsWith("@attribute")) {
+                String rest = line.substring("@attribute".length()).trim();
+                int nameEnd = rest.startsWith("'") || rest.startsWith("\"")
+                        ? rest.indexOf(rest.charAt(0), 1) + 1 : rest.split("\\s", 2)[0].length();
+                names.add(unquote(nameEnd > 0 ? rest.substring(0, nameEnd) : rest));
+            } else if (lower.startsWith("@data")) {
+                return header(names, Math.min(size, lineStart), true);
+            }
+        }
+        throw new IllegalArgumentException(name + (arff ? " has no @data section" : " has no header line")
+                + " within the first " + HEADER_LIMIT + " bytes");
+    }
+
+    private static Header header(List<String> names, long dataStart, boolean arff) {
+        return new Header(names.stream().map(Column::of).toArray(Column[]::new), names.toArray(String[]::new),
+                dataStart, arff);
+    }
+
+    private static String decode(MappedByteBuffer buf, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buf.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static String unquote(String value) {
+        if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                && value.charAt(value.length() - 1) == value.charAt(0)) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
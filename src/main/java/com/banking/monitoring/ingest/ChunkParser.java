@@ -0,0 +1,229 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.model.ApiMetrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Parses the lines starting in {@code [from, to)} of a CSV or ARFF data section, mapping it one window of
+ * {@code windowBytes} at a time. Each mapping starts one byte early to see whether the window begins a line, and runs
+ * up to {@link BulkImporter#MAX_LINE} bytes past its end to finish the last line. Rows are kept per endpoint as a ring
+ * of the most recent response times and error rates plus a reservoir sample. Instances are confined to one thread.
+ */
+final class ChunkParser {
+    private final BulkImporter.Column[] columns;
+    private final String defaultEndpoint;
+    private final int windowSize;
+    private final int reservoirSize;
+    private final Set<String> admittedEndpoints;
+    private final int maxEndpoints;
+    private final long from;
+    private final long to;
+    private final long windowBytes;
+    private final SplittableRandom random;
+    private final StatsdLineParser.NameTable names;
+    private final double[] values;
+    final Map<String, Rows> endpoints = new HashMap<>();
+    long rows;
+    long malformedRows;
+    long skippedRows;
+
+    ChunkParser(BulkImporter.Header header, String defaultEndpoint, int windowSize, int reservoirSize,
+                Set<String> admittedEndpoints, int maxEndpoints, int index, long from, long to, long windowBytes) {
+        this.columns = header.columns();
+        this.defaultEndpoint = defaultEndpoint;
+        this.windowSize = Math.max(1, windowSize);
+        this.reservoirSize = reservoirSize;
+        this.admittedEndpoints = admittedEndpoints;
+        this.maxEndpoints = maxEndpoints;
+        this.from = from;
+        this.to = to;
+        this.windowBytes = windowBytes;
+        this.random = new SplittableRandom(index);
+        this.names = new StatsdLineParser.NameTable(1024);
+        this.values = new double[BulkImporter.Column.values().length];
+    }
+
+    void parse(FileChannel channel, long size) {
+        for (long windowFrom = from; windowFrom < to; windowFrom += windowBytes) {
+            parseWindow(channel, size, windowFrom, Math.min(to, windowFrom + windowBytes));
+        }
+    }
+
+    private void parseWindow(FileChannel channel, long size, long from, long to) {
+        long mapStart = Math.max(0, from - 1);
+        long mapEnd = Math.min(size, to + BulkImporter.MAX_LINE);
+        MappedByteBuffer buf;
+        try {
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, mapStart, mapEnd - mapStart);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int limit = buf.limit();
+        int ownedEnd = (int) (to - mapStart);
+        int i = (int) (from - mapStart);
+        if (i > 0 && buf.get(i - 1) != '\n') {
+            while (i < limit && buf.get(i) != '\n') {
+                i++;
+            }
+            i++;
+        }
+        while (i < ownedEnd && i < limit) {
+            int end = i;
+            while (end < limit && buf.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && mapEnd < size) {
+                throw new IllegalArgumentException("Line at byte " + (mapStart + i) + " is longer than "
+                        + BulkImporter.MAX_LINE + " bytes");
+            }
+            int lineEnd = end > i && buf.get(end - 1) == '\r' ? end - 1 : end;
+            if (lineEnd > i && buf.get(i) != '%') {
+                parseLine(buf, i, lineEnd);
+            }
+            i = end + 1;
+        }
+    }
+
+    private void parseLine(MappedByteBuffer buf, int start, int end) {
+        rows++;
+        Arrays.fill(values, 0);
+        String endpoint = defaultEndpoint;
+        int i = start;
+        for (int column = 0; column < columns.length && i <= end; column++, i++) {
+            while (i < end && buf.get(i) == ' ') {
+                i++;
+            }
+            int fieldStart = i;
+            int fieldEnd;
+            if (i < end && (buf.get(i) == '"' || buf.get(i) == '\'')) {
+                byte quote = buf.get(i);
+                fieldStart = i + 1;
+                fieldEnd = fieldStart;
+                while (fieldEnd < end && buf.get(fieldEnd) != quote) {
+                    fieldEnd++;
+                }
+                if (fieldEnd == end) {
+                    malformedRows++;
+                    return;
+                }
+                i = fieldEnd + 1;
+                while (i < end && buf.get(i) != ',') {
+                    i++;
+                }
+            } else {
+                while (i < end && buf.get(i) != ',') {
+                    i++;
+                }
+                fieldEnd = i;
+                while (fieldEnd > fieldStart && buf.get(fieldEnd - 1) == ' ') {
+                    fieldEnd--;
+                }
+            }
+            BulkImporter.Column kind = columns[column];
+            if (kind == BulkImporter.Column.ENDPOINT) {
+                if (fieldEnd > fieldStart) {
+                    endpoint = names.intern(buf, fieldStart, fieldEnd);
+                }
+            } else if (kind != BulkImporter.Column.IGNORED && fieldEnd > fieldStart
+                    && !isMissing(buf, fieldStart, fieldEnd)) {
+                double value = StatsdLineParser.parseNumber(buf, fieldStart, fieldEnd);
+                if (Double.isNaN(value)) {
+                    malformedRows++;
+                    return;
+                }
+                values[kind.ordinal()] = value;
+            }
+        }
+        if (endpoint == null || endpoint.isEmpty()) {
+            malformedRows++;
+            return;
+        }
+        Rows endpointRows = endpoints.get(endpoint);
+        if (endpointRows == null) {
+            if (!admittedEndpoints.contains(endpoint)
+                    && (admittedEndpoints.size() >= maxEndpoints || !admittedEndpoints.add(endpoint))) {
+                skippedRows++;
+                return;
+            }
+            endpointRows = new Rows(windowSize);
+            endpoints.put(endpoint, endpointRows);
+        }
+        double errorRate = values[BulkImporter.Column.STATUS_CODE.ordinal()] >= 400 ? 1.0
+                : values[BulkImporter.Column.ERROR_RATE.ordinal()];
+        endpointRows.add(endpoint, values, errorRate, reservoirSize, random);
+    }
+
+    private static boolean isMissing(MappedByteBuffer buf, int start, int end) {
+        return end - start == 1 && buf.get(start) == '?';
+    }
+
+    static final class Rows {
+        private final double[] recentResponseTimes;
+        private final double[] recentErrorRates;
+        private int next;
+        private int recentCount;
+        final List<ApiMetrics> reservoir = new ArrayList<>();
+        long seen;
+
+        Rows(int windowSize) {
+            this.recentResponseTimes = new double[windowSize];
+            this.recentErrorRates = new double[windowSize];
+        }
+
+        void add(String endpoint, double[] values, double errorRate, int reservoirSize, SplittableRandom random) {
+            double responseTime = values[BulkImporter.Column.RESPONSE_TIME.ordinal()];
+            recentResponseTimes[next] = responseTime;
+            recentErrorRates[next] = errorRate;
+            next = next + 1 == recentResponseTimes.length ? 0 : next + 1;
+            recentCount = Math.min(recentCount + 1, recentResponseTimes.length);
+            seen++;
+            // Algorithm R: the i-th row replaces a random slot with probability reservoirSize / i
+            if (reservoir.size() < reservoirSize) {
+                reservoir.add(toMetrics(endpoint, values, errorRate));
+            } else {
+                long slot = random.nextLong(seen);
+                if (slot < reservoirSize) {
+                    reservoir.set((int) slot, toMetrics(endpoint, values, errorRate));
+                }
+            }
+        }
+
+        /**
+         * Appends this segment's recent rows to {@code recent}, newest first, until it holds {@code window} rows.
+         */
+        void addRecent(String endpoint, List<ApiMetrics> recent, int window) {
+            int index = next;
+            for (int n = 0; n < recentCount && recent.size() < window; n++) {
+                index = index == 0 ? recentResponseTimes.length - 1 : index - 1;
+                recent.add(ApiMetrics.builder()
+                        .endpoint(endpoint)
+                        .responseTime(recentResponseTimes[index])
+                        .errorRate(recentErrorRates[index])
+                        .build());
+            }
+        }
+
+        private static ApiMetrics toMetrics(String endpoint, double[] values, double errorRate) {
+            return ApiMetrics.builder()
+                    .endpoint(endpoint)
+                    .responseTime(values[BulkImporter.Column.RESPONSE_TIME.ordinal()])
+                    .errorRate(errorRate)
+                    .throughput(values[BulkImporter.Column.THROUGHPUT.ordinal()])
+                    .cpuUsage(values[BulkImporter.Column.CPU.ordinal()])
+                    .memoryUsage(values[BulkImporter.Column.MEMORY.ordinal()])
+                    .networkLatency(values[BulkImporter.Column.LATENCY.ordinal()])
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.HeavyHitters;
+import com.banking.monitoring.service.MetricsCollectionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Preallocated multi-producer, single-consumer ring between the metrics controllers and
+ * {@link MetricsCollectionService}, in the style of the LMAX Disruptor. Request threads claim a sequence, write the
+ * sample into the reused slot for it and publish it; nothing is allocated per sample. One consumer thread drains
+ * published slots in batches of up to {@code batch-size}, folds each batch into one update per endpoint and applies
+ * it, so the shared counter maps are touched once per endpoint per batch instead of once per request.
+ * <p>
+ * A full ring makes {@link #recordRequest} and {@link #updateSystemMetrics} wait for the consumer (back-pressure
+ * rather than loss); how producers and the idle consumer wait is the configured {@link WaitStrategy}. Callers that
+ * must never wait, such as Netty event-loop threads, use {@link #offerRequest} and {@link #offerSystemMetrics}
+ * instead: when the ring is full they apply the sample inline. When the ring is disabled or stopped, samples are
+ * applied inline on the calling thread.
+ */
+@Slf4j
+@Component
+public class IngestRing implements SmartLifecycle {
+    private static final byte REQUEST = 1;
+    private static final byte SYSTEM = 2;
+
+    public enum WaitStrategy {
+        /**
+         * Spins on the CPU; lowest latency, burns a core while idle.
+         */
+        BUSY_SPIN("busy-spin"),
+        /**
+         * Spins briefly, then yields the CPU to other runnable threads.
+         */
+        YIELDING("yielding"),
+        /**
+         * Spins, yields, then sleeps in short parks; low idle CPU at the cost of up to ~100 us of added latency.
+         */
+        SLEEPING("sleeping"),
+        /**
+         * Spins and yields like {@link #YIELDING}, then parks the idle consumer until a producer wakes it; no idle
+         * CPU, a wake-up per burst under light load.
+         */
+        BLOCKING("blocking");
+
+        private static final int SPIN_TRIES = 100;
+        private static final int YIELD_TRIES = 200;
+        private static final long SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+        private final String key;
+
+        WaitStrategy(String key) {
+            this.key = key;
+        }
+
+        public static WaitStrategy fromKey(String key) {
+            for (WaitStrategy strategy : values()) {
+                if (strategy.key.equalsIgnoreCase(key) || strategy.name().equalsIgnoreCase(key)) {
+                    return strategy;
+                }
+            }
+            throw new IllegalArgumentException("Unknown wait strategy '" + key + "'");
+        }
+
+        /**
+         * Waits once after {@code attempt} unsuccessful checks. Blocking consumers park in
+         * {@link IngestRing#awaitPublished} once past the yield phase; producers waiting for space never park
+         * indefinitely.
+         */
+        void idle(int attempt) {
+            if (this == BUSY_SPIN || attempt < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (this == YIELDING || attempt < YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(SLEEP_NANOS);
+            }
+        }
+    }
+
+    /**
+     * One reusable ring entry. Written by the producer that claimed its sequence, read by the consumer after the
+     * sequence is published.
+     */
+    private static final class Slot {
+        byte kind;
+        String endpoint;
+        long responseTime;
+        boolean error;
+        double cpu;
+        double memory;
+        double latency;
+    }
+
+    /**
+     * Per-endpoint fold of one drained batch.
+     */
+    private static final class Pending {
+        int requests;
+        long responseTimeSum;
+        int errors;
+        int slowRequests;
+        boolean system;
+        double cpu;
+        double memory;
+        double latency;
+    }
+
+    private final MetricsCollectionService metricsCollectionService;
+    private final HeavyHitters heavyHitters;
+    private final boolean enabled;
+    private final WaitStrategy waitStrategy;
+    private final int batchSize;
+    private final int mask;
+    private final Slot[] slots;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder producerWaits = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final Map<String, Pending> pending = new HashMap<>();
+    private final List<Pending> pendingPool = new ArrayList<>();
+
+    private volatile boolean running;
+    private volatile boolean stopped;
+    private volatile boolean consumerParked;
+    private volatile Thread consumer;
+
+    @Autowired
+    public IngestRing(MetricsCollectionService metricsCollectionService,
+                      MeterRegistry meterRegistry,
+                      @Value("${monitoring.ingest.ring.enabled:true}") boolean enabled,
+                      @Value("${monitoring.ingest.ring.buffer-size:65536}") int bufferSize,
+                      @Value("${monitoring.ingest.ring.batch-size:4096}") int batchSize,
+                      @Value("${monitoring.ingest.ring.wait-strategy:blocking}") String waitStrategy) {
+        this(metricsCollectionService, meterRegistry, enabled, bufferSize, batchSize,
+                WaitStrategy.fromKey(waitStrategy));
+    }
+
+    public IngestRing(MetricsCollectionService metricsCollectionService,
+                      MeterRegistry meterRegistry,
+                      boolean enabled,
+                      int bufferSize,
+                      int batchSize,
+                      WaitStrategy waitStrategy) {
+        if (bufferSize < 2) {
+            throw new IllegalArgumentException("monitoring.ingest.ring.buffer-size must be at least 2");
+        }
+        this.metricsCollectionService = metricsCollectionService;
+        this.heavyHitters = metricsCollectionService.getHeavyHitters();
+        this.enabled = enabled;
+        this.waitStrategy = waitStrategy;
+        int capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.batchSize = Math.max(1, Math.min(batchSize, capacity));
+        this.mask = capacity - 1;
+        this.slots = new Slot[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        if (meterRegistry != null) {
+            registerMeters(meterRegistry);
+        }
+    }
+
+    private void registerMeters(MeterRegistry registry) {
+        Gauge.builder("monitoring.ingest.ring.lag", this, IngestRing::getLag)
+                .description("Samples published to the ingestion ring but not yet applied")
+                .register(registry);
+        Gauge.builder("monitoring.ingest.ring.capacity", this, IngestRing::getCapacity).register(registry);
+        FunctionCounter.builder("monitoring.ingest.ring.samples", consumed, sequence -> sequence.get() + 1)
+                .register(registry);
+        FunctionCounter.builder("monitoring.ingest.ring.batches", batches, LongAdder::sum).register(registry);
+        FunctionCounter.builder("monitoring.ingest.ring.producer-waits", producerWaits, LongAdder::sum)
+                .description("Times a producer found the ring full and waited for the consumer")
+                .register(registry);
+        FunctionCounter.builder("monitoring.ingest.ring.overflows", overflows, LongAdder::sum)
+                .description("Samples offered to a full ring and applied inline instead")
+                .register(registry);
+    }
+
+    public void recordRequest(String endpoint, long responseTime, boolean isError) {
+        if (!running) {
+            metricsCollectionService.recordRequest(endpoint, responseTime, isError);
+            return;
+        }
+        publishRequest(claim(), endpoint, responseTime, isError);
+    }
+
+    public void updateSystemMetrics(String endpoint, double cpu, double memory, double latency) {
+        if (!running) {
+            metricsCollectionService.updateSystemMetrics(endpoint, cpu, memory, latency);
+            return;
+        }
+        publishSystemMetrics(claim(), endpoint, cpu, memory, latency);
+    }
+
+    /**
+     * Like {@link #recordRequest}, but never waits: with the ring full the sample is applied inline.
+     */
+    public void offerRequest(String endpoint, long responseTime, boolean isError) {
+        long sequence = running ? tryClaim() : -1;
+        if (sequence < 0) {
+            if (running) {
+                overflows.increment();
+            }
+            metricsCollectionService.recordRequest(endpoint, responseTime, isError);
+            return;
+        }
+        publishRequest(sequence, endpoint, responseTime, isError);
+    }
+
+    /**
+     * Like {@link #updateSystemMetrics}, but never waits: with the ring full the sample is applied inline, where a
+     * value still queued in the ring may later overwrite it.
+     */
+    public void offerSystemMetrics(String endpoint, double cpu, double memory, double latency) {
+        long sequence = running ? tryClaim() : -1;
+        if (sequence < 0) {
+            if (running) {
+                overflows.increment();
+            }
+            metricsCollectionService.updateSystemMetrics(endpoint, cpu, memory, latency);
+            return;
+        }
+        publishSystemMetrics(sequence, endpoint, cpu, memory, latency);
+    }
+
+    private void publishRequest(long sequence, String endpoint, long responseTime, boolean isError) {
+        Slot slot = slots[(int) sequence & mask];
+        slot.kind = REQUEST;
+        slot.endpoint = endpoint;
+        slot.responseTime = responseTime;
+        slot.error = isError;
+        publish(sequence);
+    }
+
+    private void publishSystemMetrics(long sequence, String endpoint, double cpu, double memory, double latency) {
+        Slot slot = slots[(int) sequence & mask];
+        slot.kind = SYSTEM;
+        slot.endpoint = endpoint;
+        slot.cpu = cpu;
+        slot.memory = memory;
+        slot.latency = latency;
+        publish(sequence);
+    }
+
+    private long claim() {
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        if (wrapPoint > consumed.get()) {
+            producerWaits.increment();
+            for (int attempt = 0; wrapPoint > consumed.get(); attempt++) {
+                wakeConsumer();
+                waitStrategy.idle(attempt);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Claims the next sequence if its slot is free, otherwise returns -1 without waiting.
+     */
+    private long tryClaim() {
+        while (true) {
+            long current = claimed.get();
+            long sequence = current + 1;
+            if (sequence - slots.length > consumed.get()) {
+                wakeConsumer();
+                return -1;
+            }
+            if (claimed.compareAndSet(current, sequence)) {
+                return sequence;
+            }
+        }
+    }
+
+    private void publish(long sequence) {
+        published.set((int) sequence & mask, sequence);
+        wakeConsumer();
+        if (!running && stopped) {
+            // claimed while the ring was stopping; apply it here once stop() has given up on the consumer
+            drainRemaining();
+        }
+    }
+
+    private void wakeConsumer() {
+        if (consumerParked) {
+            // one producer pays for the wake-up, the rest see the flag cleared
+            consumerParked = false;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private boolean isPublished(long sequence) {
+        return published.get((int) sequence & mask) == sequence;
+    }
+
+    /**
+     * Waits until {@code sequence} is published; false if the ring stopped with nothing left to drain.
+     */
+    private boolean awaitPublished(long sequence) {
+        for (int attempt = 0; !isPublished(sequence); attempt++) {
+            if (!running && sequence > claimed.get()) {
+                return false;
+            }
+            if (waitStrategy == WaitStrategy.BLOCKING && attempt >= WaitStrategy.YIELD_TRIES) {
+                consumerParked = true;
+                if (!isPublished(sequence) && running) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(10));
+                }
+                consumerParked = false;
+            } else {
+                waitStrategy.idle(attempt);
+            }
+        }
+        return true;
+    }
+
+    private void consume() {
+        long next = consumed.get() + 1;
+        while (awaitPublished(next)) {
+            drainLock.lock();
+            try {
+                // after stop() gave up on this thread, producers may have drained part of the ring themselves
+                next = drain(consumed.get() + 1);
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Applies the published run starting at {@code next}, up to {@code batch-size} slots, and returns the sequence
+     * after it.
+     */
+    private long drain(long next) {
+        long end = next;
+        while (end - next < batchSize && isPublished(end)) {
+            Slot slot = slots[(int) end & mask];
+            Pending fold = pending.get(slot.endpoint);
+            if (fold == null) {
+                fold = pendingPool.isEmpty() ? new Pending() : pendingPool.remove(pendingPool.size() - 1);
+                pending.put(slot.endpoint, fold);
+            }
+            if (slot.kind == REQUEST) {
+                fold.requests++;
+                fold.responseTimeSum += slot.responseTime;
+                fold.errors += slot.error ? 1 : 0;
+                fold.slowRequests += heavyHitters.isSlow(slot.responseTime) ? 1 : 0;
+            } else {
+                fold.system = true;
+                fold.cpu = slot.cpu;
+                fold.memory = slot.memory;
+                fold.latency = slot.latency;
+            }
+            slot.endpoint = null;
+            end++;
+        }
+        // the slots are free again once read; the fold is applied after releasing them
+        consumed.set(end - 1);
+        batches.increment();
+        try {
+            for (Map.Entry<String, Pending> entry : pending.entrySet()) {
+                Pending fold = entry.getValue();
+                if (fold.requests > 0) {
+                    metricsCollectionService.recordRequests(entry.getKey(), fold.requests, fold.responseTimeSum,
+                            fold.errors, fold.slowRequests);
+                }
+                if (fold.system) {
+                    metricsCollectionService.updateSystemMetrics(entry.getKey(), fold.cpu, fold.memory,
+                            fold.latency);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to apply {} ingested samples: {}", end - next, e.getMessage());
+        } finally {
+            for (Pending fold : pending.values()) {
+                fold.requests = 0;
+                fold.responseTimeSum = 0;
+                fold.errors = 0;
+                fold.slowRequests = 0;
+                fold.system = false;
+                pendingPool.add(fold);
+            }
+            pending.clear();
+        }
+        return end;
+    }
+
+    /**
+     * Applies whatever is published after the consumer stopped. Never waits: if another thread holds the drain lock,
+     * that thread re-checks the ring once it lets go and applies the sample instead.
+     */
+    private void drainRemaining() {
+        while (isPublished(consumed.get() + 1) && drainLock.tryLock()) {
+            try {
+                long next = consumed.get() + 1;
+                while (isPublished(next)) {
+                    next = drain(next);
+                }
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !enabled) {
+            return;
+        }
+        stopped = false;
+        running = true;
+        Thread thread = new Thread(this::consume, "ingest-ring");
+        thread.setDaemon(true);
+        consumer = thread;
+        thread.start();
+        log.info("Ingestion ring started ({} slots, batches of up to {}, {} wait strategy)", slots.length,
+                batchSize, waitStrategy.key);
+    }
+
+    /**
+     * Stops accepting samples into the ring and waits up to 5 seconds for the consumer to apply everything already
+     * claimed. From then on samples published late by producers that raced the stop are applied by those producers,
+     * whether or not the consumer finished.
+     */
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        Thread thread = consumer;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            log.warn("Ingestion ring consumer did not stop within 5 s; {} samples still pending", getLag());
+        }
+        stopped = true;
+        drainRemaining();
+        log.info("Ingestion ring stopped after {} samples", consumed.get() + 1);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Samples claimed by producers but not yet applied.
+     */
+    public long getLag() {
+        return Math.max(0, claimed.get() - consumed.get());
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+}
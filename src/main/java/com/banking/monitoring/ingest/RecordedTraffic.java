@@ -0,0 +1,390 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.model.ApiMetrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A recorded CSV or ARFF export held as primitive columns, one index per sample in timestamp order, so any number of
+ * backtests can replay it without parsing it again. Columns are matched as by {@link BulkImporter}, plus an optional
+ * timestamp ({@code timestamp}, {@code time}; epoch milliseconds or seconds, or ISO-8601) and an optional label
+ * ({@code label}, {@code anomaly}, {@code failure}; {@code 1}, {@code true}, {@code anomaly} or {@code failure} mark
+ * a sample that should be detected). Without a timestamp column the n-th sample of each endpoint is placed at
+ * n times {@code sampleInterval}, one sample per endpoint per collection tick.
+ */
+public final class RecordedTraffic {
+    private static final Set<String> TIMESTAMP_COLUMNS = Set.of("timestamp", "time", "ts", "timestampmillis");
+    private static final Set<String> LABEL_COLUMNS = Set.of("label", "anomaly", "isanomaly", "failure", "incident");
+    private static final Set<String> POSITIVE_LABELS = Set.of("1", "true", "yes", "anomaly", "anomalous", "failure");
+    // epoch values below this are read as seconds (it is 1973 in milliseconds)
+    private static final long EPOCH_SECONDS_LIMIT = 100_000_000_000L;
+
+    final String[] endpointNames;
+    final int[] endpoints;
+    final long[] timestamps;
+    final double[] responseTimes;
+    final double[] errorRates;
+    final double[] throughputs;
+    final double[] cpuUsages;
+    final double[] memoryUsages;
+    final double[] networkLatencies;
+    final boolean[] labels;
+    private final long malformedRows;
+    private final boolean truncated;
+
+    private RecordedTraffic(Builder rows) {
+        int[] order = rows.timeOrder();
+        this.endpointNames = rows.names.toArray(String[]::new);
+        this.endpoints = permute(rows.endpoints, order);
+        this.timestamps = permute(rows.timestamps, order);
+        this.responseTimes = permute(rows.columns[0], order);
+        this.errorRates = permute(rows.columns[1], order);
+        this.throughputs = permute(rows.columns[2], order);
+        this.cpuUsages = permute(rows.columns[3], order);
+        this.memoryUsages = permute(rows.columns[4], order);
+        this.networkLatencies = permute(rows.columns[5], order);
+        this.labels = rows.labels == null ? null : permute(rows.labels, order);
+        this.malformedRows = rows.malformed;
+        this.truncated = rows.truncated;
+    }
+
+    /**
+     * Loads up to {@code maxRows} samples of {@code file}.
+     */
+    public static RecordedTraffic load(Path file, String defaultEndpoint, Duration sampleInterval, int maxRows)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            String name = file.getFileName().toString();
+            BulkImporter.Header header = BulkImporter.readHeader(channel, size, name);
+            if (!header.hasColumn(BulkImporter.Column.ENDPOINT)
+                    && (defaultEndpoint == null || defaultEndpoint.isBlank())) {
+                throw new IllegalArgumentException(name + " has no endpoint column; pass an endpoint");
+            }
+            if (!header.hasColumn(BulkImporter.Column.RESPONSE_TIME)) {
+                throw new IllegalArgumentException(name + " has no response time column");
+            }
+            int timestampColumn = find(header.names(), TIMESTAMP_COLUMNS);
+            int labelColumn = find(header.names(), LABEL_COLUMNS);
+            Builder rows = new Builder(Math.max(1, maxRows), labelColumn >= 0, sampleInterval.toMillis());
+            channel.position(header.dataStart());
+            BufferedReader reader = new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8),
+                    64 * 1024);
+            String[] fields = new String[header.columns().length];
+            String line;
+            while ((line = reader.readLine()) != null && !rows.truncated) {
+                if (line.isBlank() || line.startsWith("%")) {
+                    continue;
+                }
+                if (!split(line, fields) || !rows.add(header.columns(), fields, defaultEndpoint,
+                        timestampColumn, labelColumn)) {
+                    rows.malformed++;
+                }
+            }
+            return new RecordedTraffic(rows);
+        }
+    }
+
+    private static int find(String[] names, Set<String> candidates) {
+        for (int i = 0; i < names.length; i++) {
+            String key = names[i].trim().toLowerCase(Locale.ROOT).replace("_", "").replace("-", "");
+            if (candidates.contains(key)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Splits a data line into {@code fields}, unquoting quoted fields; missing trailing fields are null.
+     */
+    private static boolean split(String line, String[] fields) {
+        Arrays.fill(fields, null);
+        int i = 0;
+        int end = line.endsWith("\r") ? line.length() - 1 : line.length();
+        for (int column = 0; column < fields.length && i <= end; column++, i++) {
+            while (i < end && line.charAt(i) == ' ') {
+                i++;
+            }
+            if (i < end && (line.charAt(i) == '"' || line.charAt(i) == '\'')) {
+                int close = line.indexOf(line.charAt(i), i + 1);
+                if (close < 0 || close >= end) {
+                    return false;
+                }
+                fields[column] = line.substring(i + 1, close);
+                i = close + 1;
+                while (i < end && line.charAt(i) != ',') {
+                    i++;
+                }
+            } else {
+                int start = i;
+                while (i < end && line.charAt(i) != ',') {
+                    i++;
+                }
+                fields[column] = line.substring(start, i).trim();
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return timestamps.length;
+    }
+
+    public int getEndpointCount() {
+        return endpointNames.length;
+    }
+
+    public boolean isLabeled() {
+        return labels != null;
+    }
+
+    public long getMalformedRows() {
+        return malformedRows;
+    }
+
+    /**
+     * Whether the file had more than {@code maxRows} samples.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Recorded time from the first to the last sample.
+     */
+    public long getSpanMillis() {
+        return timestamps.length == 0 ? 0 : timestamps[timestamps.length - 1] - timestamps[0];
+    }
+
+    /**
+     * A fresh sample for index {@code i}; detection and prediction write their results into it.
+     */
+    public ApiMetrics toMetrics(int i) {
+        return ApiMetrics.builder()
+                .endpoint(endpointNames[endpoints[i]])
+                .responseTime(responseTimes[i])
+                .errorRate(errorRates[i])
+                .throughput(throughputs[i])
+                .cpuUsage(cpuUsages[i])
+                .memoryUsage(memoryUsages[i])
+                .networkLatency(networkLatencies[i])
+                .timestampMillis(timestamps[i])
+                .build();
+    }
+
+    private static int[] permute(int[] values, int[] order) {
+        int[] sorted = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    private static long[] permute(long[] values, int[] order) {
+        long[] sorted = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    private static double[] permute(double[] values, int[] order) {
+        double[] sorted = new double[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    private static boolean[] permute(boolean[] values, int[] order) {
+        boolean[] sorted = new boolean[order.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = values[order[i]];
+        }
+        return sorted;
+    }
+
+    /**
+     * Growable columns in file order.
+     */
+    private static final class Builder {
+        private final int maxRows;
+        private final long sampleIntervalMillis;
+        private final Map<String, Integer> ids = new HashMap<>();
+        private final List<String> names = new ArrayList<>();
+        private long[] endpointSamples = new long[64];
+        private final double[] values = new double[BulkImporter.Column.values().length];
+        private int[] endpoints = new int[1024];
+        private long[] timestamps = new long[1024];
+        private double[][] columns = new double[6][1024];
+        private boolean[] labels;
+        private int size;
+        private long malformed;
+        private boolean truncated;
+
+        private Builder(int maxRows, boolean labeled, long sampleIntervalMillis) {
+            this.maxRows = maxRows;
+            this.sampleIntervalMillis = sampleIntervalMillis;
+            this.labels = labeled ? new boolean[1024] : null;
+        }
+
+        private boolean add(BulkImporter.Column[] kinds, String[] fields, String defaultEndpoint,
+                            int timestampColumn, int labelColumn) {
+            if (size == maxRows) {
+                truncated = true;
+                return true;
+            }
+            Arrays.fill(values, 0);
+            String endpoint = defaultEndpoint;
+            for (int column = 0; column < kinds.length; column++) {
+                String field = fields[column];
+                if (field == null || field.isEmpty() || field.equals("?")) {
+                    continue;
+                }
+                BulkImporter.Column kind = kinds[column];
+                if (kind == BulkImporter.Column.ENDPOINT) {
+                    endpoint = field;
+                } else if (kind != BulkImporter.Column.IGNORED) {
+                    try {
+                        values[kind.ordinal()] = Double.parseDouble(field);
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            if (endpoint == null || endpoint.isEmpty()) {
+                return false;
+            }
+            Integer id = ids.get(endpoint);
+            if (id == null) {
+                id = names.size();
+                ids.put(endpoint, id);
+                names.add(endpoint);
+                if (id == endpointSamples.length) {
+                    endpointSamples = Arrays.copyOf(endpointSamples, id * 2);
+                }
+            }
+            long timestamp;
+            if (timestampColumn >= 0) {
+                timestamp = parseTimestamp(fields[timestampColumn]);
+                if (timestamp == Long.MIN_VALUE) {
+                    return false;
+                }
+            } else {
+                timestamp = endpointSamples[id]++ * sampleIntervalMillis;
+            }
+            grow();
+            endpoints[size] = id;
+            timestamps[size] = timestamp;
+            columns[0][size] = values[BulkImporter.Column.RESPONSE_TIME.ordinal()];
+            columns[1][size] = values[BulkImporter.Column.STATUS_CODE.ordinal()] >= 400 ? 1.0
+                    : values[BulkImporter.Column.ERROR_RATE.ordinal()];
+            columns[2][size] = values[BulkImporter.Column.THROUGHPUT.ordinal()];
+            columns[3][size] = values[BulkImporter.Column.CPU.ordinal()];
+            columns[4][size] = values[BulkImporter.Column.MEMORY.ordinal()];
+            columns[5][size] = values[BulkImporter.Column.LATENCY.ordinal()];
+            if (labels != null) {
+                String label = fields[labelColumn];
+                labels[size] = label != null && isPositive(label);
+            }
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            if (size < timestamps.length) {
+                return;
+            }
+            int capacity = (int) Math.min(maxRows, timestamps.length * 2L);
+            endpoints = Arrays.copyOf(endpoints, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], capacity);
+            }
+            if (labels != null) {
+                labels = Arrays.copyOf(labels, capacity);
+            }
+        }
+
+        /**
+         * Indexes in timestamp order, file order among equal timestamps.
+         */
+        private int[] timeOrder() {
+            endpoints = Arrays.copyOf(endpoints, size);
+            timestamps = Arrays.copyOf(timestamps, size);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Arrays.copyOf(columns[i], size);
+            }
+            if (labels != null) {
+                labels = Arrays.copyOf(labels, size);
+            }
+            boolean sorted = true;
+            for (int i = 1; i < size && sorted; i++) {
+                sorted = timestamps[i - 1] <= timestamps[i];
+            }
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            if (!sorted) {
+                Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+            }
+            return Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    static long parseTimestamp(String field) {
+        if (field == null || field.isEmpty()) {
+            return Long.MIN_VALUE;
+        }
+        char first = field.charAt(0);
+        if (Character.isDigit(first) && field.indexOf('-') < 0 && field.indexOf(':') < 0) {
+            try {
+                double epoch = Double.parseDouble(field);
+                return epoch < EPOCH_SECONDS_LIMIT ? Math.round(epoch * 1000) : (long) epoch;
+            } catch (NumberFormatException e) {
+                return Long.MIN_VALUE;
+            }
+        }
+        try {
+            return Instant.parse(field).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            try {
+                return CoarseClock.toEpochMillis(LocalDateTime.parse(field.replace(' ', 'T')));
+            } catch (DateTimeParseException ignored) {
+                return Long.MIN_VALUE;
+            }
+        }
+    }
+
+    static boolean isPositive(String label) {
+        String value = label.trim().toLowerCase(Locale.ROOT);
+        if (POSITIVE_LABELS.contains(value)) {
+            return true;
+        }
+        try {
+            return Double.parseDouble(value) > 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
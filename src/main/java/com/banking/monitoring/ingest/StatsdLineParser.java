@@ -0,0 +1,278 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parses StatsD line protocol ({@code name:value|type[|@rate][|#tags]}, one metric per line) straight out of a
+ * receive buffer and maps it onto {@link MetricsCollectionService}:
+ * <ul>
+ *     <li>{@code <endpoint>:<ms>|ms} (or {@code |h}) records requests with that response time</li>
+ *     <li>{@code <endpoint>.errors:<n>|c} (or {@code .error}) records failures of requests the endpoint's timer
+ *     already counts; they are not counted as requests again, and the collected error rate is capped at 1</li>
+ *     <li>{@code <endpoint>.cpu|.memory|.latency:<v>|g} update the endpoint's system metrics</li>
+ * </ul>
+ * Sample rates scale timers and counters back up to the real request volume. Endpoint names are interned in a
+ * per-parser table, so steady-state parsing does not allocate. Instances are not thread-safe.
+ */
+public class StatsdLineParser {
+    private static final byte[] ERRORS_SUFFIX = ".errors".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ERROR_SUFFIX = ".error".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] CPU_SUFFIX = ".cpu".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMORY_SUFFIX = ".memory".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LATENCY_SUFFIX = ".latency".getBytes(StandardCharsets.US_ASCII);
+
+    private final MetricsCollectionService metricsCollectionService;
+    private final NameTable names;
+
+    // written by the listener thread that owns the parser, read by metric scrapes
+    private final LongAdder lines = new LongAdder();
+    private final LongAdder malformedLines = new LongAdder();
+    private final LongAdder unmappedLines = new LongAdder();
+
+    public StatsdLineParser(MetricsCollectionService metricsCollectionService, int maxEndpoints) {
+        this.metricsCollectionService = metricsCollectionService;
+        this.names = new NameTable(maxEndpoints);
+    }
+
+    public long getLines() {
+        return lines.sum();
+    }
+
+    public long getMalformedLines() {
+        return malformedLines.sum();
+    }
+
+    public long getUnmappedLines() {
+        return unmappedLines.sum();
+    }
+
+    public void parse(ByteBuffer packet) {
+        int limit = packet.limit();
+        int start = packet.position();
+        for (int i = start; i <= limit; i++) {
+            if (i == limit || packet.get(i) == '\n') {
+                int end = i;
+                if (end > start && packet.get(end - 1) == '\r') {
+                    end--;
+                }
+                if (end > start) {
+                    parseLine(packet, start, end);
+                }
+                start = i + 1;
+            }
+        }
+        packet.position(limit);
+    }
+
+    private void parseLine(ByteBuffer buf, int start, int end) {
+        lines.increment();
+        int colon = indexOf(buf, start, end, (byte) ':');
+        int pipe = colon < 0 ? -1 : indexOf(buf, colon + 1, end, (byte) '|');
+        if (colon <= start || pipe < 0) {
+            malformedLines.increment();
+            return;
+        }
+        double value = parseNumber(buf, colon + 1, pipe);
+        if (Double.isNaN(value)) {
+            malformedLines.increment();
+            return;
+        }
+
+        int typeEnd = indexOf(buf, pipe + 1, end, (byte) '|');
+        if (typeEnd < 0) {
+            typeEnd = end;
+        }
+        double sampleRate = 1.0;
+        if (typeEnd + 1 < end && buf.get(typeEnd + 1) == '@') {
+            int rateEnd = indexOf(buf, typeEnd + 2, end, (byte) '|');
+            sampleRate = parseNumber(buf, typeEnd + 2, rateEnd < 0 ? end : rateEnd);
+            if (!(sampleRate > 0.0 && sampleRate <= 1.0)) {
+                malformedLines.increment();
+                return;
+            }
+        }
+
+        int typeLength = typeEnd - pipe - 1;
+        byte type = typeLength > 0 ? buf.get(pipe + 1) : 0;
+        if (typeLength == 2 && type == 'm' && buf.get(pipe + 2) == 's' || typeLength == 1 && type == 'h') {
+            int count = (int) Math.max(1, Math.round(1.0 / sampleRate));
+            metricsCollectionService.recordRequests(names.intern(buf, start, colon), count,
+                    Math.round(value * count), 0);
+        } else if (typeLength == 1 && type == 'c') {
+            int suffix = endsWith(buf, start, colon, ERRORS_SUFFIX) ? ERRORS_SUFFIX.length
+                    : endsWith(buf, start, colon, ERROR_SUFFIX) ? ERROR_SUFFIX.length : 0;
+            if (suffix == 0 || colon - suffix <= start) {
+                unmappedLines.increment();
+                return;
+            }
+            metricsCollectionService.recordRequests(names.intern(buf, start, colon - suffix), 0, 0,
+                    (int) Math.round(value / sampleRate));
+        } else if (typeLength == 1 && type == 'g') {
+            parseGauge(buf, start, colon, value);
+        } else if (typeLength == 0) {
+            malformedLines.increment();
+        } else {
+            unmappedLines.increment();
+        }
+    }
+
+    private void parseGauge(ByteBuffer buf, int start, int nameEnd, double value) {
+        if (endsWith(buf, start, nameEnd, CPU_SUFFIX) && nameEnd - CPU_SUFFIX.length > start) {
+            metricsCollectionService.updateCpuUsage(names.intern(buf, start, nameEnd - CPU_SUFFIX.length), value);
+        } else if (endsWith(buf, start, nameEnd, MEMORY_SUFFIX) && nameEnd - MEMORY_SUFFIX.length > start) {
+            metricsCollectionService.updateMemoryUsage(
+                    names.intern(buf, start, nameEnd - MEMORY_SUFFIX.length), value);
+        } else if (endsWith(buf, start, nameEnd, LATENCY_SUFFIX) && nameEnd - LATENCY_SUFFIX.length > start) {
+            metricsCollectionService.updateNetworkLatency(
+                    names.intern(buf, start, nameEnd - LATENCY_SUFFIX.length), value);
+        } else {
+            unmappedLines.increment();
+        }
+    }
+
+    private static int indexOf(ByteBuffer buf, int from, int to, byte b) {
+        for (int i = from; i < to; i++) {
+            if (buf.get(i) == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean endsWith(ByteBuffer buf, int start, int end, byte[] suffix) {
+        if (end - start < suffix.length) {
+            return false;
+        }
+        int offset = end - suffix.length;
+        for (int i = 0; i < suffix.length; i++) {
+            if (buf.get(offset + i) != suffix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static double parseNumber(ByteBuffer buf, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+            negative = buf.get(i) == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            byte b = buf.get(i);
+            if (b >= '0' && b <= '9') {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits++;
+                    if (fraction) {
+                        scale--;
+                    }
+                } else if (!fraction) {
+                    scale++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return Double.NaN;
+        }
+        if (i < end && (buf.get(i) == 'e' || buf.get(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (buf.get(i) == '-' || buf.get(i) == '+')) {
+                negativeExponent = buf.get(i) == '-';
+                i++;
+            }
+            int exponent = 0;
+            int exponentDigits = 0;
+            for (; i < end && buf.get(i) >= '0' && buf.get(i) <= '9'; i++) {
+                exponent = Math.min(exponent * 10 + (buf.get(i) - '0'), 1000);
+                exponentDigits++;
+            }
+            if (exponentDigits == 0) {
+                return Double.NaN;
+            }
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i != end) {
+            return Double.NaN;
+        }
+        double value = scale == 0 ? mantissa
+                : scale > 0 ? mantissa * Math.pow(10, scale)
+                : mantissa / Math.pow(10, -scale);
+        return negative ? -value : value;
+    }
+
+    int internedNames() {
+        return names.size;
+    }
+
+    /**
+     * Open-addressing table from raw name bytes to the interned endpoint string. Once full, new names are still
+     * decoded (allocating) but no longer cached.
+     */
+    static final class NameTable {
+        private final byte[][] keys;
+        private final String[] values;
+        private final int[] hashes;
+        private final int mask;
+        private final int maxEntries;
+        private int size;
+
+        NameTable(int maxEntries) {
+            int capacity = Integer.highestOneBit(Math.max(16, maxEntries * 2 - 1)) << 1;
+            this.keys = new byte[capacity][];
+            this.values = new String[capacity];
+            this.hashes = new int[capacity];
+            this.mask = capacity - 1;
+            this.maxEntries = maxEntries;
+        }
+
+        String intern(ByteBuffer buf, int start, int end) {
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buf.get(i);
+            }
+            hash ^= hash >>> 16;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    byte[] bytes = new byte[end - start];
+                    buf.get(start, bytes);
+                    String name = new String(bytes, StandardCharsets.UTF_8);
+                    if (size < maxEntries) {
+                        keys[slot] = bytes;
+                        values[slot] = name;
+                        hashes[slot] = hash;
+                        size++;
+                    }
+                    return name;
+                }
+                if (hashes[slot] == hash && key.length == end - start && matches(key, buf, start)) {
+                    return values[slot];
+                }
+            }
+        }
+
+        private static boolean matches(byte[] key, ByteBuffer buf, int start) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buf.get(start + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.DatagramChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded StatsD UDP endpoint. A receiver thread reads datagrams into a fixed pool of direct buffers and hands them
+ * to parser workers; when every buffer is in flight the datagram is read into a scratch buffer and counted as
+ * dropped instead of blocking the socket.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "monitoring.statsd", name = "enabled", havingValue = "true")
+public class StatsdListener implements SmartLifecycle {
+    private static final Duration KERNEL_DROPS_REFRESH = Duration.ofSeconds(10);
+
+    private final MetricsCollectionService metricsCollectionService;
+    private final String bindAddress;
+    private final int port;
+    private final int receiveBufferBytes;
+    private final int bufferSize;
+    private final int workerCount;
+    private final int maxEndpoints;
+    private final int bufferCount;
+
+    private final ArrayBlockingQueue<ByteBuffer> freeBuffers;
+    private final ArrayBlockingQueue<ByteBuffer> filledBuffers;
+    private final List<StatsdLineParser> parsers = new CopyOnWriteArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final AtomicLong packetsReceived = new AtomicLong();
+    private final AtomicLong packetsDropped = new AtomicLong();
+
+    private volatile DatagramChannel channel;
+    private volatile double kernelDropsCached;
+    private volatile long kernelDropsReadAt;
+    private volatile boolean running;
+
+    public StatsdListener(MetricsCollectionService metricsCollectionService,
+                          MeterRegistry meterRegistry,
+                          @Value("${monitoring.statsd.bind-address:0.0.0.0}") String bindAddress,
+                          @Value("${monitoring.statsd.port:8125}") int port,
+                          @Value("${monitoring.statsd.receive-buffer-bytes:8388608}") int receiveBufferBytes,
+                          @Value("${monitoring.statsd.buffer-size:65536}") int bufferSize,
+                          @Value("${monitoring.statsd.buffer-count:256}") int bufferCount,
+                          @Value("${monitoring.statsd.workers:1}") int workerCount,
+                          @Value("${monitoring.statsd.max-endpoints:65536}") int maxEndpoints) {
+        this.metricsCollectionService = metricsCollectionService;
+        this.bindAddress = bindAddress;
+        this.port = port;
+        this.receiveBufferBytes = receiveBufferBytes;
+        this.bufferSize = bufferSize;
+        this.workerCount = Math.max(1, workerCount);
+        this.maxEndpoints = maxEndpoints;
+        this.bufferCount = bufferCount;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        this.filledBuffers = new ArrayBlockingQueue<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        if (meterRegistry != null) {
+            registerMeters(meterRegistry);
+        }
+    }
+
+    private void registerMeters(MeterRegistry registry) {
+        FunctionCounter.builder("monitoring.statsd.packets", packetsReceived, AtomicLong::get)
+                .tag("result", "received").register(registry);
+        FunctionCounter.builder("monitoring.statsd.packets", packetsDropped, AtomicLong::get)
+                .tag("result", "dropped").register(registry);
+        FunctionCounter.builder("monitoring.statsd.packets", this, StatsdListener::kernelDrops)
+                .tag("result", "kernel-dropped").register(registry);
+        FunctionCounter.builder("monitoring.statsd.lines", this, l -> l.lines())
+                .tag("result", "parsed").register(registry);
+        FunctionCounter.builder("monitoring.statsd.lines", this, l -> l.malformedLines())
+                .tag("result", "malformed").register(registry);
+        FunctionCounter.builder("monitoring.statsd.lines", this, l -> l.unmappedLines())
+                .tag("result", "unmapped").register(registry);
+        Gauge.builder("monitoring.statsd.buffers.in-use", filledBuffers, ArrayBlockingQueue::size)
+                .register(registry);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        try {
+            channel = DatagramChannel.open();
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, receiveBufferBytes);
+            channel.bind(new InetSocketAddress(bindAddress, port));
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to bind StatsD listener on " + bindAddress + ":" + port, e);
+        }
+        running = true;
+
+        for (int i = 0; i < workerCount; i++) {
+            StatsdLineParser parser = new StatsdLineParser(metricsCollectionService, maxEndpoints);
+            parsers.add(parser);
+            threads.add(startThread("statsd-parser-" + i, () -> drain(parser)));
+        }
+        threads.add(startThread("statsd-receiver", this::receive));
+        log.info("StatsD listener bound to {} (SO_RCVBUF={} bytes, {} x {} byte buffers)",
+                getLocalPort(), receiveBufferBytes, bufferCount, bufferSize);
+    }
+
+    private Thread startThread(String name, Runnable task) {
+        Thread thread = new Thread(task, name);
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    private void receive() {
+        ByteBuffer scratch = ByteBuffer.allocateDirect(bufferSize);
+        while (running) {
+            try {
+                ByteBuffer buffer = freeBuffers.poll();
+                if (buffer == null) {
+                    scratch.clear();
+                    if (channel.receive(scratch) != null) {
+                        packetsReceived.incrementAndGet();
+                        packetsDropped.incrementAndGet();
+                    }
+                    continue;
+                }
+                buffer.clear();
+                if (channel.receive(buffer) == null) {
+                    freeBuffers.offer(buffer);
+                    continue;
+                }
+                packetsReceived.incrementAndGet();
+                buffer.flip();
+                filledBuffers.offer(buffer);
+            } catch (AsynchronousCloseException e) {
+                break;
+            } catch (IOException e) {
+                log.warn("StatsD receive failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void drain(StatsdLineParser parser) {
+        while (running || !filledBuffers.isEmpty()) {
+            ByteBuffer buffer;
+            try {
+                buffer = filledBuffers.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (buffer == null) {
+                continue;
+            }
+            try {
+                parser.parse(buffer);
+            } catch (RuntimeException e) {
+                log.warn("Failed to apply StatsD packet: {}", e.getMessage());
+            } finally {
+                freeBuffers.offer(buffer);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Error closing StatsD channel", e);
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+        log.info("StatsD listener stopped: {} packets received, {} dropped, {} lines parsed",
+                packetsReceived.get(), packetsDropped.get(), lines());
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public int getLocalPort() {
+        DatagramChannel current = channel;
+        if (current == null) {
+            return port;
+        }
+        try {
+            return current.getLocalAddress() instanceof InetSocketAddress address ? address.getPort() : port;
+        } catch (IOException e) {
+            return port;
+        }
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived.get();
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped.get();
+    }
+
+    public long lines() {
+        return parsers.stream().mapToLong(StatsdLineParser::getLines).sum();
+    }
+
+    public long malformedLines() {
+        return parsers.stream().mapToLong(StatsdLineParser::getMalformedLines).sum();
+    }
+
+    public long unmappedLines() {
+        return parsers.stream().mapToLong(StatsdLineParser::getUnmappedLines).sum();
+    }
+
+    /**
+     * Datagrams the kernel discarded because the socket receive buffer was full, read from /proc/net/udp on Linux at
+     * most once per {@link #KERNEL_DROPS_REFRESH}; scrapes in between see the cached value.
+     */
+    public double kernelDrops() {
+        long now = System.nanoTime();
+        if (kernelDropsReadAt != 0 && now - kernelDropsReadAt < KERNEL_DROPS_REFRESH.toNanos()) {
+            return kernelDropsCached;
+        }
+        double drops = readKernelDrops();
+        kernelDropsCached = drops;
+        kernelDropsReadAt = now;
+        return drops;
+    }
+
+    private double readKernelDrops() {
+        String localPort = String.format(Locale.ROOT, ":%04X", getLocalPort());
+        long drops = 0;
+        for (String table : new String[]{"/proc/net/udp", "/proc/net/udp6"}) {
+            Path path = Path.of(table);
+            if (!Files.isReadable(path)) {
+                continue;
+            }
+            try {
+                for (String line : Files.readAllLines(path)) {
+                    String[] columns = line.trim().split("\\s+");
+                    if (columns.length > 12 && columns[1].endsWith(localPort)) {
+                        drops += Long.parseLong(columns[columns.length - 1]);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return drops;
+    }
+}
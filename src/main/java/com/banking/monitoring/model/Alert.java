@@ -0,0 +1,30 @@
+package com.banking.monitoring.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class Alert {
+    public enum Status {
+        OPEN, RESOLVED
+    }
+
+    private String id;
+    private String endpoint;
+    private Status status;
+    private LocalDateTime openedAt;
+    private LocalDateTime resolvedAt;
+    private double peakScore;
+    private String reason;
+    private long anomalousSamples;
+    private String analysis;
+    private String incidentId;
+}
@@ -0,0 +1,92 @@
+package com.banking.monitoring.model;
+
+import java.util.Locale;
+
+/**
+ * Reason codes for anomalies and predicted failures, combined into an {@code int} bitmask so the detection path
+ * records why a sample was flagged without building strings. Text is rendered on demand from the mask and the
+ * sample's numeric values.
+ */
+public enum AnomalyReason {
+    RESPONSE_TIME("high response time"),
+    ERROR_RATE("high error rate"),
+    CPU_USAGE("high CPU usage"),
+    MEMORY_USAGE("high memory usage"),
+    NETWORK_LATENCY("high network latency");
+
+    private static final AnomalyReason[] FAILURE_ORDER = {
+            ERROR_RATE, RESPONSE_TIME, CPU_USAGE, MEMORY_USAGE, NETWORK_LATENCY
+    };
+
+    private final String label;
+    private final int mask;
+
+    AnomalyReason(String label) {
+        this.label = label;
+        this.mask = 1 << ordinal();
+    }
+
+    public int mask() {
+        return mask;
+    }
+
+    public boolean isSet(int reasons) {
+        return (reasons & mask) != 0;
+    }
+
+    public static String describeAnomaly(int reasons,
+                                         double responseTime, double responseTimeZScore,
+                                         double errorRate, double errorRateZScore,
+                                         double cpuUsage, double memoryUsage, double networkLatency) {
+        if (reasons == 0) {
+            return null;
+        }
+        StringBuilder text = new StringBuilder();
+        if (RESPONSE_TIME.isSet(reasons)) {
+            text.append(String.format(Locale.ROOT, "response time (%.2fms) is %.1f standard deviations from normal",
+                    responseTime, Math.abs(responseTimeZScore)));
+        }
+        if (ERROR_RATE.isSet(reasons)) {
+            separate(text).append(String.format(Locale.ROOT,
+                    "error rate (%.2f%%) is %.1f standard deviations from normal",
+                    errorRate * 100, Math.abs(errorRateZScore)));
+        }
+        if ((reasons & (CPU_USAGE.mask | MEMORY_USAGE.mask | NETWORK_LATENCY.mask)) != 0) {
+            separate(text).append("system metrics: ");
+            int start = text.length();
+            if (CPU_USAGE.isSet(reasons)) {
+                text.append(String.format(Locale.ROOT, "High CPU usage (%.1f%%)", cpuUsage));
+            }
+            if (MEMORY_USAGE.isSet(reasons)) {
+                (text.length() > start ? text.append(", ") : text)
+                        .append(String.format(Locale.ROOT, "High memory usage (%.1f%%)", memoryUsage));
+            }
+            if (NETWORK_LATENCY.isSet(reasons)) {
+                (text.length() > start ? text.append(", ") : text)
+                        .append(String.format(Locale.ROOT, "High network latency (%.1fms)", networkLatency));
+            }
+        }
+        return text.toString();
+    }
+
+    public static String describeFailure(int reasons) {
+        return "Potential failure predicted due to: " + labels(reasons);
+    }
+
+    /**
+     * Comma-separated labels of the reasons set in {@code reasons}, most severe first.
+     */
+    public static String labels(int reasons) {
+        StringBuilder text = new StringBuilder();
+        for (AnomalyReason reason : FAILURE_ORDER) {
+            if (reason.isSet(reasons)) {
+                separate(text).append(reason.label);
+            }
+        }
+        return text.toString();
+    }
+
+    private static StringBuilder separate(StringBuilder text) {
+        return text.isEmpty() ? text : text.append(", ");
+    }
+}
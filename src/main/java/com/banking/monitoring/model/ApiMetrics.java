@@ -1,5 +1,10 @@
 package com.banking.monitoring.model;
 
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.id.RecordIdDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.Builder;
@@ -13,7 +18,9 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ApiMetrics {
-    private String id;
+    @JsonSerialize(using = ToStringSerializer.class)
+    @JsonDeserialize(using = RecordIdDeserializer.class)
+    private long id;
     private String endpoint;
     private double responseTime;
     private int requestCount;
@@ -23,11 +30,49 @@ public class ApiMetrics {
     private double cpuUsage;
     private double memoryUsage;
     private double networkLatency;
-    private LocalDateTime timestamp;
+    private long timestampMillis;
     private double predictedFailureProbability;
     private boolean predictedFailure;
     private String failureReason;
+    private int failureReasons;
     private boolean isAnomaly;
     private double anomalyScore;
     private String anomalyReason;
-}
\ No newline at end of file
+    private int anomalyReasons;
+    private double responseTimeZScore;
+    private double errorRateZScore;
+    private double sampleWeight;
+
+    public String getFailureReason() {
+        if (failureReason != null || !predictedFailure) {
+            return failureReason;
+        }
+        return AnomalyReason.describeFailure(failureReasons);
+    }
+
+    public String getAnomalyReason() {
+        if (anomalyReason != null) {
+            return anomalyReason;
+        }
+        return AnomalyReason.describeAnomaly(anomalyReasons, responseTime, responseTimeZScore, errorRate,
+                errorRateZScore, cpuUsage, memoryUsage, networkLatency);
+    }
+
+    /**
+     * {@link #timestampMillis} in the system zone; only a view for JSON and callers that want a date, null if unset.
+     */
+    public LocalDateTime getTimestamp() {
+        return CoarseClock.toLocalDateTime(timestampMillis);
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestampMillis = CoarseClock.toEpochMillis(timestamp);
+    }
+
+    public static class ApiMetricsBuilder {
+        public ApiMetricsBuilder timestamp(LocalDateTime timestamp) {
+            this.timestampMillis = CoarseClock.toEpochMillis(timestamp);
+            return this;
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.banking.monitoring.model;
 
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.id.RecordIdDeserializer;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.Builder;
@@ -13,16 +18,51 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class ApiRequest {
-    private String id;
+    @JsonSerialize(using = ToStringSerializer.class)
+    @JsonDeserialize(using = RecordIdDeserializer.class)
+    private long id;
     private String endpoint;
     private String method;
     private String requestBody;
     private String responseBody;
     private int statusCode;
     private long responseTime;
-    private LocalDateTime timestamp;
+    private long timestampMillis;
     private boolean isAnomaly;
     private double anomalyScore;
     private String anomalyReason;
+    private int anomalyReasons;
+    private double responseTimeZScore;
+    private double errorRateZScore;
     private String errorMessage;
-} 
\ No newline at end of file
+    /**
+     * Inverse of the probability with which the request was analyzed; 0 if it was sampled out.
+     */
+    private double sampleWeight;
+
+    public String getAnomalyReason() {
+        if (anomalyReason != null) {
+            return anomalyReason;
+        }
+        return AnomalyReason.describeAnomaly(anomalyReasons, responseTime, responseTimeZScore,
+                statusCode >= 400 ? 1.0 : 0.0, errorRateZScore, 0, 0, 0);
+    }
+
+    /**
+     * {@link #timestampMillis} in the system zone; only a view for JSON and callers that want a date, null if unset.
+     */
+    public LocalDateTime getTimestamp() {
+        return CoarseClock.toLocalDateTime(timestampMillis);
+    }
+
+    public void setTimestamp(LocalDateTime timestamp) {
+        this.timestampMillis = CoarseClock.toEpochMillis(timestamp);
+    }
+
+    public static class ApiRequestBuilder {
+        public ApiRequestBuilder timestamp(LocalDateTime timestamp) {
+            this.timestampMillis = CoarseClock.toEpochMillis(timestamp);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.banking.monitoring.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Per-endpoint state handed to a new owner when cluster membership changes: the counters of the current collection
+ * window, the latest system metrics, the detection baselines with their sample weights and the serialized predictive
+ * model.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class EndpointSnapshot {
+    private String endpoint;
+    private int requests;
+    private int errors;
+    private long responseTimeSum;
+    private Double cpuUsage;
+    private Double memoryUsage;
+    private Double networkLatency;
+    private double[] responseTimes;
+    private double[] errorRates;
+    private double[] sampleWeights;
+    private byte[] model;
+}
@@ -0,0 +1,26 @@
+package com.banking.monitoring.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * Samples for one endpoint pre-aggregated by a non-owning node and forwarded to the owner. System metrics are
+ * {@code null} when they did not change since the last batch.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ForwardedSample {
+    private String endpoint;
+    private int requests;
+    private long responseTimeSum;
+    private int errors;
+    private Double cpuUsage;
+    private Double memoryUsage;
+    private Double networkLatency;
+}
@@ -0,0 +1,43 @@
+package com.banking.monitoring.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A group of anomalies on one or more endpoints that share their symptoms and occurred close together in time,
+ * e.g. every endpoint backed by a degraded database. {@code endpoints} is capped; past the cap
+ * {@code endpointCount} is an upper bound.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class Incident {
+    public enum Status {
+        OPEN, RESOLVED
+    }
+
+    private String id;
+    private Status status;
+    private LocalDateTime openedAt;
+    private LocalDateTime lastSeenAt;
+    private LocalDateTime resolvedAt;
+    private int reasons;
+    private List<String> endpoints;
+    private int endpointCount;
+    private long anomalousSamples;
+    private long alerts;
+    private double peakScore;
+    private String analysis;
+
+    public String getReason() {
+        return reasons == 0 ? null : AnomalyReason.labels(reasons);
+    }
+}
@@ -0,0 +1,74 @@
+package com.banking.monitoring.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Builder;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Getter
+@Builder
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class MonitoringEvent {
+    public enum Type {
+        METRICS, ALERT, INCIDENT
+    }
+
+    public enum Severity {
+        INFO, WARNING, CRITICAL
+    }
+
+    private static final double CRITICAL_ANOMALY_SCORE = 0.9;
+
+    private final long sequence;
+    private final Type type;
+    private final Severity severity;
+    private final String endpoint;
+    private final LocalDateTime timestamp;
+    private final ApiMetrics metrics;
+    private final Alert alert;
+    private final Incident incident;
+
+    public static MonitoringEvent metrics(long sequence, ApiMetrics metrics) {
+        Severity severity = metrics.isPredictedFailure() ? Severity.CRITICAL
+                : metrics.isAnomaly() ? Severity.WARNING : Severity.INFO;
+        return MonitoringEvent.builder()
+                .sequence(sequence)
+                .type(Type.METRICS)
+                .severity(severity)
+                .endpoint(metrics.getEndpoint())
+                .timestamp(metrics.getTimestamp() != null ? metrics.getTimestamp() : LocalDateTime.now())
+                .metrics(metrics)
+                .build();
+    }
+
+    public static MonitoringEvent alert(long sequence, Alert alert) {
+        Severity severity = alert.getStatus() == Alert.Status.RESOLVED ? Severity.INFO
+                : alert.getPeakScore() >= CRITICAL_ANOMALY_SCORE ? Severity.CRITICAL : Severity.WARNING;
+        return MonitoringEvent.builder()
+                .sequence(sequence)
+                .type(Type.ALERT)
+                .severity(severity)
+                .endpoint(alert.getEndpoint())
+                .timestamp(alert.getResolvedAt() != null ? alert.getResolvedAt() : alert.getOpenedAt())
+                .alert(alert)
+                .build();
+    }
+
+    /**
+     * Incident events carry no single endpoint: they are conflated per incident, and an endpoint filter matches any
+     * of the incident's endpoints.
+     */
+    public static MonitoringEvent incident(long sequence, Incident incident) {
+        Severity severity = incident.getStatus() == Incident.Status.RESOLVED ? Severity.INFO
+                : incident.getPeakScore() >= CRITICAL_ANOMALY_SCORE ? Severity.CRITICAL : Severity.WARNING;
+        return MonitoringEvent.builder()
+                .sequence(sequence)
+                .type(Type.INCIDENT)
+                .severity(severity)
+                .timestamp(incident.getResolvedAt() != null ? incident.getResolvedAt() : incident.getLastSeenAt())
+                .incident(incident)
+                .build();
+    }
+}
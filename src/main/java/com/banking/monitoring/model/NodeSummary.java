@@ -0,0 +1,64 @@
+package com.banking.monitoring.model;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aggregates of one node, or of several nodes after {@link #merge(NodeSummary)}. Every field is a sum or a
+ * concatenation, so fleet-wide values do not depend on the order in which node summaries are gathered.
+ */
+@Getter
+@Setter
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class NodeSummary {
+    @Builder.Default
+    private List<String> nodes = new ArrayList<>();
+    @Builder.Default
+    private List<String> unreachable = new ArrayList<>();
+    private long collectingEndpoints;
+    private long baselinedEndpoints;
+    private long modeledEndpoints;
+    private long anomalousSamples;
+    private long alertsOpened;
+    private long alertsResolved;
+    private long alertsSuppressed;
+    private long samplesForwarded;
+    private long samplesReceived;
+    @Builder.Default
+    private List<Alert> openAlerts = new ArrayList<>();
+
+    public static NodeSummary unreachable(String nodeId) {
+        return NodeSummary.builder().unreachable(new ArrayList<>(List.of(nodeId))).build();
+    }
+
+    public NodeSummary merge(NodeSummary other) {
+        List<String> mergedNodes = new ArrayList<>(nodes);
+        mergedNodes.addAll(other.nodes);
+        List<String> mergedUnreachable = new ArrayList<>(unreachable);
+        mergedUnreachable.addAll(other.unreachable);
+        List<Alert> mergedAlerts = new ArrayList<>(openAlerts);
+        mergedAlerts.addAll(other.openAlerts);
+        return NodeSummary.builder()
+                .nodes(mergedNodes)
+                .unreachable(mergedUnreachable)
+                .collectingEndpoints(collectingEndpoints + other.collectingEndpoints)
+                .baselinedEndpoints(baselinedEndpoints + other.baselinedEndpoints)
+                .modeledEndpoints(modeledEndpoints + other.modeledEndpoints)
+                .anomalousSamples(anomalousSamples + other.anomalousSamples)
+                .alertsOpened(alertsOpened + other.alertsOpened)
+                .alertsResolved(alertsResolved + other.alertsResolved)
+                .alertsSuppressed(alertsSuppressed + other.alertsSuppressed)
+                .samplesForwarded(samplesForwarded + other.samplesForwarded)
+                .samplesReceived(samplesReceived + other.samplesReceived)
+                .openAlerts(mergedAlerts)
+                .build();
+    }
+}
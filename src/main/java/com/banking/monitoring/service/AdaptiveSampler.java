@@ -0,0 +1,227 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiRequest;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Load shedding for {@link ApiMonitoringService#processApiRequest}. Errors, slow requests, outliers against the
+ * endpoint's typical response time and the first {@code min-per-endpoint} requests of every endpoint in each
+ * interval are always analyzed. Other requests are kept with probability {@link #getRate()}, which is adjusted once
+ * per {@code adjust-interval} to hold the mean pipeline latency at {@code target-latency}: cut in proportion to the
+ * overshoot, raised gently while below target. A kept request carries the inverse of its keep probability as its
+ * sample weight, so weighted means and rates over the kept requests are unbiased estimates over all traffic.
+ */
+@Slf4j
+@Component
+public class AdaptiveSampler {
+    private static final double TYPICAL_ALPHA = 0.05;
+    private static final double RECOVERY_FACTOR = 1.25;
+
+    private final boolean enabled;
+    private final long targetLatencyNanos;
+    private final double minRate;
+    private final long slowThresholdMillis;
+    private final double outlierFactor;
+    private final int minPerEndpoint;
+    private final long adjustIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final DoubleSupplier random;
+    private final ConcurrentHashMap<String, EndpointState> endpoints = new ConcurrentHashMap<>();
+    private final AtomicLong lastAdjustNanos;
+    private final LongAdder latencyNanos = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder kept = new LongAdder();
+    private final LongAdder forced = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private volatile double rate = 1.0;
+    private volatile double lastLatencyMillis;
+
+    @Autowired
+    public AdaptiveSampler(MeterRegistry meterRegistry,
+                           @Value("${monitoring.sampling.enabled:true}") boolean enabled,
+                           @Value("${monitoring.sampling.target-latency:50ms}") Duration targetLatency,
+                           @Value("${monitoring.sampling.min-rate:0.01}") double minRate,
+                           @Value("${monitoring.sampling.slow-threshold:1s}") Duration slowThreshold,
+                           @Value("${monitoring.sampling.outlier-factor:3.0}") double outlierFactor,
+                           @Value("${monitoring.sampling.min-per-endpoint:5}") int minPerEndpoint,
+                           @Value("${monitoring.sampling.adjust-interval:1s}") Duration adjustInterval) {
+        this(meterRegistry, enabled, targetLatency, minRate, slowThreshold, outlierFactor, minPerEndpoint,
+                adjustInterval, System::nanoTime, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    public AdaptiveSampler(MeterRegistry meterRegistry,
+                           boolean enabled,
+                           Duration targetLatency,
+                           double minRate,
+                           Duration slowThreshold,
+                           double outlierFactor,
+                           int minPerEndpoint,
+                           Duration adjustInterval,
+                           LongSupplier nanoClock,
+                           DoubleSupplier random) {
+        if (minRate <= 0 || minRate > 1) {
+            throw new IllegalArgumentException("monitoring.sampling.min-rate must be in (0, 1]");
+        }
+        this.enabled = enabled;
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.minRate = minRate;
+        this.slowThresholdMillis = slowThreshold.toMillis();
+        this.outlierFactor = outlierFactor;
+        this.minPerEndpoint = minPerEndpoint;
+        this.adjustIntervalNanos = adjustInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.random = random;
+        this.lastAdjustNanos = new AtomicLong(nanoClock.getAsLong());
+        Gauge.builder("monitoring.sampling.rate", this, AdaptiveSampler::getRate)
+                .description("Probability with which normal requests are analyzed")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.sampling.requests", kept, LongAdder::sum)
+                .tag("result", "sampled").register(meterRegistry);
+        FunctionCounter.builder("monitoring.sampling.requests", forced, LongAdder::sum)
+                .tag("result", "forced").register(meterRegistry);
+        FunctionCounter.builder("monitoring.sampling.requests", dropped, LongAdder::sum)
+                .tag("result", "dropped").register(meterRegistry);
+    }
+
+    public static AdaptiveSampler disabled() {
+        return new AdaptiveSampler(new CompositeMeterRegistry(), false, Duration.ofMillis(50), 1.0,
+                Duration.ofSeconds(1), 3.0, 0, Duration.ofSeconds(1), System::nanoTime, () -> 0.0);
+    }
+
+    /**
+     * Decides whether {@code request} is analyzed and returns its sample weight, or 0 if it is sampled out.
+     */
+    public double sample(ApiRequest request) {
+        if (!enabled) {
+            return 1.0;
+        }
+        maybeAdjust(nanoClock.getAsLong());
+        EndpointState state = endpoints.get(request.getEndpoint());
+        if (state == null) {
+            state = endpoints.computeIfAbsent(request.getEndpoint(), k -> new EndpointState());
+        }
+        state.seen.incrementAndGet();
+
+        double responseTime = request.getResponseTime();
+        double typical = state.typicalResponseTime;
+        state.typicalResponseTime = typical == 0 ? responseTime : typical + TYPICAL_ALPHA * (responseTime - typical);
+
+        if (request.getStatusCode() >= 400
+                || responseTime >= slowThresholdMillis
+                || (typical > 0 && responseTime > outlierFactor * typical)
+                || state.kept.get() < minPerEndpoint) {
+            state.kept.incrementAndGet();
+            forced.increment();
+            return 1.0;
+        }
+        double p = rate;
+        if (p >= 1.0 || random.getAsDouble() < p) {
+            state.kept.incrementAndGet();
+            kept.increment();
+            return 1.0 / p;
+        }
+        dropped.increment();
+        return 0.0;
+    }
+
+    public long start() {
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * Records the pipeline latency of an analyzed request started at {@link #start()}.
+     */
+    public void complete(long startNanos) {
+        latencyNanos.add(nanoClock.getAsLong() - startNanos);
+        completed.increment();
+    }
+
+    private void maybeAdjust(long now) {
+        long last = lastAdjustNanos.get();
+        if (now - last < adjustIntervalNanos || !lastAdjustNanos.compareAndSet(last, now)) {
+            return;
+        }
+        long count = completed.sumThenReset();
+        long total = latencyNanos.sumThenReset();
+        double current = rate;
+        double next;
+        if (count == 0) {
+            next = Math.min(1.0, current * RECOVERY_FACTOR);
+        } else {
+            double mean = (double) total / count;
+            lastLatencyMillis = mean / 1e6;
+            next = mean > targetLatencyNanos
+                    ? Math.max(minRate, current * Math.max(0.5, targetLatencyNanos / mean))
+                    : Math.min(1.0, current * RECOVERY_FACTOR);
+        }
+        rate = next;
+        if (next != current) {
+            log.debug("Sampling rate {} -> {} (pipeline latency {} ms, target {} ms)",
+                    current, next, lastLatencyMillis, targetLatencyNanos / 1e6);
+        }
+        for (EndpointState state : endpoints.values()) {
+            state.roll();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Probability with which a request that is not forced through is analyzed.
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    public double getLastLatencyMillis() {
+        return lastLatencyMillis;
+    }
+
+    /**
+     * Fraction of each endpoint's requests analyzed during the last completed interval, forced ones included.
+     */
+    public Map<String, Double> getEffectiveRates() {
+        Map<String, Double> rates = new TreeMap<>();
+        endpoints.forEach((endpoint, state) -> rates.put(endpoint, state.effectiveRate));
+        return rates;
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private static final class EndpointState {
+        private final AtomicInteger seen = new AtomicInteger();
+        private final AtomicInteger kept = new AtomicInteger();
+        private volatile double typicalResponseTime;
+        private volatile double effectiveRate = 1.0;
+
+        private void roll() {
+            int seenCount = seen.getAndSet(0);
+            int keptCount = kept.getAndSet(0);
+            if (seenCount > 0) {
+                effectiveRate = (double) keptCount / seenCount;
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.id.IdGenerator;
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Turns the per-sample anomaly flags from {@link AnomalyDetectionService} into per-endpoint alerts. An alert opens
+ * after {@code enter-samples} consecutive anomalous samples spanning at least {@code enter-duration}, and resolves
+ * only after {@code exit-samples} consecutive normal samples spanning {@code exit-duration}. An alert that re-opens
+ * within {@code suppression-window} of resolving is tracked but not announced again. Only announced transitions are
+ * returned to callers. Each endpoint holds one immutable state replaced by compare-and-set, and is forgotten once it
+ * is clear and past its suppression window.
+ */
+@Slf4j
+@Service
+public class AlertEngine {
+    enum Phase {
+        CLEAR, PENDING, OPEN, RESOLVING
+    }
+
+    record State(Phase phase,
+                 int streak,
+                 long phaseStartNanos,
+                 String alertId,
+                 boolean announced,
+                 LocalDateTime openedAt,
+                 double peakScore,
+                 ApiMetrics trigger,
+                 long anomalousSamples,
+                 long lastResolvedNanos) {
+
+        static final State INITIAL = new State(Phase.CLEAR, 0, 0, null, false, null, 0, null, 0, Long.MIN_VALUE);
+        /**
+         * Marks a state that is being removed from the map; updates that see it start over with a fresh entry.
+         */
+        static final State RETIRED = new State(Phase.CLEAR, 0, 0, null, false, null, 0, null, 0, Long.MIN_VALUE);
+    }
+
+    private final int enterSamples;
+    private final long enterDurationNanos;
+    private final int exitSamples;
+    private final long exitDurationNanos;
+    private final long suppressionWindowNanos;
+    private final LongSupplier nanoClock;
+    private final IdGenerator idGenerator;
+    private final ConcurrentHashMap<String, AtomicReference<State>> states = new ConcurrentHashMap<>();
+    private final AtomicInteger openAlerts = new AtomicInteger();
+    private final LongAdder anomalousSamples = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder resolved = new LongAdder();
+    private final LongAdder suppressed = new LongAdder();
+
+    @Autowired
+    public AlertEngine(MeterRegistry meterRegistry,
+                       IdGenerator idGenerator,
+                       @Value("${monitoring.alerts.enter-samples:3}") int enterSamples,
+                       @Value("${monitoring.alerts.enter-duration:0s}") Duration enterDuration,
+                       @Value("${monitoring.alerts.exit-samples:5}") int exitSamples,
+                       @Value("${monitoring.alerts.exit-duration:10s}") Duration exitDuration,
+                       @Value("${monitoring.alerts.suppression-window:5m}") Duration suppressionWindow) {
+        this(meterRegistry, enterSamples, enterDuration, exitSamples, exitDuration, suppressionWindow,
+                System::nanoTime, idGenerator);
+    }
+
+    public AlertEngine(MeterRegistry meterRegistry,
+                       int enterSamples,
+                       Duration enterDuration,
+                       int exitSamples,
+                       Duration exitDuration,
+                       Duration suppressionWindow,
+                       LongSupplier nanoClock) {
+        this(meterRegistry, enterSamples, enterDuration, exitSamples, exitDuration, suppressionWindow, nanoClock,
+                IdGenerator.standalone());
+    }
+
+    public AlertEngine(MeterRegistry meterRegistry,
+                       int enterSamples,
+                       Duration enterDuration,
+                       int exitSamples,
+                       Duration exitDuration,
+                       Duration suppressionWindow,
+                       LongSupplier nanoClock,
+                       IdGenerator idGenerator) {
+        this.enterSamples = Math.max(1, enterSamples);
+        this.enterDurationNanos = enterDuration.toNanos();
+        this.exitSamples = Math.max(1, exitSamples);
+        this.exitDurationNanos = exitDuration.toNanos();
+        this.suppressionWindowNanos = suppressionWindow.toNanos();
+        this.nanoClock = nanoClock;
+        this.idGenerator = idGenerator;
+        Gauge.builder("monitoring.alerts.open", openAlerts, AtomicInteger::get)
+                .description("Endpoints with an open alert")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.alerts.samples", anomalousSamples, LongAdder::sum)
+                .description("Anomalous samples evaluated by the alert engine")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.alerts.transitions", opened, LongAdder::sum)
+                .tag("status", "opened").register(meterRegistry);
+        FunctionCounter.builder("monitoring.alerts.transitions", resolved, LongAdder::sum)
+                .tag("status", "resolved").register(meterRegistry);
+        FunctionCounter.builder("monitoring.alerts.transitions", suppressed, LongAdder::sum)
+                .tag("status", "suppressed").register(meterRegistry);
+        Gauge.builder("monitoring.alerts.reduction-ratio", this, AlertEngine::getReductionRatio)
+                .description("Anomalous samples per announced alert transition")
+                .register(meterRegistry);
+    }
+
+    public Optional<Alert> evaluate(ApiMetrics metrics) {
+        boolean anomalous = metrics.isAnomaly();
+        if (anomalous) {
+            anomalousSamples.increment();
+        }
+        String endpoint = metrics.getEndpoint();
+        long now = nanoClock.getAsLong();
+        // the id is only drawn once a sample actually opens an alert, and kept so compare-and-set retries reuse it
+        String alertId = null;
+        LocalDateTime openedAt = null;
+        AtomicReference<State> ref;
+        State current;
+        State next;
+        while (true) {
+            ref = states.get(endpoint);
+            if (ref == null) {
+                if (!anomalous) {
+                    return Optional.empty();
+                }
+                ref = states.computeIfAbsent(endpoint, k -> new AtomicReference<>(State.INITIAL));
+            }
+            current = ref.get();
+            if (current == State.RETIRED) {
+                states.remove(endpoint, ref);
+                continue;
+            }
+            next = transition(current, metrics, anomalous, now);
+            if (next.phase() == Phase.OPEN && next.alertId() == null) {
+                if (alertId == null) {
+                    long id = idGenerator.next();
+                    alertId = Long.toString(id);
+                    openedAt = CoarseClock.toLocalDateTime(IdGenerator.timestampOf(id));
+                }
+                next = new State(Phase.OPEN, next.streak(), next.phaseStartNanos(), alertId, next.announced(),
+                        openedAt, next.peakScore(), next.trigger(), next.anomalousSamples(),
+                        next.lastResolvedNanos());
+            }
+            if (next == current || ref.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        if (next.phase() == Phase.CLEAR && !suppressing(next, now) && ref.compareAndSet(next, State.RETIRED)) {
+            states.remove(endpoint, ref);
+        }
+
+        return announce(endpoint, current, next);
+    }
+
+    private boolean suppressing(State s, long now) {
+        return s.lastResolvedNanos() != Long.MIN_VALUE && now - s.lastResolvedNanos() < suppressionWindowNanos;
+    }
+
+    private State transition(State s, ApiMetrics metrics, boolean anomalous, long now) {
+        double score = metrics.getAnomalyScore();
+        switch (s.phase()) {
+            case CLEAR:
+                if (!anomalous) {
+                    return s;
+                }
+                return opening(new State(Phase.PENDING, 1, now, null, false, null, score, metrics,
+                        1, s.lastResolvedNanos()), now);
+            case PENDING:
+                if (!anomalous) {
+                    return new State(Phase.CLEAR, 0, now, null, false, null, 0, null, 0, s.lastResolvedNanos());
+                }
+                return opening(new State(Phase.PENDING, s.streak() + 1, s.phaseStartNanos(), null, false, null,
+                        Math.max(s.peakScore(), score), s.trigger(), s.anomalousSamples() + 1,
+                        s.lastResolvedNanos()), now);
+            case OPEN:
+                if (anomalous) {
+                    return new State(Phase.OPEN, 0, s.phaseStartNanos(), s.alertId(), s.announced(), s.openedAt(),
+                            Math.max(s.peakScore(), score), s.trigger(), s.anomalousSamples() + 1,
+                            s.lastResolvedNanos());
+                }
+                return resolving(new State(Phase.RESOLVING, 1, now, s.alertId(), s.announced(), s.openedAt(),
+                        s.peakScore(), s.trigger(), s.anomalousSamples(), s.lastResolvedNanos()), now);
+            case RESOLVING:
+                if (anomalous) {
+                    return new State(Phase.OPEN, 0, now, s.alertId(), s.announced(), s.openedAt(),
+                            Math.max(s.peakScore(), score), s.trigger(), s.anomalousSamples() + 1,
+                            s.lastResolvedNanos());
+                }
+                return resolving(new State(Phase.RESOLVING, s.streak() + 1, s.phaseStartNanos(), s.alertId(),
+                        s.announced(), s.openedAt(), s.peakScore(), s.trigger(), s.anomalousSamples(),
+                        s.lastResolvedNanos()), now);
+            default:
+                throw new IllegalStateException("Unknown alert phase " + s.phase());
+        }
+    }
+
+    /**
+     * Returns the opened state without an id; {@link #evaluate} assigns one only for this transition.
+     */
+    private State opening(State pending, long now) {
+        if (pending.streak() < enterSamples || now - pending.phaseStartNanos() < enterDurationNanos) {
+            return pending;
+        }
+        boolean announce = !suppressing(pending, now);
+        return new State(Phase.OPEN, 0, now, null, announce, null,
+                pending.peakScore(), pending.trigger(), pending.anomalousSamples(), pending.lastResolvedNanos());
+    }
+
+    private State resolving(State candidate, long now) {
+        if (candidate.streak() < exitSamples || now - candidate.phaseStartNanos() < exitDurationNanos) {
+            return candidate;
+        }
+        return new State(Phase.CLEAR, 0, now, candidate.alertId(), candidate.announced(), candidate.openedAt(),
+                candidate.peakScore(), candidate.trigger(), candidate.anomalousSamples(), now);
+    }
+
+    private Optional<Alert> announce(String endpoint, State previous, State next) {
+        boolean wasOpen = previous.phase() == Phase.OPEN || previous.phase() == Phase.RESOLVING;
+        boolean isOpen = next.phase() == Phase.OPEN || next.phase() == Phase.RESOLVING;
+        if (!wasOpen && isOpen) {
+            openAlerts.incrementAndGet();
+            if (!next.announced()) {
+                suppressed.increment();
+                log.debug("Alert for endpoint {} re-opened within the suppression window", endpoint);
+                return Optional.empty();
+            }
+            opened.increment();
+            Alert alert = toAlert(endpoint, next, Alert.Status.OPEN, null);
+            log.warn("Alert {} opened for endpoint {}: {} (peak score {})",
+                    alert.getId(), endpoint, alert.getReason(), alert.getPeakScore());
+            return Optional.of(alert);
+        }
+        if (wasOpen && !isOpen) {
+            openAlerts.decrementAndGet();
+            if (!next.announced()) {
+                return Optional.empty();
+            }
+            resolved.increment();
+            Alert alert = toAlert(endpoint, next, Alert.Status.RESOLVED, LocalDateTime.now());
+            log.info("Alert {} resolved for endpoint {} after {} anomalous samples",
+                    alert.getId(), endpoint, alert.getAnomalousSamples());
+            return Optional.of(alert);
+        }
+        return Optional.empty();
+    }
+
+    private static Alert toAlert(String endpoint, State state, Alert.Status status, LocalDateTime resolvedAt) {
+        return Alert.builder()
+                .id(state.alertId())
+                .endpoint(endpoint)
+                .status(status)
+                .openedAt(state.openedAt())
+                .resolvedAt(resolvedAt)
+                .peakScore(state.peakScore())
+                .reason(state.trigger() != null ? state.trigger().getAnomalyReason() : null)
+                .anomalousSamples(state.anomalousSamples())
+                .build();
+    }
+
+    /**
+     * Forgets the endpoint's alert state, e.g. after it was handed to another node. An open alert is dropped
+     * without a resolve transition; the new owner re-opens it if the endpoint is still anomalous.
+     */
+    public void release(String endpoint) {
+        AtomicReference<State> ref = states.remove(endpoint);
+        if (ref != null) {
+            Phase phase = ref.get().phase();
+            if (phase == Phase.OPEN || phase == Phase.RESOLVING) {
+                openAlerts.decrementAndGet();
+            }
+        }
+    }
+
+    public List<Alert> getOpenAlerts() {
+        return states.entrySet().stream()
+                .filter(entry -> {
+                    State state = entry.getValue().get();
+                    return state.announced() && (state.phase() == Phase.OPEN || state.phase() == Phase.RESOLVING);
+                })
+                .map(entry -> toAlert(entry.getKey(), entry.getValue().get(), Alert.Status.OPEN, null))
+                .toList();
+    }
+
+    int getTrackedEndpoints() {
+        return states.size();
+    }
+
+    public double getReductionRatio() {
+        long transitions = opened.sum() + resolved.sum();
+        return transitions == 0 ? 0.0 : (double) anomalousSamples.sum() / transitions;
+    }
+
+    public long getAnomalousSamples() {
+        return anomalousSamples.sum();
+    }
+
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    public long getResolvedCount() {
+        return resolved.sum();
+    }
+
+    public long getSuppressedCount() {
+        return suppressed.sum();
+    }
+}
@@ -1,94 +1,164 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.model.AnomalyReason;
 import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.EndpointSnapshot;
+import com.banking.monitoring.storage.JournalSource;
+import com.banking.monitoring.storage.StateJournal;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
 public class AnomalyDetectionService {
-    private final Map<String, DescriptiveStatistics> responseTimeStats;
-    private final Map<String, DescriptiveStatistics> errorRateStats;
-    private static final double Z_SCORE_THRESHOLD = 2.0;
+    private final Map<String, Baseline> baselines;
+    private final PipelineMetrics pipelineMetrics;
+    private final int windowSize;
+    private final AnomalyScorer.Thresholds thresholds;
+    private final AnomalyScorer scorer;
+    private final ThreadLocal<ScoringBatch> batches = new ThreadLocal<>();
+    private final Object journalLock = new Object();
+    private final List<Consumer<StateJournal>> journalEvents = new ArrayList<>();
+    // what the last commit emitted, marked journaled once the write-ahead log acknowledges it
+    private final Map<Baseline, Long> pendingAdds = new IdentityHashMap<>();
+    private int pendingEvents;
+    private volatile boolean journaling;
     private static final int WINDOW_SIZE = 100;
-    private static final double CPU_THRESHOLD = 80.0;
-    private static final double MEMORY_THRESHOLD = 80.0;
-    private static final double NETWORK_LATENCY_THRESHOLD = 200.0;
 
-    public AnomalyDetectionService() {
-        this.responseTimeStats = new ConcurrentHashMap<>();
-        this.errorRateStats = new ConcurrentHashMap<>();
+    public AnomalyDetectionService(PipelineMetrics pipelineMetrics) {
+        this(pipelineMetrics, WINDOW_SIZE);
     }
 
-    public Mono<ApiMetrics> detectAnomaly(ApiMetrics metrics) {
-        return Mono.fromCallable(() -> {
-            String endpoint = metrics.getEndpoint();
-            double responseTime = metrics.getResponseTime();
-            double errorRate = metrics.getErrorRate();
-
-            DescriptiveStatistics rtStats = responseTimeStats.computeIfAbsent(endpoint,
-                    k -> new DescriptiveStatistics(WINDOW_SIZE));
-            DescriptiveStatistics errStats = errorRateStats.computeIfAbsent(endpoint,
-                    k -> new DescriptiveStatistics(WINDOW_SIZE));
+    public AnomalyDetectionService(PipelineMetrics pipelineMetrics, int windowSize) {
+        this(pipelineMetrics, windowSize, true);
+    }
 
-            rtStats.addValue(responseTime);
-            errStats.addValue(errorRate);
+    public AnomalyDetectionService(PipelineMetrics pipelineMetrics, int windowSize, boolean vectorized) {
+        this(pipelineMetrics, windowSize, vectorized, AnomalyScorer.Thresholds.DEFAULT);
+    }
 
-            double rtZScore = calculateZScore(responseTime, rtStats);
-            double errorRateZScore = calculateZScore(errorRate, errStats);
+    @Autowired
+    public AnomalyDetectionService(PipelineMetrics pipelineMetrics,
+                                   @Value("${monitoring.collection.window-size:100}") int windowSize,
+                                   @Value("${monitoring.anomaly.vectorized:true}") boolean vectorized,
+                                   @Value("${monitoring.anomaly.z-score-threshold:2.0}") double zScoreThreshold,
+                                   @Value("${monitoring.thresholds.cpu-usage:80}") double cpuUsageThreshold,
+                                   @Value("${monitoring.thresholds.memory-usage:80}") double memoryUsageThreshold,
+                                   @Value("${monitoring.thresholds.network-latency:200}") double latencyThreshold) {
+        this(pipelineMetrics, windowSize, vectorized, new AnomalyScorer.Thresholds(zScoreThreshold,
+                cpuUsageThreshold, memoryUsageThreshold, latencyThreshold));
+    }
 
-            boolean isAnomaly = false;
-            List<String> reasons = new ArrayList<>();
+    public AnomalyDetectionService(PipelineMetrics pipelineMetrics, int windowSize, boolean vectorized,
+                                   AnomalyScorer.Thresholds thresholds) {
+        this.baselines = new ConcurrentHashMap<>();
+        this.pipelineMetrics = pipelineMetrics;
+        this.windowSize = windowSize;
+        this.thresholds = thresholds;
+        this.scorer = AnomalyScorer.create(vectorized, thresholds);
+        pipelineMetrics.gaugeEndpoints("baselined", baselines, Map::size);
+    }
 
-            if (Math.abs(rtZScore) > Z_SCORE_THRESHOLD) {
-                isAnomaly = true;
-                reasons.add(String.format("response time (%.2fms) is %.1f standard deviations from normal",
-                        responseTime, Math.abs(rtZScore)));
+    public Mono<ApiMetrics> detectAnomaly(ApiMetrics metrics) {
+        return Mono.fromCallable(() -> {
+            long start = pipelineMetrics.start(PipelineMetrics.Stage.DETECT);
+            try {
+                return evaluate(metrics);
+            } finally {
+                pipelineMetrics.stop(PipelineMetrics.Stage.DETECT, start);
             }
+        });
+    }
 
-            if (Math.abs(errorRateZScore) > Z_SCORE_THRESHOLD) {
-                isAnomaly = true;
-                reasons.add(String.format("error rate (%.2f%%) is %.1f standard deviations from normal",
-                        errorRate * 100, Math.abs(errorRateZScore)));
-            }
+    /**
+     * Synchronous detection step. Reasons are recorded as an {@link AnomalyReason} bitmask plus the z-scores, so an
+     * anomalous sample allocates nothing here; the text is rendered by {@link ApiMetrics#getAnomalyReason()}. A
+     * sampled request enters the baseline with its {@link ApiMetrics#getSampleWeight() sample weight}, so the
+     * baseline stays an unbiased estimate of all traffic.
+     */
+    public ApiMetrics evaluate(ApiMetrics metrics) {
+        double responseTime = metrics.getResponseTime();
+        double errorRate = metrics.getErrorRate();
 
-            if (metrics.getCpuUsage() > CPU_THRESHOLD || metrics.getMemoryUsage() > MEMORY_THRESHOLD ||
-                metrics.getNetworkLatency() > NETWORK_LATENCY_THRESHOLD) {
-                isAnomaly = true;
-                List<String> systemReasons = new ArrayList<>();
-                if (metrics.getCpuUsage() > CPU_THRESHOLD) {
-                    systemReasons.add(String.format("High CPU usage (%.1f%%)", metrics.getCpuUsage()));
-                }
-                if (metrics.getMemoryUsage() > MEMORY_THRESHOLD) {
-                    systemReasons.add(String.format("High memory usage (%.1f%%)", metrics.getMemoryUsage()));
-                }
-                if (metrics.getNetworkLatency() > NETWORK_LATENCY_THRESHOLD) {
-                    systemReasons.add(String.format("High network latency (%.1fms)", metrics.getNetworkLatency()));
+        double rtZScore;
+        double errorRateZScore;
+        double weight = weightOf(metrics);
+        Baseline baseline = baseline(metrics.getEndpoint());
+        synchronized (baseline) {
+            baseline.add(responseTime, errorRate, weight);
+            rtZScore = calculateZScore(responseTime, baseline.responseTime);
+            errorRateZScore = calculateZScore(errorRate, baseline.errorRate);
+        }
+
+        int reasons = thresholds.reasons(rtZScore, errorRateZScore,
+                metrics.getCpuUsage(), metrics.getMemoryUsage(), metrics.getNetworkLatency());
+        apply(metrics, reasons, thresholds.anomalyScore(reasons, rtZScore, errorRateZScore),
+                rtZScore, errorRateZScore);
+        return metrics;
+    }
+
+    /**
+     * Batch form of {@link #evaluate(ApiMetrics)} with the same results, used when samples arrive in bulk, e.g. by the
+     * {@link com.banking.monitoring.ingest.Backtester} replay. Baselines are updated in list order; the z-scores,
+     * reason masks and anomaly scores are then computed in one pass over primitive columns by the configured
+     * {@link AnomalyScorer}.
+     */
+    public List<ApiMetrics> evaluateAll(List<ApiMetrics> samples) {
+        long start = pipelineMetrics.start(PipelineMetrics.Stage.DETECT);
+        try {
+            ScoringBatch batch = batches.get();
+            if (batch == null || batch.capacity() < samples.size()) {
+                batch = new ScoringBatch(samples.size());
+                batches.set(batch);
+            }
+            batch.clear();
+            for (ApiMetrics metrics : samples) {
+                double weight = weightOf(metrics);
+                Baseline baseline = baseline(metrics.getEndpoint());
+                synchronized (baseline) {
+                    baseline.add(metrics.getResponseTime(), metrics.getErrorRate(), weight);
+                    batch.add(metrics.getResponseTime(), baseline.responseTime,
+                            metrics.getErrorRate(), baseline.errorRate,
+                            metrics.getCpuUsage(), metrics.getMemoryUsage(), metrics.getNetworkLatency());
                 }
-                reasons.add("system metrics: " + String.join(", ", systemReasons));
             }
+            scorer.score(batch);
+            for (int i = 0; i < samples.size(); i++) {
+                apply(samples.get(i), batch.getReasons(i), batch.getAnomalyScore(i),
+                        batch.getResponseTimeZScore(i), batch.getErrorRateZScore(i));
+            }
+            return samples;
+        } finally {
+            pipelineMetrics.stop(PipelineMetrics.Stage.DETECT, start);
+        }
+    }
 
-            double maxZScore = Math.max(Math.abs(rtZScore), Math.abs(errorRateZScore));
-            double anomalyScore = isAnomaly ? 1.0 - (1.0 / (1.0 + Math.exp(maxZScore - Z_SCORE_THRESHOLD))) : 0.0;
-
-            metrics.setAnomaly(isAnomaly);
-            metrics.setAnomalyScore(anomalyScore);
+    private static void apply(ApiMetrics metrics, int reasons, double anomalyScore,
+                              double rtZScore, double errorRateZScore) {
+        metrics.setAnomaly(reasons != 0);
+        metrics.setAnomalyScore(anomalyScore);
+        metrics.setAnomalyReasons(reasons);
+        metrics.setResponseTimeZScore(rtZScore);
+        metrics.setErrorRateZScore(errorRateZScore);
+        metrics.setAnomalyReason(null);
+    }
 
-            if (isAnomaly) {
-                String reason = String.join(", ", reasons);
-                metrics.setAnomalyReason(reason);
-                log.warn("Anomaly detected for endpoint {}: {}", endpoint, reason);
-            }
+    private static double weightOf(ApiMetrics metrics) {
+        return metrics.getSampleWeight() > 0 ? metrics.getSampleWeight() : 1.0;
+    }
 
-            return metrics;
-        });
+    private Baseline baseline(String endpoint) {
+        Baseline baseline = baselines.get(endpoint);
+        return baseline != null ? baseline : baselines.computeIfAbsent(endpoint, k -> new Baseline(windowSize));
     }
 
-    private double calculateZScore(double value, DescriptiveStatistics stats) {
+    static double calculateZScore(double value, RollingWindow stats) {
         if (stats.getN() < 2) {
             double mean = stats.getMean();
             if (mean == 0) {
@@ -115,18 +185,211 @@ public class AnomalyDetectionService {
         });
 
         metricsByEndpoint.forEach((endpoint, endpointMetrics) -> {
-            DescriptiveStatistics rtStats = responseTimeStats.computeIfAbsent(endpoint,
-                    k -> new DescriptiveStatistics(WINDOW_SIZE));
-            DescriptiveStatistics errStats = errorRateStats.computeIfAbsent(endpoint,
-                    k -> new DescriptiveStatistics(WINDOW_SIZE));
-
-            endpointMetrics.forEach(metric -> {
-                rtStats.addValue(metric.getResponseTime());
-                errStats.addValue(metric.getErrorRate());
-            });
+            Baseline baseline = baseline(endpoint);
+            double meanResponseTime;
+            double meanErrorRate;
+            synchronized (baseline) {
+                endpointMetrics.forEach(metric ->
+                        baseline.add(metric.getResponseTime(), metric.getErrorRate(), weightOf(metric)));
+                meanResponseTime = baseline.responseTime.getMean();
+                meanErrorRate = baseline.errorRate.getMean();
+            }
 
-            log.info("Updated baseline stats for endpoint {}: avg response time = {:.2f}ms, error rate = {:.2%}",
-                    endpoint, rtStats.getMean(), errStats.getMean());
+            log.info("Updated baseline stats for endpoint {}: avg response time = {}ms, error rate = {}",
+                    endpoint, meanResponseTime, meanErrorRate);
         });
     }
-} 
\ No newline at end of file
+
+    public AnomalyScorer.Thresholds getThresholds() {
+        return thresholds;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public Set<String> getBaselinedEndpoints() {
+        return new HashSet<>(baselines.keySet());
+    }
+
+    /**
+     * Moves the endpoint's baselines into {@code snapshot} and forgets them locally.
+     */
+    public void export(String endpoint, EndpointSnapshot snapshot) {
+        Baseline baseline;
+        synchronized (journalLock) {
+            baseline = baselines.remove(endpoint);
+            if (baseline == null) {
+                return;
+            }
+            if (journaling) {
+                journalEvents.add(journal -> journal.baselineExported(endpoint));
+            }
+        }
+        synchronized (baseline) {
+            snapshot.setResponseTimes(baseline.responseTime.toArray());
+            snapshot.setErrorRates(baseline.errorRate.toArray());
+            snapshot.setSampleWeights(baseline.responseTime.weightsArray());
+        }
+    }
+
+    /**
+     * Installs handed-off baselines. Values already collected here are newer, so they are replayed on top.
+     */
+    public void restore(EndpointSnapshot snapshot) {
+        if (snapshot.getResponseTimes() == null || snapshot.getErrorRates() == null) {
+            return;
+        }
+        synchronized (journalLock) {
+            baselines.compute(snapshot.getEndpoint(), (endpoint, existing) -> {
+                Baseline restored = new Baseline(windowSize);
+                append(restored, snapshot.getResponseTimes(), snapshot.getErrorRates(), snapshot.getSampleWeights());
+                if (existing != null) {
+                    synchronized (existing) {
+                        append(restored, existing.responseTime.toArray(), existing.errorRate.toArray(),
+                                existing.responseTime.weightsArray());
+                    }
+                }
+                restored.journaledAdds = restored.adds;
+                if (journaling) {
+                    double[] responseTimes = restored.responseTime.toArray();
+                    double[] errorRates = restored.errorRate.toArray();
+                    double[] weights = restored.responseTime.weightsArray();
+                    journalEvents.add(journal -> journal.baseline(endpoint, responseTimes, errorRates, weights));
+                }
+                return restored;
+            });
+        }
+    }
+
+    /**
+     * Starts tracking baseline changes for the write-ahead log and returns the source its commits read them from:
+     * the exports and restores since the previous acknowledged commit, then the values each window gained since then.
+     */
+    public JournalSource journalSource() {
+        synchronized (journalLock) {
+            journaling = true;
+        }
+        return new JournalSource() {
+            @Override
+            public void journal(StateJournal journal, boolean full) {
+                AnomalyDetectionService.this.journal(journal, full);
+            }
+
+            @Override
+            public void committed() {
+                acknowledgeJournal();
+            }
+        };
+    }
+
+    /**
+     * Emits one {@link StateJournal#baseline} record per endpoint that rebuilds the current baselines.
+     */
+    public void journalState(StateJournal journal) {
+        journal(journal, true);
+    }
+
+    private void journal(StateJournal journal, boolean full) {
+        synchronized (journalLock) {
+            journalEvents.forEach(event -> event.accept(journal));
+            pendingEvents = journalEvents.size();
+            pendingAdds.clear();
+            for (Map.Entry<String, Baseline> entry : baselines.entrySet()) {
+                Baseline baseline = entry.getValue();
+                double[] responseTimes;
+                double[] errorRates;
+                double[] weights;
+                synchronized (baseline) {
+                    int added = (int) Math.min(full ? windowSize : baseline.adds - baseline.journaledAdds, windowSize);
+                    if (added == 0 || baseline.responseTime.getN() == 0) {
+                        continue;
+                    }
+                    responseTimes = baseline.responseTime.newest(added);
+                    errorRates = baseline.errorRate.newest(added);
+                    weights = baseline.responseTime.newestWeights(added);
+                    pendingAdds.put(baseline, baseline.adds);
+                }
+                if (full) {
+                    journal.baseline(entry.getKey(), responseTimes, errorRates, weights);
+                } else {
+                    journal.samples(entry.getKey(), responseTimes, errorRates, weights);
+                }
+            }
+        }
+    }
+
+    private void acknowledgeJournal() {
+        synchronized (journalLock) {
+            journalEvents.subList(0, pendingEvents).clear();
+            pendingEvents = 0;
+            pendingAdds.forEach((baseline, adds) -> {
+                synchronized (baseline) {
+                    baseline.journaledAdds = Math.max(baseline.journaledAdds, adds);
+                }
+            });
+            pendingAdds.clear();
+        }
+    }
+
+    /**
+     * Replays a {@link StateJournal#samples} record; the values count as journaled.
+     */
+    void applySamples(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+        Baseline baseline = baseline(endpoint);
+        synchronized (baseline) {
+            append(baseline, responseTimes, errorRates, weights);
+            baseline.journaledAdds = baseline.adds;
+        }
+    }
+
+    /**
+     * Replays a {@link StateJournal#baseline} record; the values count as journaled.
+     */
+    void applyBaseline(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+        Baseline baseline = new Baseline(windowSize);
+        append(baseline, responseTimes, errorRates, weights);
+        baseline.journaledAdds = baseline.adds;
+        baselines.put(endpoint, baseline);
+    }
+
+    /**
+     * Replays a {@link StateJournal#baselineExported} record.
+     */
+    void applyBaselineExported(String endpoint) {
+        baselines.remove(endpoint);
+    }
+
+    private static void append(Baseline baseline, double[] responseTimes, double[] errorRates, double[] weights) {
+        for (int i = 0; i < responseTimes.length; i++) {
+            baseline.responseTime.add(responseTimes[i], weightAt(weights, i));
+        }
+        for (int i = 0; i < errorRates.length; i++) {
+            baseline.errorRate.add(errorRates[i], weightAt(weights, i));
+        }
+        baseline.adds += responseTimes.length;
+    }
+
+    private static double weightAt(double[] weights, int index) {
+        return weights != null && index < weights.length ? weights[index] : 1.0;
+    }
+
+    private static final class Baseline {
+        private final RollingWindow responseTime;
+        private final RollingWindow errorRate;
+        // values added in total and as of the last write-ahead log commit
+        private long adds;
+        private long journaledAdds;
+
+        private Baseline(int windowSize) {
+            this.responseTime = new RollingWindow(windowSize);
+            this.errorRate = new RollingWindow(windowSize);
+        }
+
+        private void add(double responseTime, double errorRate, double weight) {
+            this.responseTime.add(responseTime, weight);
+            this.errorRate.add(errorRate, weight);
+            adds++;
+        }
+    }
+}
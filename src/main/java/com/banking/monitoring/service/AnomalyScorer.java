@@ -0,0 +1,65 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.AnomalyReason;
+
+/**
+ * Computes z-scores, {@link AnomalyReason} masks and anomaly scores for a {@link ScoringBatch}. The vectorized
+ * implementation needs the {@code jdk.incubator.vector} module ({@code --add-modules jdk.incubator.vector}); it is
+ * loaded reflectively so the scalar implementation still works on a JVM started without it.
+ */
+public interface AnomalyScorer {
+
+    /**
+     * Limits above which a sample is anomalous: the absolute z-score of response time and error rate
+     * ({@code monitoring.anomaly.z-score-threshold}) and the system metric levels ({@code monitoring.thresholds.*}).
+     */
+    record Thresholds(double zScore, double cpuUsage, double memoryUsage, double networkLatency) {
+        public static final Thresholds DEFAULT = new Thresholds(2.0, 80.0, 80.0, 200.0);
+
+        public Thresholds withZScore(double zScore) {
+            return new Thresholds(zScore, cpuUsage, memoryUsage, networkLatency);
+        }
+
+        public int reasons(double responseTimeZScore, double errorRateZScore,
+                           double cpuUsage, double memoryUsage, double networkLatency) {
+            int reasons = 0;
+            if (Math.abs(responseTimeZScore) > zScore) {
+                reasons |= AnomalyReason.RESPONSE_TIME.mask();
+            }
+            if (Math.abs(errorRateZScore) > zScore) {
+                reasons |= AnomalyReason.ERROR_RATE.mask();
+            }
+            if (cpuUsage > this.cpuUsage) {
+                reasons |= AnomalyReason.CPU_USAGE.mask();
+            }
+            if (memoryUsage > this.memoryUsage) {
+                reasons |= AnomalyReason.MEMORY_USAGE.mask();
+            }
+            if (networkLatency > this.networkLatency) {
+                reasons |= AnomalyReason.NETWORK_LATENCY.mask();
+            }
+            return reasons;
+        }
+
+        public double anomalyScore(int reasons, double responseTimeZScore, double errorRateZScore) {
+            if (reasons == 0) {
+                return 0.0;
+            }
+            double maxZScore = Math.max(Math.abs(responseTimeZScore), Math.abs(errorRateZScore));
+            return 1.0 - (1.0 / (1.0 + Math.exp(maxZScore - zScore)));
+        }
+    }
+
+    void score(ScoringBatch batch);
+
+    static AnomalyScorer scalar(Thresholds thresholds) {
+        return new ScalarAnomalyScorer(thresholds);
+    }
+
+    /**
+     * The vectorized scorer if requested and available, otherwise the scalar one.
+     */
+    static AnomalyScorer create(boolean vectorized, Thresholds thresholds) {
+        return vectorized ? ScalarAnomalyScorer.vectorOrScalar(thresholds) : new ScalarAnomalyScorer(thresholds);
+    }
+}
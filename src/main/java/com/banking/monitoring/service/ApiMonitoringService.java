@@ -1,15 +1,21 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.id.IdGenerator;
+import com.banking.monitoring.model.Alert;
 import com.banking.monitoring.model.ApiRequest;
 import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.Incident;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import java.time.LocalDateTime;
-import java.util.UUID;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Slf4j
 @Service
@@ -17,35 +23,107 @@ import java.util.UUID;
 public class ApiMonitoringService {
     private final AnomalyDetectionService anomalyDetectionService;
     private final GenerativeAIService generativeAIService;
+    private final PipelineMetrics pipelineMetrics;
+    private final MonitoringEventStream eventStream;
+    private final AlertEngine alertEngine;
+    private final IdGenerator idGenerator;
+    private final AdaptiveSampler sampler;
+    private final IncidentCorrelator incidentCorrelator;
+    private final HeavyHitters heavyHitters;
 
     public Mono<ApiRequest> processApiRequest(ApiRequest request) {
-        request.setId(UUID.randomUUID().toString());
-        request.setTimestamp(LocalDateTime.now());
+        return processApiRequest(request, () -> {
+        });
+    }
+
+    /**
+     * Processes the request; {@code detected} runs once when detection and alert evaluation are done, before any
+     * AI analysis, or when processing ends sooner.
+     */
+    public Mono<ApiRequest> processApiRequest(ApiRequest request, Runnable detected) {
+        long id = idGenerator.next();
+        request.setId(id);
+        request.setTimestampMillis(IdGenerator.timestampOf(id));
+        heavyHitters.record(request);
+        double weight = sampler.sample(request);
+        request.setSampleWeight(weight);
+        if (weight == 0) {
+            detected.run();
+            return Mono.just(request);
+        }
+        long start = sampler.start();
+        AtomicBoolean completed = new AtomicBoolean();
+        Runnable complete = () -> {
+            if (completed.compareAndSet(false, true)) {
+                sampler.complete(start);
+                detected.run();
+            }
+        };
         
         ApiMetrics metrics = convertToMetrics(request);
         
         return anomalyDetectionService.detectAnomaly(metrics)
-                .flatMap(analyzedMetrics -> 
-                    generativeAIService.analyzeApiRequest(analyzedMetrics)
-                        .doOnNext(analysis -> log.info("AI Analysis for request {}: {}", request.getId(), analysis))
-                        .map(analysis -> {
-                            updateRequest(request, analyzedMetrics);
-                            return request;
-                        }))
-                .doOnNext(this::logAnomaly)
-                .doOnError(error -> log.error("Error processing API request: ", error));
-    }
-
-    private void logAnomaly(ApiRequest request) {
-        if (request.isAnomaly()) {
-            log.warn("Anomaly detected for request {}: {} (Score: {})",
-                    request.getId(),
-                    request.getEndpoint(),
-                    request.getResponseTime(),
-                    request.getStatusCode(),
-                    request.getAnomalyScore(),
-                    request.getAnomalyReason());
-        }
+                .flatMap(analyzedMetrics -> {
+                    updateRequest(request, analyzedMetrics);
+                    String incidentId = analyzedMetrics.isAnomaly()
+                            ? incidentCorrelator.correlate(analyzedMetrics).incidentId() : null;
+                    Optional<Alert> transition = alertEngine.evaluate(analyzedMetrics);
+                    // the sampler and the admission limit adapt to detection latency; a multi-second AI analysis
+                    // is not overload
+                    complete.run();
+                    if (transition.isEmpty()) {
+                        return Mono.just(request);
+                    }
+                    Alert alert = transition.get();
+                    if (alert.getStatus() != Alert.Status.OPEN) {
+                        eventStream.publishAlert(alert);
+                        return Mono.just(request);
+                    }
+                    alert.setIncidentId(incidentId);
+                    if (incidentId != null && !incidentCorrelator.claim(incidentId)) {
+                        // another endpoint's alert already triggered the analysis for this incident
+                        incidentCorrelator.getAnalysis(incidentId).ifPresent(alert::setAnalysis);
+                        eventStream.publishAlert(alert);
+                        return Mono.just(request);
+                    }
+                    return generativeAIService.analyzeApiRequest(analyzedMetrics)
+                            .doOnNext(analysis -> {
+                                log.info("AI Analysis for alert {}: {}", alert.getId(), analysis);
+                                alert.setAnalysis(analysis);
+                                if (incidentId != null) {
+                                    incidentCorrelator.setAnalysis(incidentId, analysis);
+                                }
+                            })
+                            .doFinally(signal -> eventStream.publishAlert(alert))
+                            .thenReturn(request);
+                })
+                .doOnError(error -> log.error("Error processing API request: ", error))
+                .transform(mono -> pipelineMetrics.timed(PipelineMetrics.Stage.PROCESS, mono))
+                .doFinally(signal -> complete.run());
+    }
+
+    public HeavyHitters.Top getHeavyHitters(HeavyHitters.Ranking ranking, int limit, Duration window) {
+        return heavyHitters.top(ranking, limit, window);
+    }
+
+    public Map<String, Double> getSamplingRates() {
+        return sampler.getEffectiveRates();
+    }
+
+    public List<Alert> getOpenAlerts() {
+        return alertEngine.getOpenAlerts();
+    }
+
+    public List<Incident> getOpenIncidents() {
+        return incidentCorrelator.getOpenIncidents();
+    }
+
+    public List<Incident> getResolvedIncidents() {
+        return incidentCorrelator.getResolvedIncidents();
+    }
+
+    public Optional<Incident> getIncident(String id) {
+        return incidentCorrelator.getIncident(id);
     }
 
     ApiMetrics convertToMetrics(ApiRequest request) {
@@ -54,14 +132,18 @@ public class ApiMonitoringService {
                 .endpoint(request.getEndpoint())
                 .responseTime(request.getResponseTime())
                 .errorRate(request.getStatusCode() >= 400 ? 1.0 : 0.0)
-                .timestamp(request.getTimestamp())
+                .timestampMillis(request.getTimestampMillis())
+                .sampleWeight(request.getSampleWeight())
                 .build();
     }
 
     private ApiRequest updateRequest(ApiRequest request, ApiMetrics metrics) {
         request.setAnomaly(metrics.isAnomaly());
         request.setAnomalyScore(metrics.getAnomalyScore());
-        request.setAnomalyReason(metrics.getAnomalyReason());
+        request.setAnomalyReasons(metrics.getAnomalyReasons());
+        request.setResponseTimeZScore(metrics.getResponseTimeZScore());
+        request.setErrorRateZScore(metrics.getErrorRateZScore());
+        request.setAnomalyReason(metrics.getAnomalyReasons() == 0 ? metrics.getAnomalyReason() : null);
         return request;
     }
 
@@ -80,7 +162,8 @@ public class ApiMonitoringService {
 
     public Mono<ResponseEntity<Void>> trainModelWithResponse(Flux<ApiRequest> trainingData) {
         ResponseEntity<Void> okResponse = ResponseEntity.ok().build();
-        ResponseEntity<Void> errorResponse = ResponseEntity.status(org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR).build();
+        ResponseEntity<Void> errorResponse =
+                ResponseEntity.status(org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR).build();
         
         return trainModel(trainingData)
                 .then(Mono.just(okResponse))
@@ -88,10 +171,28 @@ public class ApiMonitoringService {
     }
 
     public Mono<String> generateRecommendations(Flux<ApiRequest> requests) {
-        return requests
-                .map(this::convertToMetrics)
-                .collectList()
-                .flatMap(generativeAIService::generateRecommendations)
+        return generativeAIService.generateRecommendations(requests.map(this::convertForRecommendations))
                 .doOnNext(recommendations -> log.info("Generated recommendations: {}", recommendations));
     }
-} 
\ No newline at end of file
+
+    public Flux<String> streamRecommendations(Flux<ApiRequest> requests) {
+        return generativeAIService.streamRecommendations(requests.map(this::convertForRecommendations));
+    }
+
+    public Flux<String> streamAnalysis(ApiMetrics metrics) {
+        return generativeAIService.streamApiAnalysis(metrics);
+    }
+
+    private ApiMetrics convertForRecommendations(ApiRequest request) {
+        ApiMetrics metrics = convertToMetrics(request);
+        metrics.setAnomaly(request.isAnomaly());
+        metrics.setAnomalyScore(request.getAnomalyScore());
+        metrics.setAnomalyReasons(request.getAnomalyReasons());
+        metrics.setResponseTimeZScore(request.getResponseTimeZScore());
+        metrics.setErrorRateZScore(request.getErrorRateZScore());
+        if (request.getAnomalyReasons() == 0) {
+            metrics.setAnomalyReason(request.getAnomalyReason());
+        }
+        return metrics;
+    }
+}
@@ -1,130 +1,350 @@
 package com.banking.monitoring.service;
 
 import com.banking.monitoring.model.ApiMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.theokanning.openai.OpenAiApi;
+import com.theokanning.openai.completion.chat.ChatCompletionChunk;
 import com.theokanning.openai.completion.chat.ChatCompletionRequest;
+import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.service.OpenAiService;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.OkHttpClient;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import retrofit2.Retrofit;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * OpenAI-backed analysis and recommendations. The client (Retrofit, OkHttp, Jackson modules) is built on first use
+ * unless {@code monitoring.startup.lazy} is false, so it stays off the startup path. Recommendation input is folded
+ * into a {@link MetricsDigest} as it streams in, and the prompt is cut to
+ * {@code monitoring.recommendations.token-budget}.
+ */
 @Slf4j
 @Service
 public class GenerativeAIService {
-    private final OpenAiService openAiService;
+    private final String apiKey;
+    private final String baseUrl;
+    private final Duration timeout;
+    private final PipelineMetrics pipelineMetrics;
+    private final int tokenBudget;
+    private final int maxEndpoints;
+    private final int topAnomalies;
+    private volatile Client client;
     private static final String MODEL = "gpt-3.5-turbo";
+    private static final int MAX_STREAMS = 64;
+
+    public GenerativeAIService(String apiKey, String baseUrl, Duration timeout, PipelineMetrics pipelineMetrics) {
+        this(apiKey, baseUrl, timeout, pipelineMetrics, true, 3000, 1000, 5);
+    }
+
+    @Autowired
+    public GenerativeAIService(@Value("${openai.api-key}") String apiKey,
+                               @Value("${openai.base-url:https://api.openai.com/}") String baseUrl,
+                               @Value("${openai.timeout:30s}") Duration timeout,
+                               PipelineMetrics pipelineMetrics,
+                               @Value("${monitoring.startup.lazy:true}") boolean lazy,
+                               @Value("${monitoring.recommendations.token-budget:3000}") int tokenBudget,
+                               @Value("${monitoring.recommendations.max-endpoints:1000}") int maxEndpoints,
+                               @Value("${monitoring.recommendations.top-anomalies:5}") int topAnomalies) {
+        this.apiKey = apiKey;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+        this.pipelineMetrics = pipelineMetrics;
+        this.tokenBudget = tokenBudget;
+        this.maxEndpoints = maxEndpoints;
+        this.topAnomalies = topAnomalies;
+        if (!lazy) {
+            client();
+        }
+    }
+
+    private Client client() {
+        Client current = client;
+        if (current == null) {
+            synchronized (this) {
+                current = client;
+                if (current == null) {
+                    current = createClient(apiKey, baseUrl, timeout);
+                    client = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static Client createClient(String apiKey, String baseUrl, Duration timeout) {
+        ObjectMapper mapper = OpenAiService.defaultObjectMapper();
+        OkHttpClient client = OpenAiService.defaultClient(apiKey, timeout);
+        // streamed completions run on OkHttp's dispatcher, which otherwise allows only 5 calls per host
+        client.dispatcher().setMaxRequests(MAX_STREAMS);
+        client.dispatcher().setMaxRequestsPerHost(MAX_STREAMS);
+        Retrofit retrofit = OpenAiService.defaultRetrofit(client, mapper)
+                .newBuilder()
+                .baseUrl(baseUrl.endsWith("/") ? baseUrl : baseUrl + "/")
+                .build();
+        OpenAiApi api = retrofit.create(OpenAiApi.class);
+        return new Client(api, new OpenAiService(api), mapper);
+    }
 
-    public GenerativeAIService(@Value("${openai.api-key}") String apiKey) {
-        this.openAiService = new OpenAiService(apiKey, Duration.ofSeconds(30));
+    /**
+     * The blocking service for whole completions, and the raw API for streamed ones: the library's own stream
+     * keeps reading after its subscriber cancels, while a raw call can be cancelled with the subscription.
+     */
+    private record Client(OpenAiApi api, OpenAiService service, ObjectMapper mapper) {
     }
 
     public Mono<String> analyzeApiRequest(ApiMetrics metrics) {
-        return Mono.fromCallable((Callable<String>) () -> {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(),
-                    "You are an expert API monitoring analyst. Analyze the API metrics for potential issues, " +
-                    "security concerns, and performance problems. Provide a detailed analysis."));
-            
-            String prompt = String.format("""
-                    API Metrics Analysis:
-                    Endpoint: %s
-                    Response Time: %.2f ms
-                    Error Rate: %.2f%%
-                    Throughput: %.2f req/s
-                    CPU Usage: %.1f%%
-                    Memory Usage: %.1f%%
-                    Network Latency: %.2f ms
-                    
-                    Please analyze these metrics and provide insights about:
-                    1. Performance issues
-                    2. Resource utilization
-                    3. Error patterns
-                    4. Recommendations for improvement
-                    """,
-                    metrics.getEndpoint(),
-                    metrics.getResponseTime(),
-                    metrics.getErrorRate() * 100,
-                    metrics.getThroughput(),
-                    metrics.getCpuUsage(),
-                    metrics.getMemoryUsage(),
-                    metrics.getNetworkLatency());
-
-            messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
-
-            ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
-                    .model(MODEL)
-                    .messages(messages)
-                    .temperature(0.7)
-                    .maxTokens(500)
-                    .build();
-
-            return openAiService.createChatCompletion(completionRequest)
-                    .getChoices()
-                    .get(0)
-                    .getMessage()
-                    .getContent();
-        }).doOnError(error -> log.error("Error in AI analysis: ", error));
+        return Mono.fromCallable((Callable<String>) () ->
+                        complete(PipelineMetrics.Stage.AI_ANALYSIS, analysisRequest(metrics)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(error -> log.error("Error in AI analysis: ", error));
+    }
+
+    /**
+     * Same analysis as {@link #analyzeApiRequest}, emitted piece by piece as the model produces it.
+     */
+    public Flux<String> streamApiAnalysis(ApiMetrics metrics) {
+        return stream(PipelineMetrics.Stage.AI_ANALYSIS, analysisRequest(metrics))
+                .doOnError(error -> log.error("Error in streamed AI analysis: ", error));
+    }
+
+    private static ChatCompletionRequest analysisRequest(ApiMetrics metrics) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(),
+                "You are an expert API monitoring analyst. Analyze the API metrics for potential issues, " +
+                "security concerns, and performance problems. Provide a detailed analysis."));
+
+        String prompt = String.format("""
+                API Metrics Analysis:
+                Endpoint: %s
+                Response Time: %.2f ms
+                Error Rate: %.2f%%
+                Throughput: %.2f req/s
+                CPU Usage: %.1f%%
+                Memory Usage: %.1f%%
+                Network Latency: %.2f ms
+                
+                Please analyze these metrics and provide insights about:
+                1. Performance issues
+                2. Resource utilization
+                3. Error patterns
+                4. Recommendations for improvement
+                """,
+                metrics.getEndpoint(),
+                metrics.getResponseTime(),
+                metrics.getErrorRate() * 100,
+                metrics.getThroughput(),
+                metrics.getCpuUsage(),
+                metrics.getMemoryUsage(),
+                metrics.getNetworkLatency());
+
+        messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt));
+
+        return ChatCompletionRequest.builder()
+                .model(MODEL)
+                .messages(messages)
+                .temperature(0.7)
+                .maxTokens(500)
+                .build();
     }
 
     public Mono<String> generateRecommendations(List<ApiMetrics> metrics) {
-        return Mono.fromCallable((Callable<String>) () -> {
-            List<ChatMessage> messages = new ArrayList<>();
-            messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(),
-                    "You are an expert API optimization specialist. Analyze the patterns in the API metrics and provide " +
-                    "recommendations for improving performance, security, and reliability."));
-
-            StringBuilder prompt = new StringBuilder("API Metrics Pattern Analysis:\n\n");
-            for (ApiMetrics metric : metrics) {
-                prompt.append(String.format("""
-                        Endpoint: %s
-                        - Response Time: %.2f ms
-                        - Error Rate: %.2f%%
-                        - Throughput: %.2f req/s
-                        - CPU Usage: %.1f%%
-                        - Memory Usage: %.1f%%
-                        - Network Latency: %.2f ms
-                        - Anomaly Score: %.2f
-                        
-                        """,
-                        metric.getEndpoint(),
-                        metric.getResponseTime(),
-                        metric.getErrorRate() * 100,
-                        metric.getThroughput(),
-                        metric.getCpuUsage(),
-                        metric.getMemoryUsage(),
-                        metric.getNetworkLatency(),
-                        metric.getAnomalyScore()));
+        return generateRecommendations(Flux.fromIterable(metrics));
+    }
+
+    /**
+     * Summarizes {@code metrics} per endpoint while they stream in, so the input is never held in memory, and asks
+     * for recommendations on the summary.
+     */
+    public Mono<String> generateRecommendations(Flux<ApiMetrics> metrics) {
+        return metrics
+                .reduceWith(() -> new MetricsDigest(maxEndpoints, topAnomalies), MetricsDigest::add)
+                .flatMap(this::generateRecommendations);
+    }
+
+    Mono<String> generateRecommendations(MetricsDigest digest) {
+        return Mono.fromCallable((Callable<String>) () ->
+                        complete(PipelineMetrics.Stage.AI_RECOMMENDATIONS, recommendationRequest(digest)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnError(error -> log.error("Error generating recommendations: ", error));
+    }
+
+    /**
+     * Same recommendations as {@link #generateRecommendations(Flux)}, emitted piece by piece once the input has been
+     * summarized.
+     */
+    public Flux<String> streamRecommendations(Flux<ApiMetrics> metrics) {
+        return metrics
+                .reduceWith(() -> new MetricsDigest(maxEndpoints, topAnomalies), MetricsDigest::add)
+                .flatMapMany(digest -> stream(PipelineMetrics.Stage.AI_RECOMMENDATIONS, recommendationRequest(digest)))
+                .doOnError(error -> log.error("Error streaming recommendations: ", error));
+    }
+
+    private ChatCompletionRequest recommendationRequest(MetricsDigest digest) {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(new ChatMessage(ChatMessageRole.SYSTEM.value(),
+                "You are an expert API optimization specialist. Analyze the patterns in the API metrics and provide " +
+                "recommendations for improving performance, security, and reliability."));
+
+        messages.add(new ChatMessage(ChatMessageRole.USER.value(), recommendationPrompt(digest)));
+
+        return ChatCompletionRequest.builder()
+                .model(MODEL)
+                .messages(messages)
+                .temperature(0.7)
+                .maxTokens(1000)
+                .build();
+    }
+
+    String recommendationPrompt(MetricsDigest digest) {
+        return digest.toPrompt("API Metrics Pattern Analysis:\n\n", """
+                Please provide recommendations for:
+                1. Performance optimization
+                2. Resource utilization
+                3. Error handling
+                4. API design best practices
+                5. Scalability improvements
+                """, tokenBudget);
+    }
+
+    /**
+     * Streams the completion's content deltas. The HTTP call is made when subscribed and cancelled when the
+     * subscriber cancels, e.g. because the client disconnected, so an abandoned completion stops being generated.
+     * Streamed responses carry no usage, so one completion token is counted per delta.
+     */
+    private Flux<String> stream(PipelineMetrics.Stage stage, ChatCompletionRequest completionRequest) {
+        completionRequest.setStream(true);
+        return Flux.<String>create(sink -> {
+            Client openAi = client();
+            long start = pipelineMetrics.start(stage);
+            Call<ResponseBody> call = openAi.api().createChatCompletionStream(completionRequest);
+            StreamedCompletion completion = new StreamedCompletion(sink, openAi.mapper(), start);
+            sink.onCancel(call::cancel);
+            sink.onDispose(() -> completion.finish(stage));
+            call.enqueue(completion);
+        }, FluxSink.OverflowStrategy.BUFFER);
+    }
+
+    private final class StreamedCompletion implements Callback<ResponseBody> {
+        private final FluxSink<String> sink;
+        private final ObjectMapper mapper;
+        private final long startNanos;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean success;
+        private volatile long deltas;
+
+        StreamedCompletion(FluxSink<String> sink, ObjectMapper mapper, long startNanos) {
+            this.sink = sink;
+            this.mapper = mapper;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onResponse(Call<ResponseBody> call, Response<ResponseBody> response) {
+            if (!response.isSuccessful() || response.body() == null) {
+                try (ResponseBody error = response.errorBody()) {
+                    sink.error(new IllegalStateException("OpenAI streaming call failed with HTTP " + response.code()
+                            + (error != null ? ": " + error.string() : "")));
+                } catch (IOException e) {
+                    sink.error(e);
+                }
+                return;
+            }
+            try (ResponseBody body = response.body();
+                 BufferedReader reader = new BufferedReader(
+                         new InputStreamReader(body.byteStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while (!sink.isCancelled() && (line = reader.readLine()) != null) {
+                    if (!line.startsWith("data:")) {
+                        continue;
+                    }
+                    String data = line.substring(5).trim();
+                    if (data.equals("[DONE]")) {
+                        break;
+                    }
+                    String content = content(mapper.readValue(data, ChatCompletionChunk.class));
+                    if (content != null && !content.isEmpty()) {
+                        if (deltas++ == 0) {
+                            pipelineMetrics.recordLlmFirstToken(System.nanoTime() - startNanos);
+                        }
+                        sink.next(content);
+                    }
+                }
+                success = true;
+                sink.complete();
+            } catch (IOException e) {
+                onFailure(call, e);
             }
+        }
 
-            prompt.append("""
-                    Please provide recommendations for:
-                    1. Performance optimization
-                    2. Resource utilization
-                    3. Error handling
-                    4. API design best practices
-                    5. Scalability improvements
-                    """);
-
-            messages.add(new ChatMessage(ChatMessageRole.USER.value(), prompt.toString()));
-
-            ChatCompletionRequest completionRequest = ChatCompletionRequest.builder()
-                    .model(MODEL)
-                    .messages(messages)
-                    .temperature(0.7)
-                    .maxTokens(1000)
-                    .build();
-
-            return openAiService.createChatCompletion(completionRequest)
-                    .getChoices()
+        @Override
+        public void onFailure(Call<ResponseBody> call, Throwable error) {
+            if (!sink.isCancelled()) {
+                sink.error(error);
+            }
+        }
+
+        void finish(PipelineMetrics.Stage stage) {
+            if (finished.compareAndSet(false, true)) {
+                if (sink.isCancelled() && !success) {
+                    pipelineMetrics.recordLlmCancelled(deltas);
+                } else {
+                    pipelineMetrics.recordLlmCall(success, 0, deltas);
+                }
+                pipelineMetrics.stop(stage, startNanos);
+            }
+        }
+
+        private static String content(ChatCompletionChunk chunk) {
+            if (chunk.getChoices() == null || chunk.getChoices().isEmpty()) {
+                return null;
+            }
+            ChatMessage delta = chunk.getChoices().get(0).getMessage();
+            return delta != null ? delta.getContent() : null;
+        }
+    }
+
+    private String complete(PipelineMetrics.Stage stage, ChatCompletionRequest completionRequest) {
+        long start = pipelineMetrics.start(stage);
+        boolean success = false;
+        long promptTokens = 0;
+        long completionTokens = 0;
+        try {
+            ChatCompletionResult result = client().service().createChatCompletion(completionRequest);
+            if (result.getUsage() != null) {
+                promptTokens = result.getUsage().getPromptTokens();
+                completionTokens = result.getUsage().getCompletionTokens();
+            }
+            String content = result.getChoices()
                     .get(0)
                     .getMessage()
                     .getContent();
-        }).doOnError(error -> log.error("Error generating recommendations: ", error));
+            success = true;
+            return content;
+        } finally {
+            pipelineMetrics.recordLlmCall(success, promptTokens, completionTokens);
+            pipelineMetrics.stop(stage, start);
+        }
     }
-} 
\ No newline at end of file
+}
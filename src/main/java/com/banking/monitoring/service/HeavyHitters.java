@@ -0,0 +1,282 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.id.CoarseClock;
+import com.banking.monitoring.model.ApiRequest;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Which endpoints carry the most traffic, errors and slow requests right now, without scanning the per-endpoint
+ * counters. Each {@link Ranking} keeps a sliding window of {@code buckets} {@link SpaceSaving} summaries of
+ * {@code capacity} counters each, one per {@code window / buckets} of time; a bucket is cleared when the clock
+ * comes round to it again. Updates cost O(log capacity) and a top-K query merges at most
+ * {@code buckets * capacity} counters, so both are independent of how many endpoints there are.
+ * <p>
+ * Counts are estimates: a reported count is within its {@code error} of the true one, and any key with more than
+ * {@code total / capacity} events in a bucket is tracked in it. Rankings are per node.
+ */
+@Service
+public class HeavyHitters {
+
+    public enum Ranking {
+        /**
+         * Requests per endpoint.
+         */
+        REQUESTS("requests"),
+        /**
+         * Failed requests per endpoint.
+         */
+        ERRORS("errors"),
+        /**
+         * Requests per endpoint at or above {@code slow-threshold}.
+         */
+        SLOW("slow"),
+        /**
+         * Failed requests per method, endpoint and status code; only requests processed with a status code.
+         */
+        ERROR_SOURCES("error-sources");
+
+        private final String key;
+
+        Ranking(String key) {
+            this.key = key;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public static Ranking fromKey(String key) {
+            for (Ranking ranking : values()) {
+                if (ranking.key.equalsIgnoreCase(key) || ranking.name().equalsIgnoreCase(key)) {
+                    return ranking;
+                }
+            }
+            throw new IllegalArgumentException("Unknown ranking '" + key + "'");
+        }
+    }
+
+    /**
+     * One ranked key; its true count is within {@code error} of {@code count}.
+     */
+    public record HeavyHitter(String key, long count, long error) {
+    }
+
+    /**
+     * The top keys of a ranking over the last {@code windowMillis}, and the total count they are a share of.
+     */
+    public record Top(String ranking, long windowMillis, long total, List<HeavyHitter> heavyHitters) {
+    }
+
+    private static final class Window {
+        final SpaceSaving[] buckets;
+        final long[] epochs;
+        long currentStart = Long.MAX_VALUE;
+        long currentEnd = Long.MIN_VALUE;
+        SpaceSaving current;
+
+        Window(int buckets, int capacity) {
+            this.buckets = new SpaceSaving[buckets];
+            this.epochs = new long[buckets];
+            for (int i = 0; i < buckets; i++) {
+                this.buckets[i] = new SpaceSaving(capacity);
+                this.epochs[i] = Long.MIN_VALUE;
+            }
+        }
+    }
+
+    private static final class Merged {
+        long count;
+        long error;
+        long untrackedBoundPresent;
+    }
+
+    private final boolean enabled;
+    private final int capacity;
+    private final long bucketMillis;
+    private final long slowThresholdMillis;
+    private final LongSupplier clock;
+    private final Window[] windows;
+
+    @Autowired
+    public HeavyHitters(MeterRegistry meterRegistry,
+                        CoarseClock coarseClock,
+                        @Value("${monitoring.heavy-hitters.enabled:true}") boolean enabled,
+                        @Value("${monitoring.heavy-hitters.capacity:256}") int capacity,
+                        @Value("${monitoring.heavy-hitters.window:5m}") Duration window,
+                        @Value("${monitoring.heavy-hitters.buckets:10}") int buckets,
+                        @Value("${monitoring.heavy-hitters.slow-threshold:${monitoring.sampling.slow-threshold:1s}}")
+                        Duration slowThreshold) {
+        this(meterRegistry, enabled, capacity, window, buckets, slowThreshold, coarseClock::millis);
+    }
+
+    public HeavyHitters(MeterRegistry meterRegistry,
+                        boolean enabled,
+                        int capacity,
+                        Duration window,
+                        int buckets,
+                        Duration slowThreshold,
+                        LongSupplier clock) {
+        if (capacity < 1 || buckets < 1) {
+            throw new IllegalArgumentException("monitoring.heavy-hitters.capacity and buckets must be positive");
+        }
+        if (window.toMillis() < buckets) {
+            throw new IllegalArgumentException("monitoring.heavy-hitters.window must be at least " + buckets
+                    + " ms (one millisecond per bucket), was " + window.toMillis() + " ms");
+        }
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.bucketMillis = window.toMillis() / buckets;
+        this.slowThresholdMillis = slowThreshold.toMillis();
+        this.clock = clock;
+        this.windows = new Window[Ranking.values().length];
+        for (Ranking ranking : Ranking.values()) {
+            windows[ranking.ordinal()] = new Window(enabled ? buckets : 1, enabled ? capacity : 1);
+        }
+        Gauge.builder("monitoring.heavy-hitters.tracked", this, HeavyHitters::tracked)
+                .description("Keys tracked across all heavy-hitter summaries")
+                .register(meterRegistry);
+    }
+
+    public static HeavyHitters disabled() {
+        return new HeavyHitters(new CompositeMeterRegistry(), false, 1, Duration.ofMinutes(1), 1,
+                Duration.ofSeconds(1), System::currentTimeMillis);
+    }
+
+    public boolean isSlow(long responseTime) {
+        return enabled && responseTime >= slowThresholdMillis;
+    }
+
+    /**
+     * Counts {@code requests} requests to {@code endpoint}, {@code errors} of them failed and {@code slowRequests}
+     * at or above the slow threshold.
+     */
+    public void record(String endpoint, int requests, int errors, int slowRequests) {
+        if (!enabled) {
+            return;
+        }
+        long now = clock.getAsLong();
+        if (requests > 0) {
+            add(Ranking.REQUESTS, endpoint, requests, now);
+        }
+        if (errors > 0) {
+            add(Ranking.ERRORS, endpoint, errors, now);
+        }
+        if (slowRequests > 0) {
+            add(Ranking.SLOW, endpoint, slowRequests, now);
+        }
+    }
+
+    /**
+     * Counts one processed request, including its method and status code if it failed.
+     */
+    public void record(ApiRequest request) {
+        if (!enabled) {
+            return;
+        }
+        boolean failed = request.getStatusCode() >= 400;
+        record(request.getEndpoint(), 1, failed ? 1 : 0, isSlow(request.getResponseTime()) ? 1 : 0);
+        if (failed) {
+            String method = request.getMethod() != null ? request.getMethod() : "*";
+            add(Ranking.ERROR_SOURCES, method + " " + request.getEndpoint() + " " + request.getStatusCode(), 1,
+                    clock.getAsLong());
+        }
+    }
+
+    private void add(Ranking ranking, String key, long weight, long now) {
+        Window window = windows[ranking.ordinal()];
+        synchronized (window) {
+            if (now < window.currentStart || now >= window.currentEnd) {
+                roll(window, now);
+            }
+            window.current.add(key, weight);
+        }
+    }
+
+    /**
+     * Points {@code window} at the bucket for {@code now}, clearing it if it last held an earlier period.
+     */
+    private void roll(Window window, long now) {
+        long epoch = Math.floorDiv(now, bucketMillis);
+        int index = (int) Math.floorMod(epoch, (long) window.buckets.length);
+        if (window.epochs[index] != epoch) {
+            window.buckets[index].clear();
+            window.epochs[index] = epoch;
+        }
+        window.current = window.buckets[index];
+        window.currentStart = epoch * bucketMillis;
+        window.currentEnd = window.currentStart + bucketMillis;
+    }
+
+    /**
+     * The {@code limit} keys of {@code ranking} with the highest counts over the last {@code window}, rounded up to
+     * whole buckets (the current one partially elapsed) and capped at the configured window.
+     */
+    public Top top(Ranking ranking, int limit, Duration window) {
+        Window summaries = windows[ranking.ordinal()];
+        int bucketCount = summaries.buckets.length;
+        int span = window == null ? bucketCount
+                : (int) Math.max(1, Math.min(bucketCount, (window.toMillis() + bucketMillis - 1) / bucketMillis));
+        long epoch = Math.floorDiv(clock.getAsLong(), bucketMillis);
+        Map<String, Merged> merged = new HashMap<>();
+        long total = 0;
+        long untrackedBound = 0;
+        if (enabled) {
+            synchronized (summaries) {
+                for (int i = 0; i < bucketCount; i++) {
+                    long age = epoch - summaries.epochs[i];
+                    if (age < 0 || age >= span) {
+                        continue;
+                    }
+                    SpaceSaving bucket = summaries.buckets[i];
+                    long bound = bucket.untrackedBound();
+                    total += bucket.total();
+                    untrackedBound += bound;
+                    for (int c = 0; c < bucket.size(); c++) {
+                        Merged entry = merged.computeIfAbsent(bucket.key(c), k -> new Merged());
+                        entry.count += bucket.count(c);
+                        entry.error += bucket.error(c);
+                        entry.untrackedBoundPresent += bound;
+                    }
+                }
+            }
+        }
+        List<HeavyHitter> ranked = new ArrayList<>(merged.size());
+        for (Map.Entry<String, Merged> entry : merged.entrySet()) {
+            Merged value = entry.getValue();
+            ranked.add(new HeavyHitter(entry.getKey(), value.count,
+                    value.error + untrackedBound - value.untrackedBoundPresent));
+        }
+        ranked.sort(Comparator.comparingLong(HeavyHitter::count).reversed().thenComparing(HeavyHitter::key));
+        List<HeavyHitter> top = ranked.subList(0, Math.min(Math.max(0, limit), ranked.size()));
+        return new Top(ranking.getKey(), span * bucketMillis, total, List.copyOf(top));
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private double tracked() {
+        int tracked = 0;
+        for (Window window : windows) {
+            synchronized (window) {
+                for (SpaceSaving bucket : window.buckets) {
+                    tracked += bucket.size();
+                }
+            }
+        }
+        return tracked;
+    }
+}
@@ -0,0 +1,442 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.id.IdGenerator;
+import com.banking.monitoring.model.AnomalyReason;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.Incident;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Groups anomalous samples from all endpoints into incidents. A sample joins the open incident whose symptoms are
+ * most similar, if the similarity reaches {@code similarity}: half of it is the Jaccard overlap of the sample's
+ * reason codes with the incident's dominant ones (set in at least a third of its samples), half the cosine between
+ * the sample's spike vector (see {@link #spikeVector}) and the incident's moving average. A sample from an endpoint
+ * the incident does not list yet only joins it while the incident is live, i.e. saw a sample within
+ * {@code co-occurrence}; two endpoints failing minutes apart are separate incidents. Otherwise the sample opens a new
+ * incident. An incident resolves once no sample has joined it for {@code window}, and at the latest
+ * {@code max-duration} after it opened, so background noise cannot keep one open forever.
+ * <p>
+ * Memory is bounded: at most {@code max-active} incidents are open (the least recently seen is resolved early to make
+ * room), each lists at most {@code max-endpoints} endpoints, and the last {@code history} resolved incidents are kept.
+ */
+@Slf4j
+@Service
+public class IncidentCorrelator {
+    static final int DIMENSIONS = 5;
+    private static final double Z_SCALE = 10.0;
+    private static final Duration CO_OCCURRENCE = Duration.ofSeconds(30);
+    private static final Duration MAX_DURATION = Duration.ofMinutes(30);
+    private static final double CENTROID_ALPHA = 0.1;
+    private static final double DOMINANT_SHARE = 1.0 / 3;
+
+    /**
+     * The incident a sample was assigned to, and whether the sample opened it.
+     */
+    public record Correlation(String incidentId, boolean opened) {
+    }
+
+    private final long windowNanos;
+    private final long coOccurrenceNanos;
+    private final long maxDurationNanos;
+    private final double similarity;
+    private final int maxActive;
+    private final int maxEndpoints;
+    private final int historySize;
+    private final MonitoringEventStream eventStream;
+    private final LongSupplier nanoClock;
+    private final IdGenerator idGenerator;
+    private final AnomalyScorer.Thresholds thresholds;
+    private final LinkedHashMap<String, Active> active = new LinkedHashMap<>();
+    private final ArrayDeque<Incident> history = new ArrayDeque<>();
+    private final LongAdder samples = new LongAdder();
+    private final LongAdder opened = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    @Autowired
+    public IncidentCorrelator(MeterRegistry meterRegistry,
+                              MonitoringEventStream eventStream,
+                              IdGenerator idGenerator,
+                              AnomalyDetectionService anomalyDetectionService,
+                              @Value("${monitoring.incidents.window:2m}") Duration window,
+                              @Value("${monitoring.incidents.co-occurrence:30s}") Duration coOccurrence,
+                              @Value("${monitoring.incidents.max-duration:30m}") Duration maxDuration,
+                              @Value("${monitoring.incidents.similarity:0.6}") double similarity,
+                              @Value("${monitoring.incidents.max-active:64}") int maxActive,
+                              @Value("${monitoring.incidents.max-endpoints:256}") int maxEndpoints,
+                              @Value("${monitoring.incidents.history:200}") int historySize) {
+        this(meterRegistry, eventStream, window, coOccurrence, maxDuration, similarity, maxActive, maxEndpoints,
+                historySize, System::nanoTime, idGenerator, anomalyDetectionService.getThresholds());
+    }
+
+    public IncidentCorrelator(MeterRegistry meterRegistry,
+                              MonitoringEventStream eventStream,
+                              Duration window,
+                              double similarity,
+                              int maxActive,
+                              int maxEndpoints,
+                              int historySize,
+                              LongSupplier nanoClock) {
+        this(meterRegistry, eventStream, window, CO_OCCURRENCE, MAX_DURATION, similarity, maxActive, maxEndpoints,
+                historySize, nanoClock, IdGenerator.standalone(), AnomalyScorer.Thresholds.DEFAULT);
+    }
+
+    public IncidentCorrelator(MeterRegistry meterRegistry,
+                              MonitoringEventStream eventStream,
+                              Duration window,
+                              Duration coOccurrence,
+                              Duration maxDuration,
+                              double similarity,
+                              int maxActive,
+                              int maxEndpoints,
+                              int historySize,
+                              LongSupplier nanoClock,
+                              IdGenerator idGenerator,
+                              AnomalyScorer.Thresholds thresholds) {
+        if (maxActive < 1 || maxEndpoints < 1 || historySize < 0) {
+            throw new IllegalArgumentException("Incident limits must be positive");
+        }
+        this.windowNanos = window.toNanos();
+        this.coOccurrenceNanos = coOccurrence.toNanos();
+        this.maxDurationNanos = maxDuration.toNanos();
+        this.similarity = similarity;
+        this.maxActive = maxActive;
+        this.maxEndpoints = maxEndpoints;
+        this.historySize = historySize;
+        this.eventStream = eventStream;
+        this.nanoClock = nanoClock;
+        this.idGenerator = idGenerator;
+        this.thresholds = thresholds;
+        Gauge.builder("monitoring.incidents.open", this, IncidentCorrelator::getOpenCount)
+                .description("Open incidents")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.incidents.samples", samples, LongAdder::sum)
+                .description("Anomalous samples assigned to incidents")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.incidents.opened", opened, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.incidents.evicted", evicted, LongAdder::sum)
+                .description("Incidents resolved early to stay within max-active")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Assigns an anomalous sample to an incident, opening one if no open incident is similar enough.
+     */
+    public Correlation correlate(ApiMetrics metrics) {
+        long now = nanoClock.getAsLong();
+        double[] spike = spikeVector(metrics, thresholds);
+        String endpoint = metrics.getEndpoint();
+        int reasons = metrics.getAnomalyReasons();
+        List<Incident> resolved = new ArrayList<>();
+        Incident announced = null;
+        Correlation correlation;
+        synchronized (this) {
+            expire(now, resolved);
+            Active best = null;
+            double bestScore = -1;
+            for (Active incident : active.values()) {
+                if (now - incident.lastNanos > coOccurrenceNanos && !incident.endpoints.contains(endpoint)) {
+                    continue;
+                }
+                double score = incident.similarity(reasons, spike);
+                if (score > bestScore) {
+                    best = incident;
+                    bestScore = score;
+                }
+            }
+            if (best != null && bestScore >= similarity) {
+                boolean newEndpoint = best.add(metrics, reasons, spike, now, maxEndpoints);
+                active.remove(best.id);
+                active.put(best.id, best);
+                correlation = new Correlation(best.id, false);
+                if (newEndpoint && best.endpointCount == 2) {
+                    announced = best.toIncident(Incident.Status.OPEN, null);
+                }
+            } else {
+                if (active.size() >= maxActive) {
+                    Iterator<Active> oldest = active.values().iterator();
+                    resolved.add(resolve(oldest.next()));
+                    oldest.remove();
+                    evicted.increment();
+                }
+                Active incident = new Active(Long.toString(idGenerator.next()), now);
+                incident.add(metrics, reasons, spike, now, maxEndpoints);
+                active.put(incident.id, incident);
+                opened.increment();
+                correlation = new Correlation(incident.id, true);
+                announced = incident.toIncident(Incident.Status.OPEN, null);
+            }
+        }
+        samples.increment();
+        if (announced != null) {
+            if (correlation.opened()) {
+                log.debug("Incident {} opened by {} ({})", announced.getId(), metrics.getEndpoint(),
+                        announced.getReason());
+            } else {
+                log.warn("Incident {} now spans {} endpoints: {}", announced.getId(), announced.getEndpointCount(),
+                        announced.getReason());
+            }
+            eventStream.publishIncident(announced);
+        }
+        resolved.forEach(this::announceResolved);
+        return correlation;
+    }
+
+    /**
+     * Counts an alert against the incident and returns true for the first one only, so that downstream work such
+     * as AI analysis runs once per incident. An incident that has already expired or been evicted has no claim to
+     * share, so the caller gets true and does the work itself.
+     */
+    public boolean claim(String incidentId) {
+        synchronized (this) {
+            Active incident = active.get(incidentId);
+            return incident == null || incident.alerts++ == 0;
+        }
+    }
+
+    public void setAnalysis(String incidentId, String analysis) {
+        Incident updated = null;
+        synchronized (this) {
+            Active incident = active.get(incidentId);
+            if (incident != null) {
+                incident.analysis = analysis;
+                updated = incident.toIncident(Incident.Status.OPEN, null);
+            }
+        }
+        if (updated != null) {
+            eventStream.publishIncident(updated);
+        }
+    }
+
+    public Optional<String> getAnalysis(String incidentId) {
+        synchronized (this) {
+            Active incident = active.get(incidentId);
+            return Optional.ofNullable(incident != null ? incident.analysis : null);
+        }
+    }
+
+    /**
+     * Open incidents, most recently active first.
+     */
+    public List<Incident> getOpenIncidents() {
+        List<Incident> resolved = new ArrayList<>();
+        List<Incident> open = new ArrayList<>();
+        synchronized (this) {
+            expire(nanoClock.getAsLong(), resolved);
+            for (Active incident : active.values()) {
+                open.add(0, incident.toIncident(Incident.Status.OPEN, null));
+            }
+        }
+        resolved.forEach(this::announceResolved);
+        return open;
+    }
+
+    /**
+     * Resolved incidents, most recent first.
+     */
+    public List<Incident> getResolvedIncidents() {
+        List<Incident> resolved = new ArrayList<>();
+        List<Incident> recent;
+        synchronized (this) {
+            expire(nanoClock.getAsLong(), resolved);
+            recent = new ArrayList<>(history);
+        }
+        resolved.forEach(this::announceResolved);
+        return recent;
+    }
+
+    public Optional<Incident> getIncident(String id) {
+        synchronized (this) {
+            Active incident = active.get(id);
+            if (incident != null) {
+                return Optional.of(incident.toIncident(Incident.Status.OPEN, null));
+            }
+            return history.stream().filter(resolved -> resolved.getId().equals(id)).findFirst();
+        }
+    }
+
+    public synchronized int getOpenCount() {
+        return active.size();
+    }
+
+    public long getOpenedCount() {
+        return opened.sum();
+    }
+
+    public long getSampleCount() {
+        return samples.sum();
+    }
+
+    private void expire(long now, List<Incident> resolved) {
+        // active is ordered by last sample, not by age, so the lifetime cap needs the full (bounded) scan
+        Iterator<Active> iterator = active.values().iterator();
+        while (iterator.hasNext()) {
+            Active incident = iterator.next();
+            if (now - incident.lastNanos >= windowNanos || now - incident.openedNanos >= maxDurationNanos) {
+                resolved.add(resolve(incident));
+                iterator.remove();
+            }
+        }
+    }
+
+    private Incident resolve(Active incident) {
+        Incident resolved = incident.toIncident(Incident.Status.RESOLVED, LocalDateTime.now());
+        if (historySize > 0) {
+            if (history.size() >= historySize) {
+                history.removeLast();
+            }
+            history.addFirst(resolved);
+        }
+        return resolved;
+    }
+
+    private void announceResolved(Incident incident) {
+        if (incident.getEndpointCount() > 1) {
+            log.info("Incident {} resolved after {} anomalous samples on {} endpoints", incident.getId(),
+                    incident.getAnomalousSamples(), incident.getEndpointCount());
+        }
+        eventStream.publishIncident(incident);
+    }
+
+    /**
+     * How far the sample is from normal in each dimension: the signed response time and error rate z-scores against
+     * the endpoint's own baseline, and how far CPU, memory and network latency exceed their anomaly thresholds
+     * relative to the threshold. The system metrics have no per-endpoint baseline, so within the threshold they
+     * count as normal. Absolute levels would make any two samples look alike.
+     */
+    static double[] spikeVector(ApiMetrics metrics, AnomalyScorer.Thresholds thresholds) {
+        return new double[]{
+                Math.max(-Z_SCALE, Math.min(metrics.getResponseTimeZScore(), Z_SCALE)) / Z_SCALE,
+                Math.max(-Z_SCALE, Math.min(metrics.getErrorRateZScore(), Z_SCALE)) / Z_SCALE,
+                excess(metrics.getCpuUsage(), thresholds.cpuUsage()),
+                excess(metrics.getMemoryUsage(), thresholds.memoryUsage()),
+                excess(metrics.getNetworkLatency(), thresholds.networkLatency())
+        };
+    }
+
+    private static double excess(double value, double threshold) {
+        return threshold > 0 ? Math.min(Math.max(value - threshold, 0) / threshold, 1.0) : 0.0;
+    }
+
+    private static final class Active {
+        final String id;
+        final long openedNanos;
+        final LocalDateTime openedAt = LocalDateTime.now();
+        final double[] centroid = new double[DIMENSIONS];
+        final int[] reasonCounts = new int[AnomalyReason.values().length];
+        final LinkedHashSet<String> endpoints = new LinkedHashSet<>();
+        int endpointCount;
+        long sampleCount;
+        long alerts;
+        long lastNanos;
+        LocalDateTime lastSeenAt;
+        int unionReasons;
+        double peakScore;
+        String analysis;
+
+        Active(String id, long now) {
+            this.id = id;
+            this.openedNanos = now;
+            this.lastNanos = now;
+        }
+
+        double similarity(int reasons, double[] spike) {
+            int dominant = dominantReasons();
+            int union = Integer.bitCount(reasons | dominant);
+            double jaccard = union == 0 ? 1.0 : (double) Integer.bitCount(reasons & dominant) / union;
+            return 0.5 * jaccard + 0.5 * cosine(spike, centroid);
+        }
+
+        private int dominantReasons() {
+            int dominant = 0;
+            for (int i = 0; i < reasonCounts.length; i++) {
+                if (reasonCounts[i] >= sampleCount * DOMINANT_SHARE) {
+                    dominant |= 1 << i;
+                }
+            }
+            return dominant & unionReasons;
+        }
+
+        /**
+         * Returns whether the sample's endpoint is new to the incident.
+         */
+        boolean add(ApiMetrics metrics, int reasons, double[] spike, long now, int maxEndpoints) {
+            sampleCount++;
+            for (int i = 0; i < reasonCounts.length; i++) {
+                if ((reasons & (1 << i)) != 0) {
+                    reasonCounts[i]++;
+                }
+            }
+            unionReasons |= reasons;
+            double alpha = sampleCount == 1 ? 1.0 : Math.max(CENTROID_ALPHA, 1.0 / sampleCount);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                centroid[i] += alpha * (spike[i] - centroid[i]);
+            }
+            peakScore = Math.max(peakScore, metrics.getAnomalyScore());
+            lastNanos = now;
+            lastSeenAt = LocalDateTime.now();
+            if (endpoints.contains(metrics.getEndpoint())) {
+                return false;
+            }
+            if (endpoints.size() < maxEndpoints) {
+                endpoints.add(metrics.getEndpoint());
+                endpointCount++;
+                return true;
+            }
+            // past the cap the count is approximate: an endpoint beyond it is counted on each of its samples
+            endpointCount++;
+            return false;
+        }
+
+        Incident toIncident(Incident.Status status, LocalDateTime resolvedAt) {
+            return Incident.builder()
+                    .id(id)
+                    .status(status)
+                    .openedAt(openedAt)
+                    .lastSeenAt(lastSeenAt)
+                    .resolvedAt(resolvedAt)
+                    .reasons(unionReasons)
+                    .endpoints(List.copyOf(endpoints))
+                    .endpointCount(endpointCount)
+                    .anomalousSamples(sampleCount)
+                    .alerts(alerts)
+                    .peakScore(peakScore)
+                    .analysis(analysis)
+                    .build();
+        }
+    }
+
+    private static double cosine(double[] a, double[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        if (normA == 0 || normB == 0) {
+            return normA == normB ? 1.0 : 0.0;
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+}
@@ -0,0 +1,159 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.storage.TimeSeriesStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Drives {@link MetricsCollectionService} at {@code monitoring.collection.interval}. Ticks fire at a fixed rate but
+ * never overlap: a tick that comes due while the previous one is still running is skipped and counted, and the next
+ * tick covers the whole window since the last one. Endpoints are evaluated on a bounded worker pool, and shutdown
+ * waits for the running tick to finish.
+ */
+@Slf4j
+@Component
+public class MetricsCollectionScheduler implements SmartLifecycle {
+    private final MetricsCollectionService metricsCollectionService;
+    private final PipelineMetrics pipelineMetrics;
+    private final MonitoringEventStream eventStream;
+    private final TimeSeriesStore timeSeriesStore;
+    private final Duration interval;
+    private final int parallelism;
+    private final Duration shutdownTimeout;
+    private final AtomicBoolean collecting = new AtomicBoolean();
+
+    private ScheduledExecutorService ticker;
+    private Scheduler workers;
+    private volatile CompletableFuture<Void> currentTick = CompletableFuture.completedFuture(null);
+    private volatile Disposable currentSubscription;
+    private volatile long lastTickNanos;
+    private volatile boolean running;
+
+    public MetricsCollectionScheduler(MetricsCollectionService metricsCollectionService,
+                                      PipelineMetrics pipelineMetrics,
+                                      MonitoringEventStream eventStream,
+                                      Duration interval,
+                                      int parallelism,
+                                      Duration shutdownTimeout) {
+        this(metricsCollectionService, pipelineMetrics, eventStream, null, interval, parallelism, shutdownTimeout);
+    }
+
+    @Autowired
+    public MetricsCollectionScheduler(MetricsCollectionService metricsCollectionService,
+                                      PipelineMetrics pipelineMetrics,
+                                      MonitoringEventStream eventStream,
+                                      TimeSeriesStore timeSeriesStore,
+                                      @Value("${monitoring.collection.interval:60000}") Duration interval,
+                                      @Value("${monitoring.collection.parallelism:0}") int parallelism,
+                                      @Value("${monitoring.collection.shutdown-timeout:10s}")
+                                      Duration shutdownTimeout) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException("monitoring.collection.interval must be positive");
+        }
+        this.metricsCollectionService = metricsCollectionService;
+        this.pipelineMetrics = pipelineMetrics;
+        this.eventStream = eventStream;
+        this.timeSeriesStore = timeSeriesStore != null && timeSeriesStore.isEnabled() ? timeSeriesStore : null;
+        this.interval = interval;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.shutdownTimeout = shutdownTimeout;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        workers = Schedulers.newParallel("metrics-collection", parallelism, true);
+        ticker = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-collection-tick");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lastTickNanos = System.nanoTime();
+        long intervalNanos = interval.toNanos();
+        ticker.scheduleAtFixedRate(this::tick, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        running = true;
+        log.info("Metrics collection every {} with parallelism {}", interval, parallelism);
+    }
+
+    void tick() {
+        if (!collecting.compareAndSet(false, true)) {
+            pipelineMetrics.recordSkippedTick();
+            log.debug("Skipping collection tick, previous tick still running");
+            return;
+        }
+        long start = System.nanoTime();
+        double windowSeconds = (start - lastTickNanos) / 1e9;
+        lastTickNanos = start;
+        CompletableFuture<Void> tick = new CompletableFuture<>();
+        currentTick = tick;
+        currentSubscription = metricsCollectionService.collect(windowSeconds, parallelism, workers)
+                .doFinally(signal -> {
+                    pipelineMetrics.recordCollectionTick(System.nanoTime() - start, interval.toMillis());
+                    collecting.set(false);
+                    tick.complete(null);
+                })
+                .subscribe(this::publish, e -> log.error("Metrics collection tick failed: ", e));
+    }
+
+    private void publish(ApiMetrics metrics) {
+        eventStream.publishMetrics(metrics);
+        if (timeSeriesStore != null) {
+            timeSeriesStore.append(metrics);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        ticker.shutdown();
+        try {
+            ticker.awaitTermination(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            currentTick.get(shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("Collection tick did not finish within {}, cancelling it", shutdownTimeout);
+            Disposable subscription = currentSubscription;
+            if (subscription != null) {
+                subscription.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.debug("Collection tick failed during shutdown", e);
+        }
+        workers.dispose();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+}
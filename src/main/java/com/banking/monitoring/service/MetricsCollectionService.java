@@ -1,63 +1,190 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.cluster.SampleRouter;
+import com.banking.monitoring.id.IdGenerator;
 import com.banking.monitoring.model.ApiMetrics;
-import lombok.RequiredArgsConstructor;
+import com.banking.monitoring.model.EndpointSnapshot;
+import com.banking.monitoring.model.ForwardedSample;
+import com.banking.monitoring.storage.JournalSource;
+import com.banking.monitoring.storage.StateJournal;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import java.time.LocalDateTime;
-import java.util.UUID;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 @Service
-@RequiredArgsConstructor
 public class MetricsCollectionService {
+    private static final Duration DEFAULT_COLLECTION_INTERVAL = Duration.ofMinutes(1);
+
     private final PredictiveAnalyticsService predictiveAnalyticsService;
+    private final PipelineMetrics pipelineMetrics;
+    private final SampleRouter sampleRouter;
+    private final IdGenerator idGenerator;
+    private final HeavyHitters heavyHitters;
+    private final Duration collectionInterval;
     private final ConcurrentHashMap<String, AtomicInteger> requestCounters;
     private final ConcurrentHashMap<String, AtomicInteger> errorCounters;
     private final ConcurrentHashMap<String, AtomicLong> totalResponseTime;
     private final ConcurrentHashMap<String, Double> cpuUsage;
     private final ConcurrentHashMap<String, Double> memoryUsage;
     private final ConcurrentHashMap<String, Double> networkLatency;
+    private final Object journalLock = new Object();
+    private final List<String> journalExports = new ArrayList<>();
+    private final Map<String, Journaled> journaled = new HashMap<>();
+    // what the last commit emitted, marked journaled once the write-ahead log acknowledges it
+    private final Map<String, Journaled> pendingJournaled = new HashMap<>();
+    private int pendingExports;
+    private volatile boolean journaling;
+
+    @Autowired
+    public MetricsCollectionService(PredictiveAnalyticsService predictiveAnalyticsService,
+                                    PipelineMetrics pipelineMetrics,
+                                    SampleRouter sampleRouter,
+                                    IdGenerator idGenerator,
+                                    HeavyHitters heavyHitters,
+                                    @Value("${monitoring.collection.interval:60000}") Duration collectionInterval) {
+        this(builder(pipelineMetrics)
+                .predictiveAnalyticsService(predictiveAnalyticsService)
+                .sampleRouter(sampleRouter)
+                .idGenerator(idGenerator)
+                .heavyHitters(heavyHitters)
+                .collectionInterval(collectionInterval));
+    }
+
+    private MetricsCollectionService(Builder builder) {
+        if (builder.collectionInterval.isNegative() || builder.collectionInterval.isZero()) {
+            throw new IllegalArgumentException("monitoring.collection.interval must be positive");
+        }
+        this.predictiveAnalyticsService = builder.predictiveAnalyticsService;
+        this.pipelineMetrics = builder.pipelineMetrics;
+        this.sampleRouter = builder.sampleRouter;
+        this.idGenerator = builder.idGenerator;
+        this.heavyHitters = builder.heavyHitters;
+        this.collectionInterval = builder.collectionInterval;
+        this.requestCounters = builder.requestCounters;
+        this.errorCounters = builder.errorCounters;
+        this.totalResponseTime = builder.totalResponseTime;
+        this.cpuUsage = builder.cpuUsage;
+        this.memoryUsage = builder.memoryUsage;
+        this.networkLatency = builder.networkLatency;
+        pipelineMetrics.gaugeEndpoints("collecting", requestCounters, ConcurrentHashMap::size);
+    }
+
+    /**
+     * A service outside the Spring context, for checkpoints, tests and benchmarks: local routing, no predictions,
+     * heavy hitters disabled and a one-minute collection interval unless set otherwise.
+     */
+    public static Builder builder(PipelineMetrics pipelineMetrics) {
+        return new Builder(pipelineMetrics);
+    }
 
     public void recordRequest(String endpoint, long responseTime, boolean isError) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardRequests(endpoint, 1, responseTime, isError ? 1 : 0);
+            return;
+        }
         requestCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0)).incrementAndGet();
         if (isError) {
             errorCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0)).incrementAndGet();
         }
         totalResponseTime.computeIfAbsent(endpoint, k -> new AtomicLong(0)).addAndGet(responseTime);
+        heavyHitters.record(endpoint, 1, isError ? 1 : 0, heavyHitters.isSlow(responseTime) ? 1 : 0);
     }
 
-    @Scheduled(fixedRate = 60000)
-    public void collectMetrics() {
-        Flux.fromIterable(requestCounters.keySet())
-                .flatMap(this::generateMetrics)
-                .flatMap(predictiveAnalyticsService::predictFailure)
-                .doOnNext(this::logMetrics)
-                .subscribe();
+    /**
+     * Records {@code count} requests; for heavy-hitter tracking they count as slow if their mean response time is,
+     * which is exact for a single timing.
+     */
+    public void recordRequests(String endpoint, int count, long responseTimeSum, int errors) {
+        recordRequests(endpoint, count, responseTimeSum, errors, slowRequests(count, responseTimeSum));
     }
 
-    private Mono<ApiMetrics> generateMetrics(String endpoint) {
-        return Mono.fromCallable(() -> {
-            int requests = requestCounters.getOrDefault(endpoint, new AtomicInteger(0)).get();
-            int errors = errorCounters.getOrDefault(endpoint, new AtomicInteger(0)).get();
-            long totalTime = totalResponseTime.getOrDefault(endpoint, new AtomicLong(0)).get();
+    public void recordRequests(String endpoint, int count, long responseTimeSum, int errors, int slowRequests) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardRequests(endpoint, count, responseTimeSum, errors);
+            return;
+        }
+        heavyHitters.record(endpoint, count, errors, slowRequests);
+        addRequests(endpoint, count, responseTimeSum, errors);
+    }
+
+    private int slowRequests(int count, long responseTimeSum) {
+        return count > 0 && heavyHitters.isSlow(responseTimeSum / count) ? count : 0;
+    }
+
+    public HeavyHitters getHeavyHitters() {
+        return heavyHitters;
+    }
+
+    private void addRequests(String endpoint, int count, long responseTimeSum, int errors) {
+        if (count > 0) {
+            requestCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0)).addAndGet(count);
+            totalResponseTime.computeIfAbsent(endpoint, k -> new AtomicLong(0)).addAndGet(responseTimeSum);
+        }
+        if (errors > 0) {
+            errorCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0)).addAndGet(errors);
+        }
+    }
+
+    /**
+     * Runs one collection tick over a window of {@code monitoring.collection.interval} on the calling thread, as far
+     * as the predictions complete synchronously; the tick is never awaited.
+     */
+    public Disposable collectMetrics() {
+        long start = System.nanoTime();
+        long intervalMillis = collectionInterval.toMillis();
+        return collect(intervalMillis / 1000.0, 1, Schedulers.immediate())
+                .doFinally(signal -> pipelineMetrics.recordCollectionTick(System.nanoTime() - start, intervalMillis))
+                .subscribe(null, e -> log.error("Metrics collection tick failed: ", e));
+    }
+
+    public Flux<ApiMetrics> collect(double windowSeconds, int concurrency, Scheduler scheduler) {
+        // StatsD error counters can arrive for an endpoint before, or without, any timed request
+        Set<String> endpoints = new HashSet<>(requestCounters.keySet());
+        endpoints.addAll(errorCounters.keySet());
+        return Flux.fromIterable(endpoints)
+                .flatMap(endpoint -> generateMetrics(endpoint, windowSeconds)
+                        .flatMap(predictiveAnalyticsService::predictFailure)
+                        .doOnNext(this::logMetrics)
+                        .onErrorResume(e -> {
+                            log.debug("Skipping endpoint {} in this collection tick: {}", endpoint, e.getMessage());
+                            return Mono.empty();
+                        })
+                        .subscribeOn(scheduler), concurrency);
+    }
+
+    private Mono<ApiMetrics> generateMetrics(String endpoint, double windowSeconds) {
+        return pipelineMetrics.timed(PipelineMetrics.Stage.COLLECT, Mono.fromCallable(() -> {
+            int requests = requestCounters.getOrDefault(endpoint, new AtomicInteger(0)).getAndSet(0);
+            int errors = errorCounters.getOrDefault(endpoint, new AtomicInteger(0)).getAndSet(0);
+            long totalTime = totalResponseTime.getOrDefault(endpoint, new AtomicLong(0)).getAndSet(0);
             
             double avgResponseTime = requests > 0 ? (double) totalTime / requests : 0;
-            double errorRate = requests > 0 ? (double) errors / requests : 0;
-            double throughput = requests / 60.0;
-
-            requestCounters.getOrDefault(endpoint, new AtomicInteger(0)).set(0);
-            errorCounters.getOrDefault(endpoint, new AtomicInteger(0)).set(0);
-            totalResponseTime.getOrDefault(endpoint, new AtomicLong(0)).set(0);
+            // errors counted apart from their requests (StatsD .errors) can outnumber the timed ones in a window
+            double errorRate = requests > 0 ? Math.min(1.0, (double) errors / requests) : errors > 0 ? 1.0 : 0;
+            double throughput = requests / windowSeconds;
+            long id = idGenerator.next();
 
             return ApiMetrics.builder()
-                    .id(UUID.randomUUID().toString())
+                    .id(id)
                     .endpoint(endpoint)
                     .responseTime(avgResponseTime)
                     .requestCount(requests)
@@ -67,9 +194,9 @@ public class MetricsCollectionService {
                     .cpuUsage(cpuUsage.getOrDefault(endpoint, 0.0))
                     .memoryUsage(memoryUsage.getOrDefault(endpoint, 0.0))
                     .networkLatency(networkLatency.getOrDefault(endpoint, 0.0))
-                    .timestamp(LocalDateTime.now())
+                    .timestampMillis(IdGenerator.timestampOf(id))
                     .build();
-        });
+        }));
     }
 
     private void logMetrics(ApiMetrics metrics) {
@@ -82,10 +209,330 @@ public class MetricsCollectionService {
     }
 
     public void updateSystemMetrics(String endpoint, double cpu, double memory, double latency) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardSystemMetrics(endpoint, cpu, memory, latency);
+            return;
+        }
         cpuUsage.put(endpoint, cpu);
         memoryUsage.put(endpoint, memory);
         networkLatency.put(endpoint, latency);
         log.debug("Updated system metrics for endpoint {}: CPU={}%, Memory={}%, Latency={}ms",
                 endpoint, cpu, memory, latency);
     }
-} 
\ No newline at end of file
+
+    public void updateCpuUsage(String endpoint, double cpu) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardSystemMetrics(endpoint, cpu, Double.NaN, Double.NaN);
+            return;
+        }
+        cpuUsage.put(endpoint, cpu);
+    }
+
+    public void updateMemoryUsage(String endpoint, double memory) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardSystemMetrics(endpoint, Double.NaN, memory, Double.NaN);
+            return;
+        }
+        memoryUsage.put(endpoint, memory);
+    }
+
+    public void updateNetworkLatency(String endpoint, double latency) {
+        if (!sampleRouter.isLocal(endpoint)) {
+            sampleRouter.forwardSystemMetrics(endpoint, Double.NaN, Double.NaN, latency);
+            return;
+        }
+        networkLatency.put(endpoint, latency);
+    }
+
+    /**
+     * Applies samples forwarded by another node. They are collected here even if this node's view says otherwise,
+     * so two nodes with briefly different views never bounce samples between each other.
+     */
+    public void applyForwarded(ForwardedSample sample) {
+        String endpoint = sample.getEndpoint();
+        heavyHitters.record(endpoint, sample.getRequests(), sample.getErrors(),
+                slowRequests(sample.getRequests(), sample.getResponseTimeSum()));
+        addRequests(endpoint, sample.getRequests(), sample.getResponseTimeSum(), sample.getErrors());
+        if (sample.getCpuUsage() != null) {
+            cpuUsage.put(endpoint, sample.getCpuUsage());
+        }
+        if (sample.getMemoryUsage() != null) {
+            memoryUsage.put(endpoint, sample.getMemoryUsage());
+        }
+        if (sample.getNetworkLatency() != null) {
+            networkLatency.put(endpoint, sample.getNetworkLatency());
+        }
+    }
+
+    public Set<String> getEndpoints() {
+        Set<String> endpoints = new HashSet<>(requestCounters.keySet());
+        endpoints.addAll(cpuUsage.keySet());
+        endpoints.addAll(memoryUsage.keySet());
+        endpoints.addAll(networkLatency.keySet());
+        return endpoints;
+    }
+
+    /**
+     * Moves the endpoint's current window and system metrics into {@code snapshot} and forgets them locally.
+     */
+    public void export(String endpoint, EndpointSnapshot snapshot) {
+        synchronized (journalLock) {
+            remove(endpoint, snapshot);
+            if (journaling) {
+                journalExports.add(endpoint);
+                journaled.remove(endpoint);
+                pendingJournaled.remove(endpoint);
+            }
+        }
+    }
+
+    private void remove(String endpoint, EndpointSnapshot snapshot) {
+        AtomicInteger requests = requestCounters.remove(endpoint);
+        AtomicInteger errors = errorCounters.remove(endpoint);
+        AtomicLong responseTime = totalResponseTime.remove(endpoint);
+        snapshot.setRequests(requests != null ? requests.get() : 0);
+        snapshot.setErrors(errors != null ? errors.get() : 0);
+        snapshot.setResponseTimeSum(responseTime != null ? responseTime.get() : 0);
+        snapshot.setCpuUsage(cpuUsage.remove(endpoint));
+        snapshot.setMemoryUsage(memoryUsage.remove(endpoint));
+        snapshot.setNetworkLatency(networkLatency.remove(endpoint));
+    }
+
+    public void restore(EndpointSnapshot snapshot) {
+        String endpoint = snapshot.getEndpoint();
+        addRequests(endpoint, snapshot.getRequests(), snapshot.getResponseTimeSum(), snapshot.getErrors());
+        if (snapshot.getCpuUsage() != null) {
+            cpuUsage.putIfAbsent(endpoint, snapshot.getCpuUsage());
+        }
+        if (snapshot.getMemoryUsage() != null) {
+            memoryUsage.putIfAbsent(endpoint, snapshot.getMemoryUsage());
+        }
+        if (snapshot.getNetworkLatency() != null) {
+            networkLatency.putIfAbsent(endpoint, snapshot.getNetworkLatency());
+        }
+    }
+
+    /**
+     * Starts tracking collection state for the write-ahead log and returns the source its commits read it from: the
+     * exports since the previous acknowledged commit, then the totals and system metrics of every endpoint that
+     * changed since then. Nothing is tracked on the recording path; each commit compares the live values with the
+     * journaled ones.
+     */
+    public JournalSource journalSource() {
+        synchronized (journalLock) {
+            journaling = true;
+        }
+        return new JournalSource() {
+            @Override
+            public void journal(StateJournal journal, boolean full) {
+                MetricsCollectionService.this.journal(journal, full);
+            }
+
+            @Override
+            public void committed() {
+                acknowledgeJournal();
+            }
+        };
+    }
+
+    /**
+     * Emits the records that rebuild the current totals and system metrics.
+     */
+    public void journalState(StateJournal journal) {
+        journal(journal, true);
+    }
+
+    private void journal(StateJournal journal, boolean full) {
+        synchronized (journalLock) {
+            journalExports.forEach(journal::countersExported);
+            pendingExports = journalExports.size();
+            pendingJournaled.clear();
+            for (String endpoint : getEndpoints()) {
+                Journaled last = new Journaled(full ? null : journaled.get(endpoint));
+                AtomicInteger requestCounter = requestCounters.get(endpoint);
+                AtomicInteger errorCounter = errorCounters.get(endpoint);
+                AtomicLong responseTimeCounter = totalResponseTime.get(endpoint);
+                int requests = requestCounter != null ? requestCounter.get() : 0;
+                int errors = errorCounter != null ? errorCounter.get() : 0;
+                long responseTimeSum = responseTimeCounter != null ? responseTimeCounter.get() : 0;
+                // a counter replaced after an export is journaled even if its values match the old one's
+                if (requestCounter != last.requestCounter || requests != last.requests || errors != last.errors
+                        || responseTimeSum != last.responseTimeSum) {
+                    journal.counters(endpoint, requests, responseTimeSum, errors);
+                    last.counters(requestCounter, requests, responseTimeSum, errors);
+                    pendingJournaled.put(endpoint, last);
+                }
+                Double cpu = cpuUsage.get(endpoint);
+                Double memory = memoryUsage.get(endpoint);
+                Double latency = networkLatency.get(endpoint);
+                if (!Objects.equals(cpu, last.cpu) || !Objects.equals(memory, last.memory)
+                        || !Objects.equals(latency, last.latency)) {
+                    journal.systemMetrics(endpoint, valueOrNaN(cpu), valueOrNaN(memory), valueOrNaN(latency));
+                    last.cpu = cpu;
+                    last.memory = memory;
+                    last.latency = latency;
+                    pendingJournaled.put(endpoint, last);
+                }
+            }
+        }
+    }
+
+    private void acknowledgeJournal() {
+        synchronized (journalLock) {
+            journalExports.subList(0, pendingExports).clear();
+            pendingExports = 0;
+            journaled.putAll(pendingJournaled);
+            pendingJournaled.clear();
+        }
+    }
+
+    private static double valueOrNaN(Double value) {
+        return value != null ? value : Double.NaN;
+    }
+
+    /**
+     * Replays a {@link StateJournal#counters} record; the values count as journaled.
+     */
+    void applyCounters(String endpoint, int requests, long responseTimeSum, int errors) {
+        AtomicInteger requestCounter = requestCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0));
+        requestCounter.set(requests);
+        errorCounters.computeIfAbsent(endpoint, k -> new AtomicInteger(0)).set(errors);
+        totalResponseTime.computeIfAbsent(endpoint, k -> new AtomicLong(0)).set(responseTimeSum);
+        synchronized (journalLock) {
+            journaled.computeIfAbsent(endpoint, k -> new Journaled(null))
+                    .counters(requestCounter, requests, responseTimeSum, errors);
+        }
+    }
+
+    /**
+     * Replays a {@link StateJournal#systemMetrics} record; the values count as journaled.
+     */
+    void applySystemMetrics(String endpoint, double cpu, double memory, double latency) {
+        if (!Double.isNaN(cpu)) {
+            cpuUsage.put(endpoint, cpu);
+        }
+        if (!Double.isNaN(memory)) {
+            memoryUsage.put(endpoint, memory);
+        }
+        if (!Double.isNaN(latency)) {
+            networkLatency.put(endpoint, latency);
+        }
+        synchronized (journalLock) {
+            Journaled last = journaled.computeIfAbsent(endpoint, k -> new Journaled(null));
+            last.cpu = cpuUsage.get(endpoint);
+            last.memory = memoryUsage.get(endpoint);
+            last.latency = networkLatency.get(endpoint);
+        }
+    }
+
+    /**
+     * Replays a {@link StateJournal#countersExported} record.
+     */
+    void applyCountersExported(String endpoint) {
+        synchronized (journalLock) {
+            remove(endpoint, new EndpointSnapshot());
+            journaled.remove(endpoint);
+        }
+    }
+
+    public static final class Builder {
+        private final PipelineMetrics pipelineMetrics;
+        private PredictiveAnalyticsService predictiveAnalyticsService;
+        private SampleRouter sampleRouter = SampleRouter.LOCAL;
+        private IdGenerator idGenerator = IdGenerator.standalone();
+        private HeavyHitters heavyHitters = HeavyHitters.disabled();
+        private Duration collectionInterval = DEFAULT_COLLECTION_INTERVAL;
+        private ConcurrentHashMap<String, AtomicInteger> requestCounters = new ConcurrentHashMap<>();
+        private ConcurrentHashMap<String, AtomicInteger> errorCounters = new ConcurrentHashMap<>();
+        private ConcurrentHashMap<String, AtomicLong> totalResponseTime = new ConcurrentHashMap<>();
+        private ConcurrentHashMap<String, Double> cpuUsage = new ConcurrentHashMap<>();
+        private ConcurrentHashMap<String, Double> memoryUsage = new ConcurrentHashMap<>();
+        private ConcurrentHashMap<String, Double> networkLatency = new ConcurrentHashMap<>();
+
+        private Builder(PipelineMetrics pipelineMetrics) {
+            this.pipelineMetrics = pipelineMetrics;
+        }
+
+        public Builder predictiveAnalyticsService(PredictiveAnalyticsService predictiveAnalyticsService) {
+            this.predictiveAnalyticsService = predictiveAnalyticsService;
+            return this;
+        }
+
+        public Builder sampleRouter(SampleRouter sampleRouter) {
+            this.sampleRouter = sampleRouter;
+            return this;
+        }
+
+        public Builder idGenerator(IdGenerator idGenerator) {
+            this.idGenerator = idGenerator;
+            return this;
+        }
+
+        public Builder heavyHitters(HeavyHitters heavyHitters) {
+            this.heavyHitters = heavyHitters;
+            return this;
+        }
+
+        public Builder collectionInterval(Duration collectionInterval) {
+            this.collectionInterval = collectionInterval;
+            return this;
+        }
+
+        /**
+         * Collects the window totals into these maps, so a test can inspect them.
+         */
+        public Builder counters(ConcurrentHashMap<String, AtomicInteger> requestCounters,
+                                ConcurrentHashMap<String, AtomicInteger> errorCounters,
+                                ConcurrentHashMap<String, AtomicLong> totalResponseTime) {
+            this.requestCounters = requestCounters;
+            this.errorCounters = errorCounters;
+            this.totalResponseTime = totalResponseTime;
+            return this;
+        }
+
+        /**
+         * Keeps the latest system metrics in these maps, so a test can inspect them.
+         */
+        public Builder systemMetrics(ConcurrentHashMap<String, Double> cpuUsage,
+                                     ConcurrentHashMap<String, Double> memoryUsage,
+                                     ConcurrentHashMap<String, Double> networkLatency) {
+            this.cpuUsage = cpuUsage;
+            this.memoryUsage = memoryUsage;
+            this.networkLatency = networkLatency;
+            return this;
+        }
+
+        public MetricsCollectionService build() {
+            return new MetricsCollectionService(this);
+        }
+    }
+
+    /**
+     * The values of an endpoint as of the last write-ahead log commit.
+     */
+    private static final class Journaled {
+        private AtomicInteger requestCounter;
+        private int requests;
+        private long responseTimeSum;
+        private int errors;
+        private Double cpu;
+        private Double memory;
+        private Double latency;
+
+        private Journaled(Journaled previous) {
+            if (previous != null) {
+                counters(previous.requestCounter, previous.requests, previous.responseTimeSum, previous.errors);
+                cpu = previous.cpu;
+                memory = previous.memory;
+                latency = previous.latency;
+            }
+        }
+
+        private void counters(AtomicInteger requestCounter, int requests, long responseTimeSum, int errors) {
+            this.requestCounter = requestCounter;
+            this.requests = requests;
+            this.responseTimeSum = responseTimeSum;
+            this.errors = errors;
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiMetrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Streaming per-endpoint summary of an arbitrarily long sequence of samples, rendered into a prompt of bounded size.
+ * Each endpoint keeps counts, sums, a log-bucketed response time histogram (percentiles are within 10% of
+ * the true value) and the {@code topAnomalies} highest-scoring anomalies, so memory depends only on
+ * {@code maxEndpoints} and not on the number of samples. Endpoints beyond {@code maxEndpoints} are folded into one
+ * "other endpoints" summary. Not thread-safe.
+ */
+final class MetricsDigest {
+    static final String OTHER_ENDPOINTS = "(other endpoints)";
+    static final int CHARS_PER_TOKEN = 4;
+    private static final double GROWTH = 1.1;
+    private static final double LOG_GROWTH = Math.log(GROWTH);
+    private static final int BUCKETS = 160;
+    private static final int OMISSION_RESERVE = 80;
+    private static final Comparator<EndpointSummary> PRIORITY =
+            Comparator.comparingLong((EndpointSummary summary) -> summary.anomalies)
+                    .thenComparingDouble(EndpointSummary::getErrorRate)
+                    .thenComparingDouble(summary -> summary.percentile(0.95))
+                    .reversed()
+                    .thenComparing(summary -> summary.endpoint);
+
+    private final int maxEndpoints;
+    private final int topAnomalies;
+    private final Map<String, EndpointSummary> endpoints = new HashMap<>();
+    private EndpointSummary other;
+    private long samples;
+
+    MetricsDigest(int maxEndpoints, int topAnomalies) {
+        if (maxEndpoints < 1 || topAnomalies < 0) {
+            throw new IllegalArgumentException("maxEndpoints must be positive and topAnomalies non-negative");
+        }
+        this.maxEndpoints = maxEndpoints;
+        this.topAnomalies = topAnomalies;
+    }
+
+    MetricsDigest add(ApiMetrics metrics) {
+        samples++;
+        summaryFor(metrics.getEndpoint()).add(metrics, topAnomalies);
+        return this;
+    }
+
+    private EndpointSummary summaryFor(String endpoint) {
+        EndpointSummary summary = endpoints.get(endpoint);
+        if (summary != null) {
+            return summary;
+        }
+        if (endpoints.size() < maxEndpoints) {
+            summary = new EndpointSummary(endpoint);
+            endpoints.put(endpoint, summary);
+            return summary;
+        }
+        if (other == null) {
+            other = new EndpointSummary(OTHER_ENDPOINTS);
+        }
+        return other;
+    }
+
+    long getSampleCount() {
+        return samples;
+    }
+
+    int getEndpointCount() {
+        return endpoints.size();
+    }
+
+    EndpointSummary get(String endpoint) {
+        return OTHER_ENDPOINTS.equals(endpoint) ? other : endpoints.get(endpoint);
+    }
+
+    /**
+     * Writes the summaries, most troubled endpoints first, between {@code header} and {@code footer} while the
+     * estimated size stays within {@code tokenBudget}. Endpoints that do not fit are counted in a closing line.
+     */
+    String toPrompt(String header, String footer, int tokenBudget) {
+        int budgetChars = Math.max(0,
+                tokenBudget * CHARS_PER_TOKEN - header.length() - footer.length() - OMISSION_RESERVE);
+        List<EndpointSummary> ordered = new ArrayList<>(endpoints.values());
+        ordered.sort(PRIORITY);
+        if (other != null) {
+            ordered.add(other);
+        }
+        StringBuilder body = new StringBuilder(Math.min(budgetChars, 64 * 1024));
+        body.append(String.format(Locale.ROOT, "%d requests across %d endpoints.%n%n", samples,
+                endpoints.size() + (other != null ? 1 : 0)));
+        int written = 0;
+        long omittedRequests = 0;
+        StringBuilder block = new StringBuilder();
+        for (EndpointSummary summary : ordered) {
+            block.setLength(0);
+            summary.appendTo(block);
+            if (body.length() + block.length() > budgetChars) {
+                omittedRequests += summary.count;
+                continue;
+            }
+            body.append(block);
+            written++;
+        }
+        if (written < ordered.size()) {
+            body.append(String.format(Locale.ROOT, "%d further endpoints (%d requests) omitted for length.%n%n",
+                    ordered.size() - written, omittedRequests));
+        }
+        return header + body + footer;
+    }
+
+    static final class EndpointSummary {
+        private static final Comparator<ApiMetrics> BY_SCORE = Comparator.comparingDouble(ApiMetrics::getAnomalyScore);
+
+        final String endpoint;
+        private final int[] histogram = new int[BUCKETS];
+        private PriorityQueue<ApiMetrics> worst;
+        long count;
+        long anomalies;
+        private double errors;
+        private double responseTimeSum;
+        private double maxResponseTime;
+        private double cpuSum;
+        private double memorySum;
+        private double latencySum;
+
+        EndpointSummary(String endpoint) {
+            this.endpoint = endpoint;
+        }
+
+        void add(ApiMetrics metrics, int topAnomalies) {
+            double responseTime = Math.max(0, metrics.getResponseTime());
+            count++;
+            errors += metrics.getErrorRate();
+            responseTimeSum += responseTime;
+            maxResponseTime = Math.max(maxResponseTime, responseTime);
+            cpuSum += metrics.getCpuUsage();
+            memorySum += metrics.getMemoryUsage();
+            latencySum += metrics.getNetworkLatency();
+            histogram[bucket(responseTime)]++;
+            if (metrics.isAnomaly()) {
+                anomalies++;
+                if (topAnomalies > 0) {
+                    if (worst == null) {
+                        worst = new PriorityQueue<>(topAnomalies + 1, BY_SCORE);
+                    }
+                    if (worst.size() < topAnomalies) {
+                        worst.add(metrics);
+                    } else if (metrics.getAnomalyScore() > worst.peek().getAnomalyScore()) {
+                        worst.poll();
+                        worst.add(metrics);
+                    }
+                }
+            }
+        }
+
+        double getErrorRate() {
+            return count == 0 ? 0 : errors / count;
+        }
+
+        double getMeanResponseTime() {
+            return count == 0 ? 0 : responseTimeSum / count;
+        }
+
+        /**
+         * Upper bound of the histogram bucket holding the {@code quantile}, capped at the largest value seen.
+         */
+        double percentile(double quantile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += histogram[i];
+                if (seen >= rank) {
+                    return Math.min(Math.pow(GROWTH, i), maxResponseTime);
+                }
+            }
+            return maxResponseTime;
+        }
+
+        List<ApiMetrics> getTopAnomalies() {
+            if (worst == null) {
+                return List.of();
+            }
+            List<ApiMetrics> top = new ArrayList<>(worst);
+            top.sort(BY_SCORE.reversed());
+            return top;
+        }
+
+        void appendTo(StringBuilder text) {
+            text.append(String.format(Locale.ROOT, """
+                    Endpoint: %s
+                    - Requests: %d (%d anomalous)
+                    - Response Time: mean %.1f ms, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms
+                    - Error Rate: %.2f%%
+                    - CPU Usage: %.1f%%, Memory Usage: %.1f%%, Network Latency: %.1f ms (means)
+                    """,
+                    endpoint, count, anomalies, getMeanResponseTime(), percentile(0.5), percentile(0.95),
+                    percentile(0.99), maxResponseTime, getErrorRate() * 100, cpuSum / count, memorySum / count,
+                    latencySum / count));
+            for (ApiMetrics anomaly : getTopAnomalies()) {
+                String reason = anomaly.getAnomalyReason();
+                text.append(String.format(Locale.ROOT, "- Anomaly (score %.2f): %.1f ms%s%n",
+                        anomaly.getAnomalyScore(), anomaly.getResponseTime(),
+                        reason != null ? ", " + reason : ""));
+            }
+            text.append(System.lineSeparator());
+        }
+
+        private static int bucket(double value) {
+            if (value <= 1) {
+                return 0;
+            }
+            return Math.min(BUCKETS - 1, (int) Math.ceil(Math.log(value) / LOG_GROWTH));
+        }
+    }
+}
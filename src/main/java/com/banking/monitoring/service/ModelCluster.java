@@ -0,0 +1,119 @@
+package com.banking.monitoring.service;
+
+import weka.classifiers.functions.MultilayerPerceptron;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A group of endpoints with similar metric profiles that share one failure model. Training rows (already normalized
+ * per endpoint, class label last) are kept in a reservoir of at most {@code capacity} rows, so the cost of
+ * retraining is bounded no matter how many endpoints join. The model is rebuilt when it is missing or when half the
+ * reservoir has been replaced since the last build. The centroid is the mean profile of the current members and is
+ * recomputed whenever one joins, leaves or is retrained with a new profile.
+ */
+final class ModelCluster {
+    private final int id;
+    private final double[] centroid;
+    private final int capacity;
+    private final List<double[]> rows;
+    private final Map<String, double[]> members = new HashMap<>();
+    private long seen;
+    private int pending;
+    private volatile MultilayerPerceptron model;
+
+    ModelCluster(int id, String endpoint, double[] profile, int capacity) {
+        this.id = id;
+        this.centroid = profile.clone();
+        this.capacity = capacity;
+        this.rows = new ArrayList<>(Math.min(capacity, 256));
+        this.members.put(endpoint, profile.clone());
+    }
+
+    int getId() {
+        return id;
+    }
+
+    synchronized double distance(double[] profile) {
+        double sum = 0;
+        for (int i = 0; i < centroid.length; i++) {
+            double d = profile[i] - centroid[i];
+            sum += d * d;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Adds the endpoint with profile {@code profile}, or updates the profile of a member, and recomputes the centroid.
+     */
+    synchronized void join(String endpoint, double[] profile) {
+        members.put(endpoint, profile.clone());
+        recenter();
+    }
+
+    /**
+     * Removes the endpoint and recomputes the centroid from the remaining members. Returns true once the cluster
+     * has no members left, so the caller can drop it.
+     */
+    synchronized boolean leave(String endpoint) {
+        if (members.remove(endpoint) != null && !members.isEmpty()) {
+            recenter();
+        }
+        return members.isEmpty();
+    }
+
+    private void recenter() {
+        Arrays.fill(centroid, 0);
+        for (double[] profile : members.values()) {
+            for (int i = 0; i < centroid.length; i++) {
+                centroid[i] += profile[i] / members.size();
+            }
+        }
+    }
+
+    synchronized int getMembers() {
+        return members.size();
+    }
+
+    /**
+     * Reservoir-samples {@code newRows} into the cluster's training set and returns a copy of it if the model should
+     * be rebuilt, otherwise null.
+     */
+    synchronized List<double[]> addRows(List<double[]> newRows) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (double[] row : newRows) {
+            seen++;
+            if (rows.size() < capacity) {
+                rows.add(row);
+                pending++;
+            } else {
+                long slot = random.nextLong(seen);
+                if (slot < capacity) {
+                    rows.set((int) slot, row);
+                    pending++;
+                }
+            }
+        }
+        if (model != null && pending < rows.size() / 2) {
+            return null;
+        }
+        pending = 0;
+        return new ArrayList<>(rows);
+    }
+
+    MultilayerPerceptron getModel() {
+        return model;
+    }
+
+    void setModel(MultilayerPerceptron model) {
+        this.model = model;
+    }
+
+    synchronized int size() {
+        return rows.size();
+    }
+}
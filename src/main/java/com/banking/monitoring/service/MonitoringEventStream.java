@@ -0,0 +1,283 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.Incident;
+import com.banking.monitoring.model.MonitoringEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fan-out of collected metrics, alert transitions and incident updates to streaming clients. Publishing never blocks:
+ * every subscriber owns a bounded buffer holding at most one pending event per (type, endpoint), so a slow client only
+ * ever sees the latest value for an endpoint and can never hold up the pipeline or other clients. Alert transitions are
+ * the exception: they are kept per (alert, status), so a resolve never replaces the open a client has not seen yet.
+ * Incident updates are kept per (incident, status) and reach a client filtering on any of the incident's endpoints.
+ * Endpoint, type and severity filters are applied before an event is buffered.
+ */
+@Slf4j
+@Service
+public class MonitoringEventStream {
+    private final int bufferSize;
+    private final int maxSubscribers;
+    private final Duration heartbeat;
+    private final Scheduler drainScheduler;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Set<Subscriber> allEndpoints = ConcurrentHashMap.newKeySet();
+    private final ConcurrentHashMap<String, Set<Subscriber>> byEndpoint = new ConcurrentHashMap<>();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder conflated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    public MonitoringEventStream(MeterRegistry meterRegistry,
+                                 @Value("${monitoring.stream.buffer-size:256}") int bufferSize,
+                                 @Value("${monitoring.stream.max-subscribers:10000}") int maxSubscribers,
+                                 @Value("${monitoring.stream.heartbeat:15s}") Duration heartbeat) {
+        this.bufferSize = bufferSize;
+        this.maxSubscribers = maxSubscribers;
+        this.heartbeat = heartbeat;
+        this.drainScheduler = Schedulers.parallel();
+        Gauge.builder("monitoring.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Connected streaming clients")
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.stream.events", published, LongAdder::sum)
+                .tag("result", "published").register(meterRegistry);
+        FunctionCounter.builder("monitoring.stream.events", conflated, LongAdder::sum)
+                .tag("result", "conflated").register(meterRegistry);
+        FunctionCounter.builder("monitoring.stream.events", dropped, LongAdder::sum)
+                .tag("result", "dropped").register(meterRegistry);
+    }
+
+    public void publishMetrics(ApiMetrics metrics) {
+        if (subscribers.get() > 0) {
+            dispatch(MonitoringEvent.metrics(sequence.incrementAndGet(), metrics));
+        }
+    }
+
+    public void publishAlert(Alert alert) {
+        if (subscribers.get() > 0) {
+            dispatch(MonitoringEvent.alert(sequence.incrementAndGet(), alert));
+        }
+    }
+
+    public void publishIncident(Incident incident) {
+        if (subscribers.get() > 0) {
+            dispatch(MonitoringEvent.incident(sequence.incrementAndGet(), incident));
+        }
+    }
+
+    private void dispatch(MonitoringEvent event) {
+        published.increment();
+        for (Subscriber subscriber : allEndpoints) {
+            subscriber.offer(event);
+        }
+        if (event.getIncident() != null) {
+            dispatchIncident(event);
+            return;
+        }
+        Set<Subscriber> endpointSubscribers = byEndpoint.get(event.getEndpoint());
+        if (endpointSubscribers != null) {
+            for (Subscriber subscriber : endpointSubscribers) {
+                subscriber.offer(event);
+            }
+        }
+    }
+
+    /**
+     * Offers the incident once to every subscriber filtering on at least one of its endpoints.
+     */
+    private void dispatchIncident(MonitoringEvent event) {
+        Set<Subscriber> matched = new HashSet<>();
+        for (String endpoint : event.getIncident().getEndpoints()) {
+            Set<Subscriber> endpointSubscribers = byEndpoint.get(endpoint);
+            if (endpointSubscribers != null) {
+                matched.addAll(endpointSubscribers);
+            }
+        }
+        for (Subscriber subscriber : matched) {
+            subscriber.offer(event);
+        }
+    }
+
+    public Flux<MonitoringEvent> subscribe(Set<MonitoringEvent.Type> types,
+                                           Set<String> endpoints,
+                                           MonitoringEvent.Severity minSeverity) {
+        Set<MonitoringEvent.Type> acceptedTypes = types == null || types.isEmpty()
+                ? EnumSet.allOf(MonitoringEvent.Type.class) : EnumSet.copyOf(types);
+        Set<String> acceptedEndpoints = endpoints == null || endpoints.isEmpty() ? null : Set.copyOf(endpoints);
+        MonitoringEvent.Severity severity = minSeverity != null ? minSeverity : MonitoringEvent.Severity.INFO;
+
+        return Flux.create(sink -> {
+            if (subscribers.incrementAndGet() > maxSubscribers) {
+                subscribers.decrementAndGet();
+                sink.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                        "Too many stream subscribers"));
+                return;
+            }
+            Subscriber subscriber = new Subscriber(sink, acceptedTypes, severity);
+            register(subscriber, acceptedEndpoints);
+            sink.onRequest(n -> subscriber.schedule());
+            sink.onDispose(() -> {
+                unregister(subscriber, acceptedEndpoints);
+                subscribers.decrementAndGet();
+            });
+        }, FluxSink.OverflowStrategy.ERROR);
+    }
+
+    public Flux<ServerSentEvent<MonitoringEvent>> serverSentEvents(Set<MonitoringEvent.Type> types,
+                                                                   Set<String> endpoints,
+                                                                   MonitoringEvent.Severity minSeverity) {
+        Flux<ServerSentEvent<MonitoringEvent>> events = subscribe(types, endpoints, minSeverity)
+                .map(event -> ServerSentEvent.builder(event)
+                        .id(Long.toString(event.getSequence()))
+                        .event(event.getType().name().toLowerCase(Locale.ROOT))
+                        .build());
+        Flux<ServerSentEvent<MonitoringEvent>> keepAlive = Flux.interval(heartbeat)
+                .map(tick -> ServerSentEvent.<MonitoringEvent>builder().comment("keepalive").build())
+                .onBackpressureDrop();
+        return Flux.merge(events, keepAlive);
+    }
+
+    private void register(Subscriber subscriber, Set<String> endpoints) {
+        if (endpoints == null) {
+            allEndpoints.add(subscriber);
+            return;
+        }
+        for (String endpoint : endpoints) {
+            byEndpoint.compute(endpoint, (k, set) -> {
+                Set<Subscriber> target = set != null ? set : ConcurrentHashMap.newKeySet();
+                target.add(subscriber);
+                return target;
+            });
+        }
+    }
+
+    private void unregister(Subscriber subscriber, Set<String> endpoints) {
+        if (endpoints == null) {
+            allEndpoints.remove(subscriber);
+            return;
+        }
+        for (String endpoint : endpoints) {
+            byEndpoint.computeIfPresent(endpoint, (k, set) -> {
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.get();
+    }
+
+    public long getConflatedCount() {
+        return conflated.sum();
+    }
+
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    private record Key(MonitoringEvent.Type type, String subject, Enum<?> status) {
+
+        static Key of(MonitoringEvent event) {
+            Alert alert = event.getAlert();
+            if (alert != null && alert.getId() != null) {
+                return new Key(event.getType(), alert.getId(), alert.getStatus());
+            }
+            Incident incident = event.getIncident();
+            if (incident != null) {
+                return new Key(event.getType(), incident.getId(), incident.getStatus());
+            }
+            return new Key(event.getType(), event.getEndpoint(), null);
+        }
+    }
+
+    private final class Subscriber {
+        private final FluxSink<MonitoringEvent> sink;
+        private final Set<MonitoringEvent.Type> types;
+        private final MonitoringEvent.Severity minSeverity;
+        private final LinkedHashMap<Key, MonitoringEvent> pending = new LinkedHashMap<>();
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private Subscriber(FluxSink<MonitoringEvent> sink,
+                           Set<MonitoringEvent.Type> types,
+                           MonitoringEvent.Severity minSeverity) {
+            this.sink = sink;
+            this.types = types;
+            this.minSeverity = minSeverity;
+        }
+
+        void offer(MonitoringEvent event) {
+            if (!types.contains(event.getType()) || event.getSeverity().compareTo(minSeverity) < 0) {
+                return;
+            }
+            Key key = Key.of(event);
+            synchronized (pending) {
+                if (pending.put(key, event) != null) {
+                    conflated.increment();
+                } else if (pending.size() > bufferSize) {
+                    Iterator<Key> eldest = pending.keySet().iterator();
+                    eldest.next();
+                    eldest.remove();
+                    dropped.increment();
+                }
+            }
+            schedule();
+        }
+
+        void schedule() {
+            if (wip.getAndIncrement() == 0) {
+                try {
+                    drainScheduler.schedule(this::drain);
+                } catch (RejectedExecutionException e) {
+                    wip.set(0);
+                }
+            }
+        }
+
+        private void drain() {
+            int missed = 1;
+            do {
+                while (!sink.isCancelled() && sink.requestedFromDownstream() > 0) {
+                    MonitoringEvent next;
+                    synchronized (pending) {
+                        Iterator<Map.Entry<Key, MonitoringEvent>> head = pending.entrySet().iterator();
+                        if (!head.hasNext()) {
+                            break;
+                        }
+                        next = head.next().getValue();
+                        head.remove();
+                    }
+                    sink.next(next);
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.banking.monitoring.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Self-instrumentation of the monitoring pipeline. All meters are created up front so the hot path only pays for a
+ * {@code System.nanoTime()} pair, an in-flight increment/decrement and a lock-free timer update.
+ */
+@Component
+public class PipelineMetrics {
+    public enum Stage {
+        PROCESS("process"),
+        DETECT("detect"),
+        PREDICT("predict"),
+        AI_ANALYSIS("ai-analysis"),
+        AI_RECOMMENDATIONS("ai-recommendations"),
+        COLLECT("collect");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Stage, AtomicInteger> inFlight = new EnumMap<>(Stage.class);
+    private final Timer collectionTick;
+    private final Counter collectionOverruns;
+    private final Counter collectionSkipped;
+    private final Counter llmSuccess;
+    private final Counter llmFailure;
+    private final Counter llmCancelled;
+    private final Timer llmFirstToken;
+    private final Counter promptTokens;
+    private final Counter completionTokens;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("monitoring.pipeline.stage")
+                    .description("Latency of a monitoring pipeline stage")
+                    .tag("stage", stage.tag)
+                    .register(registry));
+            AtomicInteger counter = new AtomicInteger();
+            inFlight.put(stage, counter);
+            Gauge.builder("monitoring.pipeline.in-flight", counter, AtomicInteger::get)
+                    .tag("stage", stage.tag)
+                    .register(registry);
+        }
+        this.collectionTick = Timer.builder("monitoring.collection.tick")
+                .description("Duration of a metrics collection tick")
+                .register(registry);
+        this.collectionOverruns = Counter.builder("monitoring.collection.overruns")
+                .description("Collection ticks that took longer than the collection interval")
+                .register(registry);
+        this.collectionSkipped = Counter.builder("monitoring.collection.skipped")
+                .description("Collection ticks skipped because the previous tick was still running")
+                .register(registry);
+        this.llmSuccess = Counter.builder("monitoring.llm.calls").tag("outcome", "success").register(registry);
+        this.llmFailure = Counter.builder("monitoring.llm.calls").tag("outcome", "error").register(registry);
+        this.llmCancelled = Counter.builder("monitoring.llm.calls").tag("outcome", "cancelled").register(registry);
+        this.llmFirstToken = Timer.builder("monitoring.llm.first-token")
+                .description("Time from sending a streamed completion request to its first content delta")
+                .register(registry);
+        this.promptTokens = Counter.builder("monitoring.llm.tokens").tag("type", "prompt").register(registry);
+        this.completionTokens = Counter.builder("monitoring.llm.tokens").tag("type", "completion").register(registry);
+    }
+
+    public static PipelineMetrics noop() {
+        return new PipelineMetrics(new CompositeMeterRegistry());
+    }
+
+    public long start(Stage stage) {
+        inFlight.get(stage).incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the stage and returns its duration in nanoseconds.
+     */
+    public long stop(Stage stage, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        stageTimers.get(stage).record(elapsed, TimeUnit.NANOSECONDS);
+        inFlight.get(stage).decrementAndGet();
+        return elapsed;
+    }
+
+    public <T> Mono<T> timed(Stage stage, Mono<T> mono) {
+        return Mono.defer(() -> {
+            long start = start(stage);
+            return mono.doFinally(signal -> stop(stage, start));
+        });
+    }
+
+    public void recordCollectionTick(long durationNanos, long intervalMillis) {
+        collectionTick.record(durationNanos, TimeUnit.NANOSECONDS);
+        if (durationNanos > TimeUnit.MILLISECONDS.toNanos(intervalMillis)) {
+            collectionOverruns.increment();
+        }
+    }
+
+    public void recordSkippedTick() {
+        collectionSkipped.increment();
+    }
+
+    public void recordLlmCall(boolean success, long promptTokenCount, long completionTokenCount) {
+        (success ? llmSuccess : llmFailure).increment();
+        promptTokens.increment(promptTokenCount);
+        completionTokens.increment(completionTokenCount);
+    }
+
+    /**
+     * A streamed completion abandoned by its subscriber before it finished.
+     */
+    public void recordLlmCancelled(long completionTokenCount) {
+        llmCancelled.increment();
+        completionTokens.increment(completionTokenCount);
+    }
+
+    public void recordLlmFirstToken(long nanos) {
+        llmFirstToken.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public <T> void gaugeEndpoints(String state, T stateObject, ToDoubleFunction<T> count) {
+        Gauge.builder("monitoring.endpoints", stateObject, count)
+                .description("Endpoints currently held in each pipeline state")
+                .tag("state", state)
+                .register(registry);
+    }
+
+    public MeterRegistry getRegistry() {
+        return registry;
+    }
+}
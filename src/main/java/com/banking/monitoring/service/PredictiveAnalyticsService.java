@@ -1,7 +1,13 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.model.AnomalyReason;
 import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.EndpointSnapshot;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -10,32 +16,142 @@ import weka.core.Instances;
 import weka.core.DenseInstance;
 import weka.core.Attribute;
 import weka.core.FastVector;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Failure prediction in two tiers. A rule tier scores every sample by its worst ratio to the failure thresholds
+ * (the same thresholds that label the training data); samples clearly below or above the thresholds are decided
+ * there. Only samples whose ratio falls in the ambiguous band {@code [ambiguousLow, ambiguousHigh]} are passed to the
+ * endpoint's MultilayerPerceptron, and endpoints without a trained model keep the rule score, so they never touch
+ * Weka.
+ * <p>
+ * With {@code monitoring.prediction.clustered=true} endpoints do not get a model of their own. Each trained endpoint is
+ * assigned to the nearest {@link ModelCluster} by its profile (log of its mean metrics), a new cluster being opened
+ * while fewer than {@code maxClusters} exist and none is within {@code clusterRadius}. One model is trained per
+ * cluster on a bounded sample of its members' normalized rows; only the endpoint's normalization arrays are kept per
+ * endpoint.
+ */
 @Slf4j
 @Service
 public class PredictiveAnalyticsService {
+    public enum Tier {
+        RULE("rule"),
+        MODEL("model"),
+        UNTRAINED("untrained");
+
+        private final String tag;
+
+        Tier(String tag) {
+            this.tag = tag;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+    }
+
     private final ConcurrentHashMap<String, MultilayerPerceptron> endpointModels;
-    private final ArrayList<Attribute> attributes;
     private static final double FAILURE_THRESHOLD = 0.7;
     private static final double ERROR_RATE_THRESHOLD = 0.1;
     private static final double RESPONSE_TIME_THRESHOLD = 1000.0;
     private static final double CPU_USAGE_THRESHOLD = 80.0;
     private static final double MEMORY_USAGE_THRESHOLD = 80.0;
     private static final double NETWORK_LATENCY_THRESHOLD = 200.0;
+    private static final double RULE_SLOPE = 12.0;
+    /**
+     * What a handed-off model may deserialize into: the classes of a trained MLP's object graph, the JDK collections
+     * it uses and primitive arrays, within depth and size limits well above a real model's. Everything else is
+     * rejected before it is instantiated.
+     */
+    static final ObjectInputFilter MODEL_FILTER = ObjectInputFilter.Config.createFilter(
+            "maxdepth=64;maxrefs=10000;maxarray=100000;maxbytes=4194304;"
+                    + "weka.classifiers.AbstractClassifier;weka.classifiers.functions.**;weka.classifiers.rules.ZeroR;"
+                    + "weka.core.*;weka.filters.Filter;weka.filters.unsupervised.attribute.*;"
+                    + "java.lang.Integer;java.lang.Number;java.lang.Object;java.util.ArrayList;java.util.BitSet;"
+                    + "java.util.HashMap;java.util.Hashtable;java.util.Map$Entry;java.util.Random;!*");
     private final ConcurrentHashMap<String, double[]> means;
     private final ConcurrentHashMap<String, double[]> stdDevs;
+    private final PipelineMetrics pipelineMetrics;
+    private final boolean tiered;
+    private final double ambiguousLow;
+    private final double ambiguousHigh;
+    private final Map<Tier, Timer> tierTimers = new EnumMap<>(Tier.class);
+    private final Map<Tier, LongAdder> tierCounts = new EnumMap<>(Tier.class);
+    private final boolean clustered;
+    private final int maxClusters;
+    private final double clusterRadius;
+    private final int clusterSamples;
+    private final List<ModelCluster> clusters = new CopyOnWriteArrayList<>();
+    private final ConcurrentHashMap<String, ModelCluster> endpointClusters = new ConcurrentHashMap<>();
+    private int nextClusterId;
 
-    public PredictiveAnalyticsService() {
+    public PredictiveAnalyticsService(PipelineMetrics pipelineMetrics) {
+        this(pipelineMetrics, true, 0.8, 1.25, false, 16, 0.5, 2000);
+    }
+
+    @Autowired
+    public PredictiveAnalyticsService(PipelineMetrics pipelineMetrics,
+                                      @Value("${monitoring.prediction.tiered:true}") boolean tiered,
+                                      @Value("${monitoring.prediction.ambiguous-low:0.8}") double ambiguousLow,
+                                      @Value("${monitoring.prediction.ambiguous-high:1.25}") double ambiguousHigh,
+                                      @Value("${monitoring.prediction.clustered:false}") boolean clustered,
+                                      @Value("${monitoring.prediction.max-clusters:16}") int maxClusters,
+                                      @Value("${monitoring.prediction.cluster-radius:0.5}") double clusterRadius,
+                                      @Value("${monitoring.prediction.cluster-samples:2000}") int clusterSamples) {
+        if (ambiguousLow > 1 || ambiguousHigh < 1) {
+            throw new IllegalArgumentException("The ambiguous band must contain 1.0");
+        }
+        if (maxClusters < 1 || clusterSamples < 1) {
+            throw new IllegalArgumentException("max-clusters and cluster-samples must be positive");
+        }
         this.endpointModels = new ConcurrentHashMap<>();
-        this.attributes = createAttributes();
         this.means = new ConcurrentHashMap<>();
         this.stdDevs = new ConcurrentHashMap<>();
+        this.pipelineMetrics = pipelineMetrics;
+        this.tiered = tiered;
+        this.ambiguousLow = ambiguousLow;
+        this.ambiguousHigh = ambiguousHigh;
+        this.clustered = clustered;
+        this.maxClusters = maxClusters;
+        this.clusterRadius = clusterRadius;
+        this.clusterSamples = clusterSamples;
+        pipelineMetrics.gaugeEndpoints("modeled", clustered ? endpointClusters : endpointModels, Map::size);
+        Gauge.builder("monitoring.prediction.models", this, PredictiveAnalyticsService::getModelCount)
+                .description("Failure models held, one per endpoint or one per cluster")
+                .register(pipelineMetrics.getRegistry());
+        for (Tier tier : Tier.values()) {
+            tierTimers.put(tier, Timer.builder("monitoring.prediction")
+                    .description("Failure predictions by the tier that decided them")
+                    .tag("tier", tier.tag)
+                    .register(pipelineMetrics.getRegistry()));
+            tierCounts.put(tier, new LongAdder());
+        }
     }
 
-    private ArrayList<Attribute> createAttributes() {
+    /**
+     * Holder for the Weka schema, so Weka's classes are only loaded on the first prediction or training call.
+     */
+    private static final class Schema {
+        private static final ArrayList<Attribute> ATTRIBUTES = createAttributes();
+    }
+
+    private static ArrayList<Attribute> createAttributes() {
         ArrayList<Attribute> attrs = new ArrayList<>();
         attrs.add(new Attribute("responseTime"));
         attrs.add(new Attribute("errorRate"));
@@ -53,50 +169,96 @@ public class PredictiveAnalyticsService {
     }
 
     public Mono<ApiMetrics> predictFailure(ApiMetrics metrics) {
-        return Mono.fromCallable(() -> {
-            MultilayerPerceptron model = endpointModels.computeIfAbsent(metrics.getEndpoint(), 
-                k -> createNewModel());
-
-            try {
-                Instances dataSet = new Instances("prediction", attributes, 0);
-                dataSet.setClassIndex(6);
+        return Mono.fromCallable(() -> predict(metrics));
+    }
 
-                double[] values = new double[7];
-                values[0] = metrics.getResponseTime();
-                values[1] = metrics.getErrorRate();
-                values[2] = metrics.getThroughput();
-                values[3] = metrics.getCpuUsage();
-                values[4] = metrics.getMemoryUsage();
-                values[5] = metrics.getNetworkLatency();
-                values[6] = 0.0;
-
-                if (means.containsKey(metrics.getEndpoint()) && stdDevs.containsKey(metrics.getEndpoint())) {
-                    double[] endpointMeans = means.get(metrics.getEndpoint());
-                    double[] endpointStdDevs = stdDevs.get(metrics.getEndpoint());
-                    for (int i = 0; i < 6; i++) {
-                        if (endpointStdDevs[i] != 0) {
-                            values[i] = (values[i] - endpointMeans[i]) / endpointStdDevs[i];
-                        }
-                    }
+    /**
+     * Synchronous prediction step of {@link #predictFailure(ApiMetrics)}.
+     */
+    public ApiMetrics predict(ApiMetrics metrics) {
+        long start = pipelineMetrics.start(PipelineMetrics.Stage.PREDICT);
+        Tier tier = Tier.RULE;
+        try {
+            double ratio = thresholdRatio(metrics);
+            double failureProbability = ruleProbability(ratio);
+            if (!tiered || (ratio >= ambiguousLow && ratio <= ambiguousHigh)) {
+                MultilayerPerceptron model = modelFor(metrics.getEndpoint());
+                if (model == null) {
+                    tier = Tier.UNTRAINED;
+                } else {
+                    tier = Tier.MODEL;
+                    failureProbability = modelProbability(model, metrics);
                 }
+            }
 
-                DenseInstance instance = new DenseInstance(1.0, values);
-                instance.setDataset(dataSet);
-                dataSet.add(instance);
+            metrics.setPredictedFailureProbability(failureProbability);
+            metrics.setPredictedFailure(failureProbability > FAILURE_THRESHOLD);
+            metrics.setFailureReasons(metrics.isPredictedFailure() ? failureReasons(metrics) : 0);
+            metrics.setFailureReason(null);
 
-                double[] distribution = model.distributionForInstance(instance);
-                double failureProbability = distribution[1];
+            return metrics;
+        } catch (Exception e) {
+            log.error("Error predicting failure: ", e);
+            throw new RuntimeException("Failed to predict failure", e);
+        } finally {
+            long elapsed = pipelineMetrics.stop(PipelineMetrics.Stage.PREDICT, start);
+            tierTimers.get(tier).record(elapsed, TimeUnit.NANOSECONDS);
+            tierCounts.get(tier).increment();
+        }
+    }
 
-                metrics.setPredictedFailureProbability(failureProbability);
-                metrics.setPredictedFailure(failureProbability > FAILURE_THRESHOLD);
-                metrics.setFailureReason(generateFailureReason(metrics));
+    private MultilayerPerceptron modelFor(String endpoint) {
+        if (!clustered) {
+            return endpointModels.get(endpoint);
+        }
+        ModelCluster cluster = endpointClusters.get(endpoint);
+        return cluster == null ? null : cluster.getModel();
+    }
 
-                return metrics;
-            } catch (Exception e) {
-                log.error("Error predicting failure: ", e);
-                throw new RuntimeException("Failed to predict failure", e);
+    /**
+     * The sample's worst ratio to the failure thresholds; above 1 means at least one threshold is crossed, which is
+     * how the training data is labelled.
+     */
+    static double thresholdRatio(ApiMetrics metrics) {
+        double ratio = metrics.getErrorRate() / ERROR_RATE_THRESHOLD;
+        ratio = Math.max(ratio, metrics.getResponseTime() / RESPONSE_TIME_THRESHOLD);
+        ratio = Math.max(ratio, metrics.getCpuUsage() / CPU_USAGE_THRESHOLD);
+        ratio = Math.max(ratio, metrics.getMemoryUsage() / MEMORY_USAGE_THRESHOLD);
+        return Math.max(ratio, metrics.getNetworkLatency() / NETWORK_LATENCY_THRESHOLD);
+    }
+
+    private static double ruleProbability(double ratio) {
+        return 1.0 / (1.0 + Math.exp(-RULE_SLOPE * (ratio - 1.0)));
+    }
+
+    private double modelProbability(MultilayerPerceptron model, ApiMetrics metrics) throws Exception {
+        Instances dataSet = new Instances("prediction", Schema.ATTRIBUTES, 0);
+        dataSet.setClassIndex(6);
+
+        double[] values = new double[7];
+        values[0] = metrics.getResponseTime();
+        values[1] = metrics.getErrorRate();
+        values[2] = metrics.getThroughput();
+        values[3] = metrics.getCpuUsage();
+        values[4] = metrics.getMemoryUsage();
+        values[5] = metrics.getNetworkLatency();
+        values[6] = 0.0;
+
+        double[] endpointMeans = means.get(metrics.getEndpoint());
+        double[] endpointStdDevs = stdDevs.get(metrics.getEndpoint());
+        if (endpointMeans != null && endpointStdDevs != null) {
+            for (int i = 0; i < 6; i++) {
+                if (endpointStdDevs[i] != 0) {
+                    values[i] = (values[i] - endpointMeans[i]) / endpointStdDevs[i];
+                }
             }
-        });
+        }
+
+        DenseInstance instance = new DenseInstance(1.0, values);
+        instance.setDataset(dataSet);
+        dataSet.add(instance);
+
+        return model.distributionForInstance(instance)[1];
     }
 
     private MultilayerPerceptron createNewModel() {
@@ -115,43 +277,28 @@ public class PredictiveAnalyticsService {
         return model;
     }
 
-    private String generateFailureReason(ApiMetrics metrics) {
-        if (!metrics.isPredictedFailure()) {
-            return null;
-        }
-
-        StringBuilder reason = new StringBuilder("Potential failure predicted due to: ");
-        List<String> reasons = new ArrayList<>();
-
+    private int failureReasons(ApiMetrics metrics) {
+        int reasons = 0;
         if (metrics.getErrorRate() > ERROR_RATE_THRESHOLD) {
-            reasons.add("high error rate");
+            reasons |= AnomalyReason.ERROR_RATE.mask();
         }
         if (metrics.getResponseTime() > RESPONSE_TIME_THRESHOLD) {
-            reasons.add("high response time");
+            reasons |= AnomalyReason.RESPONSE_TIME.mask();
         }
         if (metrics.getCpuUsage() > CPU_USAGE_THRESHOLD) {
-            reasons.add("high CPU usage");
+            reasons |= AnomalyReason.CPU_USAGE.mask();
         }
         if (metrics.getMemoryUsage() > MEMORY_USAGE_THRESHOLD) {
-            reasons.add("high memory usage");
+            reasons |= AnomalyReason.MEMORY_USAGE.mask();
         }
         if (metrics.getNetworkLatency() > NETWORK_LATENCY_THRESHOLD) {
-            reasons.add("high network latency");
-        }
-
-        if (!reasons.isEmpty()) {
-            reason.append(String.join(", ", reasons));
+            reasons |= AnomalyReason.NETWORK_LATENCY.mask();
         }
-
-        return reason.toString();
+        return reasons;
     }
 
     public void trainModel(String endpoint, List<ApiMetrics> trainingData) {
         try {
-            MultilayerPerceptron model = endpointModels.computeIfAbsent(endpoint, k -> createNewModel());
-            Instances trainingSet = new Instances("training_data", attributes, 0);
-            trainingSet.setClassIndex(6);
-
             double[] sums = new double[6];
             double[] sumSquares = new double[6];
             int count = trainingData.size();
@@ -179,9 +326,7 @@ public class PredictiveAnalyticsService {
                 endpointStdDevs[i] = Math.sqrt(variance);
             }
 
-            means.put(endpoint, endpointMeans);
-            stdDevs.put(endpoint, endpointStdDevs);
-
+            List<double[]> rows = new ArrayList<>(count);
             for (ApiMetrics metrics : trainingData) {
                 double[] values = new double[7];
                 values[0] = metrics.getResponseTime();
@@ -197,23 +342,181 @@ public class PredictiveAnalyticsService {
                     }
                 }
                 
-                boolean isFailure = metrics.getErrorRate() > ERROR_RATE_THRESHOLD ||
-                                  metrics.getResponseTime() > RESPONSE_TIME_THRESHOLD ||
-                                  metrics.getCpuUsage() > CPU_USAGE_THRESHOLD ||
-                                  metrics.getMemoryUsage() > MEMORY_USAGE_THRESHOLD ||
-                                  metrics.getNetworkLatency() > NETWORK_LATENCY_THRESHOLD;
+                boolean isFailure = failureReasons(metrics) != 0;
                 values[6] = isFailure ? 1.0 : 0.0;
-
-                DenseInstance instance = new DenseInstance(1.0, values);
-                instance.setDataset(trainingSet);
-                trainingSet.add(instance);
+                rows.add(values);
             }
 
-            model.buildClassifier(trainingSet);
-            endpointModels.put(endpoint, model);
+            if (clustered) {
+                ModelCluster cluster = assignCluster(endpoint, endpointMeans);
+                List<double[]> clusterRows = cluster.addRows(rows);
+                if (clusterRows != null) {
+                    cluster.setModel(buildModel(clusterRows));
+                }
+            } else {
+                endpointModels.put(endpoint, buildModel(rows));
+            }
+            means.put(endpoint, endpointMeans);
+            stdDevs.put(endpoint, endpointStdDevs);
         } catch (Exception e) {
             log.error("Error training model for endpoint {}: ", endpoint, e);
             throw new RuntimeException("Failed to train predictive model", e);
         }
     }
-} 
\ No newline at end of file
+
+    private MultilayerPerceptron buildModel(List<double[]> rows) throws Exception {
+        Instances trainingSet = new Instances("training_data", Schema.ATTRIBUTES, rows.size());
+        trainingSet.setClassIndex(6);
+        for (double[] values : rows) {
+            DenseInstance instance = new DenseInstance(1.0, values);
+            instance.setDataset(trainingSet);
+            trainingSet.add(instance);
+        }
+        MultilayerPerceptron model = createNewModel();
+        model.buildClassifier(trainingSet);
+        return model;
+    }
+
+    private static double[] profile(double[] endpointMeans) {
+        double[] profile = new double[endpointMeans.length];
+        for (int i = 0; i < profile.length; i++) {
+            profile[i] = Math.log1p(Math.max(0, endpointMeans[i]));
+        }
+        return profile;
+    }
+
+    /**
+     * Puts the endpoint in the nearest cluster, or in a new one if none is within {@code clusterRadius} and the limit
+     * allows it. An endpoint that is retrained may move to another cluster; a cluster its last member leaves is
+     * dropped, so it no longer counts toward {@code maxClusters} or attracts endpoints to a stale centroid.
+     */
+    private ModelCluster assignCluster(String endpoint, double[] endpointMeans) {
+        return assignCluster(endpoint, endpointMeans, null);
+    }
+
+    private ModelCluster assignCluster(String endpoint, double[] endpointMeans, MultilayerPerceptron initialModel) {
+        double[] profile = profile(endpointMeans);
+        synchronized (clusters) {
+            ModelCluster nearest = null;
+            double nearestDistance = Double.MAX_VALUE;
+            for (ModelCluster cluster : clusters) {
+                double distance = cluster.distance(profile);
+                if (distance < nearestDistance) {
+                    nearest = cluster;
+                    nearestDistance = distance;
+                }
+            }
+            ModelCluster previous = endpointClusters.get(endpoint);
+            if (previous != null && previous == nearest) {
+                previous.join(endpoint, profile);
+                return previous;
+            }
+            if (previous != null) {
+                leaveCluster(endpoint, previous);
+            }
+            if (nearest == null || (nearestDistance > clusterRadius && clusters.size() < maxClusters)) {
+                nearest = new ModelCluster(nextClusterId++, endpoint, profile, clusterSamples);
+                nearest.setModel(initialModel);
+                clusters.add(nearest);
+            } else {
+                nearest.join(endpoint, profile);
+            }
+            endpointClusters.put(endpoint, nearest);
+            return nearest;
+        }
+    }
+
+    /**
+     * Takes the endpoint out of {@code cluster}, dropping the cluster if it is left empty. Callers hold the
+     * {@code clusters} lock.
+     */
+    private void leaveCluster(String endpoint, ModelCluster cluster) {
+        if (cluster.leave(endpoint)) {
+            clusters.remove(cluster);
+        }
+    }
+
+    public Set<String> getModeledEndpoints() {
+        return new HashSet<>(clustered ? endpointClusters.keySet() : endpointModels.keySet());
+    }
+
+    public int getModelCount() {
+        return clustered ? clusters.size() : endpointModels.size();
+    }
+
+    /**
+     * Cluster id to member count; empty unless clustering is enabled.
+     */
+    public Map<Integer, Integer> getClusterSizes() {
+        Map<Integer, Integer> sizes = new TreeMap<>();
+        for (ModelCluster cluster : clusters) {
+            sizes.put(cluster.getId(), cluster.getMembers());
+        }
+        return sizes;
+    }
+
+    public long getPredictionCount(Tier tier) {
+        return tierCounts.get(tier).sum();
+    }
+
+    /**
+     * Moves the endpoint's trained model and normalization into {@code snapshot} (Java serialization) and forgets
+     * them locally. With clustering the endpoint leaves its cluster and a copy of the cluster's model is exported.
+     */
+    public void export(String endpoint, EndpointSnapshot snapshot) {
+        MultilayerPerceptron model;
+        if (clustered) {
+            ModelCluster cluster;
+            synchronized (clusters) {
+                cluster = endpointClusters.remove(endpoint);
+                if (cluster != null) {
+                    leaveCluster(endpoint, cluster);
+                }
+            }
+            model = cluster == null ? null : cluster.getModel();
+        } else {
+            model = endpointModels.remove(endpoint);
+        }
+        double[] endpointMeans = means.remove(endpoint);
+        double[] endpointStdDevs = stdDevs.remove(endpoint);
+        if (model == null || endpointMeans == null || endpointStdDevs == null) {
+            return;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(model);
+            out.writeObject(endpointMeans);
+            out.writeObject(endpointStdDevs);
+        } catch (IOException e) {
+            log.warn("Failed to export model for endpoint {}: {}", endpoint, e.getMessage());
+            return;
+        }
+        snapshot.setModel(bytes.toByteArray());
+    }
+
+    /**
+     * Installs a handed-off model unless this node has already trained one for the endpoint. With clustering the
+     * endpoint joins the nearest cluster, and the handed-off model only seeds a cluster opened for it.
+     */
+    public void restore(EndpointSnapshot snapshot) {
+        String endpoint = snapshot.getEndpoint();
+        if (snapshot.getModel() == null || means.containsKey(endpoint)) {
+            return;
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(snapshot.getModel()))) {
+            in.setObjectInputFilter(MODEL_FILTER);
+            MultilayerPerceptron model = (MultilayerPerceptron) in.readObject();
+            double[] endpointMeans = (double[]) in.readObject();
+            double[] endpointStdDevs = (double[]) in.readObject();
+            if (clustered) {
+                assignCluster(endpoint, endpointMeans, model);
+            } else {
+                endpointModels.put(endpoint, model);
+            }
+            means.put(endpoint, endpointMeans);
+            stdDevs.put(endpoint, endpointStdDevs);
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Failed to restore model for endpoint {}: {}", endpoint, e.getMessage());
+        }
+    }
+}
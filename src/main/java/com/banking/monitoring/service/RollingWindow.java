@@ -0,0 +1,139 @@
+package com.banking.monitoring.service;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size sliding window over the last {@code capacity} values with O(1), allocation-free updates of the mean and
+ * sample standard deviation. Sums are kept relative to a shift that is re-centred on the mean once per window, which
+ * bounds the cancellation error of the running sum of squares. Values may carry a frequency weight, e.g. the inverse
+ * sampling probability, in which case the statistics are weighted; the weight array is only allocated once a weight
+ * other than 1 is seen. Not thread-safe.
+ */
+final class RollingWindow {
+    private final double[] values;
+    private double[] weights;
+    private int count;
+    private int next;
+    private int sinceRecompute;
+    private double shift;
+    private double sum;
+    private double sumSquares;
+    private double sumWeights;
+
+    RollingWindow(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.values = new double[capacity];
+    }
+
+    void add(double value) {
+        add(value, 1.0);
+    }
+
+    void add(double value, double weight) {
+        if (weights == null && weight != 1.0) {
+            weights = new double[values.length];
+            Arrays.fill(weights, 1.0);
+        }
+        if (count == 0) {
+            shift = value;
+        }
+        if (count == values.length) {
+            double evictedWeight = weight(next);
+            double evicted = values[next] - shift;
+            sum -= evictedWeight * evicted;
+            sumSquares -= evictedWeight * evicted * evicted;
+            sumWeights -= evictedWeight;
+        } else {
+            count++;
+        }
+        values[next] = value;
+        if (weights != null) {
+            weights[next] = weight;
+        }
+        double delta = value - shift;
+        sum += weight * delta;
+        sumSquares += weight * delta * delta;
+        sumWeights += weight;
+        next = next + 1 == values.length ? 0 : next + 1;
+        if (++sinceRecompute >= values.length) {
+            recompute();
+        }
+    }
+
+    private double weight(int index) {
+        return weights == null ? 1.0 : weights[index];
+    }
+
+    private void recompute() {
+        shift = getMean();
+        sum = 0;
+        sumSquares = 0;
+        sumWeights = 0;
+        for (int i = 0; i < count; i++) {
+            double weight = weight(i);
+            double delta = values[i] - shift;
+            sum += weight * delta;
+            sumSquares += weight * delta * delta;
+            sumWeights += weight;
+        }
+        sinceRecompute = 0;
+    }
+
+    /**
+     * The window's values, oldest first.
+     */
+    double[] toArray() {
+        return oldestFirst(values, count);
+    }
+
+    /**
+     * The weights of {@link #toArray()}, or null if every value has weight 1.
+     */
+    double[] weightsArray() {
+        return weights == null ? null : oldestFirst(weights, count);
+    }
+
+    /**
+     * The newest {@code n} values, at most the whole window, oldest first.
+     */
+    double[] newest(int n) {
+        return oldestFirst(values, Math.min(n, count));
+    }
+
+    /**
+     * The weights of {@link #newest(int)}, or null if every value has weight 1.
+     */
+    double[] newestWeights(int n) {
+        return weights == null ? null : oldestFirst(weights, Math.min(n, count));
+    }
+
+    private double[] oldestFirst(double[] source, int n) {
+        double[] copy = new double[n];
+        int oldest = (count == values.length ? next : 0) + count - n;
+        for (int i = 0; i < n; i++) {
+            copy[i] = source[(oldest + i) % values.length];
+        }
+        return copy;
+    }
+
+    int getN() {
+        return count;
+    }
+
+    double getMean() {
+        return count == 0 ? Double.NaN : shift + sum / sumWeights;
+    }
+
+    double getStandardDeviation() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count == 1 || sumWeights <= 1) {
+            return 0.0;
+        }
+        double variance = (sumSquares - sum * sum / sumWeights) / (sumWeights - 1);
+        return variance > 0 ? Math.sqrt(variance) : 0.0;
+    }
+}
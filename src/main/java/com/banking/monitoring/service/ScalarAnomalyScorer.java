@@ -0,0 +1,78 @@
+package com.banking.monitoring.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Constructor;
+
+/**
+ * Reference {@link AnomalyScorer}, one sample at a time. Also scores the tail of a vectorized batch.
+ */
+@Slf4j
+final class ScalarAnomalyScorer implements AnomalyScorer {
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private final Thresholds thresholds;
+
+    ScalarAnomalyScorer(Thresholds thresholds) {
+        this.thresholds = thresholds;
+    }
+
+    @Override
+    public void score(ScoringBatch batch) {
+        score(batch, 0, batch.size(), thresholds);
+    }
+
+    static void score(ScoringBatch b, int from, int to, Thresholds thresholds) {
+        for (int i = from; i < to; i++) {
+            double rtZScore = (b.responseTime[i] - b.responseTimeMean[i]) / b.responseTimeStdDev[i];
+            double errorRateZScore = (b.errorRate[i] - b.errorRateMean[i]) / b.errorRateStdDev[i];
+            int reasons = thresholds.reasons(rtZScore, errorRateZScore,
+                    b.cpuUsage[i], b.memoryUsage[i], b.networkLatency[i]);
+            b.responseTimeZScore[i] = rtZScore;
+            b.errorRateZScore[i] = errorRateZScore;
+            b.reasons[i] = reasons;
+            b.anomalyScore[i] = thresholds.anomalyScore(reasons, rtZScore, errorRateZScore);
+        }
+    }
+
+    static AnomalyScorer vectorOrScalar(Thresholds thresholds) {
+        Constructor<?> vector = VectorSupport.CONSTRUCTOR;
+        if (vector != null) {
+            try {
+                return (AnomalyScorer) vector.newInstance(thresholds);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vectorized anomaly scoring unavailable, using scalar: {}", e.toString());
+            }
+        }
+        return new ScalarAnomalyScorer(thresholds);
+    }
+
+    /**
+     * Holder for the vectorized scorer's constructor, so the module is looked up once, on first use.
+     */
+    private static final class VectorSupport {
+        private static final Constructor<?> CONSTRUCTOR = loadVector();
+    }
+
+    private static Constructor<?> loadVector() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            log.info("Module {} not present, batch anomaly scoring is scalar", VECTOR_MODULE);
+            return null;
+        }
+        try {
+            Constructor<?> constructor = Class.forName(ScalarAnomalyScorer.class.getPackageName()
+                    + ".VectorAnomalyScorer").getDeclaredConstructor(Thresholds.class);
+            log.info("Batch anomaly scoring is vectorized with {}",
+                    constructor.newInstance(Thresholds.DEFAULT));
+            return constructor;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Vectorized anomaly scoring unavailable, using scalar: {}", e.toString());
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,117 @@
+package com.banking.monitoring.service;
+
+/**
+ * Column-oriented scoring input and output for a batch of samples, one index per sample. Baseline statistics are
+ * stored so that every z-score is {@code (value - mean) / stdDev}; samples whose baseline is too short or flat to
+ * have a standard deviation carry their rule-based z-score as the value with mean 0 and standard deviation 1.
+ */
+public final class ScoringBatch {
+    final double[] responseTime;
+    final double[] responseTimeMean;
+    final double[] responseTimeStdDev;
+    final double[] errorRate;
+    final double[] errorRateMean;
+    final double[] errorRateStdDev;
+    final double[] cpuUsage;
+    final double[] memoryUsage;
+    final double[] networkLatency;
+
+    final double[] responseTimeZScore;
+    final double[] errorRateZScore;
+    final double[] reasons;
+    final double[] anomalyScore;
+
+    private int size;
+
+    public ScoringBatch(int capacity) {
+        responseTime = new double[capacity];
+        responseTimeMean = new double[capacity];
+        responseTimeStdDev = new double[capacity];
+        errorRate = new double[capacity];
+        errorRateMean = new double[capacity];
+        errorRateStdDev = new double[capacity];
+        cpuUsage = new double[capacity];
+        memoryUsage = new double[capacity];
+        networkLatency = new double[capacity];
+        responseTimeZScore = new double[capacity];
+        errorRateZScore = new double[capacity];
+        reasons = new double[capacity];
+        anomalyScore = new double[capacity];
+    }
+
+    public int capacity() {
+        return responseTime.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Appends a sample whose baselines already include it, returning its index.
+     */
+    int add(double responseTime, RollingWindow responseTimes,
+            double errorRate, RollingWindow errorRates,
+            double cpuUsage, double memoryUsage, double networkLatency) {
+        int i = size++;
+        center(responseTime, responseTimes, this.responseTime, responseTimeMean, responseTimeStdDev, i);
+        center(errorRate, errorRates, this.errorRate, errorRateMean, errorRateStdDev, i);
+        this.cpuUsage[i] = cpuUsage;
+        this.memoryUsage[i] = memoryUsage;
+        this.networkLatency[i] = networkLatency;
+        return i;
+    }
+
+    /**
+     * Appends a sample with explicit baseline statistics, returning its index.
+     */
+    public int add(double responseTime, double responseTimeMean, double responseTimeStdDev,
+                   double errorRate, double errorRateMean, double errorRateStdDev,
+                   double cpuUsage, double memoryUsage, double networkLatency) {
+        int i = size++;
+        this.responseTime[i] = responseTime;
+        this.responseTimeMean[i] = responseTimeMean;
+        this.responseTimeStdDev[i] = responseTimeStdDev;
+        this.errorRate[i] = errorRate;
+        this.errorRateMean[i] = errorRateMean;
+        this.errorRateStdDev[i] = errorRateStdDev;
+        this.cpuUsage[i] = cpuUsage;
+        this.memoryUsage[i] = memoryUsage;
+        this.networkLatency[i] = networkLatency;
+        return i;
+    }
+
+    private static void center(double value, RollingWindow stats,
+                               double[] values, double[] means, double[] stdDevs, int i) {
+        double stdDev = stats.getN() < 2 ? Double.NaN : stats.getStandardDeviation();
+        if (Double.isNaN(stdDev) || stdDev == 0) {
+            values[i] = AnomalyDetectionService.calculateZScore(value, stats);
+            means[i] = 0;
+            stdDevs[i] = 1;
+        } else {
+            values[i] = value;
+            means[i] = stats.getMean();
+            stdDevs[i] = stdDev;
+        }
+    }
+
+    public double getResponseTimeZScore(int i) {
+        return responseTimeZScore[i];
+    }
+
+    public double getErrorRateZScore(int i) {
+        return errorRateZScore[i];
+    }
+
+    public int getReasons(int i) {
+        return (int) reasons[i];
+    }
+
+    public double getAnomalyScore(int i) {
+        return anomalyScore[i];
+    }
+}
@@ -0,0 +1,198 @@
+package com.banking.monitoring.service;
+
+import java.util.Arrays;
+
+/**
+ * Space-Saving summary (Metwally, Agrawal and El Abbadi) of weighted counts per key in a fixed number of counters.
+ * A key that is not tracked while every counter is taken replaces the smallest counter and inherits its count as
+ * error, so every count is an overestimate by at most its error, and every key whose true count exceeds
+ * {@code total / capacity} is tracked.
+ * <p>
+ * Counters live in primitive arrays: a min-heap of counts with the slot each belongs to, and an open-addressing
+ * index from key to slot. An update costs O(log capacity) regardless of how many distinct keys the stream has and
+ * allocates nothing. Not thread-safe.
+ */
+final class SpaceSaving {
+    private static final int EMPTY = -1;
+
+    private final String[] keys;
+    private final int[] hashes;
+    private final long[] errors;
+    private final int[] positions;
+    private final long[] heapCounts;
+    private final int[] heapSlots;
+    private final int[] index;
+    private final int indexMask;
+    private final int indexShift;
+    private int size;
+    private long total;
+
+    SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Space-Saving capacity must be positive");
+        }
+        this.keys = new String[capacity];
+        this.hashes = new int[capacity];
+        this.errors = new long[capacity];
+        this.positions = new int[capacity];
+        this.heapCounts = new long[capacity];
+        this.heapSlots = new int[capacity];
+        // at most a quarter full, so probe runs stay short
+        this.index = new int[Integer.highestOneBit(capacity * 4 - 1) << 1];
+        this.indexMask = index.length - 1;
+        this.indexShift = Integer.numberOfLeadingZeros(indexMask);
+        Arrays.fill(index, EMPTY);
+    }
+
+    void add(String key, long weight) {
+        total += weight;
+        int hash = key.hashCode();
+        int bucket = home(hash);
+        for (int slot; (slot = index[bucket]) != EMPTY; bucket = (bucket + 1) & indexMask) {
+            if (hashes[slot] == hash && key.equals(keys[slot])) {
+                int position = positions[slot];
+                heapCounts[position] += weight;
+                siftDown(position);
+                return;
+            }
+        }
+        if (size < keys.length) {
+            int slot = size;
+            keys[slot] = key;
+            hashes[slot] = hash;
+            errors[slot] = 0;
+            index[bucket] = slot;
+            heapCounts[size] = weight;
+            heapSlots[size] = slot;
+            positions[slot] = size;
+            siftUp(size++);
+            return;
+        }
+        int slot = heapSlots[0];
+        unindex(slot);
+        keys[slot] = key;
+        hashes[slot] = hash;
+        errors[slot] = heapCounts[0];
+        index[insertionBucket(hash)] = slot;
+        heapCounts[0] += weight;
+        siftDown(0);
+    }
+
+    /**
+     * Upper bound on the count of any key that is not tracked: the smallest counter once all are taken, else 0.
+     */
+    long untrackedBound() {
+        return size < keys.length ? 0 : heapCounts[0];
+    }
+
+    long total() {
+        return total;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Key of tracked counter {@code i}, for {@code i < size()}; in no particular order.
+     */
+    String key(int i) {
+        return keys[heapSlots[i]];
+    }
+
+    long count(int i) {
+        return heapCounts[i];
+    }
+
+    long error(int i) {
+        return errors[heapSlots[i]];
+    }
+
+    /**
+     * Forgets every key.
+     */
+    void clear() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(index, EMPTY);
+        size = 0;
+        total = 0;
+    }
+
+    /**
+     * Fibonacci hashing; endpoint names differ in few, low characters, which plain masking would cluster.
+     */
+    private int home(int hash) {
+        return (hash * 0x9E3779B9) >>> indexShift;
+    }
+
+    private int insertionBucket(int hash) {
+        int bucket = home(hash);
+        while (index[bucket] != EMPTY) {
+            bucket = (bucket + 1) & indexMask;
+        }
+        return bucket;
+    }
+
+    /**
+     * Removes {@code slot} from the index, shifting later entries of its probe run back so lookups need no
+     * tombstones.
+     */
+    private void unindex(int slot) {
+        int bucket = home(hashes[slot]);
+        while (index[bucket] != slot) {
+            bucket = (bucket + 1) & indexMask;
+        }
+        int hole = bucket;
+        for (int next = (hole + 1) & indexMask; index[next] != EMPTY; next = (next + 1) & indexMask) {
+            int home = home(hashes[index[next]]);
+            // move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & indexMask) >= ((next - hole) & indexMask)) {
+                index[hole] = index[next];
+                hole = next;
+            }
+        }
+        index[hole] = EMPTY;
+    }
+
+    private void siftUp(int i) {
+        long count = heapCounts[i];
+        int slot = heapSlots[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heapCounts[parent] <= count) {
+                break;
+            }
+            move(parent, i);
+            i = parent;
+        }
+        place(count, slot, i);
+    }
+
+    private void siftDown(int i) {
+        long count = heapCounts[i];
+        int slot = heapSlots[i];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heapCounts[child + 1] < heapCounts[child]) {
+                child++;
+            }
+            if (count <= heapCounts[child]) {
+                break;
+            }
+            move(child, i);
+            i = child;
+        }
+        place(count, slot, i);
+    }
+
+    private void move(int from, int to) {
+        place(heapCounts[from], heapSlots[from], to);
+    }
+
+    private void place(long count, int slot, int i) {
+        heapCounts[i] = count;
+        heapSlots[i] = slot;
+        positions[slot] = i;
+    }
+}
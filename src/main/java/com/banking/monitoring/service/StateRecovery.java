@@ -0,0 +1,165 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.storage.StateJournal;
+import com.banking.monitoring.storage.WriteAheadLog;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Restores the collection counters and detection baselines after a crash when {@code monitoring.wal.enabled} is
+ * set. On startup, before ingestion starts, the latest checkpoint and the {@link WriteAheadLog} after it are replayed
+ * into the services, which are then registered as the log's sources. Every {@code checkpoint-interval} the log is
+ * rotated and the sealed segments are folded into a new checkpoint by replaying them into scratch services, so
+ * ingestion never pauses for a snapshot.
+ * <p>
+ * Counters, system metrics and window contents come back exactly as of the last group commit. Window means and
+ * deviations are recomputed from the recovered values when a checkpoint is involved and can then differ from the
+ * live ones in the last bits.
+ */
+@Slf4j
+@Component
+public class StateRecovery implements SmartLifecycle {
+    private final WriteAheadLog writeAheadLog;
+    private final MetricsCollectionService metricsCollectionService;
+    private final AnomalyDetectionService anomalyDetectionService;
+    private final Duration checkpointInterval;
+
+    private ScheduledExecutorService checkpointer;
+    private volatile boolean running;
+
+    public StateRecovery(WriteAheadLog writeAheadLog,
+                         MetricsCollectionService metricsCollectionService,
+                         AnomalyDetectionService anomalyDetectionService,
+                         @Value("${monitoring.wal.checkpoint-interval:5m}") Duration checkpointInterval) {
+        if (checkpointInterval.isNegative() || checkpointInterval.isZero()) {
+            throw new IllegalArgumentException("monitoring.wal.checkpoint-interval must be positive");
+        }
+        this.writeAheadLog = writeAheadLog;
+        this.metricsCollectionService = metricsCollectionService;
+        this.anomalyDetectionService = anomalyDetectionService;
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Before every other lifecycle bean, so nothing is recorded ahead of the replayed state.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MIN_VALUE;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !writeAheadLog.isEnabled()) {
+            return;
+        }
+        long start = System.nanoTime();
+        long records;
+        try {
+            records = writeAheadLog.replay(Long.MAX_VALUE,
+                    new Replay(metricsCollectionService, anomalyDetectionService));
+            writeAheadLog.register(metricsCollectionService.journalSource());
+            writeAheadLog.register(anomalyDetectionService.journalSource());
+            writeAheadLog.open();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to recover from the write-ahead log", e);
+        }
+        checkpointer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "wal-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = checkpointInterval.toMillis();
+        checkpointer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException | RuntimeException e) {
+                log.error("Write-ahead log checkpoint failed: ", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Recovered {} collecting and {} baselined endpoints from {} log records in {} ms",
+                metricsCollectionService.getEndpoints().size(), anomalyDetectionService.getBaselinedEndpoints().size(),
+                records, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    /**
+     * Seals the current segment and replaces everything up to it with one checkpoint.
+     */
+    public synchronized void checkpoint() throws IOException {
+        long sealed = writeAheadLog.rotate();
+        MetricsCollectionService counters = MetricsCollectionService.builder(PipelineMetrics.noop()).build();
+        AnomalyDetectionService baselines = new AnomalyDetectionService(PipelineMetrics.noop(),
+                anomalyDetectionService.getWindowSize());
+        writeAheadLog.replay(sealed, new Replay(counters, baselines));
+        writeAheadLog.writeCheckpoint(sealed, journal -> {
+            counters.journalState(journal);
+            baselines.journalState(journal);
+        });
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        checkpointer.shutdown();
+        try {
+            checkpointer.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeAheadLog.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Applies log records to the services as already journaled state.
+     */
+    private record Replay(MetricsCollectionService counters, AnomalyDetectionService baselines)
+            implements StateJournal {
+
+        @Override
+        public void counters(String endpoint, int requests, long responseTimeSum, int errors) {
+            counters.applyCounters(endpoint, requests, responseTimeSum, errors);
+        }
+
+        @Override
+        public void systemMetrics(String endpoint, double cpu, double memory, double latency) {
+            counters.applySystemMetrics(endpoint, cpu, memory, latency);
+        }
+
+        @Override
+        public void samples(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            baselines.applySamples(endpoint, responseTimes, errorRates, weights);
+        }
+
+        @Override
+        public void baseline(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            baselines.applyBaseline(endpoint, responseTimes, errorRates, weights);
+        }
+
+        @Override
+        public void countersExported(String endpoint) {
+            counters.applyCountersExported(endpoint);
+        }
+
+        @Override
+        public void baselineExported(String endpoint) {
+            baselines.applyBaselineExported(endpoint);
+        }
+    }
+}
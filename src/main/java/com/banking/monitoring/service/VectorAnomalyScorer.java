@@ -0,0 +1,84 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.AnomalyReason;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link AnomalyScorer} over {@link DoubleVector}s of the platform's preferred width. Only referenced reflectively
+ * from {@link AnomalyScorer#create(boolean, Thresholds)}; the tail that does not fill a vector is scored by the
+ * scalar loop.
+ */
+final class VectorAnomalyScorer implements AnomalyScorer {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final Thresholds thresholds;
+    private final double zScoreThreshold;
+    private final double cpuThreshold;
+    private final double memoryThreshold;
+    private final double networkLatencyThreshold;
+
+    VectorAnomalyScorer(Thresholds thresholds) {
+        this.thresholds = thresholds;
+        this.zScoreThreshold = thresholds.zScore();
+        this.cpuThreshold = thresholds.cpuUsage();
+        this.memoryThreshold = thresholds.memoryUsage();
+        this.networkLatencyThreshold = thresholds.networkLatency();
+    }
+
+    @Override
+    public void score(ScoringBatch b) {
+        int size = b.size();
+        int upper = SPECIES.loopBound(size);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        DoubleVector one = DoubleVector.broadcast(SPECIES, 1.0);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector rtZScore = DoubleVector.fromArray(SPECIES, b.responseTime, i)
+                    .sub(DoubleVector.fromArray(SPECIES, b.responseTimeMean, i))
+                    .div(DoubleVector.fromArray(SPECIES, b.responseTimeStdDev, i));
+            DoubleVector errorRateZScore = DoubleVector.fromArray(SPECIES, b.errorRate, i)
+                    .sub(DoubleVector.fromArray(SPECIES, b.errorRateMean, i))
+                    .div(DoubleVector.fromArray(SPECIES, b.errorRateStdDev, i));
+            DoubleVector rtAbs = rtZScore.abs();
+            DoubleVector errorRateAbs = errorRateZScore.abs();
+
+            VectorMask<Double> responseTime = rtAbs.compare(VectorOperators.GT, zScoreThreshold);
+            VectorMask<Double> errorRate = errorRateAbs.compare(VectorOperators.GT, zScoreThreshold);
+            VectorMask<Double> cpu = DoubleVector.fromArray(SPECIES, b.cpuUsage, i)
+                    .compare(VectorOperators.GT, cpuThreshold);
+            VectorMask<Double> memory = DoubleVector.fromArray(SPECIES, b.memoryUsage, i)
+                    .compare(VectorOperators.GT, memoryThreshold);
+            VectorMask<Double> latency = DoubleVector.fromArray(SPECIES, b.networkLatency, i)
+                    .compare(VectorOperators.GT, networkLatencyThreshold);
+
+            DoubleVector reasons = zero.blend(AnomalyReason.RESPONSE_TIME.mask(), responseTime)
+                    .add(zero.blend(AnomalyReason.ERROR_RATE.mask(), errorRate))
+                    .add(zero.blend(AnomalyReason.CPU_USAGE.mask(), cpu))
+                    .add(zero.blend(AnomalyReason.MEMORY_USAGE.mask(), memory))
+                    .add(zero.blend(AnomalyReason.NETWORK_LATENCY.mask(), latency));
+            VectorMask<Double> anomalous = responseTime.or(errorRate).or(cpu).or(memory).or(latency);
+
+            rtZScore.intoArray(b.responseTimeZScore, i);
+            errorRateZScore.intoArray(b.errorRateZScore, i);
+            reasons.intoArray(b.reasons, i);
+            if (anomalous.anyTrue()) {
+                DoubleVector score = rtAbs.max(errorRateAbs)
+                        .sub(zScoreThreshold)
+                        .lanewise(VectorOperators.EXP)
+                        .add(one);
+                zero.blend(one.sub(one.div(score)), anomalous).intoArray(b.anomalyScore, i);
+            } else {
+                zero.intoArray(b.anomalyScore, i);
+            }
+        }
+        ScalarAnomalyScorer.score(b, i, size, thresholds);
+    }
+
+    @Override
+    public String toString() {
+        return SPECIES.toString();
+    }
+}
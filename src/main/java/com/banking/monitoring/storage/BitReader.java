@@ -0,0 +1,71 @@
+package com.banking.monitoring.storage;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * MSB-first reader over big-endian 64-bit words stored in a byte array, the layout written by {@link BlockEncoder}.
+ */
+final class BitReader {
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+    private final byte[] bytes;
+    private int offset;
+    private long word;
+    private int bitPosition;
+
+    BitReader(byte[] bytes, int offset) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.word = (long) LONGS.get(bytes, offset);
+    }
+
+    boolean readBit() {
+        boolean bit = (word << bitPosition) < 0;
+        if (++bitPosition == 64) {
+            nextWord();
+        }
+        return bit;
+    }
+
+    /**
+     * Reads {@code count} bits, {@code 0 <= count <= 64}, as an unsigned value.
+     */
+    long read(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        int available = 64 - bitPosition;
+        if (count <= available) {
+            long value = (word << bitPosition) >>> (64 - count);
+            bitPosition += count;
+            if (bitPosition == 64) {
+                nextWord();
+            }
+            return value;
+        }
+        long high = (word << bitPosition) >>> bitPosition;
+        int rest = count - available;
+        nextWord();
+        bitPosition = rest;
+        return (high << rest) | (word >>> (64 - rest));
+    }
+
+    /**
+     * Number of leading one bits before the first zero, up to {@code max}; consumes the terminating zero if seen.
+     */
+    int readUnary(int max) {
+        int ones = 0;
+        while (ones < max && readBit()) {
+            ones++;
+        }
+        return ones;
+    }
+
+    private void nextWord() {
+        offset += 8;
+        bitPosition = 0;
+        word = offset + 8 <= bytes.length ? (long) LONGS.get(bytes, offset) : 0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.banking.monitoring.storage;
+
+import java.util.Arrays;
+
+/**
+ * Append-only, MSB-first bit stream backed by 64-bit words.
+ */
+final class BitWriter {
+    private long[] words;
+    private int wordIndex;
+    private int bitPosition;
+
+    BitWriter(int initialWords) {
+        this.words = new long[Math.max(1, initialWords)];
+    }
+
+    void writeBit(boolean bit) {
+        if (bit) {
+            words[wordIndex] |= 1L << (63 - bitPosition);
+        }
+        if (++bitPosition == 64) {
+            nextWord();
+        }
+    }
+
+    /**
+     * Writes the low {@code count} bits of {@code value}, {@code 0 <= count <= 64}.
+     */
+    void write(long value, int count) {
+        if (count == 0) {
+            return;
+        }
+        if (count < 64) {
+            value &= (1L << count) - 1;
+        }
+        int free = 64 - bitPosition;
+        if (count <= free) {
+            words[wordIndex] |= count == 64 ? value : value << (free - count);
+            bitPosition += count;
+            if (bitPosition == 64) {
+                nextWord();
+            }
+        } else {
+            int rest = count - free;
+            words[wordIndex] |= value >>> rest;
+            nextWord();
+            words[wordIndex] = value << (64 - rest);
+            bitPosition = rest;
+        }
+    }
+
+    private void nextWord() {
+        wordIndex++;
+        bitPosition = 0;
+        if (wordIndex == words.length) {
+            words = Arrays.copyOf(words, words.length * 2);
+        }
+    }
+
+    long bitLength() {
+        return (long) wordIndex * 64 + bitPosition;
+    }
+
+    int wordLength() {
+        return wordIndex + (bitPosition > 0 ? 1 : 0);
+    }
+
+    long word(int index) {
+        return words[index];
+    }
+}
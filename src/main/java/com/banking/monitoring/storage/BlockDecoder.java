@@ -0,0 +1,142 @@
+package com.banking.monitoring.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes blocks written by {@link BlockEncoder}. Decoding allocates only the per-call reader state, so scans run
+ * at the speed of the bit reader.
+ */
+public final class BlockDecoder {
+    @FunctionalInterface
+    public interface PointConsumer {
+        /**
+         * {@code values} is reused between points.
+         */
+        void accept(long timestamp, double[] values);
+    }
+
+    @FunctionalInterface
+    public interface ValueConsumer {
+        void accept(long timestamp, double value);
+    }
+
+    private BlockDecoder() {
+    }
+
+    public static int count(byte[] block) {
+        return ByteBuffer.wrap(block).getInt(1);
+    }
+
+    public static long minTimestamp(byte[] block) {
+        return ByteBuffer.wrap(block).getLong(5);
+    }
+
+    public static long maxTimestamp(byte[] block) {
+        return ByteBuffer.wrap(block).getLong(13);
+    }
+
+    public static int fields(byte[] block) {
+        return ByteBuffer.wrap(block).getShort(21);
+    }
+
+    private static int columnOffset(byte[] block, int column) {
+        ByteBuffer header = ByteBuffer.wrap(block);
+        if (header.get(0) != BlockEncoder.VERSION) {
+            throw new IllegalArgumentException("Unsupported block version " + header.get(0));
+        }
+        int fields = header.getShort(21);
+        int offset = BlockEncoder.headerSize(fields);
+        for (int i = 0; i < column; i++) {
+            offset += header.getInt(23 + 4 * i) * 8;
+        }
+        return offset;
+    }
+
+    public static void decode(byte[] block, PointConsumer consumer) {
+        int count = count(block);
+        int fields = fields(block);
+        if (count == 0) {
+            return;
+        }
+        TimestampDecoder timestamps = new TimestampDecoder(new BitReader(block, columnOffset(block, 0)));
+        ValueDecoder[] columns = new ValueDecoder[fields];
+        for (int i = 0; i < fields; i++) {
+            columns[i] = new ValueDecoder(new BitReader(block, columnOffset(block, i + 1)));
+        }
+        double[] values = new double[fields];
+        for (int point = 0; point < count; point++) {
+            long timestamp = timestamps.next(point);
+            for (int i = 0; i < fields; i++) {
+                values[i] = columns[i].next(point);
+            }
+            consumer.accept(timestamp, values);
+        }
+    }
+
+    public static void decodeField(byte[] block, int field, ValueConsumer consumer) {
+        int count = count(block);
+        if (count == 0) {
+            return;
+        }
+        TimestampDecoder timestamps = new TimestampDecoder(new BitReader(block, columnOffset(block, 0)));
+        ValueDecoder column = new ValueDecoder(new BitReader(block, columnOffset(block, field + 1)));
+        for (int point = 0; point < count; point++) {
+            consumer.accept(timestamps.next(point), column.next(point));
+        }
+    }
+
+    private static final class TimestampDecoder {
+        private final BitReader reader;
+        private long previous;
+        private long delta;
+
+        private TimestampDecoder(BitReader reader) {
+            this.reader = reader;
+        }
+
+        private long next(int point) {
+            if (point == 0) {
+                previous = reader.read(64);
+                return previous;
+            }
+            long dod = switch (reader.readUnary(4)) {
+                case 0 -> 0;
+                case 1 -> reader.read(7) - 63;
+                case 2 -> reader.read(9) - 255;
+                case 3 -> reader.read(12) - 2047;
+                default -> reader.read(64);
+            };
+            delta += dod;
+            previous += delta;
+            return previous;
+        }
+    }
+
+    private static final class ValueDecoder {
+        private final BitReader reader;
+        private long bits;
+        private int leading;
+        private int trailing;
+
+        private ValueDecoder(BitReader reader) {
+            this.reader = reader;
+        }
+
+        private double next(int point) {
+            if (point == 0) {
+                bits = reader.read(64);
+            } else if (reader.readBit()) {
+                if (reader.readBit()) {
+                    leading = (int) reader.read(5);
+                    int meaningful = (int) reader.read(6);
+                    if (meaningful == 0) {
+                        meaningful = 64;
+                    }
+                    trailing = 64 - leading - meaningful;
+                }
+                bits ^= reader.read(64 - leading - trailing) << trailing;
+            }
+            return Double.longBitsToDouble(bits);
+        }
+    }
+}
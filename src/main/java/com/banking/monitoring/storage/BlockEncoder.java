@@ -0,0 +1,170 @@
+package com.banking.monitoring.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Gorilla-style encoder for one fixed-size block of a multi-field series. Timestamps are delta-of-delta encoded
+ * into a shared column and every field is an XOR-encoded double column, so a scan of one field only decodes two
+ * streams. Points must be appended in non-decreasing timestamp order.
+ *
+ * <p>Serialized layout: {@code version:byte, count:int, minTimestamp:long, maxTimestamp:long, fields:short,
+ * words:int[fields + 1]}, padded to 8 bytes, followed by the timestamp column and each field column as big-endian
+ * 64-bit words.</p>
+ */
+public final class BlockEncoder {
+    static final byte VERSION = 1;
+
+    private final int capacity;
+    private final BitWriter timestamps;
+    private final BitWriter[] columns;
+    private final long[] previousBits;
+    private final int[] previousLeading;
+    private final int[] previousTrailing;
+    private int count;
+    private long minTimestamp;
+    private long previousTimestamp;
+    private long previousDelta;
+
+    public BlockEncoder(int fields, int capacity) {
+        this.capacity = capacity;
+        int initialWords = Math.max(2, capacity / 16);
+        this.timestamps = new BitWriter(initialWords);
+        this.columns = new BitWriter[fields];
+        for (int i = 0; i < fields; i++) {
+            columns[i] = new BitWriter(initialWords);
+        }
+        this.previousBits = new long[fields];
+        this.previousLeading = new int[fields];
+        this.previousTrailing = new int[fields];
+    }
+
+    public void append(long timestamp, double[] values) {
+        if (count == capacity) {
+            throw new IllegalStateException("Block is full");
+        }
+        if (count > 0 && timestamp < previousTimestamp) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " precedes " + previousTimestamp);
+        }
+        if (count == 0) {
+            minTimestamp = timestamp;
+            timestamps.write(timestamp, 64);
+        } else {
+            long delta = timestamp - previousTimestamp;
+            writeDeltaOfDelta(delta - previousDelta);
+            previousDelta = delta;
+        }
+        previousTimestamp = timestamp;
+        for (int i = 0; i < columns.length; i++) {
+            writeValue(i, Double.doubleToRawLongBits(values[i]));
+        }
+        count++;
+    }
+
+    private void writeDeltaOfDelta(long dod) {
+        if (dod == 0) {
+            timestamps.writeBit(false);
+        } else if (dod >= -63 && dod <= 64) {
+            timestamps.write(0b10, 2);
+            timestamps.write(dod + 63, 7);
+        } else if (dod >= -255 && dod <= 256) {
+            timestamps.write(0b110, 3);
+            timestamps.write(dod + 255, 9);
+        } else if (dod >= -2047 && dod <= 2048) {
+            timestamps.write(0b1110, 4);
+            timestamps.write(dod + 2047, 12);
+        } else {
+            timestamps.write(0b1111, 4);
+            timestamps.write(dod, 64);
+        }
+    }
+
+    private void writeValue(int field, long bits) {
+        BitWriter column = columns[field];
+        if (count == 0) {
+            column.write(bits, 64);
+            previousBits[field] = bits;
+            previousLeading[field] = -1;
+            return;
+        }
+        long xor = bits ^ previousBits[field];
+        previousBits[field] = bits;
+        if (xor == 0) {
+            column.writeBit(false);
+            return;
+        }
+        column.writeBit(true);
+        int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+        int trailing = Long.numberOfTrailingZeros(xor);
+        int previous = previousLeading[field];
+        if (previous >= 0 && leading >= previous && trailing >= previousTrailing[field]) {
+            column.writeBit(false);
+            column.write(xor >>> previousTrailing[field], 64 - previous - previousTrailing[field]);
+        } else {
+            int meaningful = 64 - leading - trailing;
+            column.writeBit(true);
+            column.write(leading, 5);
+            column.write(meaningful == 64 ? 0 : meaningful, 6);
+            column.write(xor >>> trailing, meaningful);
+            previousLeading[field] = leading;
+            previousTrailing[field] = trailing;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public boolean isFull() {
+        return count == capacity;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long getMinTimestamp() {
+        return minTimestamp;
+    }
+
+    public long getMaxTimestamp() {
+        return previousTimestamp;
+    }
+
+    static int headerSize(int fields) {
+        int size = 1 + 4 + 8 + 8 + 2 + 4 * (fields + 1);
+        return (size + 7) & ~7;
+    }
+
+    /**
+     * Serializes the points appended so far; the encoder stays usable.
+     */
+    public byte[] toBytes() {
+        int words = timestamps.wordLength();
+        for (BitWriter column : columns) {
+            words += column.wordLength();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(headerSize(columns.length) + words * 8);
+        buffer.put(VERSION)
+                .putInt(count)
+                .putLong(minTimestamp)
+                .putLong(previousTimestamp)
+                .putShort((short) columns.length)
+                .putInt(timestamps.wordLength());
+        for (BitWriter column : columns) {
+            buffer.putInt(column.wordLength());
+        }
+        buffer.position(headerSize(columns.length));
+        putWords(buffer, timestamps);
+        for (BitWriter column : columns) {
+            putWords(buffer, column);
+        }
+        return buffer.array();
+    }
+
+    private static void putWords(ByteBuffer buffer, BitWriter writer) {
+        int words = writer.wordLength();
+        for (int i = 0; i < words; i++) {
+            buffer.putLong(writer.word(i));
+        }
+    }
+}
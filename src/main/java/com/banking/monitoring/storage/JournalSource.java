@@ -0,0 +1,22 @@
+package com.banking.monitoring.storage;
+
+/**
+ * State that the {@link WriteAheadLog} journals. Each commit asks every source for its records and acknowledges them
+ * once the frame holding them is written; a source keeps its changes until then, so a failed commit loses nothing.
+ * Both methods are only called by one thread at a time.
+ */
+@FunctionalInterface
+public interface JournalSource {
+
+    /**
+     * Emits the records describing the changes since the last acknowledged commit or, if {@code full}, the records
+     * that rebuild the whole state on top of that commit.
+     */
+    void journal(StateJournal journal, boolean full);
+
+    /**
+     * The records emitted by the last {@link #journal} call are written.
+     */
+    default void committed() {
+    }
+}
@@ -0,0 +1,60 @@
+package com.banking.monitoring.storage;
+
+import com.banking.monitoring.model.ApiMetrics;
+
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Numeric {@link ApiMetrics} fields kept in the time-series store, in column order. Values are rounded to
+ * {@code 2^-fractionBits} before encoding: a binary fraction leaves the low mantissa bits zero, which is what keeps
+ * XOR-encoded averages in a few bytes. Counts are whole numbers and lose nothing.
+ */
+public enum MetricField {
+    RESPONSE_TIME(4, Aggregation.MEAN, ApiMetrics::getResponseTime, ApiMetrics::setResponseTime),
+    REQUEST_COUNT(0, Aggregation.SUM, ApiMetrics::getRequestCount, (m, v) -> m.setRequestCount((int) v)),
+    ERROR_COUNT(0, Aggregation.SUM, ApiMetrics::getErrorCount, (m, v) -> m.setErrorCount((int) v)),
+    ERROR_RATE(16, Aggregation.MEAN, ApiMetrics::getErrorRate, ApiMetrics::setErrorRate),
+    THROUGHPUT(8, Aggregation.MEAN, ApiMetrics::getThroughput, ApiMetrics::setThroughput),
+    CPU_USAGE(6, Aggregation.MEAN, ApiMetrics::getCpuUsage, ApiMetrics::setCpuUsage),
+    MEMORY_USAGE(6, Aggregation.MEAN, ApiMetrics::getMemoryUsage, ApiMetrics::setMemoryUsage),
+    NETWORK_LATENCY(4, Aggregation.MEAN, ApiMetrics::getNetworkLatency, ApiMetrics::setNetworkLatency),
+    ANOMALY_SCORE(12, Aggregation.MAX, ApiMetrics::getAnomalyScore, ApiMetrics::setAnomalyScore),
+    PREDICTED_FAILURE_PROBABILITY(12, Aggregation.MAX, ApiMetrics::getPredictedFailureProbability,
+            ApiMetrics::setPredictedFailureProbability);
+
+    public enum Aggregation {
+        MEAN, SUM, MAX
+    }
+
+    static final MetricField[] VALUES = values();
+
+    private final double scale;
+    private final Aggregation aggregation;
+    private final ToDoubleFunction<ApiMetrics> getter;
+    private final ObjDoubleConsumer<ApiMetrics> setter;
+
+    MetricField(int fractionBits, Aggregation aggregation,
+                ToDoubleFunction<ApiMetrics> getter, ObjDoubleConsumer<ApiMetrics> setter) {
+        this.scale = Math.scalb(1.0, fractionBits);
+        this.aggregation = aggregation;
+        this.getter = getter;
+        this.setter = setter;
+    }
+
+    public Aggregation getAggregation() {
+        return aggregation;
+    }
+
+    public double quantize(double value) {
+        return Math.rint(value * scale) / scale;
+    }
+
+    public double get(ApiMetrics metrics) {
+        return getter.applyAsDouble(metrics);
+    }
+
+    public void set(ApiMetrics metrics, double value) {
+        setter.accept(metrics, value);
+    }
+}
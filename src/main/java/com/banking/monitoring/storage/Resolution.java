@@ -0,0 +1,37 @@
+package com.banking.monitoring.storage;
+
+import java.time.Duration;
+
+/**
+ * Storage resolutions, finest first. Each coarser level is downsampled from the one before it.
+ */
+public enum Resolution {
+    RAW("raw", Duration.ZERO),
+    FIVE_MINUTES("5m", Duration.ofMinutes(5)),
+    ONE_HOUR("1h", Duration.ofHours(1));
+
+    private final String key;
+    private final Duration step;
+
+    Resolution(String key, Duration step) {
+        this.key = key;
+        this.step = step;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Duration getStep() {
+        return step;
+    }
+
+    public static Resolution fromKey(String key) {
+        for (Resolution resolution : values()) {
+            if (resolution.key.equalsIgnoreCase(key) || resolution.name().equalsIgnoreCase(key)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution '" + key + "'");
+    }
+}
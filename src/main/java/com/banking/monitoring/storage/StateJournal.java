@@ -0,0 +1,32 @@
+package com.banking.monitoring.storage;
+
+/**
+ * Records that rebuild the in-memory collection counters and detection baselines. Replaying them in order into empty
+ * services rebuilds the state; the {@link WriteAheadLog} encodes them and decodes them again on replay.
+ */
+public interface StateJournal {
+
+    /**
+     * The endpoint's current collection window totals.
+     */
+    void counters(String endpoint, int requests, long responseTimeSum, int errors);
+
+    /**
+     * The endpoint's latest system metrics; {@code NaN} leaves a value unchanged.
+     */
+    void systemMetrics(String endpoint, double cpu, double memory, double latency);
+
+    /**
+     * Values added to the endpoint's response time and error rate windows, oldest first; {@code weights} may be null.
+     */
+    void samples(String endpoint, double[] responseTimes, double[] errorRates, double[] weights);
+
+    /**
+     * The endpoint's baseline was replaced by one built from these values, oldest first; {@code weights} may be null.
+     */
+    void baseline(String endpoint, double[] responseTimes, double[] errorRates, double[] weights);
+
+    void countersExported(String endpoint);
+
+    void baselineExported(String endpoint);
+}
@@ -0,0 +1,640 @@
+package com.banking.monitoring.storage;
+
+import com.banking.monitoring.model.ApiMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Compressed per-endpoint history of the numeric {@link ApiMetrics} fields. Each series fills a {@link BlockEncoder}
+ * of {@code block-points} points; full blocks, and blocks older than {@code max-block-age}, are appended to one
+ * segment file per resolution and UTC day ({@code <directory>/<resolution>/<epoch-day>.seg}). A background task
+ * downsamples into 5-minute and 1-hour series and deletes day files past their resolution's retention. The block
+ * index is rebuilt from the segment files on startup; a torn record at the end of a file is truncated.
+ */
+@Slf4j
+@Service
+public class TimeSeriesStore implements SmartLifecycle {
+    private static final int RECORD_MAGIC = 0x47524C41;
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+    private static final int FIELDS = MetricField.VALUES.length;
+
+    record BlockRef(long day, Path file, long offset, int length, long minTimestamp, long maxTimestamp, int count) {
+    }
+
+    private static final class Series {
+        private final List<BlockRef> sealed = new ArrayList<>();
+        private BlockEncoder open;
+        private long openedAt;
+        private long lastTimestamp = Long.MIN_VALUE;
+        /**
+         * Set under the series lock when retention drops the series; appends that see it start a new one.
+         */
+        private boolean retired;
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int blockPoints;
+    private final Duration maxBlockAge;
+    private final Duration maintenanceInterval;
+    private final Map<Resolution, Duration> retention = new EnumMap<>(Resolution.class);
+    private final boolean lossless;
+    private final LongSupplier clock;
+    private final Map<Resolution, ConcurrentHashMap<String, Series>> series = new EnumMap<>(Resolution.class);
+    private final ConcurrentHashMap<Path, FileChannel> channels = new ConcurrentHashMap<>();
+    private final LongAdder pointsAppended = new LongAdder();
+    private final LongAdder pointsSealed = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder blocksWritten = new LongAdder();
+    private final LongAdder outOfOrder = new LongAdder();
+
+    private ScheduledExecutorService maintenance;
+    private volatile boolean running;
+
+    @Autowired
+    public TimeSeriesStore(MeterRegistry meterRegistry,
+                           @Value("${monitoring.storage.enabled:false}") boolean enabled,
+                           @Value("${monitoring.storage.directory:data/tsdb}") String directory,
+                           @Value("${monitoring.storage.block-points:240}") int blockPoints,
+                           @Value("${monitoring.storage.max-block-age:1h}") Duration maxBlockAge,
+                           @Value("${monitoring.storage.maintenance-interval:5m}") Duration maintenanceInterval,
+                           @Value("${monitoring.storage.retention.raw:7d}") Duration rawRetention,
+                           @Value("${monitoring.storage.retention.five-minutes:90d}") Duration fiveMinuteRetention,
+                           @Value("${monitoring.storage.retention.one-hour:730d}") Duration hourRetention,
+                           @Value("${monitoring.storage.lossless:false}") boolean lossless) {
+        this(meterRegistry, enabled, Path.of(directory), blockPoints, maxBlockAge, maintenanceInterval,
+                rawRetention, fiveMinuteRetention, hourRetention, lossless, System::currentTimeMillis);
+    }
+
+    public TimeSeriesStore(MeterRegistry meterRegistry,
+                           boolean enabled,
+                           Path directory,
+                           int blockPoints,
+                           Duration maxBlockAge,
+                           Duration maintenanceInterval,
+                           Duration rawRetention,
+                           Duration fiveMinuteRetention,
+                           Duration hourRetention,
+                           boolean lossless,
+                           LongSupplier clock) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.blockPoints = Math.max(2, blockPoints);
+        this.maxBlockAge = maxBlockAge;
+        this.maintenanceInterval = maintenanceInterval;
+        this.retention.put(Resolution.RAW, rawRetention);
+        this.retention.put(Resolution.FIVE_MINUTES, fiveMinuteRetention);
+        this.retention.put(Resolution.ONE_HOUR, hourRetention);
+        this.lossless = lossless;
+        this.clock = clock;
+        for (Resolution resolution : Resolution.values()) {
+            series.put(resolution, new ConcurrentHashMap<>());
+        }
+        FunctionCounter.builder("monitoring.storage.points", pointsAppended, LongAdder::sum)
+                .description("Points appended to the time-series store").register(meterRegistry);
+        FunctionCounter.builder("monitoring.storage.bytes", bytesWritten, LongAdder::sum)
+                .description("Encoded block bytes written to segment files").register(meterRegistry);
+        FunctionCounter.builder("monitoring.storage.blocks", blocksWritten, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("monitoring.storage.out-of-order", outOfOrder, LongAdder::sum)
+                .description("Points rejected because they were older than the series head").register(meterRegistry);
+        Gauge.builder("monitoring.storage.bytes-per-point", this, TimeSeriesStore::getBytesPerPoint)
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void append(ApiMetrics metrics) {
+        if (!enabled) {
+            return;
+        }
+        long timestamp = metrics.getTimestampMillis() != 0 ? metrics.getTimestampMillis() : clock.getAsLong();
+        double[] values = new double[FIELDS];
+        for (MetricField field : MetricField.VALUES) {
+            double value = field.get(metrics);
+            values[field.ordinal()] = lossless ? value : field.quantize(value);
+        }
+        append(Resolution.RAW, metrics.getEndpoint(), timestamp, values);
+    }
+
+    void append(Resolution resolution, String endpoint, long timestamp, double[] values) {
+        while (true) {
+            Series target = series.get(resolution).computeIfAbsent(endpoint, k -> new Series());
+            synchronized (target) {
+                if (target.retired) {
+                    continue;
+                }
+                if (timestamp < target.lastTimestamp) {
+                    outOfOrder.increment();
+                    return;
+                }
+                if (target.open == null) {
+                    target.open = new BlockEncoder(FIELDS, blockPoints);
+                    target.openedAt = clock.getAsLong();
+                }
+                target.open.append(timestamp, values);
+                target.lastTimestamp = timestamp;
+                pointsAppended.increment();
+                if (target.open.isFull()) {
+                    seal(resolution, endpoint, target);
+                }
+                return;
+            }
+        }
+    }
+
+    private void seal(Resolution resolution, String endpoint, Series target) {
+        BlockEncoder block = target.open;
+        target.open = null;
+        byte[] bytes = block.toBytes();
+        try {
+            target.sealed.add(write(resolution, endpoint, bytes));
+            pointsSealed.add(block.size());
+            bytesWritten.add(bytes.length);
+            blocksWritten.increment();
+        } catch (IOException e) {
+            log.error("Failed to write {} block for endpoint {}, dropping {} points: {}",
+                    resolution.getKey(), endpoint, block.size(), e.getMessage());
+        }
+    }
+
+    private BlockRef write(Resolution resolution, String endpoint, byte[] block) throws IOException {
+        long minTimestamp = BlockDecoder.minTimestamp(block);
+        long day = Math.floorDiv(minTimestamp, DAY_MILLIS);
+        Path file = segmentFile(resolution, day);
+        byte[] name = endpoint.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer record = ByteBuffer.allocate(4 + 2 + name.length + 4 + block.length)
+                .putInt(RECORD_MAGIC)
+                .putShort((short) name.length)
+                .put(name)
+                .putInt(block.length)
+                .put(block)
+                .flip();
+        FileChannel channel = channel(file);
+        long offset;
+        synchronized (channel) {
+            offset = channel.size();
+            long position = offset;
+            while (record.hasRemaining()) {
+                position += channel.write(record, position);
+            }
+        }
+        return new BlockRef(day, file, offset + 4 + 2 + name.length + 4, block.length, minTimestamp,
+                BlockDecoder.maxTimestamp(block), BlockDecoder.count(block));
+    }
+
+    private Path segmentFile(Resolution resolution, long day) {
+        return directory.resolve(resolution.getKey()).resolve(day + ".seg");
+    }
+
+    private FileChannel channel(Path file) throws IOException {
+        FileChannel channel = channels.get(file);
+        if (channel != null) {
+            return channel;
+        }
+        Files.createDirectories(file.getParent());
+        synchronized (channels) {
+            channel = channels.get(file);
+            if (channel == null) {
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                channels.put(file, channel);
+            }
+            return channel;
+        }
+    }
+
+    /**
+     * Reads a sealed block. A segment without a cached channel is opened read-only for this read alone, so a read
+     * racing retention fails with {@link NoSuchFileException} instead of recreating the deleted file.
+     */
+    private byte[] read(BlockRef ref) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(ref.length());
+        FileChannel cached = channels.get(ref.file());
+        FileChannel channel = cached != null ? cached : FileChannel.open(ref.file(), StandardOpenOption.READ);
+        try {
+            long position = ref.offset();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of " + ref.file());
+                }
+                position += read;
+            }
+        } finally {
+            if (cached == null) {
+                channel.close();
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Streams every point of the series with {@code from <= timestamp < to}, oldest first.
+     */
+    public void scan(String endpoint, Resolution resolution, long from, long to,
+                     BlockDecoder.PointConsumer consumer) {
+        for (byte[] block : blocks(endpoint, resolution, from, to)) {
+            BlockDecoder.decode(block, (timestamp, values) -> {
+                if (timestamp >= from && timestamp < to) {
+                    consumer.accept(timestamp, values);
+                }
+            });
+        }
+    }
+
+    public void scanField(String endpoint, MetricField field, Resolution resolution, long from, long to,
+                          BlockDecoder.ValueConsumer consumer) {
+        for (byte[] block : blocks(endpoint, resolution, from, to)) {
+            BlockDecoder.decodeField(block, field.ordinal(), (timestamp, value) -> {
+                if (timestamp >= from && timestamp < to) {
+                    consumer.accept(timestamp, value);
+                }
+            });
+        }
+    }
+
+    private List<byte[]> blocks(String endpoint, Resolution resolution, long from, long to) {
+        Series source = series.get(resolution).get(endpoint);
+        if (source == null) {
+            return List.of();
+        }
+        List<BlockRef> refs;
+        byte[] open = null;
+        synchronized (source) {
+            refs = new ArrayList<>(source.sealed);
+            if (source.open != null && source.open.getMinTimestamp() < to && source.open.getMaxTimestamp() >= from) {
+                open = source.open.toBytes();
+            }
+        }
+        List<byte[]> blocks = new ArrayList<>();
+        for (BlockRef ref : refs) {
+            if (ref.maxTimestamp() < from || ref.minTimestamp() >= to) {
+                continue;
+            }
+            try {
+                blocks.add(read(ref));
+            } catch (NoSuchFileException | ClosedChannelException e) {
+                // the segment expired while we were reading it
+            } catch (IOException e) {
+                log.debug("Skipping unreadable block in {}: {}", ref.file(), e.getMessage());
+            }
+        }
+        if (open != null) {
+            blocks.add(open);
+        }
+        return blocks;
+    }
+
+    public List<ApiMetrics> read(String endpoint, Resolution resolution, long from, long to) {
+        List<ApiMetrics> points = new ArrayList<>();
+        scan(endpoint, resolution, from, to, (timestamp, values) -> {
+            ApiMetrics metrics = ApiMetrics.builder()
+                    .endpoint(endpoint)
+                    .timestampMillis(timestamp)
+                    .build();
+            for (MetricField field : MetricField.VALUES) {
+                field.set(metrics, values[field.ordinal()]);
+            }
+            points.add(metrics);
+        });
+        return points;
+    }
+
+    public Set<String> getEndpoints(Resolution resolution) {
+        return Set.copyOf(series.get(resolution).keySet());
+    }
+
+    /**
+     * Seals open blocks older than {@code max-block-age}, downsamples completed buckets and applies retention.
+     */
+    public void maintain() {
+        long now = clock.getAsLong();
+        sealAged(now);
+        downsample(now);
+        enforceRetention(now);
+    }
+
+    private void sealAged(long now) {
+        for (Resolution resolution : Resolution.values()) {
+            series.get(resolution).forEach((endpoint, target) -> {
+                synchronized (target) {
+                    if (target.open != null && now - target.openedAt >= maxBlockAge.toMillis()) {
+                        seal(resolution, endpoint, target);
+                    }
+                }
+            });
+        }
+    }
+
+    void downsample(long now) {
+        Resolution[] levels = Resolution.values();
+        for (int level = 1; level < levels.length; level++) {
+            Resolution source = levels[level - 1];
+            Resolution target = levels[level];
+            long step = target.getStep().toMillis();
+            long end = Math.floorDiv(now, step) * step;
+            for (String endpoint : series.get(source).keySet()) {
+                Series existing = series.get(target).get(endpoint);
+                long start = Long.MIN_VALUE;
+                if (existing != null) {
+                    synchronized (existing) {
+                        if (existing.lastTimestamp != Long.MIN_VALUE) {
+                            start = existing.lastTimestamp + step;
+                        }
+                    }
+                }
+                if (start >= end) {
+                    continue;
+                }
+                Downsampler downsampler = new Downsampler(target, endpoint, step);
+                scan(endpoint, source, start, end, downsampler);
+                downsampler.finish();
+            }
+        }
+    }
+
+    void enforceRetention(long now) {
+        for (Resolution resolution : Resolution.values()) {
+            long cutoff = now - retention.get(resolution).toMillis();
+            Path dir = directory.resolve(resolution.getKey());
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList()) {
+                    Long day = day(file);
+                    if (day != null && (day + 1) * DAY_MILLIS <= cutoff) {
+                        delete(resolution, file);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Retention scan of {} failed: {}", dir, e.getMessage());
+            }
+        }
+    }
+
+    private void delete(Resolution resolution, Path file) throws IOException {
+        ConcurrentHashMap<String, Series> targets = series.get(resolution);
+        targets.forEach((endpoint, target) -> {
+            synchronized (target) {
+                target.sealed.removeIf(ref -> ref.file().equals(file));
+                if (target.sealed.isEmpty() && target.open == null) {
+                    target.retired = true;
+                    targets.remove(endpoint, target);
+                }
+            }
+        });
+        FileChannel channel = channels.remove(file);
+        if (channel != null) {
+            channel.close();
+        }
+        Files.deleteIfExists(file);
+        log.info("Deleted {} segment {} past retention", resolution.getKey(), file.getFileName());
+    }
+
+    private static Long day(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(".seg")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(name.substring(0, name.length() - 4));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        for (Resolution resolution : Resolution.values()) {
+            Path dir = directory.resolve(resolution.getKey());
+            if (!Files.isDirectory(dir)) {
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(dir)) {
+                files = listing.filter(file -> day(file) != null)
+                        .sorted((a, b) -> Long.compare(day(a), day(b)))
+                        .toList();
+            }
+            for (Path file : files) {
+                loadSegment(resolution, file, day(file));
+            }
+        }
+    }
+
+    private void loadSegment(Resolution resolution, Path file, long day) throws IOException {
+        FileChannel channel = channel(file);
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer prefix = ByteBuffer.allocate(6);
+        while (position < size) {
+            long recordStart = position;
+            try {
+                prefix.clear();
+                readFully(channel, prefix, position);
+                if (prefix.getInt(0) != RECORD_MAGIC) {
+                    throw new IOException("bad record magic");
+                }
+                int nameLength = Short.toUnsignedInt(prefix.getShort(4));
+                ByteBuffer name = ByteBuffer.allocate(nameLength + 4);
+                readFully(channel, name, position + 6);
+                String endpoint = new String(name.array(), 0, nameLength, StandardCharsets.UTF_8);
+                int length = name.getInt(nameLength);
+                long offset = position + 6 + nameLength + 4;
+                if (length < BlockEncoder.headerSize(0) || offset + length > size) {
+                    throw new IOException("truncated block");
+                }
+                ByteBuffer header = ByteBuffer.allocate(21);
+                readFully(channel, header, offset);
+                BlockRef ref = new BlockRef(day, file, offset, length, header.getLong(5), header.getLong(13),
+                        header.getInt(1));
+                Series target = series.get(resolution).computeIfAbsent(endpoint, k -> new Series());
+                synchronized (target) {
+                    target.sealed.add(ref);
+                    target.lastTimestamp = Math.max(target.lastTimestamp, ref.maxTimestamp());
+                }
+                position = offset + length;
+            } catch (IOException e) {
+                log.warn("Truncating {} at byte {}: {}", file, recordStart, e.getMessage());
+                channel.truncate(recordStart);
+                return;
+            }
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("unexpected end of file");
+            }
+            position += read;
+        }
+        buffer.flip();
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running || !enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            loadIndex();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to open time-series store at " + directory, e);
+        }
+        maintenance = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "tsdb-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = maintenanceInterval.toMillis();
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (RuntimeException e) {
+                log.error("Time-series maintenance failed: ", e);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("Time-series store at {} with {} series", directory.toAbsolutePath(),
+                series.get(Resolution.RAW).size());
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        maintenance.shutdown();
+        try {
+            maintenance.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        close();
+    }
+
+    /**
+     * Writes every open block and closes the segment files.
+     */
+    public void close() {
+        for (Resolution resolution : Resolution.values()) {
+            series.get(resolution).forEach((endpoint, target) -> {
+                synchronized (target) {
+                    if (target.open != null) {
+                        seal(resolution, endpoint, target);
+                    }
+                }
+            });
+        }
+        for (FileChannel channel : channels.values()) {
+            try {
+                channel.force(false);
+                channel.close();
+            } catch (IOException e) {
+                log.debug("Error closing segment file", e);
+            }
+        }
+        channels.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public double getBytesPerPoint() {
+        long points = pointsSealed.sum();
+        return points == 0 ? 0.0 : (double) bytesWritten.sum() / points;
+    }
+
+    public long getOutOfOrderCount() {
+        return outOfOrder.sum();
+    }
+
+    private final class Downsampler implements BlockDecoder.PointConsumer {
+        private final Resolution target;
+        private final String endpoint;
+        private final long step;
+        private final double[] aggregate = new double[FIELDS];
+        private long bucket = Long.MIN_VALUE;
+        private int points;
+
+        private Downsampler(Resolution target, String endpoint, long step) {
+            this.target = target;
+            this.endpoint = endpoint;
+            this.step = step;
+        }
+
+        @Override
+        public void accept(long timestamp, double[] values) {
+            long start = Math.floorDiv(timestamp, step) * step;
+            if (start != bucket) {
+                finish();
+                bucket = start;
+            }
+            for (MetricField field : MetricField.VALUES) {
+                int i = field.ordinal();
+                double value = values[i];
+                if (points == 0) {
+                    aggregate[i] = value;
+                } else if (field.getAggregation() == MetricField.Aggregation.MAX) {
+                    aggregate[i] = Math.max(aggregate[i], value);
+                } else {
+                    aggregate[i] += value;
+                }
+            }
+            points++;
+        }
+
+        private void finish() {
+            if (points == 0) {
+                return;
+            }
+            double[] values = new double[FIELDS];
+            for (MetricField field : MetricField.VALUES) {
+                int i = field.ordinal();
+                double value = field.getAggregation() == MetricField.Aggregation.MEAN
+                        ? aggregate[i] / points : aggregate[i];
+                values[i] = lossless ? value : field.quantize(value);
+            }
+            append(target, endpoint, bucket, values);
+            points = 0;
+        }
+    }
+}
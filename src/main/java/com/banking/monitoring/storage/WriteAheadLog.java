@@ -0,0 +1,610 @@
+package com.banking.monitoring.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Group-commit write-ahead log of the in-memory counters and baselines. Nothing is written on the ingestion path:
+ * every {@code commit-interval} a background thread asks each registered source for what changed since the previous
+ * commit, writes it as one CRC-checked frame to the current segment file ({@code <directory>/<n>.wal}) and fsyncs
+ * according to {@code fsync}: {@code every-commit}, {@code interval} (at most every {@code fsync-interval}) or
+ * {@code never} (left to the OS). A process crash loses at most one commit interval; a power loss at most the fsync
+ * interval.
+ * <p>
+ * A failed write is cut off the segment again, or the log moves on to a new segment if that fails too, so the frames
+ * after it still replay. The sources keep the changes it held and the next commit writes their full state.
+ * <p>
+ * {@link #rotate()} seals the current segment; {@link #writeCheckpoint} stores the state up to a sealed segment and
+ * deletes the segments it covers. Replay reads the latest checkpoint and every later segment, stopping at the first
+ * torn or corrupt frame of a segment.
+ */
+@Slf4j
+@Service
+public class WriteAheadLog {
+    private static final int FRAME_MAGIC = 0x57414C31;
+    private static final int FRAME_HEADER = 12;
+    private static final String SEGMENT_SUFFIX = ".wal";
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    private static final byte COUNTERS = 1;
+    private static final byte SYSTEM_METRICS = 2;
+    private static final byte SAMPLES = 3;
+    private static final byte BASELINE = 4;
+    private static final byte COUNTERS_EXPORTED = 5;
+    private static final byte BASELINE_EXPORTED = 6;
+
+    public enum Fsync {
+        EVERY_COMMIT("every-commit"),
+        INTERVAL("interval"),
+        NEVER("never");
+
+        private final String key;
+
+        Fsync(String key) {
+            this.key = key;
+        }
+
+        public static Fsync fromKey(String key) {
+            for (Fsync fsync : values()) {
+                if (fsync.key.equalsIgnoreCase(key) || fsync.name().equalsIgnoreCase(key)) {
+                    return fsync;
+                }
+            }
+            throw new IllegalArgumentException("Unknown fsync policy '" + key + "'");
+        }
+    }
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration commitInterval;
+    private final Fsync fsync;
+    private final long fsyncIntervalNanos;
+    private final List<JournalSource> sources = new CopyOnWriteArrayList<>();
+    private final RecordBuffer pending = new RecordBuffer(64 * 1024);
+    private final Timer fsyncTimer;
+    private final LongAdder bytesWritten = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder failedCommits = new LongAdder();
+    private final SegmentOpener segmentOpener;
+
+    private ScheduledExecutorService committer;
+    private FileChannel channel;
+    private long segment;
+    private long lastFsyncNanos;
+    private boolean fullState;
+    private volatile boolean open;
+
+    @FunctionalInterface
+    interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    @Autowired
+    public WriteAheadLog(MeterRegistry meterRegistry,
+                         @Value("${monitoring.wal.enabled:false}") boolean enabled,
+                         @Value("${monitoring.wal.directory:data/wal}") String directory,
+                         @Value("${monitoring.wal.commit-interval:50ms}") Duration commitInterval,
+                         @Value("${monitoring.wal.fsync:interval}") String fsync,
+                         @Value("${monitoring.wal.fsync-interval:1s}") Duration fsyncInterval) {
+        this(meterRegistry, enabled, Path.of(directory), commitInterval, Fsync.fromKey(fsync), fsyncInterval);
+    }
+
+    public WriteAheadLog(MeterRegistry meterRegistry,
+                         boolean enabled,
+                         Path directory,
+                         Duration commitInterval,
+                         Fsync fsync,
+                         Duration fsyncInterval) {
+        this(meterRegistry, enabled, directory, commitInterval, fsync, fsyncInterval,
+                file -> FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+    }
+
+    WriteAheadLog(MeterRegistry meterRegistry,
+                  boolean enabled,
+                  Path directory,
+                  Duration commitInterval,
+                  Fsync fsync,
+                  Duration fsyncInterval,
+                  SegmentOpener segmentOpener) {
+        if (commitInterval.isNegative() || commitInterval.isZero()) {
+            throw new IllegalArgumentException("monitoring.wal.commit-interval must be positive");
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.commitInterval = commitInterval;
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.segmentOpener = segmentOpener;
+        this.fsyncTimer = Timer.builder("monitoring.wal.fsync")
+                .description("Time to force a write-ahead log segment to disk").register(meterRegistry);
+        FunctionCounter.builder("monitoring.wal.bytes", bytesWritten, LongAdder::sum)
+                .description("Bytes written to write-ahead log segments").register(meterRegistry);
+        FunctionCounter.builder("monitoring.wal.commits", commits, LongAdder::sum)
+                .description("Group commits written").register(meterRegistry);
+        FunctionCounter.builder("monitoring.wal.failed-commits", failedCommits, LongAdder::sum)
+                .description("Group commits that failed to write; their changes go into the next commit")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Adds a source that each commit asks for the records describing its changes since the previous commit.
+     */
+    public void register(JournalSource source) {
+        sources.add(source);
+    }
+
+    /**
+     * Starts a new segment after the existing ones and starts the committer.
+     */
+    public synchronized void open() throws IOException {
+        if (open || !enabled) {
+            return;
+        }
+        Files.createDirectories(directory);
+        segment = Math.max(lastSeq(SEGMENT_SUFFIX), lastSeq(CHECKPOINT_SUFFIX)) + 1;
+        channel = openSegment(segment);
+        lastFsyncNanos = System.nanoTime();
+        committer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "wal-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = commitInterval.toNanos();
+        committer.scheduleWithFixedDelay(this::commitQuietly, interval, interval, TimeUnit.NANOSECONDS);
+        open = true;
+        log.info("Write-ahead log at {} (segment {}, fsync {})", directory.toAbsolutePath(), segment, fsync.key);
+    }
+
+    /**
+     * Commits and forces the current changes, then closes the segment.
+     */
+    public void close() {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        committer.shutdown();
+        try {
+            committer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                commit();
+                force();
+                channel.close();
+            } catch (IOException e) {
+                log.error("Failed to close write-ahead log segment {}: {}", segment, e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Commits and forces the current segment and starts the next one.
+     *
+     * @return the sealed segment
+     */
+    public synchronized long rotate() throws IOException {
+        if (!open) {
+            throw new IllegalStateException("Write-ahead log is not open");
+        }
+        commit();
+        force();
+        channel.close();
+        long sealed = segment;
+        channel = openSegment(++segment);
+        return sealed;
+    }
+
+    private void commitQuietly() {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            try {
+                commit();
+                if (fsync == Fsync.EVERY_COMMIT
+                        || fsync == Fsync.INTERVAL && System.nanoTime() - lastFsyncNanos >= fsyncIntervalNanos) {
+                    force();
+                }
+            } catch (IOException e) {
+                failedCommits.increment();
+                log.error("Write-ahead log commit to segment {} failed: {}", segment, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the changes of every source as one frame to the current segment and acknowledges them to the sources.
+     * After a failed write the frame holds the sources' full state. The caller holds the log's monitor.
+     */
+    private void commit() throws IOException {
+        pending.clear();
+        for (JournalSource source : sources) {
+            source.journal(pending, fullState);
+        }
+        if (!pending.isEmpty()) {
+            List<ByteBuffer> frames = new ArrayList<>(2);
+            addFrame(frames, pending.buffer);
+            ByteBuffer[] buffers = frames.toArray(ByteBuffer[]::new);
+            long start = -1;
+            long written = 0;
+            try {
+                start = channel.position();
+                while (buffers[1].hasRemaining()) {
+                    written += channel.write(buffers);
+                }
+            } catch (IOException e) {
+                fullState = true;
+                discardFrom(start);
+                throw e;
+            }
+            bytesWritten.add(written);
+            commits.increment();
+        }
+        fullState = false;
+        for (JournalSource source : sources) {
+            source.committed();
+        }
+    }
+
+    /**
+     * Cuts a partly written frame off the current segment, since replay stops at the first torn frame of a segment
+     * and would drop every frame written after it. If that fails, or the position is unknown, the segment is left as
+     * it is and the log continues in a new one.
+     */
+    private void discardFrom(long position) {
+        if (position >= 0) {
+            try {
+                channel.truncate(position);
+                channel.position(position);
+                return;
+            } catch (IOException e) {
+                log.warn("Cannot cut the failed frame off write-ahead log segment {}, starting a new one: {}",
+                        segment, e.getMessage());
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Closing write-ahead log segment {} failed: {}", segment, e.getMessage());
+        }
+        try {
+            channel = openSegment(++segment);
+        } catch (IOException e) {
+            // the closed channel fails the next commit, which tries again
+            log.error("Cannot start write-ahead log segment {}: {}", segment, e.getMessage());
+        }
+    }
+
+    private static void addFrame(List<ByteBuffer> frames, ByteBuffer payload) {
+        payload.flip();
+        CRC32C crc = new CRC32C();
+        crc.update(payload.duplicate());
+        frames.add(ByteBuffer.allocate(FRAME_HEADER)
+                .putInt(FRAME_MAGIC)
+                .putInt(payload.remaining())
+                .putInt((int) crc.getValue())
+                .flip());
+        frames.add(payload);
+    }
+
+    private void force() throws IOException {
+        long start = System.nanoTime();
+        channel.force(false);
+        lastFsyncNanos = System.nanoTime();
+        fsyncTimer.record(lastFsyncNanos - start, TimeUnit.NANOSECONDS);
+    }
+
+    private FileChannel openSegment(long seq) throws IOException {
+        return segmentOpener.open(file(seq, SEGMENT_SUFFIX));
+    }
+
+    private Path file(long seq, String suffix) {
+        return directory.resolve(String.format("%016d%s", seq, suffix));
+    }
+
+    private long lastSeq(String suffix) throws IOException {
+        List<Long> seqs = seqs(suffix);
+        return seqs.isEmpty() ? 0 : seqs.get(seqs.size() - 1);
+    }
+
+    private List<Long> seqs(String suffix) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> listing = Files.list(directory)) {
+            return listing.map(file -> file.getFileName().toString())
+                    .filter(name -> name.endsWith(suffix))
+                    .map(name -> parseSeq(name.substring(0, name.length() - suffix.length())))
+                    .filter(seq -> seq != null)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static Long parseSeq(String name) {
+        try {
+            return Long.parseLong(name);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Replays the latest checkpoint and then every segment up to {@code upTo} into {@code target}.
+     *
+     * @return the number of records replayed
+     */
+    public long replay(long upTo, StateJournal target) throws IOException {
+        long checkpoint = 0;
+        for (long seq : seqs(CHECKPOINT_SUFFIX)) {
+            if (seq <= upTo) {
+                checkpoint = seq;
+            }
+        }
+        long records = 0;
+        if (checkpoint > 0) {
+            records += replayFile(file(checkpoint, CHECKPOINT_SUFFIX), target);
+        }
+        for (long seq : seqs(SEGMENT_SUFFIX)) {
+            if (seq > checkpoint && seq <= upTo) {
+                records += replayFile(file(seq, SEGMENT_SUFFIX), target);
+            }
+        }
+        return records;
+    }
+
+    private static long replayFile(Path file, StateJournal target) throws IOException {
+        long records = 0;
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            while (position < size) {
+                header.clear();
+                if (size - position < FRAME_HEADER || !readFully(in, header, position)
+                        || header.getInt(0) != FRAME_MAGIC) {
+                    log.warn("Stopping replay of {} at byte {}: torn frame header", file, position);
+                    break;
+                }
+                int length = header.getInt(4);
+                if (length < 0 || position + FRAME_HEADER + length > size) {
+                    log.warn("Stopping replay of {} at byte {}: torn frame", file, position);
+                    break;
+                }
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(in, payload, position + FRAME_HEADER);
+                payload.flip();
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != header.getInt(8)) {
+                    log.warn("Stopping replay of {} at byte {}: checksum mismatch", file, position);
+                    break;
+                }
+                records += decode(payload, target);
+                position += FRAME_HEADER + length;
+            }
+        }
+        return records;
+    }
+
+    private static boolean readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = in.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private static long decode(ByteBuffer payload, StateJournal target) throws IOException {
+        long records = 0;
+        try {
+            while (payload.hasRemaining()) {
+                byte type = payload.get();
+                byte[] name = new byte[payload.getInt()];
+                payload.get(name);
+                String endpoint = new String(name, StandardCharsets.UTF_8);
+                switch (type) {
+                    case COUNTERS -> target.counters(endpoint, payload.getInt(), payload.getLong(), payload.getInt());
+                    case SYSTEM_METRICS -> target.systemMetrics(endpoint, payload.getDouble(), payload.getDouble(),
+                            payload.getDouble());
+                    case SAMPLES -> {
+                        double[] responseTimes = getDoubles(payload);
+                        double[] errorRates = getDoubles(payload);
+                        target.samples(endpoint, responseTimes, errorRates, getDoubles(payload));
+                    }
+                    case BASELINE -> {
+                        double[] responseTimes = getDoubles(payload);
+                        double[] errorRates = getDoubles(payload);
+                        target.baseline(endpoint, responseTimes, errorRates, getDoubles(payload));
+                    }
+                    case COUNTERS_EXPORTED -> target.countersExported(endpoint);
+                    case BASELINE_EXPORTED -> target.baselineExported(endpoint);
+                    default -> throw new IOException("unknown record type " + type);
+                }
+                records++;
+            }
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("malformed write-ahead log record", e);
+        }
+        return records;
+    }
+
+    private static double[] getDoubles(ByteBuffer payload) {
+        int count = payload.getInt();
+        if (count < 0) {
+            return null;
+        }
+        double[] values = new double[count];
+        payload.asDoubleBuffer().get(values);
+        payload.position(payload.position() + count * Double.BYTES);
+        return values;
+    }
+
+    /**
+     * Writes the state that {@code writer} emits as the checkpoint of everything up to segment {@code upTo}, then
+     * deletes that segment, the ones before it and older checkpoints. The file is forced and renamed into place,
+     * so a crash leaves either the previous or the new checkpoint.
+     */
+    public void writeCheckpoint(long upTo, Consumer<StateJournal> writer) throws IOException {
+        RecordBuffer state = new RecordBuffer(64 * 1024);
+        writer.accept(state);
+        List<ByteBuffer> frames = new ArrayList<>();
+        addFrame(frames, state.buffer);
+        Path target = file(upTo, CHECKPOINT_SUFFIX);
+        Path temporary = directory.resolve(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer[] sources = frames.toArray(ByteBuffer[]::new);
+            while (sources[sources.length - 1].hasRemaining()) {
+                out.write(sources);
+            }
+            out.force(true);
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (long seq : seqs(SEGMENT_SUFFIX)) {
+            if (seq <= upTo) {
+                Files.deleteIfExists(file(seq, SEGMENT_SUFFIX));
+            }
+        }
+        for (long seq : seqs(CHECKPOINT_SUFFIX)) {
+            if (seq < upTo) {
+                Files.deleteIfExists(file(seq, CHECKPOINT_SUFFIX));
+            }
+        }
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * Growable buffer of encoded records.
+     */
+    private static final class RecordBuffer implements StateJournal {
+        private ByteBuffer buffer;
+
+        private RecordBuffer(int capacity) {
+            this.buffer = ByteBuffer.allocate(capacity);
+        }
+
+        private boolean isEmpty() {
+            return buffer.position() == 0;
+        }
+
+        private void clear() {
+            buffer.clear();
+        }
+
+        private ByteBuffer start(byte type, String endpoint, int bodyBytes) {
+            byte[] name = endpoint.getBytes(StandardCharsets.UTF_8);
+            int needed = 1 + 4 + name.length + bodyBytes;
+            if (buffer.remaining() < needed) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + needed));
+                buffer.flip();
+                grown.put(buffer);
+                buffer = grown;
+            }
+            return buffer.put(type).putInt(name.length).put(name);
+        }
+
+        @Override
+        public void counters(String endpoint, int requests, long responseTimeSum, int errors) {
+            start(COUNTERS, endpoint, 16).putInt(requests).putLong(responseTimeSum).putInt(errors);
+        }
+
+        @Override
+        public void systemMetrics(String endpoint, double cpu, double memory, double latency) {
+            start(SYSTEM_METRICS, endpoint, 24).putDouble(cpu).putDouble(memory).putDouble(latency);
+        }
+
+        @Override
+        public void samples(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            values(SAMPLES, endpoint, responseTimes, errorRates, weights);
+        }
+
+        @Override
+        public void baseline(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            values(BASELINE, endpoint, responseTimes, errorRates, weights);
+        }
+
+        private void values(byte type, String endpoint, double[] responseTimes, double[] errorRates,
+                            double[] weights) {
+            int values = responseTimes.length + errorRates.length + (weights != null ? weights.length : 0);
+            ByteBuffer out = start(type, endpoint, 12 + values * Double.BYTES);
+            putDoubles(out, responseTimes);
+            putDoubles(out, errorRates);
+            putDoubles(out, weights);
+        }
+
+        /**
+         * Writes the length, -1 for null, and the values.
+         */
+        private static void putDoubles(ByteBuffer out, double[] values) {
+            if (values == null) {
+                out.putInt(-1);
+                return;
+            }
+            out.putInt(values.length);
+            for (double value : values) {
+                out.putDouble(value);
+            }
+        }
+
+        @Override
+        public void countersExported(String endpoint) {
+            exported(COUNTERS_EXPORTED, endpoint);
+        }
+
+        @Override
+        public void baselineExported(String endpoint) {
+            exported(BASELINE_EXPORTED, endpoint);
+        }
+
+        private void exported(byte type, String endpoint) {
+            start(type, endpoint, 0);
+        }
+    }
+}
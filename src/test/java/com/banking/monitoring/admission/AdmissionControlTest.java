@@ -0,0 +1,37 @@
+package com.banking.monitoring.admission;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdmissionControlTest {
+    private final AtomicLong clock = new AtomicLong();
+
+    private final AdmissionControl admissionControl = new AdmissionControl(new SimpleMeterRegistry(), true, 10, 4,
+            100, 1.5, 0.8, Duration.ofMillis(100), Duration.ofSeconds(1), clock::get);
+
+    @Test
+    void admitUntil_ReleasesTheSlotEarlyAndOnlyOnce() {
+        ConcurrencyLimiter limiter = admissionControl.getProcessLimiter();
+        Disposable slow = admissionControl.admitUntil(limiter, ConcurrencyLimiter.Priority.NORMAL, release -> {
+            release.run();
+            release.run();
+            return Mono.never();
+        }).subscribe();
+        Disposable held = admissionControl.admit(limiter, ConcurrencyLimiter.Priority.NORMAL, Mono::never)
+                .subscribe();
+
+        assertEquals(1, limiter.getInFlight());
+
+        slow.dispose();
+        assertEquals(1, limiter.getInFlight());
+        held.dispose();
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,69 @@
+package com.banking.monitoring.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyLimiterTest {
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+
+    private ConcurrencyLimiter limiter(int initialLimit) {
+        return new ConcurrencyLimiter("test", initialLimit, 4, 500, 1.5, 0.8, 100 * MILLI, 10, clock::get);
+    }
+
+    /**
+     * Runs one 100 ms window with the limiter saturated, every request taking {@code latencyMillis}.
+     */
+    private void window(ConcurrencyLimiter limiter, long latencyMillis) {
+        int slots = 0;
+        while (limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL)) {
+            slots++;
+        }
+        clock.addAndGet(100 * MILLI);
+        for (int i = 0; i < slots; i++) {
+            limiter.release(clock.get() - latencyMillis * MILLI, true);
+        }
+    }
+
+    @Test
+    void limit_GrowsWhileLatencyIsSteadyAndBacksOffWhenItClimbs() {
+        ConcurrencyLimiter limiter = limiter(20);
+        for (int i = 0; i < 20; i++) {
+            window(limiter, 10);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        for (int i = 0; i < 10; i++) {
+            window(limiter, 40);
+        }
+        assertTrue(limiter.getLimit() < grown / 2, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 4);
+    }
+
+    @Test
+    void normalTraffic_LeavesHeadroomForCriticalRequests() {
+        ConcurrencyLimiter limiter = limiter(10);
+        int normal = 0;
+        while (limiter.tryAcquire(ConcurrencyLimiter.Priority.NORMAL)) {
+            normal++;
+        }
+        assertEquals(8, normal);
+        assertFalse(limiter.hasCapacity(ConcurrencyLimiter.Priority.NORMAL));
+        assertTrue(limiter.hasCapacity(ConcurrencyLimiter.Priority.CRITICAL));
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertTrue(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+        assertFalse(limiter.tryAcquire(ConcurrencyLimiter.Priority.CRITICAL));
+
+        assertEquals(8, limiter.getAcceptedCount(ConcurrencyLimiter.Priority.NORMAL));
+        assertEquals(1, limiter.getRejectedCount(ConcurrencyLimiter.Priority.NORMAL));
+        assertEquals(1, limiter.getRejectedCount(ConcurrencyLimiter.Priority.CRITICAL));
+
+        limiter.release(limiter.start(), false);
+        assertEquals(9, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,125 @@
+package com.banking.monitoring.cluster;
+
+import com.banking.monitoring.model.ForwardedSample;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClusterRouterTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final List<List<ForwardedSample>> batches = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failing = new AtomicBoolean();
+    private DisposableServer peer;
+    private ClusterMembership membership;
+    private ClusterRouter router;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        peer = HttpServer.create()
+                .port(0)
+                .route(routes -> routes.post(ClusterRouter.SAMPLES_PATH, (request, response) ->
+                        request.receive().aggregate().asString().flatMap(body -> {
+                            if (failing.get()) {
+                                return response.status(503).send().then();
+                            }
+                            try {
+                                batches.add(MAPPER.readValue(body, new TypeReference<>() {
+                                }));
+                            } catch (IOException e) {
+                                return Mono.error(e);
+                            }
+                            return response.status(200).send().then();
+                        })))
+                .bindNow();
+        membership = new ClusterMembership(true, "a",
+                Map.of("a", "http://localhost:" + unusedPort(), "b", "http://localhost:" + peer.port()), 128);
+        router = new ClusterRouter(membership, WebClient.builder(), ClusterAuth.disabled(),
+                new SimpleMeterRegistry(), Duration.ofHours(1), 2, 1000, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        peer.disposeNow();
+    }
+
+    @Test
+    void flush_PreAggregatesSamplesPerEndpointAndBatchesThem() {
+        List<String> endpoints = endpointsOwnedBy("b", 3);
+        for (String endpoint : endpoints) {
+            for (int i = 0; i < 10; i++) {
+                router.forwardRequests(endpoint, 1, 100, i < 2 ? 1 : 0);
+            }
+        }
+        router.forwardSystemMetrics(endpoints.get(0), 90.0, Double.NaN, Double.NaN);
+
+        router.flush().block();
+
+        assertEquals(2, batches.size());
+        List<ForwardedSample> samples = batches.stream().flatMap(List::stream).toList();
+        assertEquals(3, samples.size());
+        for (ForwardedSample sample : samples) {
+            assertEquals(10, sample.getRequests());
+            assertEquals(1000, sample.getResponseTimeSum());
+            assertEquals(2, sample.getErrors());
+            assertNull(sample.getMemoryUsage());
+        }
+        assertEquals(90.0, samples.stream()
+                .filter(sample -> sample.getEndpoint().equals(endpoints.get(0)))
+                .findFirst().orElseThrow().getCpuUsage());
+        assertEquals(3, router.getForwardedCount());
+    }
+
+    @Test
+    void flush_RequeuesFailedBatchesForTheNextFlush() {
+        String endpoint = endpointsOwnedBy("b", 1).get(0);
+        router.forwardRequests(endpoint, 5, 500, 1);
+
+        failing.set(true);
+        router.flush().block();
+        assertEquals(1, router.getFailedCount());
+        assertTrue(batches.isEmpty());
+
+        router.forwardRequests(endpoint, 1, 100, 0);
+        failing.set(false);
+        router.flush().block();
+
+        assertEquals(1, batches.size());
+        ForwardedSample sample = batches.get(0).get(0);
+        assertEquals(6, sample.getRequests());
+        assertEquals(600, sample.getResponseTimeSum());
+        assertEquals(1, sample.getErrors());
+    }
+
+    private List<String> endpointsOwnedBy(String node, int count) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> "/api/accounts/" + i)
+                .filter(endpoint -> membership.owner(endpoint).equals(node))
+                .limit(count)
+                .toList();
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.banking.monitoring.cluster;
+
+import com.banking.monitoring.ApiMonitoringApplication;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.ApiRequest;
+import com.banking.monitoring.model.NodeSummary;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.MetricsCollectionService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs three full application instances on localhost: two form the initial cluster, the third joins through a
+ * membership update and takes over its share of endpoints.
+ */
+class ClusterServiceTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+    private static final List<String> ENDPOINTS = IntStream.range(0, 40)
+            .mapToObj(i -> "/api/transfers/" + i)
+            .toList();
+    private static final String SECRET = "cluster-test-secret";
+
+    private static final Map<String, Integer> ports = new LinkedHashMap<>();
+    private static final Map<String, ConfigurableApplicationContext> nodes = new LinkedHashMap<>();
+    private static final WebClient client = WebClient.builder()
+            .defaultHeader(ClusterAuth.SECRET_HEADER, SECRET)
+            .build();
+
+    @BeforeAll
+    static void startCluster() throws IOException {
+        for (String node : List.of("a", "b", "c")) {
+            ports.put(node, freePort());
+        }
+        start("a", members("a", "b"));
+        start("b", members("a", "b"));
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        nodes.values().forEach(ConfigurableApplicationContext::close);
+    }
+
+    @Test
+    void forwardsSamplesToOwnersAndHandsOffStateWhenANodeJoins() throws InterruptedException {
+        for (String endpoint : ENDPOINTS) {
+            bean("a", MetricsCollectionService.class).recordRequest(endpoint, 120, false);
+            bean("a", MetricsCollectionService.class).updateSystemMetrics(endpoint, 40, 50, 20);
+        }
+        bean("a", ClusterRouter.class).flush().block(TIMEOUT);
+
+        assertEquals(ownedBy("a", "a", "b"), bean("a", MetricsCollectionService.class).getEndpoints());
+        assertEquals(ownedBy("b", "a", "b"), bean("b", MetricsCollectionService.class).getEndpoints());
+
+        for (String endpoint : ENDPOINTS) {
+            AnomalyDetectionService detection = bean(ownerOf(endpoint, "a", "b"), AnomalyDetectionService.class);
+            for (int i = 0; i < 20; i++) {
+                detection.evaluate(sample(endpoint, 100 + i));
+            }
+        }
+
+        start("c", members("a", "b", "c"));
+        Map<String, Integer> handedOff = client.put()
+                .uri(url("a") + "/api/cluster/members")
+                .bodyValue(members("a", "b", "c"))
+                .retrieve()
+                .bodyToMono(new ParameterizedTypeReference<Map<String, Integer>>() {
+                })
+                .block(TIMEOUT);
+
+        Set<String> ownedByC = ownedBy("c", "a", "b", "c");
+        assertFalse(ownedByC.isEmpty());
+        assertEquals(Set.of("c"), handedOff.keySet());
+        assertEquals(ownedByC, bean("c", MetricsCollectionService.class).getEndpoints());
+        assertEquals(ownedByC, bean("c", AnomalyDetectionService.class).getBaselinedEndpoints());
+        for (String node : List.of("a", "b")) {
+            assertEquals(ownedBy(node, "a", "b", "c"), bean(node, MetricsCollectionService.class).getEndpoints());
+            assertEquals(ownedBy(node, "a", "b", "c"),
+                    bean(node, AnomalyDetectionService.class).getBaselinedEndpoints());
+        }
+
+        NodeSummary fleet = client.get()
+                .uri(url("b") + "/api/cluster/summary")
+                .retrieve()
+                .bodyToMono(NodeSummary.class)
+                .block(TIMEOUT);
+        assertEquals(Set.of("a", "b", "c"), new HashSet<>(fleet.getNodes()));
+        assertTrue(fleet.getUnreachable().isEmpty());
+        assertEquals(ENDPOINTS.size(), fleet.getCollectingEndpoints());
+        assertEquals(ENDPOINTS.size(), fleet.getBaselinedEndpoints());
+
+        String endpointOnC = ownedByC.iterator().next();
+        ApiRequest processed = client.post()
+                .uri(url("a") + "/api/monitoring/process")
+                .bodyValue(ApiRequest.builder()
+                        .endpoint(endpointOnC)
+                        .method("GET")
+                        .responseTime(110)
+                        .statusCode(200)
+                        .timestamp(LocalDateTime.now())
+                        .build())
+                .retrieve()
+                .bodyToMono(ApiRequest.class)
+                .block(TIMEOUT);
+        assertEquals(endpointOnC, processed.getEndpoint());
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (processCount("c") == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, processCount("c"));
+        assertEquals(0, processCount("a"));
+    }
+
+    @Test
+    void rejectsClusterCallsWithoutTheSecret() {
+        Map<String, String> before = bean("a", ClusterMembership.class).getMembers();
+        HttpStatusCode status = WebClient.create().put()
+                .uri(url("a") + "/api/cluster/members")
+                .bodyValue(members("a"))
+                .exchangeToMono(response -> Mono.just(response.statusCode()))
+                .block(TIMEOUT);
+
+        assertEquals(HttpStatus.UNAUTHORIZED, status);
+        assertEquals(before, bean("a", ClusterMembership.class).getMembers());
+    }
+
+    private static long processCount(String node) {
+        return bean(node, MeterRegistry.class).get("monitoring.pipeline.stage").tag("stage", "process").timer().count();
+    }
+
+    private static void start(String node, Map<String, String> members) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=" + ports.get(node),
+                "--openai.api-key=test",
+                "--monitoring.collection.interval=1h",
+                "--monitoring.cluster.enabled=true",
+                "--monitoring.cluster.node-id=" + node,
+                "--monitoring.cluster.secret=" + SECRET,
+                "--monitoring.cluster.members=" + members.entrySet().stream()
+                        .map(member -> member.getKey() + "=" + member.getValue())
+                        .collect(Collectors.joining(",")),
+                "--logging.level.com.banking.monitoring=INFO"));
+        nodes.put(node, new SpringApplicationBuilder(ApiMonitoringApplication.class)
+                .run(args.toArray(new String[0])));
+    }
+
+    private static <T> T bean(String node, Class<T> type) {
+        return nodes.get(node).getBean(type);
+    }
+
+    private static Map<String, String> members(String... ids) {
+        Map<String, String> members = new LinkedHashMap<>();
+        for (String id : ids) {
+            members.put(id, url(id));
+        }
+        return members;
+    }
+
+    private static String url(String node) {
+        return "http://localhost:" + ports.get(node);
+    }
+
+    private static String ownerOf(String endpoint, String... ids) {
+        return new HashRing(List.of(ids), 128).owner(endpoint);
+    }
+
+    private static Set<String> ownedBy(String node, String... ids) {
+        return ENDPOINTS.stream()
+                .filter(endpoint -> ownerOf(endpoint, ids).equals(node))
+                .collect(Collectors.toSet());
+    }
+
+    private static ApiMetrics sample(String endpoint, double responseTime) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .responseTime(responseTime)
+                .errorRate(0.01)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.banking.monitoring.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashRingTest {
+
+    @Test
+    void owner_IsDeterministicAndIndependentOfMemberOrder() {
+        HashRing ring = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing reordered = new HashRing(List.of("c", "a", "b"), 128);
+
+        for (int i = 0; i < 1000; i++) {
+            String endpoint = "/api/orders/" + i;
+            assertEquals(ring.owner(endpoint), reordered.owner(endpoint));
+        }
+    }
+
+    @Test
+    void owner_SpreadsEndpointsEvenly() {
+        HashRing ring = new HashRing(List.of("a", "b", "c", "d"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+        int endpoints = 40_000;
+
+        for (int i = 0; i < endpoints; i++) {
+            counts.merge(ring.owner("/api/orders/" + i), 1, Integer::sum);
+        }
+
+        assertEquals(4, counts.size());
+        counts.values().forEach(count -> assertEquals(endpoints / 4.0, count, endpoints / 4.0 * 0.2));
+    }
+
+    @Test
+    void addingNode_OnlyMovesEndpointsToTheNewNode() {
+        HashRing before = new HashRing(List.of("a", "b", "c"), 128);
+        HashRing after = new HashRing(List.of("a", "b", "c", "d"), 128);
+        int endpoints = 20_000;
+        int moved = 0;
+
+        for (int i = 0; i < endpoints; i++) {
+            String endpoint = "/api/payments/" + i;
+            String previous = before.owner(endpoint);
+            String current = after.owner(endpoint);
+            if (!previous.equals(current)) {
+                assertEquals("d", current);
+                moved++;
+            }
+        }
+
+        assertEquals(endpoints / 4.0, moved, endpoints / 4.0 * 0.2);
+    }
+}
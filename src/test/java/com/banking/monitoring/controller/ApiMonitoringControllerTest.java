@@ -0,0 +1,97 @@
+package com.banking.monitoring.controller;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.ApiMonitoringService;
+import com.banking.monitoring.service.GenerativeAIService;
+import com.banking.monitoring.service.PipelineMetrics;
+import com.banking.monitoring.stub.OpenAiStubServer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ApiMonitoringControllerTest {
+
+    static {
+        System.setProperty("net.bytebuddy.experimental", "true");
+    }
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Mock
+    private ApiMonitoringService monitoringService;
+
+    private String streamAnalysis() {
+        WebTestClient client = WebTestClient
+                .bindToController(new ApiMonitoringController(monitoringService, null, null))
+                .configureClient()
+                .responseTimeout(Duration.ofSeconds(10))
+                .build();
+        return client.post().uri("/api/monitoring/analysis")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .bodyValue(ApiMetrics.builder().endpoint("/api/test").responseTime(900.0).build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    /**
+     * Reassembles the text the way an SSE client sees it: one leading space after {@code data:} is dropped.
+     */
+    private static String text(String body) throws JsonProcessingException {
+        StringBuilder text = new StringBuilder();
+        for (String line : body.split("\n")) {
+            if (line.startsWith("data:")) {
+                String data = line.substring(5);
+                text.append(MAPPER.readValue(data.startsWith(" ") ? data.substring(1) : data, String.class));
+            }
+        }
+        return text.toString();
+    }
+
+    @Test
+    void streamAnalysis_KeepsLeadingSpacesOnTheWire() throws JsonProcessingException {
+        when(monitoringService.streamAnalysis(any()))
+                .thenReturn(Flux.just("Check", " the", "  pool", "\nthen retry"));
+
+        String body = streamAnalysis();
+
+        assertNotNull(body);
+        assertTrue(body.contains("event:delta\ndata:\" the\"\n\n"), body);
+        assertTrue(body.contains("data:\"\\nthen retry\"\n"), body);
+        assertEquals("Check the  pool\nthen retry", text(body));
+    }
+
+    @Test
+    void streamAnalysis_RelaysStubDeltasVerbatim() throws JsonProcessingException {
+        try (OpenAiStubServer stub = OpenAiStubServer.start()) {
+            stub.setTokenInterval(Duration.ofMillis(1));
+            GenerativeAIService service = new GenerativeAIService("test-key", stub.getBaseUrl(),
+                    Duration.ofSeconds(5), PipelineMetrics.noop());
+            when(monitoringService.streamAnalysis(any()))
+                    .thenAnswer(invocation -> service.streamApiAnalysis(invocation.getArgument(0)));
+
+            String body = streamAnalysis();
+
+            assertNotNull(body);
+            assertTrue(body.contains("data:\" endpoint\""), body);
+            assertTrue(text(body).startsWith("The endpoint shows elevated latency. Check downstream dependencies"),
+                    body);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.banking.monitoring.id;
+
+import com.banking.monitoring.cluster.ClusterMembership;
+import com.banking.monitoring.model.ApiRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdGeneratorTest {
+
+    @Test
+    void ids_AreUniqueAcrossThreadsAndSortByMillisecond() throws InterruptedException {
+        AtomicLong clock = new AtomicLong(IdGenerator.EPOCH + 1_000_000);
+        IdGenerator generator = new IdGenerator(42, clock::get);
+        int threads = 48;
+        int perThread = 5_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long previous = Long.MIN_VALUE;
+                for (int i = 0; i < perThread; i++) {
+                    if (i % 1_000 == 0) {
+                        clock.addAndGet(1);
+                    }
+                    long id = generator.next();
+                    assertTrue(id > previous, "monotonic per thread");
+                    assertEquals(42, IdGenerator.nodeOf(id));
+                    previous = id;
+                    ids.add(id);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(threads * perThread, ids.size(), "48 threads share 32 slots without duplicates");
+
+        long before = generator.next();
+        clock.addAndGet(5);
+        long after = generator.next();
+        assertTrue(after > before);
+        assertEquals(clock.get(), IdGenerator.timestampOf(after));
+    }
+
+    @Test
+    void sequenceOverflowAndClockStepBack_BorrowTheNextMillisecond() {
+        AtomicLong clock = new AtomicLong(IdGenerator.EPOCH + 10_000);
+        IdGenerator generator = new IdGenerator(0, clock::get);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 1_500; i++) {
+            long id = generator.next();
+            assertTrue(id > previous);
+            ids.add(id);
+            previous = id;
+        }
+        assertEquals(1_500, ids.size());
+        assertEquals(clock.get() + 2, IdGenerator.timestampOf(previous), "512 IDs per millisecond per slot");
+
+        clock.addAndGet(-60_000);
+        assertTrue(generator.next() > previous, "stepping back never reissues an ID");
+        assertThrows(IllegalArgumentException.class, () -> new IdGenerator(256, clock::get));
+    }
+
+    @Test
+    void derivedNode_FailsOnCollidingClusterMembers() {
+        Map<String, String> members = Map.of("node-23", "http://a", "node-32", "http://b", "node-1", "http://c");
+        ClusterMembership colliding = new ClusterMembership(true, "node-23", members, 16);
+        ClusterMembership distinct = new ClusterMembership(true, "node-1", Map.of("node-1", "http://c",
+                "node-2", "http://d"), 16);
+
+        assertThrows(IllegalStateException.class, () -> IdGenerator.derivedNode(colliding));
+        assertEquals(IdGenerator.hashNode("node-1"), IdGenerator.derivedNode(distinct));
+        assertEquals(IdGenerator.hashNode("node-23"), IdGenerator.derivedNode(
+                new ClusterMembership(false, "node-23", members, 16)));
+    }
+
+    @Test
+    void recordIds_AcceptNumbersDecimalStringsAndLegacyUuids() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+
+        assertEquals(42, mapper.readValue("{\"id\":42}", ApiRequest.class).getId());
+        assertEquals(42, mapper.readValue("{\"id\":\"42\"}", ApiRequest.class).getId());
+        assertEquals(0, mapper.readValue("{\"id\":\"6f1c2a9e-3b7d-4c55-9a51-0d2b8e7f4c10\"}", ApiRequest.class)
+                .getId());
+        assertEquals(0, mapper.readValue("{\"id\":null}", ApiRequest.class).getId());
+    }
+}
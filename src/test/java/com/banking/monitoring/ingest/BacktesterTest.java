@@ -0,0 +1,108 @@
+package com.banking.monitoring.ingest;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacktesterTest {
+
+    private static final int MINUTES = 3_000;
+    private static final long MINUTE = 60_000;
+
+    @TempDir
+    Path directory;
+
+    private Backtester backtester;
+
+    @BeforeEach
+    void setUp() {
+        backtester = new Backtester(directory, 4, 1_000_000, 16, Duration.ofMinutes(1));
+    }
+
+    /**
+     * Two endpoints sampled once a minute, each with a labelled 20-minute latency incident every 500 minutes.
+     */
+    private Path recording() throws IOException {
+        Random random = new Random(11);
+        StringBuilder csv = new StringBuilder("timestamp,endpoint,responseTime,errorRate,label\n");
+        long start = 1_700_000_000_000L;
+        for (int minute = 0; minute < MINUTES; minute++) {
+            for (String endpoint : List.of("/api/accounts", "/api/payments")) {
+                boolean incident = minute >= 200 && minute % 500 >= 200 && minute % 500 < 220;
+                double responseTime = incident ? 400 + random.nextGaussian() * 20 : 100 + random.nextGaussian() * 5;
+                csv.append(start + minute * MINUTE).append(',').append(endpoint).append(',')
+                        .append(String.format("%.2f", responseTime)).append(",0.01,")
+                        .append(incident ? 1 : 0).append('\n');
+            }
+        }
+        Path file = directory.resolve("recording.csv");
+        Files.writeString(file, csv);
+        return file;
+    }
+
+    @Test
+    void backtest_ReportsDetectionAgainstLabels() throws IOException {
+        Backtester.DetectorConfig config = new Backtester.DetectorConfig(null, 100, 3.0, 0, 3);
+
+        Backtester.BacktestResult result = backtester.backtest(recording(), null, List.of(config));
+
+        assertEquals(2 * MINUTES, result.samples());
+        assertEquals(2, result.endpoints());
+        assertTrue(result.labeled());
+        assertEquals((MINUTES - 1) * MINUTE, result.spanMillis());
+        Backtester.ConfigResult replay = result.configs().get(0);
+        // 6 incidents per endpoint, each caught once the alert has seen 3 anomalous samples
+        assertEquals(12, replay.events());
+        assertEquals(12, replay.detectedEvents());
+        assertEquals(0, replay.falseAlerts());
+        assertEquals(2 * MINUTE, replay.maxDelayMillis());
+        assertEquals(12 * 20, replay.anomalies().truePositives() + replay.anomalies().falseNegatives());
+        assertTrue(replay.anomalies().getPrecision() > 0.9, "precision " + replay.anomalies().getPrecision());
+        // incident samples enter the baseline window, so later samples of a long incident stop standing out
+        assertTrue(replay.anomalies().getRecall() > 0.3, "recall " + replay.anomalies().getRecall());
+        assertTrue(replay.samplesPerSecond() > 0);
+        assertTrue(replay.speedup() > 1);
+    }
+
+    @Test
+    void backtest_ComparesConfigurations() throws IOException {
+        Backtester.Request request = new Backtester.Request("recording.csv", null, null, List.of(20, 100),
+                List.of(1.0, 3.0), null);
+        List<Backtester.DetectorConfig> configs = request.expand();
+
+        Backtester.BacktestResult result = backtester.backtest(backtester.resolve(recording().getFileName()
+                .toString()), null, configs);
+
+        assertEquals(4, result.configs().size());
+        assertEquals(4, result.threads());
+        Backtester.ConfigResult loose = result.configs().get(0);
+        Backtester.ConfigResult strict = result.configs().get(1);
+        assertEquals(1.0, loose.config().zScoreThreshold());
+        assertEquals(3.0, strict.config().zScoreThreshold());
+        // a lower threshold flags more normal samples
+        assertTrue(loose.anomalies().falsePositives() > strict.anomalies().falsePositives());
+    }
+
+    @Test
+    void resolve_RejectsPathsOutsideDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> backtester.resolve("../recording.csv"));
+    }
+
+    @Test
+    void backtest_RejectsTooManyConfigurations() {
+        List<Backtester.DetectorConfig> configs = java.util.Collections.nCopies(17,
+                new Backtester.DetectorConfig(null, 0, 0, 0, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> backtester.backtest(directory.resolve("recording.csv"),
+                null, configs));
+    }
+}
@@ -0,0 +1,153 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.service.AnomalyDetectionService;
+import com.banking.monitoring.service.PredictiveAnalyticsService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BulkImporterTest {
+
+    static {
+        System.setProperty("net.bytebuddy.experimental", "true");
+    }
+
+    private static final int ROWS = 20_000;
+
+    @TempDir
+    Path directory;
+
+    @Mock
+    private AnomalyDetectionService anomalyDetectionService;
+
+    @Mock
+    private PredictiveAnalyticsService predictiveAnalyticsService;
+
+    private BulkImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        // 64KB chunks over 4 threads so segment and chunk edges fall inside lines
+        importer = new BulkImporter(anomalyDetectionService, predictiveAnalyticsService, directory, 4,
+                DataSize.ofKilobytes(64), 100, 10);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ApiMetrics> baselineRows() {
+        ArgumentCaptor<List<ApiMetrics>> captor = ArgumentCaptor.forClass(List.class);
+        verify(anomalyDetectionService).updateBaselineStats(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void importFile_CsvAcrossChunks() throws IOException {
+        when(anomalyDetectionService.getWindowSize()).thenReturn(10);
+        StringBuilder csv = new StringBuilder("timestamp,endpoint,responseTime,statusCode,cpuUsage\r\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(i).append(",\"/api/endpoint-").append(i % 3).append("\",").append(i).append(',')
+                    .append(i % 10 == 0 ? 500 : 200).append(",42.5\r\n");
+        }
+        csv.append("20000,/api/endpoint-0,not-a-number,200,1\r\n");
+        Files.writeString(directory.resolve("requests.csv"), csv);
+
+        BulkImporter.ImportResult result = importer.importFile(importer.resolve("requests.csv"), null, true);
+
+        assertEquals(ROWS + 1, result.rows());
+        assertEquals(1, result.malformedRows());
+        assertEquals(3, result.endpoints());
+        assertEquals(3, result.trainedEndpoints());
+        assertTrue(result.bytes() > 4 * 64 * 1024);
+
+        Map<String, List<ApiMetrics>> baselines = baselineRows().stream()
+                .collect(Collectors.groupingBy(ApiMetrics::getEndpoint));
+        List<Double> latest = baselines.get("/api/endpoint-0").stream().map(ApiMetrics::getResponseTime).toList();
+        // the last 10 rows of the endpoint, oldest first
+        assertEquals(10, latest.size());
+        assertEquals(19_998.0, latest.get(9));
+        assertEquals(19_971.0, latest.get(0));
+        assertEquals(1.0, baselines.get("/api/endpoint-0").get(3).getErrorRate());
+
+        ArgumentCaptor<List<ApiMetrics>> training = ArgumentCaptor.forClass(List.class);
+        verify(predictiveAnalyticsService).trainModel(eq("/api/endpoint-1"), training.capture());
+        assertEquals(100, training.getValue().size());
+        assertTrue(training.getValue().stream().allMatch(m -> m.getCpuUsage() == 42.5));
+    }
+
+    @Test
+    void importFile_ArffWithDefaultEndpoint() throws IOException {
+        when(anomalyDetectionService.getWindowSize()).thenReturn(10);
+        Files.writeString(directory.resolve("history.arff"), """
+                % exported from the legacy monitor
+                @relation api_metrics
+                @attribute responseTime numeric
+                @attribute 'error_rate' numeric
+                @attribute\tmemoryUsage\tnumeric
+
+                @data
+                100.5,0.01,55
+                ?,0.02,56
+                130,0.5,?
+                """);
+
+        BulkImporter.ImportResult result = importer.importFile(importer.resolve("history.arff"), "/api/legacy", false);
+
+        assertEquals(3, result.rows());
+        assertEquals(0, result.malformedRows());
+        List<ApiMetrics> rows = baselineRows();
+        assertEquals(List.of(100.5, 0.0, 130.0), rows.stream().map(ApiMetrics::getResponseTime).toList());
+        assertEquals(0.5, rows.get(2).getErrorRate());
+        assertEquals(56.0, rows.get(1).getMemoryUsage());
+        assertTrue(rows.stream().allMatch(m -> "/api/legacy".equals(m.getEndpoint())));
+        verify(predictiveAnalyticsService, never()).trainModel(anyString(), anyList());
+    }
+
+    @Test
+    void importFile_SkipsEndpointsPastLimit() throws IOException {
+        when(anomalyDetectionService.getWindowSize()).thenReturn(10);
+        StringBuilder csv = new StringBuilder("endpoint,responseTime\n");
+        for (int i = 0; i < 20; i++) {
+            csv.append("/api/endpoint-").append(i).append(",100\n");
+        }
+        Files.writeString(directory.resolve("wide.csv"), csv);
+
+        BulkImporter.ImportResult result = importer.importFile(importer.resolve("wide.csv"), null, false);
+
+        assertEquals(10, result.endpoints());
+        assertEquals(10, result.skippedRows());
+    }
+
+    @Test
+    void importFile_RequiresEndpoint() throws IOException {
+        Files.writeString(directory.resolve("anonymous.csv"), "responseTime\n100\n");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> importer.importFile(importer.resolve("anonymous.csv"), null, false));
+        verifyNoInteractions(anomalyDetectionService);
+    }
+
+    @Test
+    void resolve_RejectsPathsOutsideDirectory() {
+        assertThrows(IllegalArgumentException.class, () -> importer.resolve("../secrets.csv"));
+        assertThrows(IllegalArgumentException.class, () -> importer.resolve("/etc/passwd"));
+        assertEquals(directory.resolve("nested/data.csv").toAbsolutePath(), importer.resolve("nested/data.csv"));
+    }
+}
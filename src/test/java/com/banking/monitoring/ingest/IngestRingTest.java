@@ -0,0 +1,123 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import com.banking.monitoring.service.PipelineMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IngestRingTest {
+
+    private static final int PRODUCERS = 4;
+    private static final int SAMPLES = 20_000;
+
+    private final ConcurrentHashMap<String, AtomicInteger> requestCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicInteger> errorCounters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, AtomicLong> totalResponseTime = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Double> cpuUsage = new ConcurrentHashMap<>();
+
+    private MetricsCollectionService collector() {
+        return MetricsCollectionService.builder(PipelineMetrics.noop())
+                .counters(requestCounters, errorCounters, totalResponseTime)
+                .systemMetrics(cpuUsage, new ConcurrentHashMap<>(), new ConcurrentHashMap<>())
+                .build();
+    }
+
+    @Test
+    void recordRequest_AppliesEverySampleFromConcurrentProducers() throws InterruptedException {
+        for (IngestRing.WaitStrategy strategy : IngestRing.WaitStrategy.values()) {
+            requestCounters.clear();
+            errorCounters.clear();
+            totalResponseTime.clear();
+            // a small ring so producers wrap around it and wait for the consumer
+            IngestRing ring = new IngestRing(collector(), new SimpleMeterRegistry(), true, 256, 64, strategy);
+            ring.start();
+
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < PRODUCERS; p++) {
+                Thread producer = new Thread(() -> {
+                    for (int i = 0; i < SAMPLES; i++) {
+                        ring.recordRequest("/api/endpoint-" + (i % 8), 10, i % 10 == 0);
+                    }
+                });
+                producers.add(producer);
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            ring.stop();
+
+            assertEquals(0, ring.getLag());
+            assertEquals(PRODUCERS * SAMPLES, requestCounters.values().stream().mapToInt(AtomicInteger::get).sum());
+            assertEquals(PRODUCERS * SAMPLES / 10, errorCounters.values().stream().mapToInt(AtomicInteger::get).sum());
+            assertEquals(10L * PRODUCERS * SAMPLES,
+                    totalResponseTime.values().stream().mapToLong(AtomicLong::get).sum());
+            assertEquals(PRODUCERS * SAMPLES / 8, requestCounters.get("/api/endpoint-3").get(), strategy.name());
+        }
+    }
+
+    @Test
+    void offerRequest_AppliesSamplesThatFindTheRingFullInline() throws InterruptedException {
+        // two slots, so most offers find the ring full and must not wait for the consumer
+        IngestRing ring = new IngestRing(collector(), null, true, 2, 2, IngestRing.WaitStrategy.SLEEPING);
+        ring.start();
+
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < SAMPLES; i++) {
+                    ring.offerRequest("/api/endpoint-" + (i % 8), 10, false);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        ring.stop();
+
+        assertEquals(0, ring.getLag());
+        assertEquals(PRODUCERS * SAMPLES, requestCounters.values().stream().mapToInt(AtomicInteger::get).sum());
+    }
+
+    @Test
+    void updateSystemMetrics_KeepsLatestValue() {
+        IngestRing ring = new IngestRing(collector(), null, true, 1024, 1024, IngestRing.WaitStrategy.BLOCKING);
+        ring.start();
+        for (int i = 1; i <= 1_000; i++) {
+            ring.updateSystemMetrics("/api/accounts", i, 50, 5);
+        }
+        ring.stop();
+
+        assertEquals(1_000.0, cpuUsage.get("/api/accounts"));
+    }
+
+    @Test
+    void recordRequest_AppliesInlineWhenDisabled() {
+        IngestRing ring = new IngestRing(collector(), null, false, 1024, 64, IngestRing.WaitStrategy.BLOCKING);
+        ring.start();
+
+        ring.recordRequest("/api/accounts", 120, true);
+
+        assertFalse(ring.isRunning());
+        assertEquals(1, requestCounters.get("/api/accounts").get());
+        assertEquals(1, errorCounters.get("/api/accounts").get());
+    }
+
+    @Test
+    void constructor_RoundsCapacityToPowerOfTwo() {
+        assertEquals(1024, new IngestRing(collector(), null, true, 1000, 64, IngestRing.WaitStrategy.BLOCKING)
+                .getCapacity());
+        assertEquals(IngestRing.WaitStrategy.BUSY_SPIN, IngestRing.WaitStrategy.fromKey("busy-spin"));
+        assertThrows(IllegalArgumentException.class, () -> IngestRing.WaitStrategy.fromKey("lazy"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsdLineParserTest {
+
+    static {
+        System.setProperty("net.bytebuddy.experimental", "true");
+    }
+
+    @Mock
+    private MetricsCollectionService metricsCollectionService;
+
+    private StatsdLineParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new StatsdLineParser(metricsCollectionService, 16);
+    }
+
+    private void parse(String packet) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        buffer.put(packet.getBytes(StandardCharsets.UTF_8)).flip();
+        parser.parse(buffer);
+    }
+
+    @Test
+    void parse_Timer() {
+        parse("/api/accounts:120|ms");
+
+        verify(metricsCollectionService).recordRequests("/api/accounts", 1, 120L, 0);
+    }
+
+    @Test
+    void parse_TimerWithSampleRate() {
+        parse("/api/accounts:12.5|ms|@0.1");
+
+        verify(metricsCollectionService).recordRequests("/api/accounts", 10, 125L, 0);
+    }
+
+    @Test
+    void parse_ErrorCounter() {
+        parse("/api/payments.errors:3|c|@0.5");
+
+        verify(metricsCollectionService).recordRequests("/api/payments", 0, 0L, 6);
+    }
+
+    @Test
+    void parse_SystemGauges() {
+        parse("/api/payments.cpu:75.5|g\n/api/payments.memory:61|g\n/api/payments.latency:1.2e2|g");
+
+        verify(metricsCollectionService).updateCpuUsage("/api/payments", 75.5);
+        verify(metricsCollectionService).updateMemoryUsage("/api/payments", 61.0);
+        verify(metricsCollectionService).updateNetworkLatency("/api/payments", 120.0);
+    }
+
+    @Test
+    void parse_MultiMetricPacket() {
+        parse("/api/a:10|ms\r\n/api/b:20|ms|#region:eu\n\n/api/a:30|ms\n");
+
+        verify(metricsCollectionService).recordRequests("/api/a", 1, 10L, 0);
+        verify(metricsCollectionService).recordRequests("/api/b", 1, 20L, 0);
+        verify(metricsCollectionService).recordRequests("/api/a", 1, 30L, 0);
+        assertEquals(3, parser.getLines());
+        assertEquals(2, parser.internedNames());
+    }
+
+    @Test
+    void parse_InternsEndpointNames() {
+        parse("/api/a:10|ms");
+        parse("/api/a:20|ms");
+
+        ArgumentCaptor<String> endpoints = ArgumentCaptor.forClass(String.class);
+        verify(metricsCollectionService, times(2)).recordRequests(endpoints.capture(), eq(1), anyLong(), eq(0));
+        assertSame(endpoints.getAllValues().get(0), endpoints.getAllValues().get(1));
+    }
+
+    @Test
+    void parse_MalformedAndUnmappedLines() {
+        parse("no-colon|ms\n/api/a:abc|ms\n/api/a:1\n/api/a:1|ms|@2\n/api/a:5|s\n/api/a.requests:1|c");
+
+        verify(metricsCollectionService, never()).recordRequests(anyString(), anyInt(), anyLong(), anyInt());
+        assertEquals(6, parser.getLines());
+        assertEquals(4, parser.getMalformedLines());
+        assertEquals(2, parser.getUnmappedLines());
+    }
+}
@@ -0,0 +1,58 @@
+package com.banking.monitoring.ingest;
+
+import com.banking.monitoring.service.MetricsCollectionService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class StatsdListenerTest {
+
+    static {
+        System.setProperty("net.bytebuddy.experimental", "true");
+    }
+
+    @Mock
+    private MetricsCollectionService metricsCollectionService;
+
+    private StatsdListener listener;
+
+    @AfterEach
+    void tearDown() {
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test
+    void receivesAndAppliesPackets() throws Exception {
+        listener = new StatsdListener(metricsCollectionService, new SimpleMeterRegistry(),
+                "127.0.0.1", 0, 1 << 20, 2048, 8, 1, 1024);
+        listener.start();
+
+        byte[] payload = "/api/test:100|ms\n/api/test.errors:1|c\n/api/test.cpu:42|g".getBytes(StandardCharsets.UTF_8);
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.send(new DatagramPacket(payload, payload.length,
+                    InetAddress.getLoopbackAddress(), listener.getLocalPort()));
+        }
+
+        verify(metricsCollectionService, timeout(2000)).recordRequests("/api/test", 1, 100L, 0);
+        verify(metricsCollectionService, timeout(2000)).recordRequests("/api/test", 0, 0L, 1);
+        verify(metricsCollectionService, timeout(2000)).updateCpuUsage("/api/test", 42.0);
+        assertEquals(1, listener.getPacketsReceived());
+        assertEquals(0, listener.getPacketsDropped());
+        assertEquals(3, listener.lines());
+    }
+}
@@ -0,0 +1,104 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveSamplerTest {
+    private static final long MILLI = 1_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final Random random = new Random(3);
+
+    private AdaptiveSampler sampler(int minPerEndpoint) {
+        return new AdaptiveSampler(new SimpleMeterRegistry(), true, Duration.ofMillis(10), 0.01,
+                Duration.ofSeconds(1), 3.0, minPerEndpoint, Duration.ofSeconds(1), clock::get, random::nextDouble);
+    }
+
+    private static ApiRequest request(String endpoint, long responseTime, int status) {
+        return ApiRequest.builder().endpoint(endpoint).responseTime(responseTime).statusCode(status).build();
+    }
+
+    /**
+     * Runs one adjust interval in which every analyzed request takes {@code latencyMillis}.
+     */
+    private void interval(AdaptiveSampler sampler, int requests, long latencyMillis) {
+        for (int i = 0; i < requests; i++) {
+            if (sampler.sample(request("/api/orders", 100, 200)) > 0) {
+                long start = sampler.start();
+                clock.addAndGet(latencyMillis * MILLI);
+                sampler.complete(start);
+                clock.addAndGet(-latencyMillis * MILLI);
+            }
+        }
+        clock.addAndGet(1_000 * MILLI);
+    }
+
+    @Test
+    void rate_DropsUnderOverloadAndRecoversWhenLatencyFalls() {
+        AdaptiveSampler sampler = sampler(0);
+        assertEquals(1.0, sampler.getRate());
+
+        for (int i = 0; i < 5; i++) {
+            interval(sampler, 1_000, 40);
+        }
+        double overloaded = sampler.getRate();
+        assertTrue(overloaded < 0.1, "rate " + overloaded);
+        assertTrue(sampler.getEffectiveRates().get("/api/orders") < 0.2);
+
+        for (int i = 0; i < 30; i++) {
+            interval(sampler, 1_000, 1);
+        }
+        assertEquals(1.0, sampler.getRate());
+        assertEquals(1.0, sampler.getEffectiveRates().get("/api/orders"));
+    }
+
+    @Test
+    void errorsAndOutliersAreAlwaysKept_NormalTrafficIsWeighted() {
+        AdaptiveSampler sampler = sampler(0);
+        for (int i = 0; i < 5; i++) {
+            interval(sampler, 1_000, 40);
+        }
+        assertEquals(1.0, sampler.sample(request("/api/orders", 100, 503)));
+        assertEquals(1.0, sampler.sample(request("/api/orders", 400, 200)));
+        assertEquals(1.0, sampler.sample(request("/api/orders", 2_000, 200)));
+        double rate = sampler.getRate();
+        assertTrue(rate < 1.0);
+
+        double weightedCount = 0;
+        int n = 200_000;
+        for (int i = 0; i < n; i++) {
+            double weight = sampler.sample(request("/api/orders", 100, 200));
+            assertTrue(weight == 0 || weight == 1.0 / rate);
+            weightedCount += weight;
+        }
+        assertEquals(n, weightedCount, n * 0.05);
+    }
+
+    @Test
+    void quietEndpointsKeepAMinimumPerInterval() {
+        AdaptiveSampler sampler = sampler(5);
+        for (int i = 0; i < 5; i++) {
+            interval(sampler, 1_000, 40);
+        }
+        int kept = 0;
+        for (int i = 0; i < 5; i++) {
+            if (sampler.sample(request("/api/rare", 100, 200)) > 0) {
+                kept++;
+            }
+        }
+        assertEquals(5, kept);
+    }
+
+    @Test
+    void disabledSampler_KeepsEverything() {
+        AdaptiveSampler sampler = AdaptiveSampler.disabled();
+        assertEquals(1.0, sampler.sample(request("/api/orders", 100, 200)));
+    }
+}
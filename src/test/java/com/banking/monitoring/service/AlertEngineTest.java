@@ -0,0 +1,167 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertEngineTest {
+
+    private AtomicLong clock;
+    private AlertEngine alertEngine;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        alertEngine = new AlertEngine(new SimpleMeterRegistry(), 3, Duration.ofSeconds(2), 2,
+                Duration.ofSeconds(10), Duration.ofMinutes(5), clock::get);
+    }
+
+    private Optional<Alert> sample(boolean anomalous, double score, long atSeconds) {
+        clock.set(TimeUnit.SECONDS.toNanos(atSeconds));
+        return alertEngine.evaluate(ApiMetrics.builder()
+                .endpoint("/api/test")
+                .isAnomaly(anomalous)
+                .anomalyScore(anomalous ? score : 0.0)
+                .anomalyReason(anomalous ? "response time is 4.0 standard deviations from normal" : null)
+                .build());
+    }
+
+    @Test
+    void opensOnlyAfterEnterSamplesAndDuration() {
+        assertTrue(sample(true, 0.7, 0).isEmpty());
+        assertTrue(sample(true, 0.8, 1).isEmpty());
+        assertTrue(sample(true, 0.9, 1).isEmpty());
+
+        Optional<Alert> opened = sample(true, 0.6, 2);
+
+        assertTrue(opened.isPresent());
+        assertEquals(Alert.Status.OPEN, opened.get().getStatus());
+        assertEquals(0.9, opened.get().getPeakScore());
+        assertEquals(4, opened.get().getAnomalousSamples());
+        assertEquals(1, alertEngine.getOpenAlerts().size());
+    }
+
+    @Test
+    void isolatedAnomaliesNeverOpen() {
+        for (int i = 0; i < 100; i++) {
+            assertTrue(sample(i % 3 == 0, 0.8, i).isEmpty());
+        }
+        assertEquals(0, alertEngine.getOpenedCount());
+        assertTrue(alertEngine.getOpenAlerts().isEmpty());
+    }
+
+    @Test
+    void sustainedIncidentEmitsOnlyTransitions() {
+        List<Alert> emitted = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sample(true, 0.8, i / 10).ifPresent(emitted::add);
+        }
+        for (int i = 0; i < 200; i++) {
+            sample(false, 0, 100 + i / 10).ifPresent(emitted::add);
+        }
+
+        assertEquals(2, emitted.size());
+        assertEquals(Alert.Status.OPEN, emitted.get(0).getStatus());
+        assertEquals(Alert.Status.RESOLVED, emitted.get(1).getStatus());
+        assertEquals(emitted.get(0).getId(), emitted.get(1).getId());
+        assertEquals(500.0, alertEngine.getReductionRatio());
+    }
+
+    @Test
+    void resolveRequiresQuietPeriodAndResetsOnRelapse() {
+        for (int i = 0; i < 4; i++) {
+            sample(true, 0.8, i);
+        }
+        assertTrue(sample(false, 0, 10).isEmpty());
+        assertTrue(sample(false, 0, 15).isEmpty());
+        assertTrue(sample(true, 0.8, 19).isEmpty());
+        assertTrue(sample(false, 0, 20).isEmpty());
+        assertTrue(sample(false, 0, 25).isEmpty());
+
+        Optional<Alert> resolved = sample(false, 0, 30);
+
+        assertTrue(resolved.isPresent());
+        assertEquals(Alert.Status.RESOLVED, resolved.get().getStatus());
+        assertNotNull(resolved.get().getResolvedAt());
+        assertTrue(alertEngine.getOpenAlerts().isEmpty());
+    }
+
+    @Test
+    void reopeningWithinSuppressionWindowIsNotAnnounced() {
+        for (int i = 0; i < 4; i++) {
+            sample(true, 0.8, i);
+        }
+        sample(false, 0, 10);
+        assertTrue(sample(false, 0, 20).isPresent());
+
+        List<Alert> emitted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            sample(true, 0.8, 60 + i).ifPresent(emitted::add);
+        }
+        sample(false, 0, 70).ifPresent(emitted::add);
+        sample(false, 0, 80).ifPresent(emitted::add);
+        for (int i = 0; i < 4; i++) {
+            sample(true, 0.8, 400 + i).ifPresent(emitted::add);
+        }
+
+        assertEquals(1, emitted.size());
+        assertEquals(Alert.Status.OPEN, emitted.get(0).getStatus());
+        assertEquals(1, alertEngine.getSuppressedCount());
+    }
+
+    @Test
+    void forgetsEndpointOnceClearAndPastSuppressionWindow() {
+        sample(true, 0.8, 0);
+        sample(false, 0, 1);
+        assertEquals(0, alertEngine.getTrackedEndpoints());
+
+        for (int i = 0; i < 4; i++) {
+            sample(true, 0.8, 10 + i);
+        }
+        sample(false, 0, 20);
+        assertTrue(sample(false, 0, 30).isPresent());
+        sample(false, 0, 100);
+        assertEquals(1, alertEngine.getTrackedEndpoints());
+
+        sample(false, 0, 400);
+        assertEquals(0, alertEngine.getTrackedEndpoints());
+        assertTrue(alertEngine.getOpenAlerts().isEmpty());
+    }
+
+    @Test
+    void concurrentSamplesOpenExactlyOnce() throws InterruptedException {
+        AlertEngine engine = new AlertEngine(new SimpleMeterRegistry(), 3, Duration.ZERO, 2,
+                Duration.ZERO, Duration.ofMinutes(5), System::nanoTime);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        CountDownLatch done = new CountDownLatch(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    engine.evaluate(ApiMetrics.builder().endpoint("/api/test").isAnomaly(true)
+                            .anomalyScore(0.8).build());
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        assertEquals(1, engine.getOpenedCount());
+        assertEquals(40_000, engine.getAnomalousSamples());
+        assertEquals(40_000, engine.getOpenAlerts().get(0).getAnomalousSamples());
+    }
+}
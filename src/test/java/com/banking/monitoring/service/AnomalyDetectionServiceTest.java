@@ -1,15 +1,19 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.model.AnomalyReason;
 import com.banking.monitoring.model.ApiMetrics;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -20,7 +24,6 @@ class AnomalyDetectionServiceTest {
         System.setProperty("net.bytebuddy.experimental", "true");
     }
 
-    @InjectMocks
     private AnomalyDetectionService anomalyDetectionService;
 
     private ApiMetrics normalMetrics;
@@ -29,6 +32,8 @@ class AnomalyDetectionServiceTest {
 
     @BeforeEach
     void setUp() {
+        anomalyDetectionService = new AnomalyDetectionService(PipelineMetrics.noop());
+
         normalMetrics = ApiMetrics.builder()
                 .endpoint("/api/test")
                 .responseTime(100.0)
@@ -96,6 +101,108 @@ class AnomalyDetectionServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void evaluate_RecordsReasonCodesAndRendersTextOnDemand() {
+        for (int i = 0; i < 10; i++) {
+            anomalyDetectionService.evaluate(normalMetrics);
+        }
+        ApiMetrics metrics = ApiMetrics.builder()
+                .endpoint("/api/test")
+                .responseTime(1000.0)
+                .errorRate(0.01)
+                .cpuUsage(90.0)
+                .networkLatency(300.0)
+                .timestamp(LocalDateTime.now())
+                .build();
+
+        anomalyDetectionService.evaluate(metrics);
+
+        assertTrue(metrics.isAnomaly());
+        assertEquals(AnomalyReason.RESPONSE_TIME.mask() | AnomalyReason.CPU_USAGE.mask()
+                | AnomalyReason.NETWORK_LATENCY.mask(), metrics.getAnomalyReasons());
+        assertTrue(metrics.getResponseTimeZScore() > 2.0);
+        assertEquals(String.format(Locale.ROOT,
+                "response time (1000.00ms) is %.1f standard deviations from normal, "
+                        + "system metrics: High CPU usage (90.0%%), High network latency (300.0ms)",
+                metrics.getResponseTimeZScore()), metrics.getAnomalyReason());
+    }
+
+    @Test
+    void evaluate_UsesConfiguredThresholds() {
+        AnomalyScorer.Thresholds strict = new AnomalyScorer.Thresholds(3.0, 95.0, 80.0, 200.0);
+        for (boolean batched : new boolean[]{false, true}) {
+            AnomalyDetectionService defaults = new AnomalyDetectionService(PipelineMetrics.noop(), 100, true);
+            AnomalyDetectionService configured = new AnomalyDetectionService(PipelineMetrics.noop(), 100, true, strict);
+            for (int i = 0; i < 20; i++) {
+                ApiMetrics warm = normalMetrics.toBuilder().responseTime(i % 2 == 0 ? 90 : 110).build();
+                defaults.evaluate(warm.toBuilder().build());
+                configured.evaluate(warm.toBuilder().build());
+            }
+            ApiMetrics spike = normalMetrics.toBuilder().responseTime(130).cpuUsage(90).build();
+            ApiMetrics byDefaults = spike.toBuilder().build();
+            ApiMetrics byConfigured = spike.toBuilder().build();
+            if (batched) {
+                defaults.evaluateAll(List.of(byDefaults));
+                configured.evaluateAll(List.of(byConfigured));
+            } else {
+                defaults.evaluate(byDefaults);
+                configured.evaluate(byConfigured);
+            }
+
+            String mode = batched ? "evaluateAll" : "evaluate";
+            assertTrue(byDefaults.getResponseTimeZScore() > 2.0 && byDefaults.getResponseTimeZScore() < 3.0, mode);
+            assertEquals(AnomalyReason.RESPONSE_TIME.mask() | AnomalyReason.CPU_USAGE.mask(),
+                    byDefaults.getAnomalyReasons(), mode);
+            assertFalse(byConfigured.isAnomaly(), mode);
+            assertEquals(0.0, byConfigured.getAnomalyScore(), mode);
+        }
+    }
+
+    @Test
+    void evaluateAll_MatchesPerSampleEvaluationWithScalarAndVectorScorers() {
+        assertFalse(AnomalyScorer.create(true, AnomalyScorer.Thresholds.DEFAULT) instanceof ScalarAnomalyScorer,
+                "tests run with --add-modules jdk.incubator.vector");
+        for (boolean vectorized : new boolean[]{false, true}) {
+            AnomalyDetectionService reference = new AnomalyDetectionService(PipelineMetrics.noop(), 20, false);
+            AnomalyDetectionService batched = new AnomalyDetectionService(PipelineMetrics.noop(), 20, vectorized);
+            Random random = new Random(5);
+            for (int round = 0; round < 40; round++) {
+                List<ApiMetrics> expected = new ArrayList<>();
+                List<ApiMetrics> actual = new ArrayList<>();
+                // 37 endpoints leave a scalar tail after every vector width; a few repeat within the batch.
+                for (int i = 0; i < 41; i++) {
+                    String endpoint = "/api/e" + (i % 37);
+                    boolean spike = random.nextInt(15) == 0;
+                    double responseTime = round == 1 && i == 0 ? 100 : spike ? 900 : 100 + random.nextGaussian() * 10;
+                    double errorRate = random.nextInt(10) == 0 ? 0.5 : 0.01;
+                    double cpu = random.nextInt(20) == 0 ? 95 : 40;
+                    for (List<ApiMetrics> target : List.of(expected, actual)) {
+                        target.add(ApiMetrics.builder()
+                                .endpoint(endpoint)
+                                .responseTime(responseTime)
+                                .errorRate(errorRate)
+                                .cpuUsage(cpu)
+                                .networkLatency(i == 3 ? 250 : 10)
+                                .build());
+                    }
+                }
+                expected.forEach(reference::evaluate);
+                batched.evaluateAll(actual);
+                for (int i = 0; i < expected.size(); i++) {
+                    ApiMetrics e = expected.get(i);
+                    ApiMetrics a = actual.get(i);
+                    String sample = "vectorized=" + vectorized + " round " + round + " sample " + i;
+                    assertEquals(e.getAnomalyReasons(), a.getAnomalyReasons(), sample);
+                    assertEquals(e.isAnomaly(), a.isAnomaly(), sample);
+                    assertEquals(e.getResponseTimeZScore(), a.getResponseTimeZScore(), 1e-12, sample);
+                    assertEquals(e.getErrorRateZScore(), a.getErrorRateZScore(), 1e-12, sample);
+                    assertEquals(e.getAnomalyScore(), a.getAnomalyScore(), 1e-12, sample);
+                    assertEquals(e.getAnomalyReason(), a.getAnomalyReason(), sample);
+                }
+            }
+        }
+    }
+
     @Test
     void detectAnomaly_NewEndpoint() {
         ApiMetrics newEndpointMetrics = ApiMetrics.builder()
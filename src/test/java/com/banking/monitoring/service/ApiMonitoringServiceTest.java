@@ -1,5 +1,7 @@
 package com.banking.monitoring.service;
 
+import com.banking.monitoring.id.IdGenerator;
+import com.banking.monitoring.model.Alert;
 import com.banking.monitoring.model.ApiRequest;
 import com.banking.monitoring.model.ApiMetrics;
 import org.junit.jupiter.api.BeforeEach;
@@ -7,13 +9,19 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,6 +38,27 @@ class ApiMonitoringServiceTest {
     @Mock
     private GenerativeAIService generativeAIService;
 
+    @Spy
+    private PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+
+    @Mock
+    private MonitoringEventStream eventStream;
+
+    @Mock
+    private AlertEngine alertEngine;
+
+    @Spy
+    private IdGenerator idGenerator = IdGenerator.standalone();
+
+    @Spy
+    private AdaptiveSampler sampler = AdaptiveSampler.disabled();
+
+    @Mock
+    private IncidentCorrelator incidentCorrelator;
+
+    @Spy
+    private HeavyHitters heavyHitters = HeavyHitters.disabled();
+
     @InjectMocks
     private ApiMonitoringService monitoringService;
 
@@ -57,11 +86,10 @@ class ApiMonitoringServiceTest {
     @Test
     void processApiRequest_Success() {
         when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(testMetrics));
-        when(generativeAIService.analyzeApiRequest(any())).thenReturn(Mono.just("Analysis result"));
 
         StepVerifier.create(monitoringService.processApiRequest(testRequest))
                 .expectNextMatches(request -> {
-                    assertNotNull(request.getId());
+                    assertNotEquals(0, request.getId());
                     assertNotNull(request.getTimestamp());
                     assertEquals("/api/test", request.getEndpoint());
                     assertEquals(200, request.getStatusCode());
@@ -69,6 +97,21 @@ class ApiMonitoringServiceTest {
                     return true;
                 })
                 .verifyComplete();
+
+        verify(generativeAIService, never()).analyzeApiRequest(any());
+        verify(eventStream, never()).publishAlert(any());
+    }
+
+    @Test
+    void processApiRequest_SampledOutSkipsDetection() {
+        when(sampler.sample(any())).thenReturn(0.0);
+
+        StepVerifier.create(monitoringService.processApiRequest(testRequest))
+                .expectNextMatches(request -> request.getSampleWeight() == 0 && !request.isAnomaly())
+                .verifyComplete();
+
+        verify(anomalyDetectionService, never()).detectAnomaly(any());
+        verify(alertEngine, never()).evaluate(any());
     }
 
     @Test
@@ -82,7 +125,12 @@ class ApiMonitoringServiceTest {
                 .anomalyReason("High response time")
                 .build();
 
+        Alert opened = Alert.builder().id("alert-1").endpoint("/api/test").status(Alert.Status.OPEN).build();
         when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(anomalyMetrics));
+        when(incidentCorrelator.correlate(anomalyMetrics))
+                .thenReturn(new IncidentCorrelator.Correlation("incident-1", true));
+        when(incidentCorrelator.claim("incident-1")).thenReturn(true);
+        when(alertEngine.evaluate(anomalyMetrics)).thenReturn(Optional.of(opened));
         when(generativeAIService.analyzeApiRequest(any())).thenReturn(Mono.just("Analysis result"));
 
         StepVerifier.create(monitoringService.processApiRequest(testRequest))
@@ -93,6 +141,78 @@ class ApiMonitoringServiceTest {
                     return true;
                 })
                 .verifyComplete();
+
+        assertEquals("Analysis result", opened.getAnalysis());
+        assertEquals("incident-1", opened.getIncidentId());
+        verify(incidentCorrelator).setAnalysis("incident-1", "Analysis result");
+        verify(eventStream).publishAlert(opened);
+    }
+
+    @Test
+    void processApiRequest_CompletesSamplerBeforeAnalysis() {
+        ApiMetrics anomalyMetrics = testMetrics.toBuilder().isAnomaly(true).anomalyScore(0.8).build();
+        Alert opened = Alert.builder().id("alert-1").endpoint("/api/test").status(Alert.Status.OPEN).build();
+        when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(anomalyMetrics));
+        when(incidentCorrelator.correlate(anomalyMetrics))
+                .thenReturn(new IncidentCorrelator.Correlation("incident-1", true));
+        when(incidentCorrelator.claim("incident-1")).thenReturn(true);
+        when(alertEngine.evaluate(anomalyMetrics)).thenReturn(Optional.of(opened));
+        when(generativeAIService.analyzeApiRequest(any())).thenReturn(Mono.never());
+
+        Disposable processing = monitoringService.processApiRequest(testRequest).subscribe();
+
+        verify(sampler).complete(anyLong());
+        processing.dispose();
+        verify(sampler).complete(anyLong());
+    }
+
+    @Test
+    void processApiRequest_AlertJoiningAnalyzedIncident() {
+        ApiMetrics anomalyMetrics = testMetrics.toBuilder().isAnomaly(true).anomalyScore(0.8).build();
+        Alert opened = Alert.builder().id("alert-2").endpoint("/api/test").status(Alert.Status.OPEN).build();
+        when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(anomalyMetrics));
+        when(incidentCorrelator.correlate(anomalyMetrics))
+                .thenReturn(new IncidentCorrelator.Correlation("incident-1", false));
+        when(incidentCorrelator.claim("incident-1")).thenReturn(false);
+        when(incidentCorrelator.getAnalysis("incident-1")).thenReturn(Optional.of("Shared database is degraded"));
+        when(alertEngine.evaluate(anomalyMetrics)).thenReturn(Optional.of(opened));
+
+        StepVerifier.create(monitoringService.processApiRequest(testRequest))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals("incident-1", opened.getIncidentId());
+        assertEquals("Shared database is degraded", opened.getAnalysis());
+        verify(generativeAIService, never()).analyzeApiRequest(any());
+        verify(eventStream).publishAlert(opened);
+    }
+
+    @Test
+    void processApiRequest_AnomalyWithinOpenAlert() {
+        ApiMetrics anomalyMetrics = testMetrics.toBuilder().isAnomaly(true).anomalyScore(0.8).build();
+        when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(anomalyMetrics));
+        when(alertEngine.evaluate(anomalyMetrics)).thenReturn(Optional.empty());
+
+        StepVerifier.create(monitoringService.processApiRequest(testRequest))
+                .expectNextMatches(ApiRequest::isAnomaly)
+                .verifyComplete();
+
+        verify(generativeAIService, never()).analyzeApiRequest(any());
+        verify(eventStream, never()).publishAlert(any());
+    }
+
+    @Test
+    void processApiRequest_ResolvedAlert() {
+        Alert resolved = Alert.builder().id("alert-1").endpoint("/api/test").status(Alert.Status.RESOLVED).build();
+        when(anomalyDetectionService.detectAnomaly(any())).thenReturn(Mono.just(testMetrics));
+        when(alertEngine.evaluate(testMetrics)).thenReturn(Optional.of(resolved));
+
+        StepVerifier.create(monitoringService.processApiRequest(testRequest))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        verify(generativeAIService, never()).analyzeApiRequest(any());
+        verify(eventStream).publishAlert(resolved);
     }
 
     @Test
@@ -1,21 +1,28 @@
 package com.banking.monitoring.service;
 
 import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.stub.OpenAiStubServer;
 import com.theokanning.openai.completion.chat.ChatCompletionResult;
 import com.theokanning.openai.completion.chat.ChatMessage;
 import com.theokanning.openai.completion.chat.ChatMessageRole;
 import com.theokanning.openai.completion.chat.ChatCompletionChoice;
 import com.theokanning.openai.service.OpenAiService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
@@ -92,4 +99,83 @@ class GenerativeAIServiceTest {
                 .expectError(RuntimeException.class)
                 .verify();
     }
-} 
\ No newline at end of file
+
+    @Test
+    void analyzeApiRequest_AgainstStubServer() {
+        try (OpenAiStubServer stub = OpenAiStubServer.start()) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            GenerativeAIService service = new GenerativeAIService("test-key", stub.getBaseUrl(),
+                    Duration.ofSeconds(5), new PipelineMetrics(registry));
+
+            StepVerifier.create(service.analyzeApiRequest(testMetrics))
+                    .expectNextMatches(analysis -> analysis.contains("latency"))
+                    .verifyComplete();
+
+            assertEquals(1, stub.getRequests());
+            assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "success").counter().count());
+            assertTrue(registry.get("monitoring.llm.tokens").tag("type", "prompt").counter().count() > 0);
+        }
+    }
+
+    @Test
+    void analyzeApiRequest_StubServerFailure() {
+        try (OpenAiStubServer stub = OpenAiStubServer.start(0, Duration.ZERO, Duration.ZERO, 1.0)) {
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            GenerativeAIService service = new GenerativeAIService("test-key", stub.getBaseUrl(),
+                    Duration.ofSeconds(5), new PipelineMetrics(registry));
+
+            StepVerifier.create(service.analyzeApiRequest(testMetrics))
+                    .expectError()
+                    .verify();
+
+            assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "error").counter().count());
+        }
+    }
+
+    @Test
+    void streamApiAnalysis_FirstTokenArrivesBeforeCompletion() {
+        try (OpenAiStubServer stub = OpenAiStubServer.start()) {
+            stub.setTokenInterval(Duration.ofMillis(20));
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            GenerativeAIService service = new GenerativeAIService("test-key", stub.getBaseUrl(),
+                    Duration.ofSeconds(5), new PipelineMetrics(registry));
+
+            long start = System.nanoTime();
+            AtomicLong firstToken = new AtomicLong();
+            List<String> parts = service.streamApiAnalysis(testMetrics)
+                    .doOnNext(part -> firstToken.compareAndSet(0, System.nanoTime()))
+                    .collectList()
+                    .block(Duration.ofSeconds(10));
+            long total = System.nanoTime() - start;
+
+            assertNotNull(parts);
+            assertTrue(parts.size() > 10);
+            assertTrue(String.join("", parts).contains("latency"));
+            assertTrue(firstToken.get() - start < total / 2);
+            assertEquals(1, registry.get("monitoring.llm.first-token").timer().count());
+            assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "success").counter().count());
+        }
+    }
+
+    @Test
+    void streamRecommendations_CancelsAbandonedCompletion() throws InterruptedException {
+        try (OpenAiStubServer stub = OpenAiStubServer.start()) {
+            stub.setTokenInterval(Duration.ofMillis(50));
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            GenerativeAIService service = new GenerativeAIService("test-key", stub.getBaseUrl(),
+                    Duration.ofSeconds(5), new PipelineMetrics(registry));
+
+            StepVerifier.create(service.streamRecommendations(Flux.just(testMetrics)))
+                    .expectNextCount(2)
+                    .thenCancel()
+                    .verify(Duration.ofSeconds(10));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (stub.getAbandonedStreams() == 0 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, stub.getAbandonedStreams());
+            assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "cancelled").counter().count());
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HeavyHittersTest {
+
+    private long now = 1_700_000_000_000L;
+
+    private HeavyHitters heavyHitters(int capacity) {
+        return new HeavyHitters(new SimpleMeterRegistry(), true, capacity, Duration.ofMinutes(5), 5,
+                Duration.ofSeconds(1), () -> now);
+    }
+
+    @Test
+    void top_FindsHeaviestEndpointsAmongManyMoreThanCapacity() {
+        HeavyHitters heavyHitters = heavyHitters(64);
+        Random random = new Random(3);
+        long[] counts = new long[10_000];
+        for (int i = 0; i < 200_000; i++) {
+            // a skewed stream: a few hot endpoints over a long tail
+            int endpoint = (int) Math.min(counts.length - 1, Math.floor(Math.pow(random.nextDouble(), 4) * 2_000));
+            if (i % 5 == 0) {
+                endpoint = 2_000 + random.nextInt(8_000);
+            }
+            counts[endpoint]++;
+            heavyHitters.record("/api/endpoint-" + endpoint, 1, 0, 0);
+        }
+
+        HeavyHitters.Top top = heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 3, null);
+
+        assertEquals(200_000, top.total());
+        assertEquals(List.of("/api/endpoint-0", "/api/endpoint-1", "/api/endpoint-2"),
+                top.heavyHitters().stream().map(HeavyHitters.HeavyHitter::key).toList());
+        for (HeavyHitters.HeavyHitter hitter : top.heavyHitters()) {
+            long actual = counts[Integer.parseInt(hitter.key().substring("/api/endpoint-".length()))];
+            assertTrue(Math.abs(hitter.count() - actual) <= hitter.error(), hitter.toString());
+        }
+    }
+
+    @Test
+    void top_ForgetsBucketsOutsideTheWindow() {
+        HeavyHitters heavyHitters = heavyHitters(16);
+        heavyHitters.record("/api/old", 100, 10, 0);
+        now += Duration.ofMinutes(3).toMillis();
+        heavyHitters.record("/api/new", 5, 0, 0);
+
+        assertEquals("/api/old", heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 1, null).heavyHitters().get(0).key());
+        HeavyHitters.Top lastMinute = heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 10, Duration.ofMinutes(1));
+        assertEquals(60_000, lastMinute.windowMillis());
+        assertEquals(List.of(new HeavyHitters.HeavyHitter("/api/new", 5, 0)), lastMinute.heavyHitters());
+
+        now += Duration.ofMinutes(3).toMillis();
+        assertTrue(heavyHitters.top(HeavyHitters.Ranking.ERRORS, 10, null).heavyHitters().isEmpty());
+        assertEquals(5, heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 10, null).total());
+    }
+
+    @Test
+    void record_RanksErrorSourcesAndSlowRequests() {
+        HeavyHitters heavyHitters = heavyHitters(16);
+        for (int i = 0; i < 10; i++) {
+            heavyHitters.record(ApiRequest.builder().endpoint("/api/payments").method("POST").statusCode(503)
+                    .responseTime(2_000).build());
+            heavyHitters.record(ApiRequest.builder().endpoint("/api/accounts").method("GET")
+                    .statusCode(i < 3 ? 404 : 200).responseTime(20).build());
+        }
+
+        assertEquals(List.of(new HeavyHitters.HeavyHitter("POST /api/payments 503", 10, 0),
+                        new HeavyHitters.HeavyHitter("GET /api/accounts 404", 3, 0)),
+                heavyHitters.top(HeavyHitters.Ranking.ERROR_SOURCES, 5, null).heavyHitters());
+        assertEquals(List.of(new HeavyHitters.HeavyHitter("/api/payments", 10, 0)),
+                heavyHitters.top(HeavyHitters.Ranking.SLOW, 5, null).heavyHitters());
+        assertEquals(20, heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 5, null).total());
+    }
+
+    @Test
+    void disabled_TracksNothing() {
+        HeavyHitters heavyHitters = HeavyHitters.disabled();
+        heavyHitters.record("/api/accounts", 10, 1, 1);
+
+        assertTrue(heavyHitters.top(HeavyHitters.Ranking.REQUESTS, 10, null).heavyHitters().isEmpty());
+        assertFalse(heavyHitters.isSlow(60_000));
+        assertEquals(HeavyHitters.Ranking.ERROR_SOURCES, HeavyHitters.Ranking.fromKey("error-sources"));
+        assertThrows(IllegalArgumentException.class, () -> HeavyHitters.Ranking.fromKey("latency"));
+    }
+
+    @Test
+    void constructor_RejectsWindowShorterThanOneMillisecondPerBucket() {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> new HeavyHitters(new SimpleMeterRegistry(), true, 16, Duration.ofMillis(5), 10,
+                        Duration.ofSeconds(1), () -> now));
+
+        assertTrue(error.getMessage().contains("at least 10 ms"), error.getMessage());
+    }
+}
@@ -0,0 +1,189 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.AnomalyReason;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.Incident;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class IncidentCorrelatorTest {
+
+    private AtomicLong clock;
+    private MonitoringEventStream eventStream;
+    private IncidentCorrelator correlator;
+
+    @BeforeEach
+    void setUp() {
+        clock = new AtomicLong();
+        eventStream = mock(MonitoringEventStream.class);
+        correlator = correlator(64, 256);
+    }
+
+    private IncidentCorrelator correlator(int maxActive, int maxEndpoints) {
+        return new IncidentCorrelator(new SimpleMeterRegistry(), eventStream, Duration.ofMinutes(2), 0.6,
+                maxActive, maxEndpoints, 10, clock::get);
+    }
+
+    private static ApiMetrics databaseSlowdown(String endpoint) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .isAnomaly(true)
+                .anomalyScore(0.8)
+                .anomalyReasons(AnomalyReason.RESPONSE_TIME.mask())
+                .responseTimeZScore(6.0)
+                .errorRateZScore(0.2)
+                .cpuUsage(30)
+                .memoryUsage(40)
+                .networkLatency(20)
+                .build();
+    }
+
+    private static ApiMetrics memoryLeak(String endpoint) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .isAnomaly(true)
+                .anomalyScore(0.9)
+                .anomalyReasons(AnomalyReason.MEMORY_USAGE.mask())
+                .memoryUsage(97)
+                .build();
+    }
+
+    private void at(long seconds) {
+        clock.set(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    @Test
+    void groupsCorrelatedAnomaliesAcrossEndpoints() {
+        Set<String> incidentIds = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            at(i);
+            incidentIds.add(correlator.correlate(databaseSlowdown("/api/endpoint-" + (i % 20))).incidentId());
+        }
+
+        assertEquals(1, incidentIds.size());
+        List<Incident> open = correlator.getOpenIncidents();
+        assertEquals(1, open.size());
+        assertEquals(20, open.get(0).getEndpointCount());
+        assertEquals(40, open.get(0).getAnomalousSamples());
+        assertTrue(AnomalyReason.RESPONSE_TIME.isSet(open.get(0).getReasons()));
+    }
+
+    @Test
+    void separatesDifferentSymptoms() {
+        String slowdown = correlator.correlate(databaseSlowdown("/api/accounts")).incidentId();
+        String leak = correlator.correlate(memoryLeak("/api/reports")).incidentId();
+
+        assertNotEquals(slowdown, leak);
+        assertEquals(slowdown, correlator.correlate(databaseSlowdown("/api/payments")).incidentId());
+        assertEquals(leak, correlator.correlate(memoryLeak("/api/exports")).incidentId());
+        assertEquals(2, correlator.getOpenCount());
+    }
+
+    @Test
+    void resolvesAfterQuietWindow() {
+        at(0);
+        String first = correlator.correlate(databaseSlowdown("/api/accounts")).incidentId();
+        at(20);
+        assertEquals(first, correlator.correlate(databaseSlowdown("/api/payments")).incidentId());
+
+        at(141);
+        assertTrue(correlator.getOpenIncidents().isEmpty());
+        List<Incident> resolved = correlator.getResolvedIncidents();
+        assertEquals(1, resolved.size());
+        assertEquals(Incident.Status.RESOLVED, resolved.get(0).getStatus());
+        assertEquals(first, correlator.getIncident(first).orElseThrow().getId());
+
+        IncidentCorrelator.Correlation next = correlator.correlate(databaseSlowdown("/api/accounts"));
+        assertTrue(next.opened());
+        assertNotEquals(first, next.incidentId());
+        verify(eventStream, atLeastOnce()).publishIncident(any());
+    }
+
+    @Test
+    void keepsUnrelatedSameReasonAnomaliesApart() {
+        at(0);
+        String accounts = correlator.correlate(databaseSlowdown("/api/accounts")).incidentId();
+        // same reason, but the response time dropped rather than spiked
+        String drop = correlator.correlate(databaseSlowdown("/api/statements").toBuilder()
+                .responseTimeZScore(-6.0)
+                .build()).incidentId();
+        at(60);
+        // same reason and symptoms, but a minute after the last sample of the open incident
+        String payments = correlator.correlate(databaseSlowdown("/api/payments")).incidentId();
+
+        assertNotEquals(accounts, drop);
+        assertNotEquals(accounts, payments);
+        assertNotEquals(drop, payments);
+        assertEquals(3, correlator.getOpenCount());
+        assertEquals(1, correlator.getIncident(accounts).orElseThrow().getEndpointCount());
+    }
+
+    @Test
+    void resolvesAtMaxDurationEvenWhileSamplesKeepArriving() {
+        at(0);
+        String first = correlator.correlate(databaseSlowdown("/api/accounts")).incidentId();
+        for (int minute = 1; minute < 30; minute++) {
+            at(minute * 60L);
+            assertEquals(first, correlator.correlate(databaseSlowdown("/api/accounts")).incidentId());
+        }
+
+        at(30 * 60L);
+        IncidentCorrelator.Correlation next = correlator.correlate(databaseSlowdown("/api/accounts"));
+
+        assertTrue(next.opened());
+        assertNotEquals(first, next.incidentId());
+        assertEquals(Incident.Status.RESOLVED, correlator.getIncident(first).orElseThrow().getStatus());
+    }
+
+    @Test
+    void claimsAnalysisOncePerIncident() {
+        String id = correlator.correlate(databaseSlowdown("/api/accounts")).incidentId();
+        correlator.correlate(databaseSlowdown("/api/payments"));
+
+        assertTrue(correlator.claim(id));
+        assertFalse(correlator.claim(id));
+        // an expired or evicted incident cannot be shared, so its alert runs the analysis itself
+        assertTrue(correlator.claim("404"));
+        assertTrue(correlator.getAnalysis(id).isEmpty());
+
+        correlator.setAnalysis(id, "Shared database is degraded");
+
+        assertEquals("Shared database is degraded", correlator.getAnalysis(id).orElseThrow());
+        assertEquals(2, correlator.getIncident(id).orElseThrow().getAlerts());
+    }
+
+    @Test
+    void staysWithinMemoryBounds() {
+        IncidentCorrelator bounded = correlator(2, 3);
+        String slowdown = bounded.correlate(databaseSlowdown("/api/endpoint-0")).incidentId();
+        for (int i = 1; i < 10; i++) {
+            bounded.correlate(databaseSlowdown("/api/endpoint-" + i));
+        }
+        assertEquals(3, bounded.getIncident(slowdown).orElseThrow().getEndpoints().size());
+
+        bounded.correlate(memoryLeak("/api/reports"));
+        bounded.correlate(ApiMetrics.builder()
+                .endpoint("/api/transfers")
+                .isAnomaly(true)
+                .anomalyReasons(AnomalyReason.ERROR_RATE.mask())
+                .errorRateZScore(8.0)
+                .build());
+
+        assertEquals(2, bounded.getOpenCount());
+        assertEquals(Incident.Status.RESOLVED, bounded.getIncident(slowdown).orElseThrow().getStatus());
+    }
+}
@@ -0,0 +1,97 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsCollectionSchedulerTest {
+
+    static {
+        System.setProperty("net.bytebuddy.experimental", "true");
+    }
+
+    @Mock
+    private MetricsCollectionService metricsCollectionService;
+
+    @Mock
+    private MonitoringEventStream eventStream;
+
+    private MeterRegistry registry;
+    private PipelineMetrics pipelineMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        pipelineMetrics = new PipelineMetrics(registry);
+    }
+
+    @Test
+    void slowTicksAreSkippedInsteadOfOverlapping() throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(metricsCollectionService.collect(anyDouble(), anyInt(), any())).thenAnswer(invocation ->
+                Flux.<ApiMetrics>empty()
+                        .doOnSubscribe(s -> maxActive.accumulateAndGet(active.incrementAndGet(), Math::max))
+                        .delaySubscription(Duration.ofMillis(120))
+                        .doFinally(signal -> active.decrementAndGet()));
+        MetricsCollectionScheduler scheduler = new MetricsCollectionScheduler(metricsCollectionService,
+                pipelineMetrics, eventStream, Duration.ofMillis(20), 2, Duration.ofSeconds(5));
+
+        scheduler.start();
+        Thread.sleep(500);
+        scheduler.stop();
+
+        assertEquals(1, maxActive.get());
+        assertTrue(registry.get("monitoring.collection.tick").timer().count() >= 2);
+        assertTrue(registry.get("monitoring.collection.skipped").counter().count() > 0);
+        assertTrue(registry.get("monitoring.collection.overruns").counter().count() > 0);
+    }
+
+    @Test
+    void stopDrainsRunningTick() throws InterruptedException {
+        AtomicBoolean started = new AtomicBoolean();
+        AtomicBoolean finished = new AtomicBoolean();
+        when(metricsCollectionService.collect(anyDouble(), anyInt(), any())).thenAnswer(invocation ->
+                Flux.<ApiMetrics>empty()
+                        .doOnSubscribe(s -> started.set(true))
+                        .delaySubscription(Duration.ofMillis(300))
+                        .doOnComplete(() -> finished.set(true)));
+        MetricsCollectionScheduler scheduler = new MetricsCollectionScheduler(metricsCollectionService,
+                pipelineMetrics, eventStream, Duration.ofMillis(10), 1, Duration.ofSeconds(5));
+
+        scheduler.start();
+        while (!started.get()) {
+            Thread.sleep(5);
+        }
+        scheduler.stop();
+
+        assertTrue(finished.get());
+        assertFalse(scheduler.isRunning());
+    }
+
+    @Test
+    void parallelismDefaultsToAvailableProcessors() {
+        MetricsCollectionScheduler scheduler = new MetricsCollectionScheduler(metricsCollectionService,
+                pipelineMetrics, eventStream, Duration.ofMillis(250), 0, Duration.ofSeconds(1));
+
+        assertEquals(Runtime.getRuntime().availableProcessors(), scheduler.getParallelism());
+        assertEquals(Duration.ofMillis(250), scheduler.getInterval());
+    }
+}
@@ -6,11 +6,16 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import reactor.test.StepVerifier;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -29,6 +34,9 @@ class MetricsCollectionServiceTest {
     @Mock
     private PredictiveAnalyticsService predictiveAnalyticsService;
 
+    @Spy
+    private PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+
     @InjectMocks
     private MetricsCollectionService metricsCollectionService;
 
@@ -48,15 +56,11 @@ class MetricsCollectionServiceTest {
         memoryUsage = new ConcurrentHashMap<>();
         networkLatency = new ConcurrentHashMap<>();
 
-        metricsCollectionService = new MetricsCollectionService(
-                predictiveAnalyticsService,
-                requestCounters,
-                errorCounters,
-                totalResponseTime,
-                cpuUsage,
-                memoryUsage,
-                networkLatency
-        );
+        metricsCollectionService = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(predictiveAnalyticsService)
+                .counters(requestCounters, errorCounters, totalResponseTime)
+                .systemMetrics(cpuUsage, memoryUsage, networkLatency)
+                .build();
     }
 
     @Test
@@ -169,6 +173,84 @@ class MetricsCollectionServiceTest {
         assertEquals(0, totalResponseTime.get(endpoint).get());
     }
 
+    @Test
+    void collect_BoundedConcurrencyAndWindowThroughput() {
+        for (int i = 0; i < 8; i++) {
+            metricsCollectionService.recordRequests("/api/test/" + i, 5, 500, 0);
+        }
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        when(predictiveAnalyticsService.predictFailure(any())).thenAnswer(invocation -> Mono.fromCallable(() -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return invocation.<ApiMetrics>getArgument(0);
+        }));
+
+        StepVerifier.create(metricsCollectionService.collect(0.5, 2, Schedulers.parallel()))
+                .expectNextCount(8)
+                .verifyComplete();
+
+        assertTrue(maxActive.get() <= 2);
+        assertEquals(0, requestCounters.get("/api/test/0").get());
+    }
+
+    @Test
+    void collectMetrics_UsesConfiguredInterval() {
+        MetricsCollectionService service = MetricsCollectionService.builder(pipelineMetrics)
+                .predictiveAnalyticsService(predictiveAnalyticsService)
+                .collectionInterval(Duration.ofSeconds(10))
+                .build();
+        service.recordRequests("/api/test", 5, 500, 0);
+        List<ApiMetrics> collected = new ArrayList<>();
+        when(predictiveAnalyticsService.predictFailure(any())).thenAnswer(invocation -> {
+            collected.add(invocation.getArgument(0));
+            return Mono.just(invocation.<ApiMetrics>getArgument(0));
+        });
+
+        service.collectMetrics();
+
+        assertEquals(1, collected.size());
+        assertEquals(0.5, collected.get(0).getThroughput());
+    }
+
+    @Test
+    void collect_SkipsEndpointsThatFailPrediction() {
+        metricsCollectionService.recordRequest("/api/ok", 100L, false);
+        metricsCollectionService.recordRequest("/api/broken", 100L, false);
+        when(predictiveAnalyticsService.predictFailure(any())).thenAnswer(invocation -> {
+            ApiMetrics metrics = invocation.getArgument(0);
+            return metrics.getEndpoint().equals("/api/broken")
+                    ? Mono.error(new RuntimeException("Failed to predict failure"))
+                    : Mono.just(metrics);
+        });
+
+        StepVerifier.create(metricsCollectionService.collect(0.5, 2, Schedulers.immediate()))
+                .assertNext(metrics -> {
+                    assertEquals("/api/ok", metrics.getEndpoint());
+                    assertEquals(2.0, metrics.getThroughput());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void collect_CapsErrorRateForSeparatelyCountedErrors() {
+        // StatsD: 2 timed requests but 5 errors in the window, and errors for an endpoint without timings
+        metricsCollectionService.recordRequests("/api/payments", 2, 200, 0);
+        metricsCollectionService.recordRequests("/api/payments", 0, 0, 5);
+        metricsCollectionService.recordRequests("/api/transfers", 0, 0, 3);
+        when(predictiveAnalyticsService.predictFailure(any()))
+                .thenAnswer(invocation -> Mono.just(invocation.<ApiMetrics>getArgument(0)));
+
+        StepVerifier.create(metricsCollectionService.collect(60, 1, Schedulers.immediate())
+                        .collectMap(ApiMetrics::getEndpoint, ApiMetrics::getErrorRate))
+                .assertNext(rates -> {
+                    assertEquals(1.0, rates.get("/api/payments"));
+                    assertEquals(1.0, rates.get("/api/transfers"));
+                })
+                .verifyComplete();
+    }
+
     @Test
     void updateSystemMetrics() {
         String endpoint = "/api/test";
@@ -0,0 +1,83 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsDigestTest {
+
+    private static ApiMetrics sample(String endpoint, double responseTime, boolean error) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .responseTime(responseTime)
+                .errorRate(error ? 1.0 : 0.0)
+                .build();
+    }
+
+    @Test
+    void summarizesCountsErrorRatesAndPercentiles() {
+        MetricsDigest digest = new MetricsDigest(10, 3);
+        for (int i = 1; i <= 1000; i++) {
+            digest.add(sample("/api/accounts", i, i % 10 == 0));
+        }
+
+        MetricsDigest.EndpointSummary summary = digest.get("/api/accounts");
+        assertEquals(1000, summary.count);
+        assertEquals(0.1, summary.getErrorRate(), 1e-9);
+        assertEquals(500.5, summary.getMeanResponseTime(), 1e-9);
+        assertEquals(500, summary.percentile(0.5), 50);
+        assertEquals(990, summary.percentile(0.99), 99);
+        assertEquals(1000, summary.percentile(1.0));
+    }
+
+    @Test
+    void keepsOnlyTheHighestScoringAnomalies() {
+        MetricsDigest digest = new MetricsDigest(10, 3);
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            digest.add(sample("/api/payments", 100, false).toBuilder()
+                    .isAnomaly(true)
+                    .anomalyScore(i == 4242 ? 1.0 : random.nextDouble() * 0.9)
+                    .build());
+        }
+
+        List<ApiMetrics> top = digest.get("/api/payments").getTopAnomalies();
+        assertEquals(3, top.size());
+        assertEquals(1.0, top.get(0).getAnomalyScore());
+        assertTrue(top.get(1).getAnomalyScore() >= top.get(2).getAnomalyScore());
+        assertEquals(10_000, digest.get("/api/payments").anomalies);
+    }
+
+    @Test
+    void foldsEndpointsBeyondTheLimit() {
+        MetricsDigest digest = new MetricsDigest(2, 0);
+        for (int i = 0; i < 5; i++) {
+            digest.add(sample("/api/endpoint-" + i, 100, false));
+        }
+
+        assertEquals(2, digest.getEndpointCount());
+        assertEquals(3, digest.get(MetricsDigest.OTHER_ENDPOINTS).count);
+        assertEquals(5, digest.getSampleCount());
+    }
+
+    @Test
+    void promptStaysWithinTokenBudgetAndListsWorstEndpointsFirst() {
+        MetricsDigest digest = new MetricsDigest(1000, 5);
+        for (int i = 0; i < 100_000; i++) {
+            digest.add(sample("/api/endpoint-" + (i % 500), 100 + i % 7, false));
+        }
+        digest.add(sample("/api/failing", 4000, true).toBuilder().isAnomaly(true).anomalyScore(0.95).build());
+
+        String prompt = digest.toPrompt("Header\n", "Footer\n", 500);
+
+        assertTrue(prompt.length() <= 500 * MetricsDigest.CHARS_PER_TOKEN);
+        assertTrue(prompt.startsWith("Header\n100001 requests across 501 endpoints."));
+        assertTrue(prompt.indexOf("/api/failing") < prompt.indexOf("/api/endpoint-"));
+        assertTrue(prompt.contains("omitted for length"));
+        assertTrue(prompt.endsWith("Footer\n"));
+    }
+}
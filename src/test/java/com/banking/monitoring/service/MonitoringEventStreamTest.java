@@ -0,0 +1,197 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.Alert;
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.Incident;
+import com.banking.monitoring.model.MonitoringEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitoringEventStreamTest {
+
+    private MonitoringEventStream stream(int bufferSize, int maxSubscribers) {
+        return new MonitoringEventStream(new SimpleMeterRegistry(), bufferSize, maxSubscribers, Duration.ofSeconds(15));
+    }
+
+    private static ApiMetrics metrics(String endpoint, int requestCount) {
+        return ApiMetrics.builder().endpoint(endpoint).requestCount(requestCount).build();
+    }
+
+    @Test
+    void filtersByEndpointTypeAndSeverity() {
+        MonitoringEventStream eventStream = stream(16, 10);
+        Alert critical = Alert.builder().endpoint("/api/a").status(Alert.Status.OPEN).peakScore(0.95).build();
+
+        StepVerifier.create(eventStream.subscribe(null, Set.of("/api/a"), MonitoringEvent.Severity.WARNING))
+                .then(() -> {
+                    eventStream.publishMetrics(metrics("/api/a", 1));
+                    eventStream.publishMetrics(metrics("/api/b", 1).toBuilder().predictedFailure(true).build());
+                    eventStream.publishAlert(critical);
+                })
+                .assertNext(event -> {
+                    assertEquals(MonitoringEvent.Type.ALERT, event.getType());
+                    assertEquals(MonitoringEvent.Severity.CRITICAL, event.getSeverity());
+                    assertSame(critical, event.getAlert());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, eventStream.getSubscriberCount());
+    }
+
+    @Test
+    void slowSubscriberReceivesLatestValuePerEndpoint() {
+        MonitoringEventStream eventStream = stream(16, 10);
+
+        StepVerifier.create(eventStream.subscribe(Set.of(MonitoringEvent.Type.METRICS), null, null), 0)
+                .then(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        eventStream.publishMetrics(metrics("/api/a", i));
+                    }
+                    eventStream.publishMetrics(metrics("/api/b", 42));
+                })
+                .thenRequest(5)
+                .assertNext(event -> assertEquals(9, event.getMetrics().getRequestCount()))
+                .assertNext(event -> assertEquals(42, event.getMetrics().getRequestCount()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(9, eventStream.getConflatedCount());
+    }
+
+    @Test
+    void slowSubscriberSeesEveryAlertTransition() {
+        MonitoringEventStream eventStream = stream(16, 10);
+        Alert open = Alert.builder().id("1").endpoint("/api/a").status(Alert.Status.OPEN).peakScore(0.5).build();
+        Alert resolved = open.toBuilder().status(Alert.Status.RESOLVED).build();
+
+        StepVerifier.create(eventStream.subscribe(Set.of(MonitoringEvent.Type.ALERT), null, null), 0)
+                .then(() -> {
+                    eventStream.publishAlert(open);
+                    eventStream.publishAlert(resolved);
+                })
+                .thenRequest(5)
+                .assertNext(event -> assertSame(open, event.getAlert()))
+                .assertNext(event -> assertSame(resolved, event.getAlert()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, eventStream.getConflatedCount());
+    }
+
+    @Test
+    void incidentsAreConflatedPerIncidentAndMatchAnyOfTheirEndpoints() {
+        MonitoringEventStream eventStream = stream(16, 10);
+        Incident first = Incident.builder().id("1").status(Incident.Status.OPEN)
+                .endpoints(List.of("/api/a", "/api/b")).peakScore(0.5).build();
+        Incident firstGrown = first.toBuilder().endpoints(List.of("/api/a", "/api/b", "/api/c")).build();
+        Incident second = Incident.builder().id("2").status(Incident.Status.OPEN)
+                .endpoints(List.of("/api/a", "/api/c")).peakScore(0.5).build();
+
+        StepVerifier.create(eventStream.subscribe(null, Set.of("/api/b", "/api/c"), null), 0)
+                .then(() -> {
+                    eventStream.publishIncident(first);
+                    eventStream.publishIncident(second);
+                    eventStream.publishIncident(firstGrown);
+                })
+                .thenRequest(5)
+                .assertNext(event -> assertSame(firstGrown, event.getIncident()))
+                .assertNext(event -> assertSame(second, event.getIncident()))
+                .expectNoEvent(Duration.ofMillis(100))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, eventStream.getConflatedCount());
+    }
+
+    @Test
+    void fullBufferEvictsOldestEndpoint() {
+        MonitoringEventStream eventStream = stream(2, 10);
+
+        StepVerifier.create(eventStream.subscribe(null, null, null), 0)
+                .then(() -> {
+                    eventStream.publishMetrics(metrics("/api/a", 1));
+                    eventStream.publishMetrics(metrics("/api/b", 2));
+                    eventStream.publishMetrics(metrics("/api/c", 3));
+                })
+                .thenRequest(3)
+                .assertNext(event -> assertEquals("/api/b", event.getEndpoint()))
+                .assertNext(event -> assertEquals("/api/c", event.getEndpoint()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1, eventStream.getDroppedCount());
+    }
+
+    @Test
+    void stalledSubscriberDoesNotHoldUpOthers() throws InterruptedException {
+        MonitoringEventStream eventStream = stream(64, 5000);
+        int fastSubscribers = 2000;
+        AtomicInteger received = new AtomicInteger();
+        List<Disposable> subscriptions = new ArrayList<>();
+        for (int i = 0; i < fastSubscribers; i++) {
+            subscriptions.add(eventStream.subscribe(null, null, null).subscribe(event -> received.incrementAndGet()));
+        }
+        List<MonitoringEvent> stalledReceived = new CopyOnWriteArrayList<>();
+        BaseSubscriber<MonitoringEvent> stalled = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+            }
+
+            @Override
+            protected void hookOnNext(MonitoringEvent event) {
+                stalledReceived.add(event);
+            }
+        };
+        eventStream.subscribe(null, null, null).subscribe(stalled);
+        assertEquals(fastSubscribers + 1, eventStream.getSubscriberCount());
+
+        for (int i = 0; i < 10; i++) {
+            eventStream.publishMetrics(metrics("/api/" + i, i));
+        }
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (received.get() < fastSubscribers * 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(fastSubscribers * 10, received.get());
+        assertTrue(stalledReceived.isEmpty());
+        stalled.request(10);
+        deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (stalledReceived.size() < 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(10, stalledReceived.size());
+        stalled.dispose();
+        subscriptions.forEach(Disposable::dispose);
+        assertEquals(0, eventStream.getSubscriberCount());
+    }
+
+    @Test
+    void rejectsSubscribersBeyondLimit() {
+        MonitoringEventStream eventStream = stream(16, 1);
+        Disposable first = eventStream.subscribe(null, null, null).subscribe();
+
+        StepVerifier.create(eventStream.subscribe(null, null, null))
+                .expectError(ResponseStatusException.class)
+                .verify(Duration.ofSeconds(5));
+
+        first.dispose();
+        assertEquals(0, eventStream.getSubscriberCount());
+    }
+}
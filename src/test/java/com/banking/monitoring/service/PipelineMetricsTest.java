@@ -0,0 +1,64 @@
+package com.banking.monitoring.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineMetricsTest {
+
+    private MeterRegistry registry;
+    private PipelineMetrics pipelineMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        pipelineMetrics = new PipelineMetrics(registry);
+    }
+
+    @Test
+    void stageTimerAndInFlightGauge() {
+        long start = pipelineMetrics.start(PipelineMetrics.Stage.DETECT);
+        assertEquals(1.0, registry.get("monitoring.pipeline.in-flight").tag("stage", "detect").gauge().value());
+
+        pipelineMetrics.stop(PipelineMetrics.Stage.DETECT, start);
+
+        assertEquals(0.0, registry.get("monitoring.pipeline.in-flight").tag("stage", "detect").gauge().value());
+        assertEquals(1, registry.get("monitoring.pipeline.stage").tag("stage", "detect").timer().count());
+    }
+
+    @Test
+    void timedMono() {
+        StepVerifier.create(pipelineMetrics.timed(PipelineMetrics.Stage.PROCESS, Mono.just("ok")))
+                .expectNext("ok")
+                .verifyComplete();
+
+        assertEquals(1, registry.get("monitoring.pipeline.stage").tag("stage", "process").timer().count());
+    }
+
+    @Test
+    void collectionTickOverrun() {
+        pipelineMetrics.recordCollectionTick(TimeUnit.MILLISECONDS.toNanos(50), 100);
+        pipelineMetrics.recordCollectionTick(TimeUnit.MILLISECONDS.toNanos(150), 100);
+
+        assertEquals(2, registry.get("monitoring.collection.tick").timer().count());
+        assertEquals(1.0, registry.get("monitoring.collection.overruns").counter().count());
+    }
+
+    @Test
+    void llmCallsAndTokens() {
+        pipelineMetrics.recordLlmCall(true, 120, 380);
+        pipelineMetrics.recordLlmCall(false, 0, 0);
+
+        assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "success").counter().count());
+        assertEquals(1.0, registry.get("monitoring.llm.calls").tag("outcome", "error").counter().count());
+        assertEquals(120.0, registry.get("monitoring.llm.tokens").tag("type", "prompt").counter().count());
+        assertEquals(380.0, registry.get("monitoring.llm.tokens").tag("type", "completion").counter().count());
+    }
+}
@@ -1,10 +1,12 @@
 package com.banking.monitoring.service;
 
 import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.EndpointSnapshot;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
@@ -14,9 +16,15 @@ import weka.core.DenseInstance;
 import weka.core.Attribute;
 import weka.core.FastVector;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -27,8 +35,11 @@ class PredictiveAnalyticsServiceTest {
         System.setProperty("net.bytebuddy.experimental", "true");
     }
 
+    @Spy
+    private PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+
     @InjectMocks
-    private PredictiveAnalyticsService predictiveAnalyticsService;
+    private PredictiveAnalyticsService predictiveAnalyticsService = new PredictiveAnalyticsService(pipelineMetrics);
 
     private ApiMetrics normalMetrics;
     private ApiMetrics highErrorMetrics;
@@ -164,6 +175,153 @@ class PredictiveAnalyticsServiceTest {
                 .verifyComplete();
     }
 
+    @Test
+    void predictFailure_UntrainedEndpointUsesRuleTier() {
+        ApiMetrics untrained = highSystemLoadMetrics.toBuilder().endpoint("/api/untrained").build();
+        ApiMetrics borderline = normalMetrics.toBuilder().endpoint("/api/untrained").cpuUsage(78.0).build();
+
+        StepVerifier.create(predictiveAnalyticsService.predictFailure(untrained))
+                .expectNextMatches(metrics -> metrics.isPredictedFailure()
+                        && metrics.getPredictedFailureProbability() > 0.7)
+                .verifyComplete();
+        StepVerifier.create(predictiveAnalyticsService.predictFailure(borderline))
+                .expectNextMatches(metrics -> !metrics.isPredictedFailure())
+                .verifyComplete();
+
+        assertFalse(predictiveAnalyticsService.getModeledEndpoints().contains("/api/untrained"));
+        assertEquals(1, predictiveAnalyticsService.getPredictionCount(PredictiveAnalyticsService.Tier.RULE));
+        assertEquals(1, predictiveAnalyticsService.getPredictionCount(PredictiveAnalyticsService.Tier.UNTRAINED));
+    }
+
+    @Test
+    void tieredPrediction_KeepsModelRecallAndSkipsModelForClearCases() {
+        PredictiveAnalyticsService modelOnly = new PredictiveAnalyticsService(pipelineMetrics, false, 0.8, 1.25,
+                false, 16, 0.5, 2000);
+        Random random = new Random(7);
+        List<ApiMetrics> training = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            training.add(sample(random));
+        }
+        predictiveAnalyticsService.trainModel("/api/test", training);
+        modelOnly.trainModel("/api/test", training);
+
+        int failures = 0;
+        int tieredHits = 0;
+        int modelHits = 0;
+        for (int i = 0; i < 500; i++) {
+            ApiMetrics metrics = sample(random);
+            if (PredictiveAnalyticsService.thresholdRatio(metrics) <= 1.0) {
+                predictiveAnalyticsService.predictFailure(metrics).block();
+                continue;
+            }
+            failures++;
+            if (predictiveAnalyticsService.predictFailure(metrics.toBuilder().build()).block().isPredictedFailure()) {
+                tieredHits++;
+            }
+            if (modelOnly.predictFailure(metrics.toBuilder().build()).block().isPredictedFailure()) {
+                modelHits++;
+            }
+        }
+
+        assertTrue(failures > 50, "failures " + failures);
+        assertTrue(tieredHits >= modelHits, "tiered " + tieredHits + " vs model " + modelHits);
+        assertTrue(predictiveAnalyticsService.getPredictionCount(PredictiveAnalyticsService.Tier.RULE)
+                > 2 * predictiveAnalyticsService.getPredictionCount(PredictiveAnalyticsService.Tier.MODEL));
+    }
+
+    @Test
+    void clusteredMode_SharesOneModelPerProfileGroup() {
+        PredictiveAnalyticsService shared = new PredictiveAnalyticsService(pipelineMetrics, false, 0.8, 1.25,
+                true, 4, 0.5, 500);
+        Random random = new Random(11);
+        for (int i = 0; i < 30; i++) {
+            String endpoint = "/api/e" + i;
+            double scale = i % 3 == 0 ? 1 : i % 3 == 1 ? 5 : 20;
+            List<ApiMetrics> training = new ArrayList<>();
+            for (int j = 0; j < 40; j++) {
+                training.add(sample(random).toBuilder()
+                        .endpoint(endpoint)
+                        .throughput(scale * (10 + random.nextGaussian()))
+                        .build());
+            }
+            shared.trainModel(endpoint, training);
+        }
+        assertEquals(3, shared.getModelCount());
+        assertEquals(30, shared.getModeledEndpoints().size());
+        assertEquals(List.of(10, 10, 10), List.copyOf(shared.getClusterSizes().values()));
+
+        ApiMetrics failing = highErrorMetrics.toBuilder().endpoint("/api/e4").build();
+        StepVerifier.create(shared.predictFailure(failing))
+                .expectNextMatches(ApiMetrics::isPredictedFailure)
+                .verifyComplete();
+        assertEquals(1, shared.getPredictionCount(PredictiveAnalyticsService.Tier.MODEL));
+    }
+
+    @Test
+    void clusteredMode_DropsAClusterOnceItsLastMemberLeaves() {
+        PredictiveAnalyticsService shared = new PredictiveAnalyticsService(pipelineMetrics, false, 0.8, 1.25,
+                true, 2, 0.5, 500);
+        Random random = new Random(11);
+        shared.trainModel("/api/small", training("/api/small", 1, random));
+        shared.trainModel("/api/large", training("/api/large", 20, random));
+        assertEquals(2, shared.getModelCount());
+
+        shared.export("/api/large", new EndpointSnapshot());
+        assertEquals(1, shared.getModelCount());
+        assertEquals(List.of(1), List.copyOf(shared.getClusterSizes().values()));
+
+        // the freed slot opens a cluster for a distant profile instead of merging it into the remaining one
+        shared.trainModel("/api/medium", training("/api/medium", 5, random));
+        assertEquals(2, shared.getModelCount());
+        assertEquals(List.of(1, 1), List.copyOf(shared.getClusterSizes().values()));
+    }
+
+    @Test
+    void restore_InstallsAHandedOffModelButRejectsForeignClasses() throws IOException {
+        Random random = new Random(5);
+        predictiveAnalyticsService.trainModel("/api/moved", training("/api/moved", 1, random));
+        EndpointSnapshot snapshot = EndpointSnapshot.builder().endpoint("/api/moved").build();
+        predictiveAnalyticsService.export("/api/moved", snapshot);
+        assertNotNull(snapshot.getModel());
+
+        PredictiveAnalyticsService owner = new PredictiveAnalyticsService(pipelineMetrics);
+        owner.restore(snapshot);
+        assertEquals(Set.of("/api/moved"), owner.getModeledEndpoints());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(new LinkedList<>(List.of("not a model")));
+        }
+        PredictiveAnalyticsService target = new PredictiveAnalyticsService(pipelineMetrics);
+        target.restore(EndpointSnapshot.builder().endpoint("/api/forged").model(bytes.toByteArray()).build());
+        assertTrue(target.getModeledEndpoints().isEmpty());
+    }
+
+    private static List<ApiMetrics> training(String endpoint, double scale, Random random) {
+        List<ApiMetrics> training = new ArrayList<>();
+        for (int j = 0; j < 40; j++) {
+            training.add(sample(random).toBuilder()
+                    .endpoint(endpoint)
+                    .throughput(scale * (10 + random.nextGaussian()))
+                    .build());
+        }
+        return training;
+    }
+
+    private static ApiMetrics sample(Random random) {
+        boolean failing = random.nextDouble() < 0.25;
+        return ApiMetrics.builder()
+                .endpoint("/api/test")
+                .responseTime(failing ? 600 + random.nextDouble() * 1200 : 100 + random.nextGaussian() * 20)
+                .errorRate(Math.max(0, failing ? random.nextDouble() * 0.2 : 0.01 + random.nextGaussian() * 0.005))
+                .throughput(10 + random.nextGaussian())
+                .cpuUsage(failing ? 60 + random.nextDouble() * 40 : 40 + random.nextGaussian() * 5)
+                .memoryUsage(55 + random.nextGaussian() * 5)
+                .networkLatency(50 + random.nextGaussian() * 5)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
     @Test
     void trainModel() {
         String endpoint = "/api/test";
@@ -0,0 +1,61 @@
+package com.banking.monitoring.service;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingWindowTest {
+
+    @Test
+    void emptyAndSingleValueWindows_MatchDescriptiveStatistics() {
+        RollingWindow window = new RollingWindow(10);
+        assertEquals(0, window.getN());
+        assertTrue(Double.isNaN(window.getMean()));
+        assertTrue(Double.isNaN(window.getStandardDeviation()));
+
+        window.add(42.0);
+        assertEquals(1, window.getN());
+        assertEquals(42.0, window.getMean());
+        assertEquals(0.0, window.getStandardDeviation());
+    }
+
+    @Test
+    void slidingWindow_TracksDescriptiveStatisticsOverManyEvictions() {
+        int capacity = 100;
+        RollingWindow window = new RollingWindow(capacity);
+        DescriptiveStatistics reference = new DescriptiveStatistics(capacity);
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            double value = 10_000 + random.nextGaussian() * (i % 1000 < 500 ? 0.5 : 50);
+            window.add(value);
+            reference.addValue(value);
+            assertEquals(reference.getN(), window.getN());
+            assertEquals(reference.getMean(), window.getMean(), 1e-9 * Math.abs(reference.getMean()));
+            assertEquals(reference.getStandardDeviation(), window.getStandardDeviation(), 1e-6);
+        }
+    }
+
+    @Test
+    void weightedValues_MatchReplicatedValues() {
+        RollingWindow window = new RollingWindow(1000);
+        DescriptiveStatistics reference = new DescriptiveStatistics();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 200; i++) {
+            double value = 250 + random.nextGaussian() * 40;
+            int weight = 1 + random.nextInt(4);
+            window.add(value, weight);
+            for (int j = 0; j < weight; j++) {
+                reference.addValue(value);
+            }
+            assertEquals(reference.getMean(), window.getMean(), 1e-9 * reference.getMean());
+            assertEquals(reference.getStandardDeviation(), window.getStandardDeviation(), 1e-6);
+        }
+        assertEquals(200, window.getN());
+        assertEquals(200, window.weightsArray().length);
+    }
+}
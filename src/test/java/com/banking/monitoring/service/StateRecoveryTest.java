@@ -0,0 +1,108 @@
+package com.banking.monitoring.service;
+
+import com.banking.monitoring.model.ApiMetrics;
+import com.banking.monitoring.model.EndpointSnapshot;
+import com.banking.monitoring.storage.WriteAheadLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StateRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    private final PipelineMetrics pipelineMetrics = PipelineMetrics.noop();
+
+    private WriteAheadLog writeAheadLog() {
+        return new WriteAheadLog(new SimpleMeterRegistry(), true, directory, Duration.ofHours(1),
+                WriteAheadLog.Fsync.NEVER, Duration.ZERO);
+    }
+
+    @Test
+    void start_RecoversStateAsOfLastCommit() throws IOException {
+        WriteAheadLog log = writeAheadLog();
+        MetricsCollectionService counters = MetricsCollectionService.builder(pipelineMetrics).build();
+        AnomalyDetectionService baselines = new AnomalyDetectionService(pipelineMetrics, 20);
+        StateRecovery recovery = new StateRecovery(log, counters, baselines, Duration.ofHours(1));
+        recovery.start();
+
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            String endpoint = "/api/endpoint-" + random.nextInt(5);
+            counters.recordRequest(endpoint, 50 + random.nextInt(100), random.nextInt(20) == 0);
+            counters.updateCpuUsage(endpoint, random.nextDouble() * 100);
+            baselines.evaluate(ApiMetrics.builder().endpoint(endpoint).responseTime(100 + random.nextGaussian() * 10)
+                    .errorRate(random.nextDouble() * 0.1).sampleWeight(random.nextInt(3) == 0 ? 4 : 1).build());
+            if (i == 1_000) {
+                log.rotate();
+            }
+            if (i == 2_000) {
+                // hand an endpoint off and back, as a cluster rebalance does
+                EndpointSnapshot snapshot = EndpointSnapshot.builder().endpoint(endpoint).build();
+                counters.export(endpoint, snapshot);
+                baselines.export(endpoint, snapshot);
+                counters.restore(snapshot);
+                baselines.restore(snapshot);
+            }
+            if (i == 3_000) {
+                recovery.checkpoint();
+            }
+        }
+        counters.export("/api/endpoint-4", new EndpointSnapshot());
+        baselines.export("/api/endpoint-4", new EndpointSnapshot());
+        // the last commit; the process then dies without closing the log
+        log.rotate();
+
+        MetricsCollectionService recoveredCounters = MetricsCollectionService.builder(pipelineMetrics).build();
+        AnomalyDetectionService recoveredBaselines = new AnomalyDetectionService(pipelineMetrics, 20);
+        StateRecovery restarted = new StateRecovery(writeAheadLog(), recoveredCounters, recoveredBaselines,
+                Duration.ofHours(1));
+        restarted.start();
+
+        assertEquals(counters.getEndpoints(), recoveredCounters.getEndpoints());
+        assertEquals(baselines.getBaselinedEndpoints(), recoveredBaselines.getBaselinedEndpoints());
+        assertFalse(recoveredBaselines.getBaselinedEndpoints().contains("/api/endpoint-4"));
+        for (String endpoint : counters.getEndpoints()) {
+            assertEquals(snapshot(counters, baselines, endpoint),
+                    snapshot(recoveredCounters, recoveredBaselines, endpoint), endpoint);
+        }
+        restarted.stop();
+    }
+
+    @Test
+    void start_DoesNothingWhenDisabled() {
+        WriteAheadLog log = new WriteAheadLog(new SimpleMeterRegistry(), false, directory, Duration.ofMillis(50),
+                WriteAheadLog.Fsync.INTERVAL, Duration.ofSeconds(1));
+        StateRecovery recovery = new StateRecovery(log, MetricsCollectionService.builder(pipelineMetrics).build(),
+                new AnomalyDetectionService(pipelineMetrics), Duration.ofMinutes(5));
+
+        recovery.start();
+
+        assertFalse(recovery.isRunning());
+        assertFalse(log.isOpen());
+    }
+
+    private static List<Object> snapshot(MetricsCollectionService counters, AnomalyDetectionService baselines,
+                                         String endpoint) {
+        EndpointSnapshot snapshot = EndpointSnapshot.builder().endpoint(endpoint).build();
+        counters.export(endpoint, snapshot);
+        baselines.export(endpoint, snapshot);
+        return List.of(snapshot.getRequests(), snapshot.getErrors(), snapshot.getResponseTimeSum(),
+                snapshot.getCpuUsage(), values(snapshot.getResponseTimes()), values(snapshot.getErrorRates()),
+                values(snapshot.getSampleWeights()));
+    }
+
+    private static List<Double> values(double[] array) {
+        return array != null ? Arrays.stream(array).boxed().toList() : List.of();
+    }
+}
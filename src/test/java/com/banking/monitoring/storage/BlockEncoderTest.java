@@ -0,0 +1,104 @@
+package com.banking.monitoring.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockEncoderTest {
+
+    @Test
+    void roundTrip_PreservesIrregularTimestampsAndSpecialValuesBitForBit() {
+        Random random = new Random(11);
+        int points = 500;
+        long[] timestamps = new long[points];
+        double[][] values = new double[points][3];
+        double[] specials = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, -0.0, 0.0,
+                Double.MIN_VALUE, Double.MAX_VALUE, Double.longBitsToDouble(0x7ff8_0000_dead_beefL)};
+        long ts = -5_000L;
+        for (int i = 0; i < points; i++) {
+            // Mix regular ticks, jitter, repeats and jumps large enough to need every delta-of-delta bucket.
+            ts += switch (i % 5) {
+                case 0 -> 60_000;
+                case 1 -> 60_000 + random.nextInt(100) - 50;
+                case 2 -> 0;
+                case 3 -> random.nextInt(4_000);
+                default -> (long) random.nextInt(Integer.MAX_VALUE) * 1_000;
+            };
+            timestamps[i] = ts;
+            values[i][0] = specials[i % specials.length];
+            values[i][1] = random.nextDouble() * 1e6;
+            values[i][2] = Double.longBitsToDouble(random.nextLong());
+        }
+
+        BlockEncoder encoder = new BlockEncoder(3, points);
+        for (int i = 0; i < points; i++) {
+            encoder.append(timestamps[i], values[i]);
+        }
+        assertTrue(encoder.isFull());
+        byte[] block = encoder.toBytes();
+
+        assertEquals(points, BlockDecoder.count(block));
+        assertEquals(3, BlockDecoder.fields(block));
+        assertEquals(timestamps[0], BlockDecoder.minTimestamp(block));
+        assertEquals(timestamps[points - 1], BlockDecoder.maxTimestamp(block));
+
+        List<Integer> seen = new ArrayList<>();
+        BlockDecoder.decode(block, (timestamp, decoded) -> {
+            int i = seen.size();
+            assertEquals(timestamps[i], timestamp);
+            for (int f = 0; f < 3; f++) {
+                assertEquals(Double.doubleToRawLongBits(values[i][f]), Double.doubleToRawLongBits(decoded[f]),
+                        "point " + i + " field " + f);
+            }
+            seen.add(i);
+        });
+        assertEquals(points, seen.size());
+
+        int[] index = {0};
+        BlockDecoder.decodeField(block, 2, (timestamp, value) -> {
+            assertEquals(timestamps[index[0]], timestamp);
+            assertEquals(Double.doubleToRawLongBits(values[index[0]][2]), Double.doubleToRawLongBits(value));
+            index[0]++;
+        });
+        assertEquals(points, index[0]);
+    }
+
+    @Test
+    void append_RejectsOutOfOrderPointsAndFullBlocks() {
+        BlockEncoder encoder = new BlockEncoder(1, 2);
+        encoder.append(1_000, new double[]{1});
+        assertThrows(IllegalArgumentException.class, () -> encoder.append(999, new double[]{1}));
+        encoder.append(1_000, new double[]{2});
+        assertThrows(IllegalStateException.class, () -> encoder.append(2_000, new double[]{3}));
+    }
+
+    @Test
+    void regularQuantizedSeries_EncodesInAFewBytesPerPoint() {
+        Random random = new Random(3);
+        int points = 240;
+        BlockEncoder encoder = new BlockEncoder(MetricField.VALUES.length, points);
+        double[] values = new double[MetricField.VALUES.length];
+        long ts = 1_700_000_000_000L;
+        for (int i = 0; i < points; i++) {
+            ts += 60_000 + (i % 7 == 0 ? random.nextInt(3) : 0);
+            values[MetricField.RESPONSE_TIME.ordinal()] =
+                    MetricField.RESPONSE_TIME.quantize(120 + random.nextGaussian() * 5);
+            values[MetricField.REQUEST_COUNT.ordinal()] = 1_000 + random.nextInt(20);
+            values[MetricField.ERROR_COUNT.ordinal()] = random.nextInt(10) == 0 ? 1 : 0;
+            values[MetricField.ERROR_RATE.ordinal()] = MetricField.ERROR_RATE.quantize(values[2] / values[1]);
+            values[MetricField.THROUGHPUT.ordinal()] = MetricField.THROUGHPUT.quantize(values[1] / 60.0);
+            values[MetricField.CPU_USAGE.ordinal()] = MetricField.CPU_USAGE.quantize(40 + random.nextGaussian());
+            values[MetricField.MEMORY_USAGE.ordinal()] = MetricField.MEMORY_USAGE.quantize(62.5);
+            values[MetricField.NETWORK_LATENCY.ordinal()] =
+                    MetricField.NETWORK_LATENCY.quantize(8 + random.nextDouble());
+            encoder.append(ts, values);
+        }
+        byte[] block = encoder.toBytes();
+        double bytesPerValue = (double) block.length / (points * (MetricField.VALUES.length + 1));
+        assertTrue(bytesPerValue < 2.0, "bytes per value " + bytesPerValue);
+    }
+}
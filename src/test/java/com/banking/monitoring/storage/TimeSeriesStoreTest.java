@@ -0,0 +1,141 @@
+package com.banking.monitoring.storage;
+
+import com.banking.monitoring.model.ApiMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeSeriesStoreTest {
+    private static final long BASE = Instant.parse("2026-01-01T00:00:00Z").toEpochMilli();
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    @TempDir
+    Path directory;
+
+    private final AtomicLong clock = new AtomicLong(BASE);
+
+    private TimeSeriesStore store(int blockPoints) {
+        return new TimeSeriesStore(new SimpleMeterRegistry(), true, directory, blockPoints, Duration.ofMinutes(30),
+                Duration.ofHours(1), Duration.ofDays(7), Duration.ofDays(90), Duration.ofDays(730), false,
+                clock::get);
+    }
+
+    private static ApiMetrics metrics(String endpoint, long timestamp, double responseTime, int requests) {
+        return ApiMetrics.builder()
+                .endpoint(endpoint)
+                .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()))
+                .responseTime(responseTime)
+                .requestCount(requests)
+                .errorCount(requests / 10)
+                .errorRate(0.1)
+                .cpuUsage(42.123)
+                .build();
+    }
+
+    @Test
+    void appendedPoints_SurviveRestartAndTornTailIsTruncated() throws IOException {
+        TimeSeriesStore store = store(100);
+        store.start();
+        int points = 1_500;
+        for (int i = 0; i < points; i++) {
+            store.append(metrics("/api/payments", BASE + i * MINUTE, 100 + i, 10));
+        }
+        store.append(metrics("/api/payments", BASE - MINUTE, 1, 1));
+        assertEquals(1, store.getOutOfOrderCount());
+
+        List<ApiMetrics> live = store.read("/api/payments", Resolution.RAW, BASE, BASE + points * MINUTE);
+        assertEquals(points, live.size());
+        assertEquals(120.0, live.get(20).getResponseTime());
+        assertEquals(42.125, live.get(20).getCpuUsage(), "quantized to 1/64");
+        assertEquals(0.1, live.get(20).getErrorRate(), 1e-5);
+        store.stop();
+
+        try (Stream<Path> files = Files.list(directory.resolve("raw"))) {
+            Path last = files.sorted().reduce((a, b) -> b).orElseThrow();
+            Files.write(last, new byte[]{0x47, 0x52, 0x4C}, StandardOpenOption.APPEND);
+        }
+
+        TimeSeriesStore reopened = store(100);
+        reopened.start();
+        List<ApiMetrics> restored = reopened.read("/api/payments", Resolution.RAW, BASE + 10 * MINUTE,
+                BASE + 1_010 * MINUTE);
+        assertEquals(1_000, restored.size());
+        assertEquals(110.0, restored.get(0).getResponseTime());
+        assertEquals(10, restored.get(999).getRequestCount());
+
+        reopened.append(metrics("/api/payments", BASE + points * MINUTE, 7, 10));
+        reopened.append(metrics("/api/payments", BASE + MINUTE, 7, 10));
+        assertEquals(1, reopened.getOutOfOrderCount(), "head timestamp is restored from disk");
+        reopened.stop();
+    }
+
+    @Test
+    void maintenance_DownsamplesCompletedBucketsAndDeletesExpiredDays() {
+        TimeSeriesStore store = store(240);
+        store.start();
+        for (int i = 0; i < 180; i++) {
+            ApiMetrics sample = metrics("/api/accounts", BASE + i * MINUTE, i, 10);
+            sample.setAnomalyScore(i == 7 ? 0.75 : 0.0);
+            store.append(sample);
+        }
+        clock.set(BASE + 182 * MINUTE);
+        store.maintain();
+
+        List<ApiMetrics> fiveMinutes = store.read("/api/accounts", Resolution.FIVE_MINUTES, BASE, clock.get());
+        assertEquals(36, fiveMinutes.size());
+        assertEquals(2.0, fiveMinutes.get(0).getResponseTime(), "mean of 0..4");
+        assertEquals(50, fiveMinutes.get(0).getRequestCount(), "sum");
+        assertEquals(0.75, fiveMinutes.get(1).getAnomalyScore(), "max");
+        assertEquals(0.0, fiveMinutes.get(2).getAnomalyScore());
+
+        List<ApiMetrics> hours = store.read("/api/accounts", Resolution.ONE_HOUR, BASE, clock.get());
+        assertEquals(3, hours.size());
+        assertEquals(600, hours.get(2).getRequestCount());
+        assertEquals(149.5, hours.get(2).getResponseTime());
+
+        store.maintain();
+        assertEquals(36, store.read("/api/accounts", Resolution.FIVE_MINUTES, BASE, clock.get()).size(),
+                "completed buckets are downsampled once");
+
+        clock.set(BASE + TimeUnit.DAYS.toMillis(9));
+        store.maintain();
+        assertTrue(store.read("/api/accounts", Resolution.RAW, BASE, clock.get()).isEmpty());
+        assertFalse(Files.exists(directory.resolve("raw").resolve(BASE / TimeUnit.DAYS.toMillis(1) + ".seg")));
+        assertEquals(36, store.read("/api/accounts", Resolution.FIVE_MINUTES, BASE, clock.get()).size());
+        assertTrue(store.getEndpoints(Resolution.RAW).isEmpty(), "expired series are dropped");
+        assertEquals(Set.of("/api/accounts"), store.getEndpoints(Resolution.FIVE_MINUTES));
+        store.stop();
+    }
+
+    @Test
+    void read_DoesNotRecreateDeletedSegment() throws IOException {
+        TimeSeriesStore store = store(100);
+        store.start();
+        for (int i = 0; i < 100; i++) {
+            store.append(metrics("/api/payments", BASE + i * MINUTE, 100 + i, 10));
+        }
+        store.close();
+        Path segment = directory.resolve("raw").resolve(BASE / TimeUnit.DAYS.toMillis(1) + ".seg");
+        Files.delete(segment);
+
+        assertTrue(store.read("/api/payments", Resolution.RAW, BASE, BASE + 100 * MINUTE).isEmpty());
+        assertFalse(Files.exists(segment));
+        store.stop();
+    }
+}
@@ -0,0 +1,324 @@
+package com.banking.monitoring.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    private WriteAheadLog writeAheadLog() {
+        // commits only on rotate and close, so the tests decide what each segment holds
+        return new WriteAheadLog(new SimpleMeterRegistry(), true, directory, Duration.ofHours(1),
+                WriteAheadLog.Fsync.EVERY_COMMIT, Duration.ZERO);
+    }
+
+    @Test
+    void replay_ReturnsRecordsInCommitOrder() throws IOException {
+        WriteAheadLog log = writeAheadLog();
+        List<String> changes = new ArrayList<>(List.of("first"));
+        log.register((journal, full) -> {
+            changes.forEach(change -> journal.counters("/api/" + change, 3, 300, 1));
+            changes.clear();
+        });
+        log.register((journal, full) -> {
+            journal.samples("/api/first", new double[]{100, 110}, new double[]{0, 0.5}, null);
+            journal.systemMetrics("/api/first", 40, Double.NaN, 8);
+        });
+        log.open();
+        log.rotate();
+        changes.add("second");
+        log.close();
+
+        Recorder recorder = new Recorder();
+        assertEquals(6, log.replay(Long.MAX_VALUE, recorder));
+        assertEquals(List.of(
+                "counters /api/first 3 300 1",
+                "samples /api/first [100.0, 110.0] [0.0, 0.5] null",
+                "system /api/first 40.0 NaN 8.0",
+                "counters /api/second 3 300 1",
+                "samples /api/first [100.0, 110.0] [0.0, 0.5] null",
+                "system /api/first 40.0 NaN 8.0"), recorder.records);
+        assertTrue(log.getBytesWritten() > 0);
+    }
+
+    @Test
+    void replay_StopsAtTornTail() throws IOException {
+        WriteAheadLog log = writeAheadLog();
+        int[] commit = {0};
+        log.register((journal, full) -> journal.counters("/api/e", ++commit[0], 0, 0));
+        log.open();
+        long sealed = log.rotate();
+        log.close();
+
+        Path segment = directory.resolve(String.format("%016d.wal", sealed));
+        try (FileChannel out = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            out.truncate(out.size() - 3);
+        }
+        Recorder recorder = new Recorder();
+        log.replay(Long.MAX_VALUE, recorder);
+        // the torn first segment is skipped, the next one is still read
+        assertEquals(List.of("counters /api/e 2 0 0"), recorder.records);
+    }
+
+    @Test
+    void writeCheckpoint_ReplacesCoveredSegments() throws IOException {
+        WriteAheadLog log = writeAheadLog();
+        log.register((journal, full) -> journal.baselineExported("/api/old"));
+        log.open();
+        long sealed = log.rotate();
+        log.writeCheckpoint(sealed, journal -> journal.baseline("/api/e", new double[]{1, 2}, new double[]{0, 0},
+                new double[]{1, 4}));
+        log.close();
+
+        assertFalse(Files.exists(directory.resolve(String.format("%016d.wal", sealed))));
+        Recorder recorder = new Recorder();
+        log.replay(Long.MAX_VALUE, recorder);
+        assertEquals(List.of(
+                "baseline /api/e [1.0, 2.0] [0.0, 0.0] [1.0, 4.0]",
+                "baselineExported /api/old"), recorder.records);
+
+        // a reopened log continues after the checkpoint
+        WriteAheadLog reopened = writeAheadLog();
+        reopened.open();
+        assertTrue(reopened.rotate() > sealed);
+        reopened.close();
+    }
+
+    @Test
+    void failedCommit_IsCutOffAndFollowedByFullState() throws IOException {
+        assertFailedCommitRecovers(false);
+    }
+
+    @Test
+    void failedCommit_MovesToANewSegmentIfItCannotBeCutOff() throws IOException {
+        assertFailedCommitRecovers(true);
+    }
+
+    private void assertFailedCommitRecovers(boolean truncateFails) throws IOException {
+        List<FailingChannel> channels = new ArrayList<>();
+        WriteAheadLog log = new WriteAheadLog(new SimpleMeterRegistry(), true, directory, Duration.ofHours(1),
+                WriteAheadLog.Fsync.EVERY_COMMIT, Duration.ZERO, file -> {
+            FailingChannel channel = new FailingChannel(FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE), truncateFails);
+            channels.add(channel);
+            return channel;
+        });
+        CountingSource source = new CountingSource();
+        log.register(source);
+        log.open();
+        log.rotate();
+
+        channels.get(channels.size() - 1).failNextWrite = true;
+        assertThrows(IOException.class, log::rotate);
+        assertEquals(List.of(false, false), source.full);
+        assertEquals(1, source.committed);
+        assertEquals(truncateFails ? 3 : 2, channels.size());
+
+        log.close();
+
+        // the failed commit's changes are kept and written as full state by the next one
+        assertEquals(List.of(false, false, true), source.full);
+        assertEquals(2, source.committed);
+        Recorder recorder = new Recorder();
+        log.replay(Long.MAX_VALUE, recorder);
+        assertEquals(List.of(
+                "counters /api/e 1 0 0",
+                "countersExported /api/old",
+                "counters /api/e 3 0 0"), recorder.records);
+    }
+
+    @Test
+    void fsyncPolicy_ParsesKeys() {
+        assertEquals(WriteAheadLog.Fsync.EVERY_COMMIT, WriteAheadLog.Fsync.fromKey("every-commit"));
+        assertEquals(WriteAheadLog.Fsync.NEVER, WriteAheadLog.Fsync.fromKey("NEVER"));
+        assertThrows(IllegalArgumentException.class, () -> WriteAheadLog.Fsync.fromKey("sometimes"));
+    }
+
+    /**
+     * Journals the number of commits asked for as counters, and an export until the second commit is acknowledged.
+     */
+    private static final class CountingSource implements JournalSource {
+        private final List<Boolean> full = new ArrayList<>();
+        private int committed;
+
+        @Override
+        public void journal(StateJournal journal, boolean full) {
+            this.full.add(full);
+            if (committed == 1) {
+                journal.countersExported("/api/old");
+            }
+            journal.counters("/api/e", this.full.size(), 0, 0);
+        }
+
+        @Override
+        public void committed() {
+            committed++;
+        }
+    }
+
+    /**
+     * Writes part of the frame and fails when told to, and optionally cannot be truncated.
+     */
+    private static final class FailingChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final boolean truncateFails;
+        private boolean failNextWrite;
+
+        private FailingChannel(FileChannel delegate, boolean truncateFails) {
+            this.delegate = delegate;
+            this.truncateFails = truncateFails;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer header = sources[offset];
+                delegate.write(header.slice().limit(header.remaining() / 2));
+                throw new IOException("No space left on device");
+            }
+            return delegate.write(sources, offset, length);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (truncateFails) {
+                throw new IOException("Input/output error");
+            }
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            return delegate.write(source);
+        }
+
+        @Override
+        public int write(ByteBuffer source, long position) throws IOException {
+            return delegate.write(source, position);
+        }
+
+        @Override
+        public int read(ByteBuffer target) throws IOException {
+            return delegate.read(target);
+        }
+
+        @Override
+        public long read(ByteBuffer[] targets, int offset, int length) throws IOException {
+            return delegate.read(targets, offset, length);
+        }
+
+        @Override
+        public int read(ByteBuffer target, long position) throws IOException {
+            return delegate.read(target, position);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long position) throws IOException {
+            delegate.position(position);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel source, long position, long count) throws IOException {
+            return delegate.transferFrom(source, position, count);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static final class Recorder implements StateJournal {
+        private final List<String> records = new ArrayList<>();
+
+        @Override
+        public void counters(String endpoint, int requests, long responseTimeSum, int errors) {
+            records.add("counters " + endpoint + " " + requests + " " + responseTimeSum + " " + errors);
+        }
+
+        @Override
+        public void systemMetrics(String endpoint, double cpu, double memory, double latency) {
+            records.add("system " + endpoint + " " + cpu + " " + memory + " " + latency);
+        }
+
+        @Override
+        public void samples(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            records.add("samples " + endpoint + " " + Arrays.toString(responseTimes) + " "
+                    + Arrays.toString(errorRates) + " " + Arrays.toString(weights));
+        }
+
+        @Override
+        public void baseline(String endpoint, double[] responseTimes, double[] errorRates, double[] weights) {
+            records.add("baseline " + endpoint + " " + Arrays.toString(responseTimes) + " "
+                    + Arrays.toString(errorRates) + " " + Arrays.toString(weights));
+        }
+
+        @Override
+        public void countersExported(String endpoint) {
+            records.add("countersExported " + endpoint);
+        }
+
+        @Override
+        public void baselineExported(String endpoint) {
+            records.add("baselineExported " + endpoint);
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.banking.monitoring.stub;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in for the OpenAI chat-completions API with configurable latency and failure injection. It runs on its
+ * own event loops so a caller blocking the shared Reactor Netty loops cannot stall the stub. With a concurrency limit
+ * it behaves like a provider at its rate limit: at most that many completions are served at once and the rest queue.
+ * Requests with {@code "stream": true} are answered as Server-Sent Events, one word with its leading space per chunk
+ * every {@code tokenInterval}; streams the client abandons are counted.
+ */
+@Slf4j
+public class OpenAiStubServer implements AutoCloseable {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONTENT = "The endpoint shows elevated latency. Check downstream dependencies, "
+            + "connection pool saturation and recent deployments; consider caching hot reads.";
+
+    private final LoopResources loops;
+    private final DisposableServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong abandonedStreams = new AtomicLong();
+    private volatile Duration tokenInterval = Duration.ofMillis(20);
+    private volatile Duration latency;
+    private volatile Duration jitter;
+    private volatile double failureRate;
+    private long[] slotFreeNanos = new long[0];
+
+    private OpenAiStubServer(int port, Duration latency, Duration jitter, double failureRate) {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.failureRate = failureRate;
+        this.loops = LoopResources.create("openai-stub", 2, true);
+        this.server = HttpServer.create()
+                .runOn(loops)
+                .port(port)
+                .route(routes -> routes.post("/v1/chat/completions", this::chatCompletion))
+                .bindNow();
+    }
+
+    public static OpenAiStubServer start(int port, Duration latency, Duration jitter, double failureRate) {
+        OpenAiStubServer stub = new OpenAiStubServer(port, latency, jitter, failureRate);
+        log.info("OpenAI stub listening on {} (latency {} ± {}, failure rate {})",
+                stub.getBaseUrl(), latency, jitter, failureRate);
+        return stub;
+    }
+
+    public static OpenAiStubServer start() {
+        return start(0, Duration.ZERO, Duration.ZERO, 0.0);
+    }
+
+    private Mono<Void> chatCompletion(HttpServerRequest request, HttpServerResponse response) {
+        requests.incrementAndGet();
+        return request.receive().aggregate().asString().defaultIfEmpty("{}")
+                .delayUntil(body -> Mono.delay(nextDelay()))
+                .flatMap(body -> {
+                    if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+                        failures.incrementAndGet();
+                        return response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                                .sendString(Mono.just("{\"error\":{\"message\":\"injected failure\","
+                                        + "\"type\":\"server_error\"}}"))
+                                .then();
+                    }
+                    if (isStream(body)) {
+                        return response.header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+                                .sendString(chunks(), StandardCharsets.UTF_8)
+                                .then();
+                    }
+                    return response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                            .sendString(Mono.just(completion(body)))
+                            .then();
+                });
+    }
+
+    private Flux<String> chunks() {
+        String[] words = CONTENT.split("(?= )");
+        return Flux.interval(tokenInterval)
+                .take(words.length)
+                .map(i -> "data: " + chunk(words[i.intValue()]) + "\n\n")
+                .concatWith(Mono.just("data: [DONE]\n\n"))
+                .doOnCancel(abandonedStreams::incrementAndGet);
+    }
+
+    private static boolean isStream(String requestBody) {
+        try {
+            return MAPPER.readTree(requestBody).path("stream").asBoolean(false);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static String chunk(String content) {
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("id", "chatcmpl-stub");
+        result.put("object", "chat.completion.chunk");
+        result.put("created", System.currentTimeMillis() / 1000);
+        result.put("model", "gpt-3.5-turbo");
+        ObjectNode choice = result.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("delta").put("content", content);
+        choice.putNull("finish_reason");
+        return result.toString();
+    }
+
+    private Duration nextDelay() {
+        long jitterNanos = jitter.toNanos();
+        long extra = jitterNanos > 0 ? ThreadLocalRandom.current().nextLong(jitterNanos + 1) : 0;
+        Duration service = latency.plusNanos(extra);
+        return queued(service);
+    }
+
+    private synchronized Duration queued(Duration service) {
+        if (slotFreeNanos.length == 0) {
+            return service;
+        }
+        int slot = 0;
+        for (int i = 1; i < slotFreeNanos.length; i++) {
+            if (slotFreeNanos[i] < slotFreeNanos[slot]) {
+                slot = i;
+            }
+        }
+        long now = System.nanoTime();
+        slotFreeNanos[slot] = Math.max(now, slotFreeNanos[slot]) + service.toNanos();
+        return Duration.ofNanos(slotFreeNanos[slot] - now);
+    }
+
+    private static String completion(String requestBody) {
+        String model = "gpt-3.5-turbo";
+        try {
+            JsonNode request = MAPPER.readTree(requestBody);
+            model = request.path("model").asText(model);
+        } catch (Exception e) {
+            log.debug("Unparseable stub request body", e);
+        }
+        int promptTokens = Math.max(1, requestBody.length() / 4);
+        int completionTokens = CONTENT.length() / 4;
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("id", "chatcmpl-stub");
+        result.put("object", "chat.completion");
+        result.put("created", System.currentTimeMillis() / 1000);
+        result.put("model", model);
+        ObjectNode choice = result.putArray("choices").addObject();
+        choice.put("index", 0);
+        choice.putObject("message").put("role", "assistant").put("content", CONTENT);
+        choice.put("finish_reason", "stop");
+        result.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", completionTokens)
+                .put("total_tokens", promptTokens + completionTokens);
+        return result.toString();
+    }
+
+    public String getBaseUrl() {
+        return "http://localhost:" + server.port() + "/";
+    }
+
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Serves at most {@code concurrency} completions at a time, queueing the rest; 0 removes the limit.
+     */
+    public synchronized void setConcurrency(int concurrency) {
+        this.slotFreeNanos = new long[Math.max(0, concurrency)];
+    }
+
+    public void setTokenInterval(Duration tokenInterval) {
+        this.tokenInterval = tokenInterval;
+    }
+
+    /**
+     * Streamed completions whose client disconnected before the last chunk.
+     */
+    public long getAbandonedStreams() {
+        return abandonedStreams.get();
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loops.dispose();
+    }
+}